@@ -1,5 +1,8 @@
 package com.xyz.configuration;
 
+import com.xyz.properties.ChatSessionProperties;
+import com.xyz.properties.StorageProperties;
+import com.xyz.properties.ThumbnailProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -30,4 +33,52 @@ public class AsyncConfiguration {
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    /**
+     * 文件上传线程池：上传是网络 IO，与异步任务分开，避免大批量上传占满异步任务线程
+     * 队列满时由请求线程自己上传，并发上传数有上限
+     */
+    @Bean("uploadExecutor")
+    public Executor uploadExecutor(StorageProperties storageProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(storageProperties.getUploadThreads());
+        executor.setMaxPoolSize(storageProperties.getUploadThreads());
+        executor.setQueueCapacity(storageProperties.getUploadQueueCapacity());
+        executor.setThreadNamePrefix("upload-");
+        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 缩略图线程池：解码和缩放是 CPU 密集计算，线程数不超过 CPU 核数，与上传 IO 线程分开
+     * 队列满时拒绝（调用方跳过缩略图），不占用上传线程和请求线程
+     */
+    @Bean("thumbnailExecutor")
+    public Executor thumbnailExecutor(ThumbnailProperties thumbnailProperties) {
+        int workers = thumbnailProperties.getWorkers() > 0
+                ? thumbnailProperties.getWorkers() : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(thumbnailProperties.getQueueCapacity());
+        executor.setThreadNamePrefix("thumbnail-");
+        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 聊天发送线程池：WebSocket 帧由发送线程从各连接的队列中取出发送，请求线程和转发线程只入队，不会被慢连接阻塞
+     * 每个连接同一时刻最多有一个发送任务，任务数不超过连接数
+     */
+    @Bean("chatSendExecutor")
+    public Executor chatSendExecutor(ChatSessionProperties chatSessionProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(chatSessionProperties.getSenderThreads());
+        executor.setMaxPoolSize(chatSessionProperties.getSenderThreads());
+        executor.setThreadNamePrefix("chat-send-");
+        executor.initialize();
+        return executor;
+    }
+}
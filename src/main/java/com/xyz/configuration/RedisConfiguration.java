@@ -5,6 +5,14 @@ import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.xyz.entity.ChatMessage;
+import com.xyz.entity.User;
+import com.xyz.properties.RedisCodecProperties;
+import com.xyz.serializer.CompactRedisSerializer;
+import com.xyz.vo.GoodsCardVO;
+import com.xyz.vo.GoodsDetailVO;
+import com.xyz.vo.UserListVO;
+import com.xyz.vo.UserProfileVO;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
@@ -13,8 +21,10 @@ import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
@@ -27,17 +37,18 @@ import java.time.Duration;
 public class RedisConfiguration {
 
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory,
+                                                       RedisCodecProperties redisCodecProperties) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
 
-        Jackson2JsonRedisSerializer<Object> jsonSerializer = createJsonSerializer();
+        RedisSerializer<Object> valueSerializer = createValueSerializer(redisCodecProperties);
         StringRedisSerializer stringSerializer = new StringRedisSerializer();
 
         template.setKeySerializer(stringSerializer);
         template.setHashKeySerializer(stringSerializer);
-        template.setValueSerializer(jsonSerializer);
-        template.setHashValueSerializer(jsonSerializer);
+        template.setValueSerializer(valueSerializer);
+        template.setHashValueSerializer(valueSerializer);
 
         template.afterPropertiesSet();
         return template;
@@ -47,13 +58,13 @@ public class RedisConfiguration {
      * Spring Cache 缓存管理器
      */
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
-        Jackson2JsonRedisSerializer<Object> jsonSerializer = createJsonSerializer();
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory, RedisCodecProperties redisCodecProperties) {
+        RedisSerializer<Object> valueSerializer = createValueSerializer(redisCodecProperties);
         
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofMinutes(30))  // 默认过期时间30分钟
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(jsonSerializer))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer))
                 .disableCachingNullValues();  // 不缓存null值
 
         return RedisCacheManager.builder(connectionFactory)
@@ -61,7 +72,39 @@ public class RedisConfiguration {
                 .build();
     }
 
-    private Jackson2JsonRedisSerializer<Object> createJsonSerializer() {
+    /**
+     * Redis 消息监听容器（Pub/Sub），用于跨节点广播本地缓存失效
+     * 监听器由各组件在应用启动完成后自行注册，Redis 不可用时不影响启动
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    /**
+     * 值序列化器：缓存对象按紧凑二进制编码，其他值（数字、字符串等）仍为 JSON
+     * 类型ID写入缓存数据中，一经使用不能修改或复用；字段只能追加在末尾
+     */
+    private RedisSerializer<Object> createValueSerializer(RedisCodecProperties redisCodecProperties) {
+        return new CompactRedisSerializer(createJsonSerializer(), redisCodecProperties.isBinaryEnabled(),
+                redisCodecProperties.getCompressThreshold())
+                .register(1, GoodsCardVO.class, "id", "ownerId", "briefDescription", "coverUrl", "goodsType",
+                        "collectNum", "sellPrice", "rentPrice", "ownerName", "ownerAvatar", "updateTimestamp")
+                .register(2, GoodsDetailVO.class, "id", "ownerId", "goodsType", "description", "imageUrls",
+                        "categoryId", "conditionLevel", "collectNum", "sellPrice", "rentPrice", "status",
+                        "createTime", "updateTime", "ownerName", "ownerAvatar")
+                .register(3, User.class, "id", "accountNum", "password", "email", "phone", "nickname", "gender",
+                        "image", "bio", "status", "createTime", "updateTime")
+                .register(4, UserListVO.class, "id", "accountNum", "nickname", "email", "phone", "image", "status",
+                        "createTime", "createTimeTimestamp")
+                .register(5, UserProfileVO.class, "id", "nickname", "avatar")
+                .register(6, ChatMessage.class, "id", "sessionId", "senderId", "receiverId", "messageType", "content",
+                        "goodsId", "isRead", "isRecalled", "sendTime");
+    }
+
+    private RedisSerializer<Object> createJsonSerializer() {
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
         objectMapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
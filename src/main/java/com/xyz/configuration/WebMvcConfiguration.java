@@ -1,12 +1,16 @@
 package com.xyz.configuration;
 
+import com.xyz.properties.StorageProperties;
 import com.xyz.util.JwtTokenAdminInterceptor;
 import com.xyz.util.JwtTokenUserInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.nio.file.Paths;
+
 @Configuration
 public class WebMvcConfiguration implements WebMvcConfigurer {
     @Autowired
@@ -15,6 +19,9 @@ public class WebMvcConfiguration implements WebMvcConfigurer {
     @Autowired
     private JwtTokenUserInterceptor jwtTokenUserInterceptor;
 
+    @Autowired
+    private StorageProperties storageProperties;
+
     /**
      * 注册自定义拦截器
      */
@@ -39,4 +46,15 @@ public class WebMvcConfiguration implements WebMvcConfigurer {
         // 文档接口不需要任何验证
         // Swagger等文档接口会被上面的拦截器自动跳过
     }
+
+    /**
+     * 本地文件存储时，通过 /files/** 访问上传的文件
+     */
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        if ("local".equals(storageProperties.getType())) {
+            String dir = Paths.get(storageProperties.getLocalDir()).toAbsolutePath().normalize().toUri().toString();
+            registry.addResourceHandler("/files/**").addResourceLocations(dir.endsWith("/") ? dir : dir + "/");
+        }
+    }
 }
\ No newline at end of file
@@ -23,6 +23,11 @@ public class ChatConstant {
      */
     public static final int DEFAULT_PAGE_SIZE = 50;
     
+    /**
+     * 每个会话在 Redis 中缓存的最新消息条数（不少于默认分页大小，打开会话的第一页直接从缓存读取）
+     */
+    public static final int RECENT_MESSAGE_SIZE = 50;
+    
     /**
      * 消息撤回时间限制(毫秒) - 2分钟
      */
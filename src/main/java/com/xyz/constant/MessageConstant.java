@@ -29,6 +29,8 @@ public  class MessageConstant {
     public static final String CHAT_RECALL_TIME_EXPIRED = "消息发送超过2分钟,无法撤回";
     public static final String CHAT_RECALL_NO_PERMISSION = "只能撤回自己发送的消息";
     public static final String CHAT_MESSAGE_ALREADY_RECALLED = "消息已被撤回";
+    public static final String CHAT_PAGE_NOT_SUPPORTED = "历史消息已改为按消息ID翻页，请使用 beforeId 或升级客户端";
+    public static final String ID_LEASE_EXPIRED = "服务繁忙，请稍后重试";
     
     // 分类相关
     public static final String CATEGORY_NOT_FOUND = "分类不存在";
@@ -15,6 +15,12 @@ public class RedisConstant {
     /** 商品详情缓存过期时间随机浮动范围（分钟），防止缓存雪崩 */
     public static final long GOODS_DETAIL_TTL_RANDOM = 5;
 
+    /** 商品本地缓存失效广播频道（Pub/Sub），消息内容为商品ID，各节点收到后清除自己的L1缓存 */
+    public static final String GOODS_CACHE_INVALIDATE_CHANNEL = "goods:cache:invalidate";
+
+    /** 商品变更广播频道（Pub/Sub），消息内容为 {节点标识}:{商品ID}，各节点收到后从 MySQL 重新加载该商品，更新自己的搜索索引和筛选索引 */
+    public static final String GOODS_CHANGED_CHANNEL = "goods:changed";
+
 
     // ========== 用户相关 ==========
     /** 用户信息缓存前缀 - user:info:userId */
@@ -38,6 +44,18 @@ public class RedisConstant {
     /** 用户卡片缓存过期时间随机浮动范围（分钟），防止缓存雪崩 */
     public static final long USER_CARD_TTL_RANDOM = 5;
 
+    /** 用户资料片段缓存前缀 - user:profile:{userId}，只包含昵称和头像，商品卡片/详情读取时批量填充发布者信息 */
+    public static final String USER_PROFILE_KEY = "user:profile:";
+
+    /** 用户资料片段缓存过期时间（分钟），资料修改时主动清除 */
+    public static final long USER_PROFILE_TTL = 60;
+
+    /** 用户资料片段缓存过期时间随机浮动范围（分钟），防止缓存雪崩 */
+    public static final long USER_PROFILE_TTL_RANDOM = 10;
+
+    /** 用户资料本地缓存失效广播频道（Pub/Sub），消息内容为用户ID */
+    public static final String USER_PROFILE_INVALIDATE_CHANNEL = "user:profile:invalidate";
+
 
     // ========== Token 相关 ==========
     /** JWT Token 黑名单前缀 - token:blacklist:token */
@@ -69,6 +87,15 @@ public class RedisConstant {
     public static final String FAVORITE_USER_IDS_KEY = "favorite:user:";
     public static final String FAVORITE_USER_IDS_SUFFIX = ":ids";
 
+    /** 用户收藏状态 Hash - favorite:user:{userId}:state，field 为商品ID、value 为收藏时间戳，field 0 为加载标记，不过期，是收藏状态的权威数据 */
+    public static final String FAVORITE_USER_STATE_SUFFIX = ":state";
+
+    /** 收藏状态待落库集合 - favorite:sync:pending，成员为 {userId}:{goodsId} */
+    public static final String FAVORITE_SYNC_PENDING_KEY = "favorite:sync:pending";
+
+    /** 收藏状态落库锁 - favorite:sync:lock */
+    public static final String FAVORITE_SYNC_LOCK_KEY = "favorite:sync:lock";
+
     /** 分类商品ID ZSet缓存前缀 - goods:cat:{categoryId}:ids，Score为更新时间戳 */
     public static final String GOODS_CAT_IDS_KEY = "goods:cat:";
     public static final String GOODS_CAT_IDS_SUFFIX = ":ids";
@@ -92,15 +119,112 @@ public class RedisConstant {
     /** 商品卡片缓存过期时间（分钟） */
     public static final long GOODS_CARD_TTL = 30;
 
-    /** 商品点赞数缓存前缀 - goods:collect:{goodsId} */
-    public static final String GOODS_COLLECT_KEY = "goods:collect:";
+    /** 商品卡片缓存过期时间随机浮动范围（分钟），防止缓存雪崩 */
+    public static final long GOODS_CARD_TTL_RANDOM = 5;
+
+    /** 商品点赞数分桶 Hash 前缀 - goods:collect:b:{goodsId / 桶大小}，field 为 goodsId % 桶大小，value 为点赞数 */
+    public static final String GOODS_COLLECT_BUCKET_KEY = "goods:collect:b:";
+
+    /** 每个点赞数桶的商品数，不超过 Redis 默认的 hash-max-listpack-entries(128)，桶保持 listpack 紧凑编码 */
+    public static final int GOODS_COLLECT_BUCKET_SIZE = 100;
 
-    /** 商品点赞数缓存过期时间（分钟） */
+    /** 商品点赞数缓存过期时间（分钟），按桶设置，桶内任意商品读取回填或更新时续期 */
     public static final long GOODS_COLLECT_TTL = 60;
 
-    /** 商品收藏数同步标记集合 - goods:collect:sync:pending */
+    /** 商品点赞数缓存过期时间随机浮动范围（分钟），防止缓存雪崩 */
+    public static final long GOODS_COLLECT_TTL_RANDOM = 5;
+
+    /** 商品收藏数同步标记集合 - goods:collect:sync:pending（旧版单个 Set，只用于迁移时读取剩余成员） */
     public static final String GOODS_COLLECT_SYNC_PENDING_KEY = "goods:collect:sync:pending";
 
+    /** 商品收藏数待同步分片 ZSet 前缀 - goods:collect:sync:pending:{shard}，成员为商品ID，score 为首次标记时间戳 */
+    public static final String GOODS_COLLECT_SYNC_SHARD_KEY = "goods:collect:sync:pending:";
+
+    /** 商品收藏数同步分片锁前缀 - goods:collect:sync:lock:{shard} */
+    public static final String GOODS_COLLECT_SYNC_LOCK_KEY = "goods:collect:sync:lock:";
+
+    /** 商品收藏数同步分片锁过期时间（秒） */
+    public static final long GOODS_COLLECT_SYNC_LOCK_TTL = 60;
+
     /** ZSet缓存过期时间（分钟） */
     public static final long GOODS_IDS_TTL = 60;
+
+    /** 热门商品 ZSet - goods:trending，Score为按时间衰减的收藏热度（相对 goods:trending:epoch 的前向衰减值），不过期 */
+    public static final String GOODS_TRENDING_KEY = "goods:trending";
+
+    /** 热门商品热度的基准时间戳（毫秒），重新缩放时更新 */
+    public static final String GOODS_TRENDING_EPOCH_KEY = "goods:trending:epoch";
+
+    /** 热门商品 ZSet 初始化锁过期时间（分钟） */
+    public static final long GOODS_TRENDING_INIT_LOCK_TTL = 10;
+
+
+    // ========== 缓存重建相关 ==========
+    /** 缓存重建租约锁前缀 - lock:rebuild:{缓存key}，同一时刻只允许一个节点回源重建 */
+    public static final String REBUILD_LOCK_KEY = "lock:rebuild:";
+
+    /** 空结果（负缓存）过期时间（分钟），防止不存在的数据每次都打到 MySQL */
+    public static final long EMPTY_CACHE_TTL = 2;
+
+    /** 空结果占位值（商品详情等 String 类型缓存使用） */
+    public static final String EMPTY_CACHE_VALUE = "";
+
+
+    // ========== 布隆过滤器相关 ==========
+    /** 布隆过滤器前缀 - bloom:{name}:ready / layers / count:{i} / bits:{i}，name 为 goods 或 user */
+    public static final String BLOOM_KEY = "bloom:";
+
+    /** 布隆过滤器构建锁过期时间（分钟），同一时刻只允许一个节点构建 */
+    public static final long BLOOM_BUILD_LOCK_TTL = 30;
+
+
+    // ========== 文件上传相关 ==========
+    /** 已签发、待确认的直传凭证前缀 - upload:pending:{objectKey}，值为 {userId}|{contentType}|{maxBytes} */
+    public static final String UPLOAD_PENDING_KEY = "upload:pending:";
+
+    /** 直传凭证过期后仍可确认的宽限时间（秒），覆盖凭证过期前开始、过期后才完成的上传 */
+    public static final long UPLOAD_PENDING_GRACE = 600;
+
+    /** 待确认直传对象的清理队列 - ZSet，member 为对象名，score 为凭证确认截止时间戳（毫秒），过期未确认的对象由定时任务删除 */
+    public static final String UPLOAD_EXPIRY_KEY = "upload:expiry";
+
+
+    // ========== 聊天路由相关 ==========
+    /** 用户在线节点 Hash - chat:online:nodes:{userId}，field 为用户有 WebSocket 连接的节点标识，value 为该节点记录的过期时间戳（毫秒） */
+    public static final String CHAT_ONLINE_KEY = "chat:online:nodes:";
+
+    /** 节点消息投递频道前缀 - chat:route:{nodeId}，每个节点只订阅自己的频道 */
+    public static final String CHAT_ROUTE_CHANNEL = "chat:route:";
+
+    /** 待落库的聊天消息 Stream，消息写入 MySQL 并确认后删除 */
+    public static final String CHAT_MESSAGE_STREAM_KEY = "chat:message:stream";
+
+    /** 聊天消息落库消费组，每个节点以自己的节点标识作为消费者 */
+    public static final String CHAT_MESSAGE_STREAM_GROUP = "chat-writer";
+
+    /** 多次投递仍无法落库的聊天消息 Stream（原字段 + recordId + reason），人工排查后处理 */
+    public static final String CHAT_MESSAGE_DEAD_LETTER_KEY = "chat:message:dead-letter";
+
+    /** 会话最新消息 List - chat:recent:{sessionId}，按消息ID从新到旧，最多 ChatConstant.RECENT_MESSAGE_SIZE 条 */
+    public static final String CHAT_RECENT_KEY = "chat:recent:";
+
+    /** 会话最新消息版本号 - chat:recent:gen:{sessionId}，每次写入或失效时递增，防止并发回填写入旧数据 */
+    public static final String CHAT_RECENT_GEN_KEY = "chat:recent:gen:";
+
+    /** 会话最新消息缓存过期时间（小时） */
+    public static final long CHAT_RECENT_TTL = 72;
+
+    /** 用户未读消息总数缓存 - chat:unread:total:{userId}，未读数变化时删除 */
+    public static final String CHAT_UNREAD_TOTAL_KEY = "chat:unread:total:";
+
+
+    // ========== 分布式ID相关 ==========
+    /** ID生成器工作节点号租约 - id:worker:lease:{workerId}，value 为持有者标识，过期后可被其他节点租用 */
+    public static final String ID_WORKER_LEASE_KEY = "id:worker:lease:";
+
+    /** 工作节点号已分配的最大时间戳 - id:worker:last:{workerId}，下一任持有者从该时间戳之后开始分配 */
+    public static final String ID_WORKER_LAST_KEY = "id:worker:last:";
+
+    /** 工作节点号最大时间戳的保留时间（天） */
+    public static final long ID_WORKER_LAST_TTL = 7;
 }
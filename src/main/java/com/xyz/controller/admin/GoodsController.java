@@ -40,8 +40,9 @@ public class GoodsController {
     public Result<PageResult<GoodsCardVO>> getGoodsPage(
             @Parameter(description = "分类ID") @RequestParam Long categoryId,
             @Parameter(description = "游标（首次请求不传或传null）") @RequestParam(required = false) Long cursor,
+            @Parameter(description = "游标ID（上一页返回的 nextCursorId）") @RequestParam(required = false) Long cursorId,
             @Parameter(description = "每页数量") @RequestParam(defaultValue = "10") Integer size) {
-        PageResult<GoodsCardVO> page = goodsQueryService.getGoodsPageByCategoryId(categoryId, cursor, size);
+        PageResult<GoodsCardVO> page = goodsQueryService.getGoodsPageByCategoryId(categoryId, cursor, cursorId, size);
         return Result.success(page);
     }
 
@@ -53,8 +54,9 @@ public class GoodsController {
     public Result<PageResult<GoodsCardVO>> getGoodsByOwner(
             @Parameter(description = "用户ID") @PathVariable Long ownerId,
             @Parameter(description = "游标（首次请求不传或传null）") @RequestParam(required = false) Long cursor,
+            @Parameter(description = "游标ID（上一页返回的 nextCursorId）") @RequestParam(required = false) Long cursorId,
             @Parameter(description = "每页数量") @RequestParam(defaultValue = "10") Integer size) {
-        PageResult<GoodsCardVO> page = goodsQueryService.getUserPublishedGoods(ownerId, cursor, size);
+        PageResult<GoodsCardVO> page = goodsQueryService.getUserPublishedGoods(ownerId, cursor, cursorId, size);
         return Result.success(page);
     }
 
@@ -66,8 +68,9 @@ public class GoodsController {
     public Result<PageResult<GoodsCardVO>> searchGoods(
             @Parameter(description = "关键词") @RequestParam String keyword,
             @Parameter(description = "游标（首次请求不传或传null）") @RequestParam(required = false) Long cursor,
+            @Parameter(description = "游标ID（上一页返回的 nextCursorId）") @RequestParam(required = false) Long cursorId,
             @Parameter(description = "每页数量") @RequestParam(defaultValue = "10") Integer size) {
-        PageResult<GoodsCardVO> page = goodsService.searchGoods(keyword, cursor, size);
+        PageResult<GoodsCardVO> page = goodsService.searchGoods(keyword, cursor, cursorId, size);
         return Result.success(page);
     }
 
@@ -0,0 +1,156 @@
+package com.xyz.controller.admin;
+
+import com.xyz.event.GoodsEventDispatcher;
+import com.xyz.service.CollectNumSyncService;
+import com.xyz.util.AliOssUtil;
+import com.xyz.util.BulkCacheWriter;
+import com.xyz.util.ChatMessageRouter;
+import com.xyz.util.ChatMessageWriter;
+import com.xyz.util.DistributedIdGenerator;
+import com.xyz.util.GoodsLocalCache;
+import com.xyz.util.GoodsFacetIndex;
+import com.xyz.util.GoodsSearchIndex;
+import com.xyz.util.IdBloomFilterUtil;
+import com.xyz.vo.Result;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 管理员-运行监控控制器（缓存命中率等运行指标）
+ */
+@RestController
+@RequestMapping("/admin/monitor")
+@Tag(name = "运行监控")
+public class MonitorController {
+
+    @Autowired
+    private GoodsLocalCache goodsLocalCache;
+
+    @Autowired
+    private IdBloomFilterUtil idBloomFilterUtil;
+
+    @Autowired
+    private BulkCacheWriter bulkCacheWriter;
+
+    @Autowired
+    private GoodsSearchIndex goodsSearchIndex;
+
+    @Autowired
+    private GoodsFacetIndex goodsFacetIndex;
+
+    @Autowired
+    private CollectNumSyncService collectNumSyncService;
+
+    @Autowired
+    private GoodsEventDispatcher goodsEventDispatcher;
+
+    @Autowired
+    private AliOssUtil aliOssUtil;
+
+    @Autowired
+    private ChatMessageRouter chatMessageRouter;
+
+    @Autowired
+    private ChatMessageWriter chatMessageWriter;
+
+    @Autowired
+    private DistributedIdGenerator distributedIdGenerator;
+
+    /**
+     * 商品缓存各层（本地L1 / Redis）命中统计，以及批量回填缓存的批次大小和耗时
+     */
+    @GetMapping("/cache")
+    @Operation(summary = "商品缓存命中统计")
+    public Result<Map<String, Object>> getCacheStats() {
+        Map<String, Object> stats = goodsLocalCache.stats();
+        stats.put("bulkWriter", bulkCacheWriter.stats());
+        return Result.success(stats);
+    }
+
+    /**
+     * 布隆过滤器查询/拦截次数
+     */
+    @GetMapping("/bloom")
+    @Operation(summary = "布隆过滤器拦截统计")
+    public Result<Map<String, Object>> getBloomStats() {
+        return Result.success(idBloomFilterUtil.stats());
+    }
+
+    /**
+     * 商品搜索倒排索引规模和查询耗时
+     */
+    @GetMapping("/search")
+    @Operation(summary = "商品搜索索引统计")
+    public Result<Map<String, Object>> getSearchStats() {
+        return Result.success(goodsSearchIndex.stats());
+    }
+
+    /**
+     * 商品筛选索引规模和查询耗时
+     */
+    @GetMapping("/facet")
+    @Operation(summary = "商品筛选索引统计")
+    public Result<Map<String, Object>> getFacetStats() {
+        return Result.success(goodsFacetIndex.stats());
+    }
+
+    /**
+     * 收藏数落库的吞吐量、积压量和延迟
+     */
+    @GetMapping("/collect-sync")
+    @Operation(summary = "收藏数同步统计")
+    public Result<Map<String, Object>> getCollectSyncStats() {
+        return Result.success(collectNumSyncService.stats());
+    }
+
+    /**
+     * 商品事件处理量、失败重试次数和发件箱积压量
+     */
+    @GetMapping("/goods-event")
+    @Operation(summary = "商品事件处理统计")
+    public Result<Map<String, Object>> getGoodsEventStats() {
+        return Result.success(goodsEventDispatcher.stats());
+    }
+
+    /**
+     * 文件上传的耗时分布、流量和失败次数
+     */
+    @GetMapping("/storage")
+    @Operation(summary = "文件上传统计")
+    public Result<Map<String, Object>> getStorageStats() {
+        return Result.success(aliOssUtil.stats());
+    }
+
+    /**
+     * 聊天消息路由统计：本地推送、跨节点转发批次、离线和丢弃次数
+     */
+    @GetMapping("/chat-route")
+    @Operation(summary = "聊天消息路由统计")
+    public Result<Map<String, Object>> getChatRouteStats() {
+        return Result.success(chatMessageRouter.stats());
+    }
+
+    /**
+     * 聊天消息落库统计：写入 Stream、同步落库、批量写入次数和耗时、补偿认领次数、Stream 积压长度，以及会话最新消息缓存命中
+     */
+    @GetMapping("/chat-write")
+    @Operation(summary = "聊天消息落库统计")
+    public Result<Map<String, Object>> getChatWriteStats() {
+        return Result.success(chatMessageWriter.stats());
+    }
+
+    /**
+     * ID生成器状态：工作节点号及租约、时钟回拨等待和逻辑时钟前进次数
+     */
+    @GetMapping("/id-generator")
+    @Operation(summary = "ID生成器状态")
+    public Result<Map<String, Object>> getIdGeneratorStats() {
+        return Result.success(distributedIdGenerator.stats());
+    }
+}
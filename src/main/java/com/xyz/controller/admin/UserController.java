@@ -30,9 +30,10 @@ public class UserController {
     @Operation(summary = "游标分页查询用户列表")
     public Result<PageResult<UserListVO>> getUserList(
             @Parameter(description = "游标（首次请求不传或传null）") @RequestParam(required = false) Long cursor,
+            @Parameter(description = "游标ID（上一页返回的 nextCursorId）") @RequestParam(required = false) Long cursorId,
             @Parameter(description = "每页数量") @RequestParam(defaultValue = "10") int size) {
         try {
-            PageResult<UserListVO> result = userService.getUserList(cursor, size);
+            PageResult<UserListVO> result = userService.getUserList(cursor, cursorId, size);
             return Result.success(result);
         } catch (Exception e) {
             return Result.error(e.getMessage());
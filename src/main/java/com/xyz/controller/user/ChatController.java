@@ -1,5 +1,6 @@
 package com.xyz.controller.user;
 
+import com.xyz.constant.MessageConstant;
 import com.xyz.dto.ChatSessionDTO;
 import com.xyz.service.ChatService;
 import com.xyz.vo.ChatMessageVO;
@@ -55,10 +56,16 @@ public class ChatController {
     @Operation(summary = "获取历史消息")
     public Result<List<ChatMessageVO>> listMessages(
             @Parameter(description = "会话ID") @PathVariable String sessionId,
-            @Parameter(description = "页码，从1开始") @RequestParam(defaultValue = "1") Integer page,
-            @Parameter(description = "每页数量") @RequestParam(defaultValue = "50") Integer pageSize) {
-        log.info("获取历史消息: sessionId={}, page={}, pageSize={}", sessionId, page, pageSize);
-        List<ChatMessageVO> messages = chatService.listMessages(sessionId, page, pageSize);
+            @Parameter(description = "上一页最早一条消息的ID，不传时返回最新一页") @RequestParam(required = false) Long beforeId,
+            @Parameter(description = "每页数量") @RequestParam(defaultValue = "50") Integer pageSize,
+            @Parameter(description = "已废弃，改用 beforeId 翻页；只接受 1（最新一页）", deprecated = true)
+            @RequestParam(required = false) Integer page) {
+        log.info("获取历史消息: sessionId={}, beforeId={}, pageSize={}", sessionId, beforeId, pageSize);
+        // 旧客户端按页码翻页：第 1 页与最新一页相同，之后的页码无法换算成消息ID，拒绝而不是重复返回最新一页
+        if (beforeId == null && page != null && page > 1) {
+            return Result.error(MessageConstant.CHAT_PAGE_NOT_SUPPORTED);
+        }
+        List<ChatMessageVO> messages = chatService.listMessages(sessionId, beforeId, pageSize);
         return Result.success(messages);
     }
     
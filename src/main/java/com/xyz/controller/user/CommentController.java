@@ -65,9 +65,10 @@ public class CommentController {
     public Result<PageResult<CommentVO>> getTopComments(
             @PathVariable Long goodsId,
             @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Long cursorId,
             @RequestParam(required = false, defaultValue = "10") Integer size) {
-        log.info("获取商品评论列表: goodsId={}, cursor={}, size={}", goodsId, cursor, size);
-        PageResult<CommentVO> pageResult = commentService.getTopComments(goodsId, cursor, size);
+        log.info("获取商品评论列表: goodsId={}, cursor={}, cursorId={}, size={}", goodsId, cursor, cursorId, size);
+        PageResult<CommentVO> pageResult = commentService.getTopComments(goodsId, cursor, cursorId, size);
         return Result.success(pageResult);
     }
 
@@ -79,9 +80,10 @@ public class CommentController {
     public Result<PageResult<CommentVO>> getReplies(
             @PathVariable Long parentId,
             @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Long cursorId,
             @RequestParam(required = false, defaultValue = "20") Integer size) {
-        log.info("获取评论回复列表: parentId={}, cursor={}, size={}", parentId, cursor, size);
-        PageResult<CommentVO> pageResult = commentService.getReplies(parentId, cursor, size);
+        log.info("获取评论回复列表: parentId={}, cursor={}, cursorId={}, size={}", parentId, cursor, cursorId, size);
+        PageResult<CommentVO> pageResult = commentService.getReplies(parentId, cursor, cursorId, size);
         return Result.success(pageResult);
     }
 }
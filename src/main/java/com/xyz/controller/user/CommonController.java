@@ -1,12 +1,19 @@
 package com.xyz.controller.user;
 
+import com.xyz.dto.UploadCompleteDTO;
+import com.xyz.dto.UploadPolicyDTO;
+import com.xyz.service.UploadService;
 import com.xyz.util.AliOssUtil;
+import com.xyz.util.BaseContext;
 import com.xyz.vo.Result;
+import com.xyz.vo.UploadPolicyVO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -17,6 +24,7 @@ import java.util.List;
 
 /**
  * 通用接口（文件上传等）
+ * 除了经由服务器上传，还支持直传：先申请凭证，客户端把文件直接上传到存储，再确认上传完成
  */
 @Slf4j
 @RestController
@@ -27,6 +35,9 @@ public class CommonController {
     @Autowired
     private AliOssUtil aliOssUtil;
 
+    @Autowired
+    private UploadService uploadService;
+
     /**
      * 上传头像（单张）
      */
@@ -66,7 +77,8 @@ public class CommonController {
             return Result.error("最多上传9张图片");
         }
         
-        List<String> urls = new ArrayList<>();
+        // 先校验全部文件，再并行上传
+        List<MultipartFile> toUpload = new ArrayList<>();
         for (MultipartFile file : files) {
             if (file.isEmpty()) {
                 continue;
@@ -83,10 +95,13 @@ public class CommonController {
                 return Result.error("单张图片大小不能超过5MB");
             }
             
-            String url = aliOssUtil.uploadGoodsImage(file);
-            urls.add(url);
+            toUpload.add(file);
+        }
+        if (toUpload.isEmpty()) {
+            return Result.error("请选择要上传的文件");
         }
         
+        List<String> urls = aliOssUtil.uploadGoodsImages(toUpload);
         return Result.success("上传成功", urls);
     }
 
@@ -114,4 +129,23 @@ public class CommonController {
         String url = aliOssUtil.uploadChatImage(file);
         return Result.success("上传成功", url);
     }
+
+    /**
+     * 申请直传凭证（文件不经过服务器，客户端凭凭证直接上传到存储）
+     */
+    @PostMapping("/upload/policy")
+    @Operation(summary = "申请直传凭证")
+    public Result<UploadPolicyVO> createUploadPolicy(@Valid @RequestBody UploadPolicyDTO dto) {
+        return Result.success(uploadService.createPolicy(BaseContext.getCurrentId(), dto));
+    }
+
+    /**
+     * 确认直传完成，返回文件访问URL
+     */
+    @PostMapping("/upload/complete")
+    @Operation(summary = "确认直传完成")
+    public Result<String> completeUpload(@Valid @RequestBody UploadCompleteDTO dto) {
+        String url = uploadService.complete(BaseContext.getCurrentId(), dto.getObjectKey());
+        return Result.success("上传成功", url);
+    }
 }
@@ -14,6 +14,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @Slf4j
 @RestController("userGoodsController")
 @RequestMapping("/user/goods")
@@ -35,8 +37,9 @@ public class GoodsController {
     public Result<PageResult<GoodsCardVO>> searchGoods(
             @RequestParam String keyword,
             @RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) Long cursorId,
             @RequestParam(defaultValue = "10") Integer size) {
-        PageResult<GoodsCardVO> page = goodsService.searchGoods(keyword, cursor, size);
+        PageResult<GoodsCardVO> page = goodsService.searchGoods(keyword, cursor, cursorId, size);
         return Result.success(page);
     }
 
@@ -137,4 +140,23 @@ public class GoodsController {
             return Result.error(e.getMessage());
         }
     }
+
+    /**
+     * 批量判断用户是否已收藏（列表页一次标记整页商品）
+     */
+    @GetMapping("/favorite/batch")
+    @Operation(summary = "批量检查是否已收藏")
+    public Result<List<Long>> batchCheckFavorite(
+            @Parameter(description = "商品ID列表，逗号分隔，最多100个") @RequestParam List<Long> ids) {
+        try {
+            if (ids.size() > 100) {
+                return Result.error("商品ID数量不能超过100");
+            }
+            Long userId = BaseContext.getCurrentId();
+            return Result.success(goodsService.getFavoritedGoodsIds(userId, ids));
+        } catch (Exception e) {
+            log.error("批量检查收藏状态失败: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        }
+    }
 }
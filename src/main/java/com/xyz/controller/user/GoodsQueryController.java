@@ -32,8 +32,9 @@ public class GoodsQueryController {
     public Result<PageResult<GoodsCardVO>> getGoodsPageByCategory(
             @Parameter(description = "分类ID") @RequestParam Long categoryId,
             @Parameter(description = "游标（时间戳）") @RequestParam(required = false) Long cursor,
+            @Parameter(description = "游标ID（上一页返回的 nextCursorId）") @RequestParam(required = false) Long cursorId,
             @Parameter(description = "每页数量") @RequestParam(defaultValue = "10") Integer size) {
-        PageResult<GoodsCardVO> page = goodsQueryService.getGoodsPageByCategoryId(categoryId, cursor, size);
+        PageResult<GoodsCardVO> page = goodsQueryService.getGoodsPageByCategoryId(categoryId, cursor, cursorId, size);
         return Result.success(page);
     }
 
@@ -44,8 +45,22 @@ public class GoodsQueryController {
     @Operation(summary = "分页获取所有上架商品列表")
     public Result<PageResult<GoodsCardVO>> getAllGoodsPage(
             @Parameter(description = "游标（时间戳）") @RequestParam(required = false) Long cursor,
+            @Parameter(description = "游标ID（上一页返回的 nextCursorId）") @RequestParam(required = false) Long cursorId,
             @Parameter(description = "每页数量") @RequestParam(defaultValue = "10") Integer size) {
-        PageResult<GoodsCardVO> page = goodsQueryService.getAllGoodsPage(cursor, size);
+        PageResult<GoodsCardVO> page = goodsQueryService.getAllGoodsPage(cursor, cursorId, size);
+        return Result.success(page);
+    }
+
+    /**
+     * 分页获取热门商品列表（按时间衰减的收藏热度倒序）
+     */
+    @GetMapping("/trending/page")
+    @Operation(summary = "分页获取热门商品列表")
+    public Result<PageResult<GoodsCardVO>> getTrendingGoods(
+            @Parameter(description = "游标（上一页返回的 nextCursor）") @RequestParam(required = false) Long cursor,
+            @Parameter(description = "游标ID（上一页返回的 nextCursorId）") @RequestParam(required = false) Long cursorId,
+            @Parameter(description = "每页数量") @RequestParam(defaultValue = "10") Integer size) {
+        PageResult<GoodsCardVO> page = goodsQueryService.getTrendingGoods(cursor, cursorId, size);
         return Result.success(page);
     }
 
@@ -56,10 +71,11 @@ public class GoodsQueryController {
     @Operation(summary = "获取我的收藏列表")
     public Result<PageResult<GoodsCardVO>> getMyFavorites(
             @Parameter(description = "游标（首次请求不传或传null）") @RequestParam(required = false) Long cursor,
+            @Parameter(description = "游标ID（上一页返回的 nextCursorId）") @RequestParam(required = false) Long cursorId,
             @Parameter(description = "每页数量") @RequestParam(defaultValue = "10") Integer size) {
         try {
             Long userId = BaseContext.getCurrentId();
-            PageResult<GoodsCardVO> pageResult = goodsQueryService.getFavoriteGoods(userId, cursor, size);
+            PageResult<GoodsCardVO> pageResult = goodsQueryService.getFavoriteGoods(userId, cursor, cursorId, size);
             return Result.success(pageResult);
         } catch (Exception e) {
             log.error("获取收藏列表失败: {}", e.getMessage());
@@ -75,9 +91,10 @@ public class GoodsQueryController {
     public Result<PageResult<GoodsCardVO>> getUserPublishedGoods(
             @Parameter(description = "目标用户ID") @PathVariable Long userId,
             @Parameter(description = "游标（首次请求不传或传null）") @RequestParam(required = false) Long cursor,
+            @Parameter(description = "游标ID（上一页返回的 nextCursorId）") @RequestParam(required = false) Long cursorId,
             @Parameter(description = "每页数量") @RequestParam(defaultValue = "10") Integer size) {
         try {
-            PageResult<GoodsCardVO> pageResult = goodsQueryService.getUserPublishedGoods(userId, cursor, size);
+            PageResult<GoodsCardVO> pageResult = goodsQueryService.getUserPublishedGoods(userId, cursor, cursorId, size);
             return Result.success(pageResult);
         } catch (Exception e) {
             log.error("查询用户发布的商品失败: {}", e.getMessage());
@@ -92,10 +109,11 @@ public class GoodsQueryController {
     @Operation(summary = "我的发布")
     public Result<PageResult<GoodsCardVO>> getMyPublishedGoods(
             @Parameter(description = "游标（首次请求不传或传null）") @RequestParam(required = false) Long cursor,
+            @Parameter(description = "游标ID（上一页返回的 nextCursorId）") @RequestParam(required = false) Long cursorId,
             @Parameter(description = "每页数量") @RequestParam(defaultValue = "10") Integer size) {
         try {
             Long userId = BaseContext.getCurrentId();
-            PageResult<GoodsCardVO> pageResult = goodsQueryService.getMyPublishedGoods(userId, cursor, size);
+            PageResult<GoodsCardVO> pageResult = goodsQueryService.getMyPublishedGoods(userId, cursor, cursorId, size);
             return Result.success(pageResult);
         } catch (Exception e) {
             log.error("查询我发布的商品失败: {}", e.getMessage());
@@ -110,10 +128,11 @@ public class GoodsQueryController {
     @Operation(summary = "我下架的商品")
     public Result<PageResult<GoodsCardVO>> getMyOfflineGoods(
             @Parameter(description = "游标（首次请求不传或传null）") @RequestParam(required = false) Long cursor,
+            @Parameter(description = "游标ID（上一页返回的 nextCursorId）") @RequestParam(required = false) Long cursorId,
             @Parameter(description = "每页数量") @RequestParam(defaultValue = "10") Integer size) {
         try {
             Long userId = BaseContext.getCurrentId();
-            PageResult<GoodsCardVO> pageResult = goodsQueryService.getMyOfflineGoods(userId, cursor, size);
+            PageResult<GoodsCardVO> pageResult = goodsQueryService.getMyOfflineGoods(userId, cursor, cursorId, size);
             return Result.success(pageResult);
         } catch (Exception e) {
             log.error("查询我下架的商品失败: {}", e.getMessage());
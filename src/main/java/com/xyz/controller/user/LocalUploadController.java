@@ -0,0 +1,38 @@
+package com.xyz.controller.user;
+
+import com.xyz.storage.LocalStorageBackend;
+import com.xyz.vo.Result;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * 本地存储的直传接收接口（代替 OSS 的 PostObject，只在 trade.storage.type=local 时启用）
+ * 不经过用户拦截器，由凭证签名鉴权
+ */
+@RestController
+@RequestMapping("/files")
+@Tag(name = "本地存储直传")
+@ConditionalOnProperty(prefix = "trade.storage", name = "type", havingValue = "local")
+public class LocalUploadController {
+
+    @Autowired
+    private LocalStorageBackend localStorageBackend;
+
+    @PostMapping("/upload")
+    @Operation(summary = "按直传凭证上传文件")
+    public Result<Void> upload(@RequestParam("key") String key,
+                               @RequestParam("Content-Type") String contentType,
+                               @RequestParam("policy") String policy,
+                               @RequestParam("signature") String signature,
+                               @RequestParam("file") MultipartFile file) {
+        localStorageBackend.acceptUpload(key, contentType, policy, signature, file);
+        return Result.success();
+    }
+}
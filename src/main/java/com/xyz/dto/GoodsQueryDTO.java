@@ -66,6 +66,11 @@ public class GoodsQueryDTO {
      */
     private Long cursor;
     
+    /**
+     * 游标ID（与 cursor 组成复合游标，上一页返回的 nextCursorId）
+     */
+    private Long cursorId;
+    
     /**
      * 每页数量
      */
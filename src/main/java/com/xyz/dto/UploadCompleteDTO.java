@@ -0,0 +1,23 @@
+package com.xyz.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 直传完成确认DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "直传完成确认参数")
+public class UploadCompleteDTO {
+
+    @Schema(description = "申请凭证时返回的对象名", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotBlank(message = "对象名不能为空")
+    private String objectKey;
+}
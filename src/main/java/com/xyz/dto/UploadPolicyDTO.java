@@ -0,0 +1,32 @@
+package com.xyz.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 申请直传凭证DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "申请直传凭证参数")
+public class UploadPolicyDTO {
+
+    @Schema(description = "上传场景：avatar-头像，goods-商品图片，chat-聊天图片", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotBlank(message = "上传场景不能为空")
+    private String scene;
+
+    @Schema(description = "文件类型，如 image/jpeg", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotBlank(message = "文件类型不能为空")
+    private String contentType;
+
+    @Schema(description = "文件大小（字节）", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotNull(message = "文件大小不能为空")
+    private Long size;
+}
@@ -1,5 +1,7 @@
 package com.xyz.entity;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,8 +19,9 @@ import java.time.LocalDateTime;
 public class ChatSession {
     
     /**
-     * 主键ID
+     * 主键ID（分布式ID，超过 2^53，序列化为 JSON 时按字符串输出）
      */
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
     
     /**
@@ -80,4 +83,14 @@ public class ChatSession {
      * user2是否隐藏会话: 0显示, 1隐藏
      */
     private Integer user2Hide;
+    
+    /**
+     * user1已读水位：ID 不大于它的消息都已读
+     */
+    private Long user1ReadId;
+    
+    /**
+     * user2已读水位：ID 不大于它的消息都已读
+     */
+    private Long user2ReadId;
 }
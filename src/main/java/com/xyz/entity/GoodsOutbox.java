@@ -0,0 +1,25 @@
+package com.xyz.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 商品事件发件箱实体类（与商品变更在同一事务中写入，缓存和索引维护完成后删除）
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class GoodsOutbox {
+    private Long id; // 事件ID
+    private Long goodsId; // 商品ID
+    private String eventType; // 事件类型
+    private String payload; // 事件内容（JSON）
+    private Integer attempts; // 补偿重试次数
+    private LocalDateTime nextRetryTime; // 下次补偿时间
+    private LocalDateTime createTime; // 创建时间
+}
@@ -0,0 +1,24 @@
+package com.xyz.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 图片内容索引实体类（内容哈希 -> 存储对象，相同内容只存一份）
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImageObject {
+    private String hash; // 文件内容 SHA-256（十六进制）
+    private String objectName; // 存储对象名
+    private String url; // 访问URL
+    private Long size; // 文件大小（字节）
+    private Integer refCount; // 引用次数
+    private LocalDateTime createTime; // 创建时间
+}
@@ -0,0 +1,126 @@
+package com.xyz.event;
+
+import com.xyz.constant.GoodsStatusConstant;
+import com.xyz.constant.RedisConstant;
+import com.xyz.mapper.GoodsMapper;
+import com.xyz.util.GoodsChangeNotifier;
+import com.xyz.util.GoodsLocalCache;
+import com.xyz.util.GoodsTrendingUtil;
+import com.xyz.util.IdBloomFilterUtil;
+import com.xyz.util.ZSetIndexUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 商品事件消费：事务提交后维护商品相关的缓存和索引
+ * 1. 以 MySQL 中的最新状态为准：上架的加入分类/用户/全局索引并移出下架索引，下架的移入下架索引，其余状态从所有索引移除
+ *    不依赖事件的先后，重复消费、补偿重放的结果都相同
+ * 2. 清除详情缓存和各节点的本地L1缓存，通知搜索索引和筛选索引重新加载该商品
+ * 3. 任何一步失败都抛出异常，事件保留在发件箱中由补偿任务重试
+ */
+@Slf4j
+@Component
+public class GoodsCacheMaintainer {
+
+    @Autowired
+    private GoodsMapper goodsMapper;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private ZSetIndexUtil zSetIndexUtil;
+
+    @Autowired
+    private GoodsLocalCache goodsLocalCache;
+
+    @Autowired
+    private GoodsTrendingUtil goodsTrendingUtil;
+
+    @Autowired
+    private IdBloomFilterUtil idBloomFilterUtil;
+
+    @Autowired
+    private GoodsChangeNotifier goodsChangeNotifier;
+
+    public void apply(GoodsEvent event) {
+        Long goodsId = event.getGoodsId();
+        if (event instanceof GoodsReleasedEvent) {
+            // 发布时已在提交后加入布隆过滤器，这里再确认一次（提交后添加失败时补上，失败抛出异常由发件箱重试）
+            idBloomFilterUtil.ensureGoods(goodsId);
+        }
+
+        Map<String, Object> info = goodsMapper.getGoodsCategoryAndTimeById(goodsId);
+        if (info != null) {
+            Long categoryId = info.get("categoryId") != null ? ((Number) info.get("categoryId")).longValue() : null;
+            long ownerId = ((Number) info.get("ownerId")).longValue();
+            int status = ((Number) info.get("status")).intValue();
+            long updateTime = ((Number) info.get("updateTime")).longValue();
+
+            // 分类变化时从原分类的索引中移除
+            if (event instanceof GoodsUpdatedEvent) {
+                Long previousCategoryId = ((GoodsUpdatedEvent) event).getPreviousCategoryId();
+                if (previousCategoryId != null && !Objects.equals(previousCategoryId, categoryId)) {
+                    zSetIndexUtil.remove(Collections.singletonList(buildCategoryKey(previousCategoryId)), goodsId);
+                }
+            }
+
+            List<String> onSaleKeys = buildOnSaleIndexKeys(categoryId, ownerId);
+            List<String> offlineKeys = Collections.singletonList(buildOfflineKey(ownerId));
+            if (status == GoodsStatusConstant.ON_SALE) {
+                // 上架：移出下架索引，以更新时间为 score 加入已存在的上架索引
+                zSetIndexUtil.transit(goodsId, updateTime, offlineKeys, onSaleKeys);
+            } else if (status == GoodsStatusConstant.OFF_SHELF) {
+                // 下架：移出上架索引，加入已存在的下架索引
+                zSetIndexUtil.transit(goodsId, updateTime, onSaleKeys, offlineKeys);
+                goodsTrendingUtil.remove(goodsId);
+            } else {
+                // 售出、租借中、删除、屏蔽：不再展示
+                List<String> keys = new ArrayList<>(onSaleKeys);
+                keys.addAll(offlineKeys);
+                zSetIndexUtil.remove(keys, goodsId);
+                goodsTrendingUtil.remove(goodsId);
+            }
+        }
+
+        // 清除详情缓存（卡片只在商品信息修改时清除，收藏数单独缓存），广播清除各节点L1缓存
+        redisTemplate.delete(RedisConstant.GOODS_DETAIL_KEY + goodsId);
+        if (event instanceof GoodsUpdatedEvent) {
+            redisTemplate.delete(RedisConstant.GOODS_CARD_KEY + goodsId);
+        }
+        goodsLocalCache.invalidate(goodsId);
+
+        // 搜索索引和筛选索引重新加载该商品
+        goodsChangeNotifier.notifyChanged(goodsId);
+    }
+
+    /**
+     * 构建上架商品所在的索引ZSet（分类缓存 + 用户缓存 + 全局缓存）
+     * @param categoryId 分类ID，可能为 null
+     */
+    private List<String> buildOnSaleIndexKeys(Long categoryId, long ownerId) {
+        List<String> keys = new ArrayList<>(3);
+        if (categoryId != null) {
+            keys.add(buildCategoryKey(categoryId));
+        }
+        keys.add(RedisConstant.GOODS_OWNER_IDS_KEY + ownerId + RedisConstant.GOODS_OWNER_IDS_SUFFIX);
+        keys.add(RedisConstant.GOODS_ALL_IDS_KEY + RedisConstant.GOODS_ALL_IDS_SUFFIX);
+        return keys;
+    }
+
+    private String buildCategoryKey(long categoryId) {
+        return RedisConstant.GOODS_CAT_IDS_KEY + categoryId + RedisConstant.GOODS_CAT_IDS_SUFFIX;
+    }
+
+    private String buildOfflineKey(long ownerId) {
+        return RedisConstant.GOODS_OFFLINE_IDS_KEY + ownerId + RedisConstant.GOODS_OFFLINE_IDS_SUFFIX;
+    }
+}
@@ -0,0 +1,36 @@
+package com.xyz.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import lombok.Data;
+
+/**
+ * 商品领域事件基类
+ * 事件只描述"哪个商品发生了什么"，消费时以 MySQL 中的最新数据为准维护缓存和索引，重复消费结果相同
+ */
+@Data
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = GoodsReleasedEvent.class, name = "released"),
+        @JsonSubTypes.Type(value = GoodsUpdatedEvent.class, name = "updated"),
+        @JsonSubTypes.Type(value = GoodsStatusChangedEvent.class, name = "statusChanged")
+})
+public abstract class GoodsEvent {
+
+    /** 发件箱中的事件ID（写入发件箱后赋值，不序列化） */
+    @JsonIgnore
+    private Long outboxId;
+
+    /** 商品ID */
+    private Long goodsId;
+
+    /** 发布者ID（管理员操作时为 null） */
+    private Long ownerId;
+
+    /**
+     * 事件类型名称（写入发件箱的 event_type 列，便于排查）
+     */
+    @JsonIgnore
+    public abstract String getEventType();
+}
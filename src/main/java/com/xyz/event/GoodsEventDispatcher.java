@@ -0,0 +1,200 @@
+package com.xyz.event;
+
+import com.xyz.entity.GoodsOutbox;
+import com.xyz.mapper.GoodsOutboxMapper;
+import com.xyz.properties.GoodsEventProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 商品事件分发：事务提交后按商品分通道异步处理
+ * 1. 同一商品的事件总是进入同一个单线程通道，按提交顺序处理；不同商品并行处理
+ * 2. 处理成功的事件ID先放入队列，每秒批量从发件箱删除（崩溃时未删除的事件会被重放，处理逻辑幂等）
+ * 3. 处理失败或通道队列已满的事件留在发件箱中，宽限期过后由补偿任务认领并重新分发，重试间隔按次数指数增长
+ * 4. 补偿任务通过乐观锁认领事件，不依赖 Redis，Redis 故障恢复后积压的事件会被自动补做
+ */
+@Slf4j
+@Component
+public class GoodsEventDispatcher {
+
+    /** 每次批量删除的事件数 */
+    private static final int DELETE_BATCH_SIZE = 500;
+
+    @Autowired
+    private GoodsCacheMaintainer goodsCacheMaintainer;
+
+    @Autowired
+    private GoodsOutboxMapper goodsOutboxMapper;
+
+    @Autowired
+    private GoodsEventProperties goodsEventProperties;
+
+    private ThreadPoolExecutor[] lanes;
+
+    /** 已处理、待从发件箱删除的事件ID */
+    private final Queue<Long> completed = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder handled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder handleNanos = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        int count = Math.max(1, goodsEventProperties.getLanes());
+        lanes = new ThreadPoolExecutor[count];
+        for (int i = 0; i < count; i++) {
+            String name = "goods-event-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(goodsEventProperties.getLaneQueueCapacity()),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        try {
+            for (ThreadPoolExecutor lane : lanes) {
+                lane.awaitTermination(5, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        deleteCompleted();
+    }
+
+    /**
+     * 事务提交后分发（不在事务中发布的事件立即分发）
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onGoodsEvent(GoodsEvent event) {
+        dispatch(event);
+    }
+
+    /**
+     * 每秒批量删除已处理的事件
+     */
+    @Scheduled(fixedRate = 1000)
+    public void deleteCompleted() {
+        List<Long> ids = new ArrayList<>(DELETE_BATCH_SIZE);
+        Long id;
+        while ((id = completed.poll()) != null) {
+            ids.add(id);
+            if (ids.size() == DELETE_BATCH_SIZE || completed.isEmpty()) {
+                try {
+                    goodsOutboxMapper.deleteByIds(ids);
+                } catch (Exception e) {
+                    // 放回队列下次再删；进程在此之前退出的话，事件会被补偿任务重放
+                    completed.addAll(ids);
+                    log.error("删除已处理的商品事件失败: size={}, error={}", ids.size(), e.getMessage());
+                    return;
+                }
+                ids = new ArrayList<>(DELETE_BATCH_SIZE);
+            }
+        }
+    }
+
+    /**
+     * 补偿：认领到期未删除的事件并重新分发
+     */
+    @Scheduled(fixedRate = 5000)
+    public void retryDue() {
+        List<GoodsOutbox> due;
+        try {
+            due = goodsOutboxMapper.findDue(goodsEventProperties.getRetryBatchSize());
+        } catch (Exception e) {
+            log.error("查询待补偿的商品事件失败: {}", e.getMessage());
+            return;
+        }
+        for (GoodsOutbox outbox : due) {
+            try {
+                int attempts = outbox.getAttempts();
+                if (goodsOutboxMapper.claim(outbox.getId(), attempts, retryDelaySeconds(attempts)) == 0) {
+                    // 已被其他节点认领
+                    continue;
+                }
+                GoodsEvent event = GoodsEventPublisher.fromJson(outbox.getPayload());
+                event.setOutboxId(outbox.getId());
+                retried.increment();
+                if (attempts > 0) {
+                    log.warn("重试商品事件: id={}, goodsId={}, type={}, attempts={}",
+                            outbox.getId(), outbox.getGoodsId(), outbox.getEventType(), attempts);
+                }
+                dispatch(event);
+            } catch (Exception e) {
+                log.error("补偿商品事件失败: id={}, error={}", outbox.getId(), e.getMessage());
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long handledCount = handled.sum();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("handled", handledCount);
+        map.put("failed", failed.sum());
+        map.put("rejected", rejected.sum());
+        map.put("retried", retried.sum());
+        map.put("avgHandleMillis", handledCount == 0 ? 0.0 : handleNanos.sum() / 1_000_000.0 / handledCount);
+        int queued = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            queued += lane.getQueue().size();
+        }
+        map.put("queued", queued);
+        map.put("pendingDelete", completed.size());
+        try {
+            map.put("outbox", goodsOutboxMapper.countPending());
+        } catch (Exception e) {
+            map.put("outbox", "unavailable");
+        }
+        return map;
+    }
+
+    private void dispatch(GoodsEvent event) {
+        ThreadPoolExecutor lane = lanes[(int) Math.floorMod(event.getGoodsId(), (long) lanes.length)];
+        try {
+            lane.execute(() -> handle(event));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("商品事件通道已满，交给补偿任务处理: goodsId={}, outboxId={}", event.getGoodsId(), event.getOutboxId());
+        }
+    }
+
+    private void handle(GoodsEvent event) {
+        long start = System.nanoTime();
+        try {
+            goodsCacheMaintainer.apply(event);
+            if (event.getOutboxId() != null) {
+                completed.add(event.getOutboxId());
+            }
+            handled.increment();
+            handleNanos.add(System.nanoTime() - start);
+        } catch (Exception e) {
+            failed.increment();
+            log.error("处理商品事件失败，等待补偿: goodsId={}, type={}, outboxId={}, error={}",
+                    event.getGoodsId(), event.getEventType(), event.getOutboxId(), e.getMessage());
+        }
+    }
+
+    private int retryDelaySeconds(int attempts) {
+        long delay = (long) goodsEventProperties.getGraceSeconds() << Math.min(attempts, 20);
+        return (int) Math.min(delay, goodsEventProperties.getMaxRetryDelaySeconds());
+    }
+}
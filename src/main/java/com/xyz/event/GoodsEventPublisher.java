@@ -0,0 +1,56 @@
+package com.xyz.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xyz.entity.GoodsOutbox;
+import com.xyz.mapper.GoodsOutboxMapper;
+import com.xyz.properties.GoodsEventProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * 商品事件发布
+ * 1. 在商品变更的事务中把事件写入发件箱表 goods_outbox，事务回滚时事件一起回滚，提交后事件一定存在
+ * 2. 同时发布 Spring 事件，由 GoodsEventDispatcher 在事务提交后异步处理，事务中不再访问 Redis
+ */
+@Component
+public class GoodsEventPublisher {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Autowired
+    private GoodsOutboxMapper goodsOutboxMapper;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired
+    private GoodsEventProperties goodsEventProperties;
+
+    /**
+     * 发布事件（应在商品变更的事务中调用）
+     */
+    public void publish(GoodsEvent event) {
+        GoodsOutbox outbox = GoodsOutbox.builder()
+                .goodsId(event.getGoodsId())
+                .eventType(event.getEventType())
+                .payload(toJson(event))
+                .build();
+        goodsOutboxMapper.insert(outbox, goodsEventProperties.getGraceSeconds());
+        event.setOutboxId(outbox.getId());
+        applicationEventPublisher.publishEvent(event);
+    }
+
+    static String toJson(GoodsEvent event) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("商品事件序列化失败: " + event, e);
+        }
+    }
+
+    static GoodsEvent fromJson(String payload) throws JsonProcessingException {
+        return OBJECT_MAPPER.readValue(payload, GoodsEvent.class);
+    }
+}
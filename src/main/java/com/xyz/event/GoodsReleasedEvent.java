@@ -0,0 +1,24 @@
+package com.xyz.event;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * 商品发布事件
+ */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class GoodsReleasedEvent extends GoodsEvent {
+
+    public GoodsReleasedEvent(Long goodsId, Long ownerId) {
+        setGoodsId(goodsId);
+        setOwnerId(ownerId);
+    }
+
+    @Override
+    public String getEventType() {
+        return "released";
+    }
+}
@@ -0,0 +1,28 @@
+package com.xyz.event;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * 商品状态变更事件（上架、下架、售出、租借、删除、违规屏蔽、恢复）
+ */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class GoodsStatusChangedEvent extends GoodsEvent {
+
+    /** 变更后的状态 */
+    private Integer status;
+
+    public GoodsStatusChangedEvent(Long goodsId, Long ownerId, Integer status) {
+        setGoodsId(goodsId);
+        setOwnerId(ownerId);
+        this.status = status;
+    }
+
+    @Override
+    public String getEventType() {
+        return "statusChanged";
+    }
+}
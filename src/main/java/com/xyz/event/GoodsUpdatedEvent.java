@@ -0,0 +1,28 @@
+package com.xyz.event;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * 商品信息修改事件（描述、价格、图片、分类等）
+ */
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class GoodsUpdatedEvent extends GoodsEvent {
+
+    /** 修改前的分类ID，分类变化时需要从原分类的索引中移除 */
+    private Long previousCategoryId;
+
+    public GoodsUpdatedEvent(Long goodsId, Long ownerId, Long previousCategoryId) {
+        setGoodsId(goodsId);
+        setOwnerId(ownerId);
+        this.previousCategoryId = previousCategoryId;
+    }
+
+    @Override
+    public String getEventType() {
+        return "updated";
+    }
+}
@@ -0,0 +1,13 @@
+package com.xyz.exception;
+
+/**
+ * 收藏状态暂时不可用异常（Redis 不可用时无法切换收藏）
+ */
+public class FavoriteUnavailableException extends BaseException {
+    public FavoriteUnavailableException() {
+    }
+
+    public FavoriteUnavailableException(String message) {
+        super(message);
+    }
+}
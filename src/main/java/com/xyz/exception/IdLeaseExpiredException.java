@@ -0,0 +1,13 @@
+package com.xyz.exception;
+
+/**
+ * ID生成器工作节点号租约已过期异常（长时间无法续期，节点号可能已被其他节点租用）
+ */
+public class IdLeaseExpiredException extends BaseException {
+    public IdLeaseExpiredException() {
+    }
+
+    public IdLeaseExpiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.xyz.exception;
+
+/**
+ * 文件上传异常
+ */
+public class UploadException extends BaseException {
+    public UploadException() {
+    }
+
+    public UploadException(String message) {
+        super(message);
+    }
+}
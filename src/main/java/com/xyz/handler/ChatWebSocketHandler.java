@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.xyz.dto.ChatMessageDTO;
 import com.xyz.service.ChatService;
 import com.xyz.util.BaseContext;
+import com.xyz.util.ChatMessageRouter;
 import com.xyz.vo.ChatMessageVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,10 +16,10 @@ import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 原生 WebSocket 消息处理器
+ * 连接登记在 ChatMessageRouter 中，推送经由路由器送达用户在各节点上的全部设备；所有发送都经过连接的发送队列
  */
 @Component
 @Slf4j
@@ -26,12 +27,12 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
     
     @Autowired
     private ChatService chatService;
+
+    @Autowired
+    private ChatMessageRouter chatMessageRouter;
     
     private final ObjectMapper objectMapper = new ObjectMapper();
     
-    // 存储所有在线用户的 WebSocket 会话
-    private static final Map<Long, WebSocketSession> ONLINE_SESSIONS = new ConcurrentHashMap<>();
-    
     /**
      * 连接建立成功
      */
@@ -39,7 +40,7 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         Long userId = getUserId(session);
         if (userId != null) {
-            ONLINE_SESSIONS.put(userId, session);
+            chatMessageRouter.register(userId, session);
             chatService.userOnline(userId);
             log.info("用户上线: userId={}, sessionId={}", userId, session.getId());
         }
@@ -87,8 +88,10 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         Long userId = getUserId(session);
         if (userId != null) {
-            ONLINE_SESSIONS.remove(userId);
-            chatService.userOffline(userId);
+            if (chatMessageRouter.unregister(userId, session)) {
+                // 删除在线记录前重新确认本节点没有新连接（同一用户的设备可能正在重连）
+                chatMessageRouter.runIfNoConnections(userId, () -> chatService.userOffline(userId));
+            }
             log.info("用户下线: userId={}, sessionId={}", userId, session.getId());
         }
     }
@@ -120,7 +123,8 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
                     "status", "ok",
                     "timestamp", System.currentTimeMillis()
             );
-            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(response)));
+            // 与推送共用连接的发送队列，不直接调用 session.sendMessage
+            chatMessageRouter.send(session, objectMapper.writeValueAsString(response));
         } catch (IOException e) {
             log.error("发送心跳响应失败: {}", e.getMessage());
         }
@@ -146,16 +150,11 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
                     "data", messageVO
             ));
             
-            // 发送给接收者（如果在线）
-            if (chatService.isUserOnline(dto.getReceiverId())) {
-                sendMessageToUserInternal(dto.getReceiverId(), Map.of(
-                        "type", "message",
-                        "data", messageVO
-                ));
-                log.info("消息已推送给在线用户: {}", dto.getReceiverId());
-            } else {
-                log.info("用户离线，消息已保存: {}", dto.getReceiverId());
-            }
+            // 发送给接收者（以会话中的对方为准，不使用客户端传入的接收者；连接在其他节点时转发，离线时只保存）
+            sendMessageToUserInternal(messageVO.getReceiverId(), Map.of(
+                    "type", "message",
+                    "data", messageVO
+            ));
             
         } catch (Exception e) {
             log.error("发送消息失败: {}", e.getMessage(), e);
@@ -169,34 +168,21 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
      * 发送消息给指定用户（公共方法，供外部调用）
      */
     public void sendMessageToUser(Long userId, Object messageData) {
-        WebSocketSession session = ONLINE_SESSIONS.get(userId);
-        if (session != null && session.isOpen()) {
-            try {
-                Map<String, Object> message = Map.of(
-                        "type", "message",
-                        "data", messageData
-                );
-                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
-                log.debug("发送消息给用户: userId={}", userId);
-            } catch (IOException e) {
-                log.error("发送消息失败: userId={}, error={}", userId, e.getMessage());
-            }
-        } else {
-            log.debug("用户不在线，无法发送: userId={}", userId);
-        }
+        sendMessageToUserInternal(userId, Map.of(
+                "type", "message",
+                "data", messageData
+        ));
+        log.debug("发送消息给用户: userId={}", userId);
     }
     
     /**
      * 发送消息给指定用户（内部使用）
      */
     private void sendMessageToUserInternal(Long userId, Map<String, Object> message) {
-        WebSocketSession session = ONLINE_SESSIONS.get(userId);
-        if (session != null && session.isOpen()) {
-            try {
-                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
-            } catch (IOException e) {
-                log.error("发送消息失败: userId={}, error={}", userId, e.getMessage());
-            }
+        try {
+            chatMessageRouter.push(userId, objectMapper.writeValueAsString(message));
+        } catch (IOException e) {
+            log.error("发送消息失败: userId={}, error={}", userId, e.getMessage());
         }
     }
     
@@ -210,7 +196,7 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
                     "message", errorMsg,
                     "timestamp", System.currentTimeMillis()
             );
-            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(error)));
+            chatMessageRouter.send(session, objectMapper.writeValueAsString(error));
         } catch (IOException e) {
             log.error("发送错误消息失败: {}", e.getMessage());
         }
@@ -4,6 +4,7 @@ import com.xyz.entity.ChatMessage;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -13,21 +14,33 @@ import java.util.List;
 public interface ChatMessageMapper {
     
     /**
-     * 插入消息
+     * 插入消息（ID 需预先由 DistributedIdGenerator 分配）
      */
     void insert(ChatMessage chatMessage);
+
+    /**
+     * 批量插入消息（ID 已分配，已存在的ID忽略）
+     */
+    int insertBatch(@Param("messages") List<ChatMessage> messages);
+
+    /**
+     * 查询已存在的消息ID
+     */
+    List<Long> listExistingIds(@Param("ids") Collection<Long> ids);
     
     /**
-     * 根据会话ID查询消息列表(分页)
+     * 根据会话ID查询消息列表(按消息ID从新到旧翻页)
+     * @param beforeId 上一页最早一条消息的ID，为空时查询最新一页
      */
     List<ChatMessage> listBySessionId(@Param("sessionId") String sessionId, 
-                                      @Param("offset") Integer offset, 
+                                      @Param("beforeId") Long beforeId, 
                                       @Param("pageSize") Integer pageSize);
     
     /**
      * 标记消息为已读
+     * @return 标记的消息数
      */
-    void markAsRead(@Param("sessionId") String sessionId, @Param("receiverId") Long receiverId);
+    int markAsRead(@Param("sessionId") String sessionId, @Param("receiverId") Long receiverId);
     
     /**
      * 查询未读消息（用于推送已读通知）
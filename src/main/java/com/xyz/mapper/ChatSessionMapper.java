@@ -4,6 +4,8 @@ import com.xyz.entity.ChatSession;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -18,7 +20,7 @@ public interface ChatSessionMapper {
     ChatSession getBySessionId(String sessionId);
     
     /**
-     * 插入会话
+     * 插入会话（ID 需预先由 DistributedIdGenerator 分配）
      */
     void insert(ChatSession chatSession);
     
@@ -27,15 +29,29 @@ public interface ChatSessionMapper {
      */
     void updateLastMessage(ChatSession chatSession);
     
+    /**
+     * 合并写入一批新消息后的会话状态（最后消息、双方未读数增量、取消隐藏）
+     */
+    void applyMessages(@Param("sessionId") String sessionId,
+                       @Param("lastMessage") String lastMessage,
+                       @Param("lastMessageTime") LocalDateTime lastMessageTime,
+                       @Param("user1Unread") int user1Unread,
+                       @Param("user2Unread") int user2Unread);
+
+    /**
+     * 锁定并查询一批会话的参与者和已读水位（写入消息前调用，与标记已读互斥）
+     */
+    List<ChatSession> lockReadWatermarks(@Param("sessionIds") Collection<String> sessionIds);
+
     /**
      * 增加未读数
      */
     void incrementUnread(@Param("sessionId") String sessionId, @Param("userId") Long userId);
     
     /**
-     * 清空未读数
+     * 清空未读数，并把已读水位推进到 readId（之后才落库的、ID 不大于它的消息按已读写入）
      */
-    void clearUnread(@Param("sessionId") String sessionId, @Param("userId") Long userId);
+    void clearUnread(@Param("sessionId") String sessionId, @Param("userId") Long userId, @Param("readId") long readId);
     
     /**
      * 获取用户的会话列表
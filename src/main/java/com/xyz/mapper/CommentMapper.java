@@ -36,14 +36,17 @@ public interface CommentMapper {
     int deleteComment(@Param("id") Long id, @Param("userId") Long userId);
 
     /**
-     * 游标分页查询商品的顶层评论（按创建时间倒序）
+     * 游标分页查询商品的顶层评论（按 (创建时间, ID) 倒序）
+     * 复合游标条件直接比较 create_time 列（不对列做函数运算），可走 (goods_id, parent_id, status, create_time, id) 索引的范围扫描
      */
     @Select("SELECT * FROM comments " +
             "WHERE goods_id = #{goodsId} AND parent_id IS NULL AND status = 1 " +
-            "AND UNIX_TIMESTAMP(create_time) * 1000 < #{cursor} " +
-            "ORDER BY create_time DESC LIMIT #{size}")
+            "AND create_time <= FROM_UNIXTIME(#{cursor} / 1000) " +
+            "AND (create_time < FROM_UNIXTIME(#{cursor} / 1000) OR id < #{cursorId}) " +
+            "ORDER BY create_time DESC, id DESC LIMIT #{size}")
     List<Comments> getTopCommentsByGoodsId(@Param("goodsId") Long goodsId,
                                            @Param("cursor") Long cursor,
+                                           @Param("cursorId") Long cursorId,
                                            @Param("size") Integer size);
 
     /**
@@ -51,10 +54,12 @@ public interface CommentMapper {
      */
     @Select("SELECT * FROM comments " +
             "WHERE parent_id = #{parentId} AND status = 1 " +
-            "AND UNIX_TIMESTAMP(create_time) * 1000 < #{cursor} " +
-            "ORDER BY create_time DESC LIMIT #{size}")
+            "AND create_time <= FROM_UNIXTIME(#{cursor} / 1000) " +
+            "AND (create_time < FROM_UNIXTIME(#{cursor} / 1000) OR id < #{cursorId}) " +
+            "ORDER BY create_time DESC, id DESC LIMIT #{size}")
     List<Comments> getRepliesByParentId(@Param("parentId") Long parentId,
                                         @Param("cursor") Long cursor,
+                                        @Param("cursorId") Long cursorId,
                                         @Param("size") Integer size);
 
     /**
@@ -110,10 +115,12 @@ public interface CommentMapper {
      */
     @Select("SELECT * FROM comments " +
             "WHERE goods_id = #{goodsId} AND parent_id IS NULL " +
-            "AND UNIX_TIMESTAMP(create_time) * 1000 < #{cursor} " +
-            "ORDER BY create_time DESC LIMIT #{size}")
+            "AND create_time <= FROM_UNIXTIME(#{cursor} / 1000) " +
+            "AND (create_time < FROM_UNIXTIME(#{cursor} / 1000) OR id < #{cursorId}) " +
+            "ORDER BY create_time DESC, id DESC LIMIT #{size}")
     List<Comments> getTopCommentsByGoodsIdForAdmin(@Param("goodsId") Long goodsId,
                                                     @Param("cursor") Long cursor,
+                                                    @Param("cursorId") Long cursorId,
                                                     @Param("size") Integer size);
 
     /**
@@ -121,10 +128,12 @@ public interface CommentMapper {
      */
     @Select("SELECT * FROM comments " +
             "WHERE parent_id = #{parentId} " +
-            "AND UNIX_TIMESTAMP(create_time) * 1000 < #{cursor} " +
-            "ORDER BY create_time DESC LIMIT #{size}")
+            "AND create_time <= FROM_UNIXTIME(#{cursor} / 1000) " +
+            "AND (create_time < FROM_UNIXTIME(#{cursor} / 1000) OR id < #{cursorId}) " +
+            "ORDER BY create_time DESC, id DESC LIMIT #{size}")
     List<Comments> getRepliesByParentIdForAdmin(@Param("parentId") Long parentId,
                                                  @Param("cursor") Long cursor,
+                                                 @Param("cursorId") Long cursorId,
                                                  @Param("size") Integer size);
     
     /**
@@ -23,6 +23,52 @@ public interface GoodsMapper {
             "#{categoryId}, #{conditionLevel}, #{collectNum}, #{sellPrice}, #{rentPrice}, #{status}, #{coverUrl})")
     void insertGoods(Goods goods);
 
+    /**
+     * 按ID顺序分块查询商品ID（用于构建布隆过滤器）
+     */
+    @Select("SELECT id FROM goods WHERE id > #{lastId} ORDER BY id LIMIT #{limit}")
+    List<Long> getGoodsIdsAfter(@Param("lastId") long lastId, @Param("limit") int limit);
+
+    /**
+     * 按ID顺序分块查询上架商品的ID和描述（用于构建搜索倒排索引）
+     */
+    @Select("SELECT id, description FROM goods WHERE status = 1 AND id > #{lastId} ORDER BY id LIMIT #{limit}")
+    List<Map<String, Object>> getOnSaleDescriptionsAfter(@Param("lastId") long lastId, @Param("limit") int limit);
+
+    /**
+     * 查询商品的描述和状态（用于增量更新搜索倒排索引）
+     */
+    @Select("SELECT id, description, status FROM goods WHERE id = #{goodsId}")
+    Map<String, Object> getDescriptionAndStatusById(Long goodsId);
+
+    /**
+     * 按ID顺序分块查询商品的筛选字段（用于构建筛选索引，包含所有状态），时间为毫秒时间戳
+     */
+    @Select("SELECT id, status, category_id AS categoryId, owner_id AS ownerId, goods_type AS goodsType, " +
+            "sell_price AS sellPrice, rent_price AS rentPrice, " +
+            "UNIX_TIMESTAMP(create_time) * 1000 AS createTime, UNIX_TIMESTAMP(update_time) * 1000 AS updateTime " +
+            "FROM goods WHERE id > #{lastId} ORDER BY id LIMIT #{limit}")
+    List<Map<String, Object>> getFacetRowsAfter(@Param("lastId") long lastId, @Param("limit") int limit);
+
+    /**
+     * 查询单个商品的筛选字段（用于增量更新筛选索引）
+     */
+    @Select("SELECT id, status, category_id AS categoryId, owner_id AS ownerId, goods_type AS goodsType, " +
+            "sell_price AS sellPrice, rent_price AS rentPrice, " +
+            "UNIX_TIMESTAMP(create_time) * 1000 AS createTime, UNIX_TIMESTAMP(update_time) * 1000 AS updateTime " +
+            "FROM goods WHERE id = #{goodsId}")
+    Map<String, Object> getFacetRowById(Long goodsId);
+
+    /**
+     * 按 (更新时间, ID) 顺序查询 (since, sinceId) 之后更新过的商品（用于进程内索引的定期补偿），时间为毫秒时间戳
+     */
+    @Select("SELECT id, UNIX_TIMESTAMP(update_time) * 1000 AS updateTime FROM goods " +
+            "WHERE update_time >= FROM_UNIXTIME(#{since} / 1000) " +
+            "AND (update_time > FROM_UNIXTIME(#{since} / 1000) OR id > #{sinceId}) " +
+            "ORDER BY update_time, id LIMIT #{limit}")
+    List<Map<String, Object>> getChangedGoodsAfter(@Param("since") long since, @Param("sinceId") long sinceId,
+                                                   @Param("limit") int limit);
+
     /**
      * 更新商品状态（下架、已售出、租期中等）
      */
@@ -41,6 +87,23 @@ public interface GoodsMapper {
     @Update("UPDATE goods SET collect_num = collect_num + #{delta} WHERE id = #{id}")
     int updateCollectNum(@Param("id") Long id, @Param("delta") Integer delta);
 
+    /**
+     * 批量写入商品收藏数（一条多行 UPDATE ... CASE）
+     * update_time = update_time 阻止 ON UPDATE 刷新更新时间，收藏数变化不改变商品在各列表中的排序
+     * @param counts Map<商品ID, 收藏数>
+     */
+    @Update("<script>" +
+            "UPDATE goods SET collect_num = CASE id " +
+            "<foreach collection='counts' index='id' item='num'>" +
+            "WHEN #{id} THEN #{num} " +
+            "</foreach>" +
+            "END, update_time = update_time WHERE id IN " +
+            "<foreach collection='counts' index='id' open='(' separator=',' close=')'>" +
+            "#{id}" +
+            "</foreach>" +
+            "</script>")
+    int batchSetCollectNum(@Param("counts") Map<Long, Integer> counts);
+
     /**
      * 根据商品ID查询点赞数
      */
@@ -69,6 +132,59 @@ public interface GoodsMapper {
     @Select("SELECT COUNT(*) FROM goods_favorite WHERE user_id = #{userId} AND goods_id = #{goodsId}")
     int checkFavorite(@Param("userId") Long userId, @Param("goodsId") Long goodsId);
 
+    /**
+     * 批量查询用户已收藏的商品ID（Redis 不可用时的回退）
+     */
+    @Select("<script>" +
+            "SELECT goods_id FROM goods_favorite WHERE user_id = #{userId} AND goods_id IN " +
+            "<foreach collection='goodsIds' item='id' open='(' separator=',' close=')'>" +
+            "#{id}" +
+            "</foreach>" +
+            "</script>")
+    List<Long> getFavoritedGoodsIds(@Param("userId") Long userId, @Param("goodsIds") List<Long> goodsIds);
+
+    /**
+     * 查询用户的全部收藏（商品ID和收藏时间戳），用于加载 Redis 中的收藏状态
+     */
+    @Select("SELECT goods_id AS goodsId, UNIX_TIMESTAMP(create_time) * 1000 AS createTime " +
+            "FROM goods_favorite WHERE user_id = #{userId}")
+    List<Map<String, Object>> getFavoriteTimesByUserId(@Param("userId") Long userId);
+
+    /**
+     * 批量写入收藏（多行 INSERT，依赖 (user_id, goods_id) 唯一索引，重复落库时只更新收藏时间）
+     */
+    @Insert("<script>" +
+            "INSERT INTO goods_favorite(user_id, goods_id, create_time) VALUES " +
+            "<foreach collection='favorites' item='f' separator=','>" +
+            "(#{f.userId}, #{f.goodsId}, #{f.createTime})" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE create_time = VALUES(create_time)" +
+            "</script>")
+    int batchUpsertFavorites(@Param("favorites") List<GoodsFavorite> favorites);
+
+    /**
+     * 批量删除收藏（按 (user_id, goods_id) 行构造器匹配唯一索引）
+     */
+    @Delete("<script>" +
+            "DELETE FROM goods_favorite WHERE (user_id, goods_id) IN " +
+            "<foreach collection='favorites' item='f' open='(' separator=',' close=')'>" +
+            "(#{f.userId}, #{f.goodsId})" +
+            "</foreach>" +
+            "</script>")
+    int batchDeleteFavorites(@Param("favorites") List<GoodsFavorite> favorites);
+
+    /**
+     * 按时间衰减汇总最近的收藏热度（用于初始化热门商品榜），只统计上架商品
+     * 热度 = Σ 2^((收藏时间 - epoch) / halfLife)
+     */
+    @Select("SELECT f.goods_id AS goodsId, " +
+            "SUM(POW(2, (UNIX_TIMESTAMP(f.create_time) * 1000 - #{epoch}) / #{halfLife})) AS score " +
+            "FROM goods_favorite f JOIN goods g ON f.goods_id = g.id " +
+            "WHERE f.create_time >= FROM_UNIXTIME(#{since} / 1000) AND g.status = 1 " +
+            "GROUP BY f.goods_id ORDER BY score DESC LIMIT #{limit}")
+    List<Map<String, Object>> getDecayedFavoriteScores(@Param("since") long since, @Param("epoch") long epoch,
+                                                       @Param("halfLife") long halfLife, @Param("limit") int limit);
+
     /**
      * 根据ID查询商品
      */
@@ -102,9 +218,9 @@ public interface GoodsMapper {
     int updateGoods(Goods goods);
 
     /**
-     * 根据商品ID查询商品的分类ID、用户ID和更新时间戳
+     * 根据商品ID查询商品的分类ID、用户ID、状态和更新时间戳
      */
-    @Select("SELECT category_id AS categoryId, owner_id AS ownerId, " +
+    @Select("SELECT category_id AS categoryId, owner_id AS ownerId, status, " +
             "UNIX_TIMESTAMP(update_time) * 1000 AS updateTime FROM goods WHERE id = #{goodsId}")
     Map<String, Object> getGoodsCategoryAndTimeById(Long goodsId);
 
@@ -116,6 +232,7 @@ public interface GoodsMapper {
     /** 搜索商品ID（全文索引，只返回ID） */
     List<Long> searchGoodsIds(@Param("keyword") String keyword,
                               @Param("cursor") long cursor,
+                              @Param("cursorId") long cursorId,
                               @Param("size") int size);
 
     /** 根据ID查询商品详情 */
@@ -0,0 +1,50 @@
+package com.xyz.mapper;
+
+import com.xyz.entity.GoodsOutbox;
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
+
+@Mapper
+public interface GoodsOutboxMapper {
+
+    /**
+     * 写入事件（在商品变更的事务中执行），下次补偿时间为宽限期之后，正常情况下事件在此之前已处理并删除
+     */
+    @Insert("INSERT INTO goods_outbox(goods_id, event_type, payload, attempts, next_retry_time, create_time) " +
+            "VALUES(#{goodsId}, #{eventType}, #{payload}, 0, DATE_ADD(NOW(3), INTERVAL #{graceSeconds} SECOND), NOW(3))")
+    @Options(useGeneratedKeys = true, keyProperty = "outbox.id")
+    int insert(@Param("outbox") GoodsOutbox outbox, @Param("graceSeconds") int graceSeconds);
+
+    /**
+     * 查询到期需要补偿的事件（按事件ID顺序）
+     */
+    @Select("SELECT id, goods_id AS goodsId, event_type AS eventType, payload, attempts " +
+            "FROM goods_outbox WHERE next_retry_time <= NOW(3) ORDER BY id LIMIT #{limit}")
+    List<GoodsOutbox> findDue(@Param("limit") int limit);
+
+    /**
+     * 认领一个到期事件：重试次数 +1 并推迟下次补偿时间，多个节点同时认领时只有一个成功（乐观锁）
+     */
+    @Update("UPDATE goods_outbox SET attempts = attempts + 1, " +
+            "next_retry_time = DATE_ADD(NOW(3), INTERVAL #{delaySeconds} SECOND) " +
+            "WHERE id = #{id} AND attempts = #{attempts}")
+    int claim(@Param("id") Long id, @Param("attempts") int attempts, @Param("delaySeconds") int delaySeconds);
+
+    /**
+     * 批量删除已处理的事件
+     */
+    @Delete("<script>" +
+            "DELETE FROM goods_outbox WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>" +
+            "#{id}" +
+            "</foreach>" +
+            "</script>")
+    int deleteByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * 未处理的事件数
+     */
+    @Select("SELECT COUNT(*) FROM goods_outbox")
+    long countPending();
+}
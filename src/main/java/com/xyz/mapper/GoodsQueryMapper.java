@@ -18,16 +18,21 @@ public interface GoodsQueryMapper {
     @Select("SELECT COUNT(*) FROM goods_favorite WHERE goods_id = #{goodsId}")
     int countByGoodsId(Long goodsId);
 
-
     /**
-     * 根据用户ID查询所有收藏的商品ID和收藏时间戳（用于初始化ZSet缓存）
+     * 根据用户ID分块查询收藏的商品ID和收藏时间戳（用于分块重建ZSet缓存和ZSet之外的游标分页，按 (收藏时间, 商品ID) 倒序 keyset 分页）
      * 只返回上架状态的商品
      */
     @Select("SELECT gf.goods_id AS goodsId, UNIX_TIMESTAMP(gf.create_time) * 1000 AS createTime " +
             "FROM goods_favorite gf " +
             "INNER JOIN goods g ON gf.goods_id = g.id " +
-            "WHERE gf.user_id = #{userId} AND g.status = 1")
-    List<Map<String, Object>> getFavoriteIdsWithTimeByUserId(Long userId);
+            "WHERE gf.user_id = #{userId} AND g.status = 1 " +
+            "AND gf.create_time <= FROM_UNIXTIME(#{cursor} / 1000) " +
+            "AND (gf.create_time < FROM_UNIXTIME(#{cursor} / 1000) OR gf.goods_id < #{cursorId}) " +
+            "ORDER BY gf.create_time DESC, gf.goods_id DESC LIMIT #{limit}")
+    List<Map<String, Object>> getFavoriteIdsWithTimeByUserId(@Param("userId") Long userId,
+                                                             @Param("cursor") long cursor,
+                                                             @Param("cursorId") long cursorId,
+                                                             @Param("limit") int limit);
 
     /**
      * 根据收藏ID删除（用于管理员操作等）
@@ -38,63 +43,69 @@ public interface GoodsQueryMapper {
     // ==================== 商品查询相关方法 ====================
 
     /**
-     * 根据分类ID查询所有商品的ID和更新时间戳（用于初始化ZSet缓存）
+     * 根据分类ID分块查询商品的ID和更新时间戳（用于分块重建ZSet缓存和ZSet之外的游标分页，按 (更新时间, ID) 倒序 keyset 分页）
      */
     @Select("SELECT id, UNIX_TIMESTAMP(update_time) * 1000 AS updateTime FROM goods " +
-            "WHERE category_id = #{categoryId} AND status = 1")
-    List<Map<String, Object>> getGoodsIdsWithTimeByCategoryId(long categoryId);
+            "WHERE category_id = #{categoryId} AND status = 1 " +
+            "AND update_time <= FROM_UNIXTIME(#{cursor} / 1000) " +
+            "AND (update_time < FROM_UNIXTIME(#{cursor} / 1000) OR id < #{cursorId}) " +
+            "ORDER BY update_time DESC, id DESC LIMIT #{limit}")
+    List<Map<String, Object>> getGoodsIdsWithTimeByCategoryId(@Param("categoryId") long categoryId,
+                                                              @Param("cursor") long cursor,
+                                                              @Param("cursorId") long cursorId,
+                                                              @Param("limit") int limit);
 
     /**
-     * 根据用户ID查询所有商品的ID和更新时间戳
+     * 根据用户ID分块查询商品的ID和更新时间戳（用于分块重建ZSet缓存和ZSet之外的游标分页）
      */
     @Select("SELECT id, UNIX_TIMESTAMP(update_time) * 1000 AS updateTime FROM goods " +
-            "WHERE owner_id = #{ownerId}")
-    List<Map<String, Object>> getGoodsIdsWithTimeByOwnerId(long ownerId);
-
-
-    /**
-     * 游标分页查询用户自己的收藏列表（返回商品卡片）
-     * 使用XML实现，需要连表查询商品和卖家信息
-     */
-    List<GoodsCardVO> getFavoriteGoodsByUserId(@Param("userId") Long userId,
-                                               @Param("cursor") Long cursor,
-                                               @Param("size") Integer size);
-
-    /** 游标分页查询商品列表（按分类） */
-    List<GoodsCardVO> getGoodsPageByCategoryId(@Param("categoryId") long categoryId,
-                                               @Param("cursor") long cursor,
-                                               @Param("size") int size);
-
-    /** 游标分页查询用户发布的商品列表 */
-    List<GoodsCardVO> getGoodsPageByOwnerId(@Param("ownerId") long ownerId,
-                                            @Param("cursor") long cursor,
-                                            @Param("size") int size);
+            "WHERE owner_id = #{ownerId} " +
+            "AND update_time <= FROM_UNIXTIME(#{cursor} / 1000) " +
+            "AND (update_time < FROM_UNIXTIME(#{cursor} / 1000) OR id < #{cursorId}) " +
+            "ORDER BY update_time DESC, id DESC LIMIT #{limit}")
+    List<Map<String, Object>> getGoodsIdsWithTimeByOwnerId(@Param("ownerId") long ownerId,
+                                                           @Param("cursor") long cursor,
+                                                           @Param("cursorId") long cursorId,
+                                                           @Param("limit") int limit);
 
     /** 根据ID列表批量查询商品卡片信息 */
     List<GoodsCardVO> getGoodsCardsByIds(@Param("ids") List<Long> ids);
 
-    /** 游标分页查询所有上架商品列表（按更新时间倒序） */
-    List<GoodsCardVO> getAllGoodsPage(@Param("cursor") long cursor,
-                                      @Param("size") int size);
-
     /**
-     * 查询所有上架商品的ID和更新时间戳（用于初始化ZSet缓存）
+     * 分块查询上架商品的ID和更新时间戳（用于分块重建ZSet缓存和ZSet之外的游标分页，不再一次性查出全部商品）
      */
     @Select("SELECT id, UNIX_TIMESTAMP(update_time) * 1000 AS updateTime FROM goods " +
-            "WHERE status = 1")
-    List<Map<String, Object>> getAllGoodsIdsWithTime();
+            "WHERE status = 1 " +
+            "AND update_time <= FROM_UNIXTIME(#{cursor} / 1000) " +
+            "AND (update_time < FROM_UNIXTIME(#{cursor} / 1000) OR id < #{cursorId}) " +
+            "ORDER BY update_time DESC, id DESC LIMIT #{limit}")
+    List<Map<String, Object>> getAllGoodsIdsWithTime(@Param("cursor") long cursor,
+                                                     @Param("cursorId") long cursorId,
+                                                     @Param("limit") int limit);
 
     /**
-     * 根据用户ID查询所有下架商品的ID和更新时间戳（用于初始化ZSet缓存）
+     * 根据用户ID分块查询下架商品的ID和更新时间戳（用于分块重建ZSet缓存和ZSet之外的游标分页）
      */
     @Select("SELECT id, UNIX_TIMESTAMP(update_time) * 1000 AS updateTime FROM goods " +
-            "WHERE owner_id = #{ownerId} AND status = 4")
-    List<Map<String, Object>> getOfflineGoodsIdsWithTimeByOwnerId(long ownerId);
+            "WHERE owner_id = #{ownerId} AND status = 4 " +
+            "AND update_time <= FROM_UNIXTIME(#{cursor} / 1000) " +
+            "AND (update_time < FROM_UNIXTIME(#{cursor} / 1000) OR id < #{cursorId}) " +
+            "ORDER BY update_time DESC, id DESC LIMIT #{limit}")
+    List<Map<String, Object>> getOfflineGoodsIdsWithTimeByOwnerId(@Param("ownerId") long ownerId,
+                                                                  @Param("cursor") long cursor,
+                                                                  @Param("cursorId") long cursorId,
+                                                                  @Param("limit") int limit);
 
-    /** 游标分页查询用户下架的商品列表 */
-    List<GoodsCardVO> getOfflineGoodsByOwnerId(@Param("ownerId") long ownerId,
-                                               @Param("cursor") long cursor,
-                                               @Param("size") int size);
+    /**
+     * 从给定的商品ID中筛选出上架状态的商品（用于从 Redis 收藏状态构建收藏列表）
+     */
+    @Select("<script>" +
+            "SELECT id FROM goods WHERE status = 1 AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>" +
+            "#{id}" +
+            "</foreach>" +
+            "</script>")
+    List<Long> getOnSaleGoodsIds(@Param("ids") List<Long> ids);
 
     /**
      * 根据商品ID列表批量查询点赞数
@@ -0,0 +1,46 @@
+package com.xyz.mapper;
+
+import com.xyz.entity.ImageObject;
+import org.apache.ibatis.annotations.*;
+
+@Mapper
+public interface ImageObjectMapper {
+
+    /**
+     * 登记新内容，哈希已存在时不插入（返回 0，说明并发上传了相同内容，由调用方复用已有记录）
+     */
+    @Insert("INSERT IGNORE INTO image_object(hash, object_name, url, size, ref_count, create_time) " +
+            "VALUES(#{hash}, #{objectName}, #{url}, #{size}, 1, NOW())")
+    int insertIgnore(ImageObject imageObject);
+
+    /**
+     * 增加一次引用，引用已降为 0（正在删除）的记录不再复用
+     */
+    @Update("UPDATE image_object SET ref_count = ref_count + 1 WHERE hash = #{hash} AND ref_count > 0")
+    int acquire(@Param("hash") String hash);
+
+    /**
+     * 按哈希查询访问URL
+     */
+    @Select("SELECT url FROM image_object WHERE hash = #{hash}")
+    String getUrlByHash(@Param("hash") String hash);
+
+    /**
+     * 按对象名查询
+     */
+    @Select("SELECT hash, object_name AS objectName, url, size, ref_count AS refCount " +
+            "FROM image_object WHERE object_name = #{objectName}")
+    ImageObject getByObjectName(@Param("objectName") String objectName);
+
+    /**
+     * 减少一次引用
+     */
+    @Update("UPDATE image_object SET ref_count = ref_count - 1 WHERE object_name = #{objectName} AND ref_count > 0")
+    int release(@Param("objectName") String objectName);
+
+    /**
+     * 删除已无引用的记录，返回 1 时调用方可以删除存储对象（与 acquire 的条件互斥，不会删掉刚被复用的对象）
+     */
+    @Delete("DELETE FROM image_object WHERE object_name = #{objectName} AND ref_count = 0")
+    int deleteUnreferenced(@Param("objectName") String objectName);
+}
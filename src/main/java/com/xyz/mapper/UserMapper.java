@@ -2,8 +2,10 @@ package com.xyz.mapper;
 
 import com.xyz.entity.User;
 import com.xyz.vo.UserListVO;
+import com.xyz.vo.UserProfileVO;
 import org.apache.ibatis.annotations.*;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -80,19 +82,32 @@ public interface UserMapper {
     int updateStatus(@Param("id") Long id, @Param("status") Integer status, @Param("updateTime") java.time.LocalDateTime updateTime);
 
     /**
-     * 游标分页查询用户列表（根据注册时间倒序）
+     * 游标分页查询用户列表（根据 (注册时间, ID) 倒序，复合游标条件可走 (create_time, id) 索引的范围扫描）
      */
     @Select("SELECT id, account_num AS accountNum, nickname, email, phone, image, status, " +
             "create_time AS createTime, UNIX_TIMESTAMP(create_time) * 1000 AS createTimeTimestamp " +
-            "FROM user WHERE UNIX_TIMESTAMP(create_time) * 1000 < #{cursor} " +
-            "ORDER BY create_time DESC LIMIT #{size}")
-    List<UserListVO> getUserListByCursor(@Param("cursor") long cursor, @Param("size") int size);
+            "FROM user WHERE create_time <= FROM_UNIXTIME(#{cursor} / 1000) " +
+            "AND (create_time < FROM_UNIXTIME(#{cursor} / 1000) OR id < #{cursorId}) " +
+            "ORDER BY create_time DESC, id DESC LIMIT #{size}")
+    List<UserListVO> getUserListByCursor(@Param("cursor") long cursor, @Param("cursorId") long cursorId,
+                                         @Param("size") int size);
 
     /**
-     * 查询所有用户ID和注册时间（用于ZSet缓存）
+     * 按ID顺序分块查询用户ID（用于构建布隆过滤器）
      */
-    @Select("SELECT id, UNIX_TIMESTAMP(create_time) * 1000 AS createTime FROM user")
-    List<Map<String, Object>> getAllUserIdsWithTime();
+    @Select("SELECT id FROM user WHERE id > #{lastId} ORDER BY id LIMIT #{limit}")
+    List<Long> getUserIdsAfter(@Param("lastId") long lastId, @Param("limit") int limit);
+
+    /**
+     * 分块查询用户ID和注册时间（用于分块重建ZSet缓存，按 (注册时间, ID) 倒序 keyset 分页）
+     */
+    @Select("SELECT id, UNIX_TIMESTAMP(create_time) * 1000 AS createTime FROM user " +
+            "WHERE create_time <= FROM_UNIXTIME(#{cursor} / 1000) " +
+            "AND (create_time < FROM_UNIXTIME(#{cursor} / 1000) OR id < #{cursorId}) " +
+            "ORDER BY create_time DESC, id DESC LIMIT #{limit}")
+    List<Map<String, Object>> getAllUserIdsWithTime(@Param("cursor") long cursor,
+                                                    @Param("cursorId") long cursorId,
+                                                    @Param("limit") int limit);
 
     /**
      * 根据ID集合批量查询用户卡片
@@ -105,4 +120,13 @@ public interface UserMapper {
             "</script>")
     List<UserListVO> getUserCardsByIds(@Param("ids") List<Long> ids);
 
-}
\ No newline at end of file
+    /**
+     * 根据ID集合批量查询用户资料片段（昵称、头像）
+     */
+    @Select("<script>" +
+            "SELECT id, nickname, image AS avatar FROM user WHERE id IN " +
+            "<foreach item='id' collection='ids' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<UserProfileVO> getProfilesByIds(@Param("ids") Collection<Long> ids);
+
+}
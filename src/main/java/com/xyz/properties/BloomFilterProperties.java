@@ -0,0 +1,32 @@
+package com.xyz.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 商品/用户ID布隆过滤器配置属性（防缓存穿透）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "trade.bloom")
+public class BloomFilterProperties {
+
+    /** 是否启用，关闭后所有ID都放行 */
+    private boolean enabled = true;
+
+    /** 商品过滤器第一层容量，写满后自动扩容一层（容量翻倍） */
+    private long goodsCapacity = 100000;
+
+    /** 用户过滤器第一层容量 */
+    private long userCapacity = 100000;
+
+    /** 第一层误判率，后续每层减半 */
+    private double fpp = 0.01;
+
+    /** 最大层数 */
+    private int maxLayers = 6;
+
+    /** 启动构建时每批读取的ID个数 */
+    private int buildChunkSize = 1000;
+}
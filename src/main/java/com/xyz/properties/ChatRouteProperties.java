@@ -0,0 +1,26 @@
+package com.xyz.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 聊天消息跨节点路由配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "trade.chat-route")
+public class ChatRouteProperties {
+
+    /** 本节点标识，为空时使用 主机名-随机串（每次启动不同） */
+    private String nodeId = "";
+
+    /** 转发队列容量，队列满时丢弃推送（消息已落库，客户端重新拉取） */
+    private int queueCapacity = 10000;
+
+    /** 每批最多转发的消息数，同一目标节点的消息合并为一次 PUBLISH */
+    private int batchSize = 100;
+
+    /** 凑批等待时间（毫秒） */
+    private long lingerMillis = 5;
+}
@@ -0,0 +1,39 @@
+package com.xyz.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 聊天 WebSocket 连接配置属性（多设备、发送队列）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "trade.chat-session")
+public class ChatSessionProperties {
+
+    /** 同一用户在一个节点上最多保持的连接数，超过时关闭最早的连接 */
+    private int maxDevices = 5;
+
+    /** 每个连接的发送队列容量（帧数） */
+    private int outboundQueueCapacity = 256;
+
+    /** 发送队列满时的处理方式 */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+    /** 发送线程数，每个连接同一时刻最多占用一个发送线程 */
+    private int senderThreads = 4;
+
+    /** 每个连接每轮最多连续发送的帧数，发完后让出发送线程，避免个别连接长期占用 */
+    private int sendBatchSize = 32;
+
+    /** 单帧发送超时（毫秒），超时的连接按慢消费者关闭 */
+    private long sendTimeoutMillis = 10000;
+
+    public enum OverflowPolicy {
+        /** 丢弃队列中最早的帧 */
+        DROP_OLDEST,
+        /** 关闭慢消费者连接，客户端重连后重新拉取 */
+        CLOSE
+    }
+}
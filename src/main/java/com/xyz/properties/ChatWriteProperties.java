@@ -0,0 +1,32 @@
+package com.xyz.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 聊天消息异步落库（Redis Stream 写缓冲 + 批量写入 MySQL）配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "trade.chat-write")
+public class ChatWriteProperties {
+
+    /** 是否开启异步落库，关闭或写入 Stream 失败时在发送线程中同步落库 */
+    private boolean enabled = true;
+
+    /** 每批最多写入的消息数 */
+    private int batchSize = 200;
+
+    /** 读取 Stream 的阻塞等待时间（毫秒），也是消息最长的落库延迟 */
+    private long blockMillis = 50;
+
+    /** 已读取但超过该时间（秒）仍未确认的消息由补偿任务认领并重新写入（节点重启、写入失败） */
+    private int claimIdleSeconds = 30;
+
+    /** 投递（读取和认领）达到该次数仍未落库的消息转入死信 Stream，不再重试 */
+    private int maxDeliveries = 5;
+
+    /** 会话参与者本地缓存的最大会话数（会话参与者创建后不变） */
+    private int sessionCacheSize = 100000;
+}
@@ -0,0 +1,23 @@
+package com.xyz.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 商品收藏数落库配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "trade.collect-sync")
+public class CollectSyncProperties {
+
+    /** 待同步集合的分片数（按商品ID取模），各节点按分片加锁并行落库；修改前需要先把旧分片同步完 */
+    private int shards = 16;
+
+    /** 每批从一个分片取出的商品数，一批对应一次管道 HMGET 和一条多行 UPDATE */
+    private int chunkSize = 500;
+
+    /** 每次调度每个分片最多处理的批数，剩余的留给下一次调度 */
+    private int maxChunksPerShard = 20;
+}
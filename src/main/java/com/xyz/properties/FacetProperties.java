@@ -0,0 +1,26 @@
+package com.xyz.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 商品筛选条件进程内列式索引配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "trade.facet")
+public class FacetProperties {
+
+    /** 是否启用，关闭（或索引尚未构建完成）时多条件查询回退到 MySQL */
+    private boolean enabled = true;
+
+    /** 启动构建时每批读取的商品数 */
+    private int buildChunkSize = 1000;
+
+    /** 增量更新的行先放在未排序尾部，尾部超过该行数时归并进有序数组 */
+    private int mergeThreshold = 4096;
+
+    /** 已删除行超过存活行数（且不少于该值）时压缩索引 */
+    private int compactThreshold = 10000;
+}
@@ -0,0 +1,21 @@
+package com.xyz.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 列表索引 ZSet（商品分类/全部/发布/下架/收藏、用户列表）配置属性
+ * ZSet 只缓存最新的 windowSize 个ID，更早的数据翻页时直接走 MySQL 游标查询
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "trade.feed")
+public class FeedProperties {
+
+    /** 每个索引 ZSet 最多缓存的ID个数（头部窗口大小），小于等于0表示不限制 */
+    private int windowSize = 2000;
+
+    /** 重建 ZSet 时每次从 MySQL 读取的行数 */
+    private int rebuildChunkSize = 500;
+}
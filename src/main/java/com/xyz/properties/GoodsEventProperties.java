@@ -0,0 +1,29 @@
+package com.xyz.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 商品事件（发件箱 + 提交后异步维护缓存和索引）配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "trade.goods-event")
+public class GoodsEventProperties {
+
+    /** 处理通道数，同一商品的事件总是进入同一通道，按提交顺序处理 */
+    private int lanes = 4;
+
+    /** 每个通道的队列容量，队列满时事件留在发件箱中由补偿任务处理 */
+    private int laneQueueCapacity = 10000;
+
+    /** 事件写入发件箱后的宽限期（秒），超过宽限期仍未删除的事件由补偿任务重新处理 */
+    private int graceSeconds = 30;
+
+    /** 补偿任务每次最多处理的事件数 */
+    private int retryBatchSize = 100;
+
+    /** 补偿重试的最大间隔（秒），间隔按重试次数指数增长 */
+    private int maxRetryDelaySeconds = 600;
+}
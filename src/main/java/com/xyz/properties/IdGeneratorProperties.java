@@ -0,0 +1,23 @@
+package com.xyz.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 分布式ID生成器（时间戳 + 工作节点号 + 序列号）配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "trade.id-generator")
+public class IdGeneratorProperties {
+
+    /** 固定的工作节点号 0~1023，小于 0 时启动时从 Redis 租用一个未被占用的节点号 */
+    private int workerId = -1;
+
+    /** 节点号租约时长（秒），每 20 秒续期一次，节点宕机后超过该时长节点号可被其他节点租用 */
+    private int leaseSeconds = 60;
+
+    /** 可等待的最大时钟回拨（毫秒），回拨更多时按逻辑时钟继续分配 */
+    private long maxBackwardMillis = 10;
+}
@@ -0,0 +1,36 @@
+package com.xyz.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 进程内一级缓存（L1）配置属性
+ * TTL 需要比 Redis 中对应缓存的 TTL 短，保证 L1 过期后能回源到 Redis 拿到较新的数据
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "trade.local-cache")
+public class LocalCacheProperties {
+
+    /** 是否启用 L1 缓存 */
+    private boolean enabled = true;
+
+    /** 商品卡片 L1 过期时间（秒） */
+    private long cardTtlSeconds = 60;
+
+    /** 商品详情 L1 过期时间（秒） */
+    private long detailTtlSeconds = 30;
+
+    /** 商品卡片 L1 最大占用（字节，按估算大小计算） */
+    private long cardMaxWeightBytes = 16 * 1024 * 1024;
+
+    /** 商品详情 L1 最大占用（字节，按估算大小计算） */
+    private long detailMaxWeightBytes = 32 * 1024 * 1024;
+
+    /** 用户资料片段 L1 过期时间（秒） */
+    private long profileTtlSeconds = 60;
+
+    /** 用户资料片段 L1 最大条数 */
+    private long profileMaxSize = 100000;
+}
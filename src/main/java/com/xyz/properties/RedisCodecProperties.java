@@ -0,0 +1,23 @@
+package com.xyz.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Redis 缓存值紧凑二进制编码配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "trade.redis-codec")
+public class RedisCodecProperties {
+
+    /**
+     * 是否以二进制格式写入缓存对象（读取始终兼容 JSON 和二进制）
+     * 从旧版本升级时先以 false 发布，所有节点都能读取二进制后再改为 true
+     */
+    private boolean binaryEnabled = true;
+
+    /** 编码后超过该字节数时压缩，0 表示不压缩 */
+    private int compressThreshold = 512;
+}
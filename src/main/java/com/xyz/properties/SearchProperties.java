@@ -0,0 +1,29 @@
+package com.xyz.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 商品描述进程内倒排索引配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "trade.search")
+public class SearchProperties {
+
+    /** 是否启用，关闭（或索引尚未构建完成）时搜索回退到 MySQL 全文索引 */
+    private boolean enabled = true;
+
+    /** 启动构建时每批读取的商品数 */
+    private int buildChunkSize = 1000;
+
+    /** 英文/数字查询词按前缀匹配时最多展开的词项数，超过时保留文档数最多的词项 */
+    private int maxPrefixExpansions = 64;
+
+    /** 已删除文档超过存活文档数（且不少于该值）时压缩倒排表 */
+    private int compactThreshold = 10000;
+
+    /** 打分统计快照（文档数、平均长度、文档频率）的刷新间隔（秒），按该间隔对齐到时间段，各节点同时刷新 */
+    private long scoreSnapshotSeconds = 600;
+}
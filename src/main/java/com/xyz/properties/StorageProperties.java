@@ -0,0 +1,47 @@
+package com.xyz.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 文件存储配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "trade.storage")
+public class StorageProperties {
+
+    /** 存储后端：oss-阿里云 OSS，local-本地文件系统 */
+    private String type = "oss";
+
+    /** 本地存储目录（type=local 时使用） */
+    private String localDir = "./uploads";
+
+    /** 本地存储文件的访问URL前缀（type=local 时使用） */
+    private String localUrlPrefix = "http://localhost:8080/files";
+
+    /** 本地直传凭证的签名密钥（type=local 时使用），为空时每次启动随机生成 */
+    private String localSigningSecret;
+
+    /** 直传凭证有效期（秒） */
+    private long presignExpireSeconds = 300;
+
+    /** OSS 客户端最大连接数 */
+    private int maxConnections = 64;
+
+    /** OSS 建立连接超时（毫秒） */
+    private int connectTimeoutMillis = 5000;
+
+    /** OSS 读写超时（毫秒） */
+    private int socketTimeoutMillis = 30000;
+
+    /** 上传线程数 */
+    private int uploadThreads = 8;
+
+    /** 上传任务队列容量，队列满时由请求线程自己上传 */
+    private int uploadQueueCapacity = 64;
+
+    /** 一次请求上传多个文件的总超时（毫秒） */
+    private long batchTimeoutMillis = 20000;
+}
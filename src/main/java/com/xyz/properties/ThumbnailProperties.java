@@ -0,0 +1,38 @@
+package com.xyz.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 图片缩略图配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "trade.thumbnail")
+public class ThumbnailProperties {
+
+    /** 是否为商品图片和聊天图片生成缩略图 */
+    private boolean enabled = true;
+
+    /** 缩略图工作线程数（CPU 密集），<=0 时取 CPU 核数 */
+    private int workers = 0;
+
+    /** 缩略图任务队列容量，队列满时跳过缩略图，商品卡片使用原图 */
+    private int queueCapacity = 64;
+
+    /** 卡片缩略图最长边（像素） */
+    private int cardSize = 400;
+
+    /** 详情缩略图最长边（像素） */
+    private int detailSize = 1280;
+
+    /** JPEG 压缩质量 0~1 */
+    private float quality = 0.8f;
+
+    /** 允许处理的最大像素数，超过的图片不生成缩略图 */
+    private long maxPixels = 40_000_000L;
+
+    /** 等待缩略图生成的超时（毫秒），超时则跳过缩略图 */
+    private long timeoutMillis = 10000;
+}
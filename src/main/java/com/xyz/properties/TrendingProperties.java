@@ -0,0 +1,32 @@
+package com.xyz.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 热门商品榜（按时间衰减的收藏热度）配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "trade.trending")
+public class TrendingProperties {
+
+    /** 是否启用，关闭后不再更新热度，热门列表返回空 */
+    private boolean enabled = true;
+
+    /** 热度半衰期（小时）：一次收藏的热度每过一个半衰期减半 */
+    private double halfLifeHours = 24;
+
+    /** 榜单最多保留的商品数，超出的热度最低商品被裁掉 */
+    private int maxSize = 1000;
+
+    /** 最低热度（折合成当前时刻的收藏数），低于它的商品移出榜单 */
+    private double minScore = 0.05;
+
+    /** 距基准时间超过多少个半衰期时整体缩放 score，防止 score 指数增长后丢失精度 */
+    private int rescaleHalfLives = 32;
+
+    /** ZSet 不存在时，从最近多少个半衰期内的收藏记录初始化 */
+    private int initHalfLives = 8;
+}
@@ -0,0 +1,170 @@
+package com.xyz.serializer;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * 紧凑二进制格式的读写缓冲区
+ * 整数采用 ZigZag + 变长编码（小数字只占1个字节），字符串为 长度 + UTF-8 字节
+ */
+final class CompactBuffer {
+
+    private byte[] bytes;
+    private int position;
+    private final int limit;
+
+    /**
+     * 写缓冲区
+     */
+    CompactBuffer(int initialCapacity) {
+        this.bytes = new byte[Math.max(16, initialCapacity)];
+        this.limit = Integer.MAX_VALUE;
+    }
+
+    /**
+     * 读缓冲区，从 offset 开始读取
+     */
+    CompactBuffer(byte[] bytes, int offset) {
+        this.bytes = bytes;
+        this.position = offset;
+        this.limit = bytes.length;
+    }
+
+    int position() {
+        return position;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, position);
+    }
+
+    // ==================== 写 ====================
+
+    void writeByte(int value) {
+        ensure(1);
+        bytes[position++] = (byte) value;
+    }
+
+    void writeBytes(byte[] value, int offset, int length) {
+        ensure(length);
+        System.arraycopy(value, offset, bytes, position, length);
+        position += length;
+    }
+
+    void writeVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+    }
+
+    void writeSignedLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeString(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(utf8.length);
+        writeBytes(utf8, 0, utf8.length);
+    }
+
+    void writeDecimal(BigDecimal value) {
+        writeSignedLong(value.scale());
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < 64) {
+            writeByte(0);
+            writeSignedLong(unscaled.longValue());
+        } else {
+            byte[] raw = unscaled.toByteArray();
+            writeByte(1);
+            writeVarLong(raw.length);
+            writeBytes(raw, 0, raw.length);
+        }
+    }
+
+    void writeDateTime(LocalDateTime value) {
+        writeSignedLong(value.toEpochSecond(ZoneOffset.UTC));
+        writeVarLong(value.getNano());
+    }
+
+    // ==================== 读 ====================
+
+    int readByte() {
+        check(1);
+        return bytes[position++] & 0xFF;
+    }
+
+    byte[] readBytes(int length) {
+        check(length);
+        byte[] value = Arrays.copyOfRange(bytes, position, position + length);
+        position += length;
+        return value;
+    }
+
+    long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("变长整数格式错误");
+    }
+
+    int readVarInt() {
+        long value = readVarLong();
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalStateException("长度超出范围: " + value);
+        }
+        return (int) value;
+    }
+
+    long readSignedLong() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    String readString() {
+        int length = readVarInt();
+        check(length);
+        String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    BigDecimal readDecimal() {
+        int scale = (int) readSignedLong();
+        if (readByte() == 0) {
+            return BigDecimal.valueOf(readSignedLong(), scale);
+        }
+        return new BigDecimal(new BigInteger(readBytes(readVarInt())), scale);
+    }
+
+    LocalDateTime readDateTime() {
+        long seconds = readSignedLong();
+        int nanos = readVarInt();
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private void ensure(int extra) {
+        if (position + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + extra));
+        }
+    }
+
+    private void check(int length) {
+        if (length < 0 || position + length > limit) {
+            throw new IllegalStateException("数据不完整");
+        }
+    }
+}
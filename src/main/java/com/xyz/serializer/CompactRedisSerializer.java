@@ -0,0 +1,182 @@
+package com.xyz.serializer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Redis 值的紧凑二进制序列化器（替代带 @class 类型信息的 JSON）
+ * 1. 已注册的类型（商品卡片、商品详情、用户等缓存对象）按 CompactSchema 编码，不写类名和字段名
+ *    格式：魔数(1) + 格式版本(1) + 标志位(1) + 类型ID(变长) + [原始长度(变长)] + 数据
+ * 2. 编码后超过阈值的数据用 Deflate（BEST_SPEED）压缩，标志位第0位表示是否压缩
+ * 3. 其他值（Long/Integer/String 等 ZSet 成员、计数器、Pub/Sub 消息）仍交给原 JSON 序列化器，
+ *    保证 INCR、Lua 脚本和其他节点看到的字节完全不变
+ * 4. 读取时按首字节区分：魔数开头的按二进制解码，其他按旧 JSON 解码，切换期间新旧格式可以共存
+ * 5. 二进制数据损坏或由更新版本写入而无法解码时返回 null，调用方按缓存未命中处理
+ */
+@Slf4j
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    /** 魔数：JSON 文本不可能以该字节开头 */
+    static final byte MAGIC = (byte) 0xC5;
+
+    static final byte FORMAT_VERSION = 1;
+
+    private static final int FLAG_DEFLATED = 1;
+
+    private static final int HEADER_SIZE = 3;
+
+    private final RedisSerializer<Object> legacySerializer;
+    private final Map<Class<?>, CompactSchema<?>> schemasByType = new HashMap<>();
+    private final Map<Integer, CompactSchema<?>> schemasById = new HashMap<>();
+
+    /** 是否以二进制格式写入（滚动发布时先关闭，所有节点都能读取二进制后再打开） */
+    private final boolean writeEnabled;
+
+    /** 超过该字节数时压缩，<=0 不压缩 */
+    private final int compressThreshold;
+
+    private final LongAdder decodeErrors = new LongAdder();
+
+    /** Deflater/Inflater 创建时需要分配本地内存，按线程复用 */
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, true));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    public CompactRedisSerializer(RedisSerializer<Object> legacySerializer, boolean writeEnabled, int compressThreshold) {
+        this.legacySerializer = legacySerializer;
+        this.writeEnabled = writeEnabled;
+        this.compressThreshold = compressThreshold;
+    }
+
+    /**
+     * 注册类型
+     * @param typeId 类型ID，写入数据中，一经使用不能修改或复用
+     * @param type 类型，需要有无参构造方法，字段使用包装类型
+     * @param fieldNames 参与编码的字段，新增字段只能追加在末尾
+     */
+    public <T> CompactRedisSerializer register(int typeId, Class<T> type, String... fieldNames) {
+        if (typeId <= 0 || schemasById.containsKey(typeId) || schemasByType.containsKey(type)) {
+            throw new IllegalArgumentException("类型ID无效或重复注册: " + typeId + ", " + type.getName());
+        }
+        CompactSchema<T> schema = new CompactSchema<>(typeId, type, fieldNames);
+        schemasByType.put(type, schema);
+        schemasById.put(typeId, schema);
+        return this;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        CompactSchema<?> schema = (writeEnabled && value != null) ? schemasByType.get(value.getClass()) : null;
+        if (schema == null) {
+            return legacySerializer.serialize(value);
+        }
+        try {
+            CompactBuffer body = new CompactBuffer(128);
+            schema.write(value, body);
+            byte[] raw = body.toByteArray();
+
+            CompactBuffer out = new CompactBuffer(raw.length + 16);
+            out.writeByte(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            if (compressThreshold > 0 && raw.length > compressThreshold) {
+                byte[] deflated = deflate(raw);
+                if (deflated.length < raw.length) {
+                    out.writeByte(FLAG_DEFLATED);
+                    out.writeVarLong(schema.getTypeId());
+                    out.writeVarLong(raw.length);
+                    out.writeBytes(deflated, 0, deflated.length);
+                    return out.toByteArray();
+                }
+            }
+            out.writeByte(0);
+            out.writeVarLong(schema.getTypeId());
+            out.writeBytes(raw, 0, raw.length);
+            return out.toByteArray();
+        } catch (Exception e) {
+            throw new SerializationException("紧凑编码失败: " + value.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return legacySerializer.deserialize(bytes);
+        }
+        try {
+            if (bytes.length < HEADER_SIZE || bytes[1] != FORMAT_VERSION) {
+                throw new IllegalStateException("不支持的格式版本");
+            }
+            int flags = bytes[2];
+            CompactBuffer in = new CompactBuffer(bytes, HEADER_SIZE);
+            int typeId = in.readVarInt();
+            CompactSchema<?> schema = schemasById.get(typeId);
+            if (schema == null) {
+                throw new IllegalStateException("未注册的类型ID: " + typeId);
+            }
+            if ((flags & FLAG_DEFLATED) != 0) {
+                int rawLength = in.readVarInt();
+                in = new CompactBuffer(inflate(bytes, in.position(), rawLength), 0);
+            }
+            return schema.read(in);
+        } catch (Exception e) {
+            decodeErrors.increment();
+            log.warn("紧凑编码数据无法解码，按缓存未命中处理: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    public long getDecodeErrors() {
+        return decodeErrors.sum();
+    }
+
+    // ==================== 压缩 ====================
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = DEFLATER.get();
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            CompactBuffer out = new CompactBuffer(raw.length / 2 + 16);
+            byte[] chunk = new byte[1024];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                out.writeBytes(chunk, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes, int offset, int rawLength) throws DataFormatException {
+        Inflater inflater = INFLATER.get();
+        try {
+            inflater.setInput(bytes, offset, bytes.length - offset);
+            byte[] raw = new byte[rawLength];
+            int n = 0;
+            while (n < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(raw, n, rawLength - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += read;
+            }
+            if (n != rawLength) {
+                throw new DataFormatException("解压后长度不符");
+            }
+            return raw;
+        } finally {
+            inflater.reset();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.xyz.serializer;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一个类型的紧凑二进制编码结构：按注册时给出的字段顺序编码，不写字段名和类名
+ * 编码：字段数 + 空值位图 + 各非空字段的值
+ * 兼容规则：新增字段只能追加到字段列表末尾（旧数据缺少的字段读出为 null），不能删除或调整已有字段的顺序和类型
+ */
+final class CompactSchema<T> {
+
+    private enum Kind { LONG, INT, STRING, DECIMAL, DATE_TIME, BOOLEAN, DOUBLE, STRING_LIST }
+
+    private final Class<T> type;
+    private final int typeId;
+    private final Constructor<T> constructor;
+    private final Field[] fields;
+    private final Kind[] kinds;
+
+    CompactSchema(int typeId, Class<T> type, String... fieldNames) {
+        this.typeId = typeId;
+        this.type = type;
+        this.fields = new Field[fieldNames.length];
+        this.kinds = new Kind[fieldNames.length];
+        try {
+            this.constructor = type.getDeclaredConstructor();
+            this.constructor.setAccessible(true);
+            for (int i = 0; i < fieldNames.length; i++) {
+                Field field = type.getDeclaredField(fieldNames[i]);
+                field.setAccessible(true);
+                fields[i] = field;
+                kinds[i] = kindOf(field);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("无法注册紧凑编码类型: " + type.getName(), e);
+        }
+    }
+
+    Class<T> getType() {
+        return type;
+    }
+
+    int getTypeId() {
+        return typeId;
+    }
+
+    void write(Object value, CompactBuffer out) throws IllegalAccessException {
+        int count = fields.length;
+        Object[] values = new Object[count];
+        byte[] nulls = new byte[(count + 7) / 8];
+        for (int i = 0; i < count; i++) {
+            values[i] = fields[i].get(value);
+            if (values[i] == null) {
+                nulls[i >> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+        out.writeVarLong(count);
+        out.writeBytes(nulls, 0, nulls.length);
+        for (int i = 0; i < count; i++) {
+            if (values[i] != null) {
+                writeValue(kinds[i], values[i], out);
+            }
+        }
+    }
+
+    T read(CompactBuffer in) throws ReflectiveOperationException {
+        int count = in.readVarInt();
+        if (count > fields.length) {
+            // 数据由更新版本的字段列表写入，无法跳过未知字段
+            throw new IllegalStateException("字段数多于当前定义: " + type.getSimpleName() + ", " + count);
+        }
+        byte[] nulls = in.readBytes((count + 7) / 8);
+        T value = constructor.newInstance();
+        for (int i = 0; i < count; i++) {
+            if ((nulls[i >> 3] & (1 << (i & 7))) == 0) {
+                fields[i].set(value, readValue(kinds[i], in));
+            }
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeValue(Kind kind, Object value, CompactBuffer out) {
+        switch (kind) {
+            case LONG -> out.writeSignedLong((Long) value);
+            case INT -> out.writeSignedLong((Integer) value);
+            case STRING -> out.writeString((String) value);
+            case DECIMAL -> out.writeDecimal((BigDecimal) value);
+            case DATE_TIME -> out.writeDateTime((LocalDateTime) value);
+            case BOOLEAN -> out.writeByte((Boolean) value ? 1 : 0);
+            case DOUBLE -> out.writeSignedLong(Double.doubleToRawLongBits((Double) value));
+            case STRING_LIST -> {
+                List<String> list = (List<String>) value;
+                out.writeVarLong(list.size());
+                for (String item : list) {
+                    // 列表元素为 null 时写入 0 标记
+                    if (item == null) {
+                        out.writeByte(0);
+                    } else {
+                        out.writeByte(1);
+                        out.writeString(item);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Object readValue(Kind kind, CompactBuffer in) {
+        return switch (kind) {
+            case LONG -> in.readSignedLong();
+            case INT -> (int) in.readSignedLong();
+            case STRING -> in.readString();
+            case DECIMAL -> in.readDecimal();
+            case DATE_TIME -> in.readDateTime();
+            case BOOLEAN -> in.readByte() != 0;
+            case DOUBLE -> Double.longBitsToDouble(in.readSignedLong());
+            case STRING_LIST -> {
+                int size = in.readVarInt();
+                List<String> list = new ArrayList<>(Math.min(size, 64));
+                for (int i = 0; i < size; i++) {
+                    list.add(in.readByte() == 0 ? null : in.readString());
+                }
+                yield list;
+            }
+        };
+    }
+
+    private static Kind kindOf(Field field) {
+        Class<?> fieldType = field.getType();
+        if (fieldType == Long.class) {
+            return Kind.LONG;
+        } else if (fieldType == Integer.class) {
+            return Kind.INT;
+        } else if (fieldType == String.class) {
+            return Kind.STRING;
+        } else if (fieldType == BigDecimal.class) {
+            return Kind.DECIMAL;
+        } else if (fieldType == LocalDateTime.class) {
+            return Kind.DATE_TIME;
+        } else if (fieldType == Boolean.class) {
+            return Kind.BOOLEAN;
+        } else if (fieldType == Double.class) {
+            return Kind.DOUBLE;
+        } else if (fieldType == List.class && isStringList(field.getGenericType())) {
+            return Kind.STRING_LIST;
+        }
+        // 基本类型字段不能表示 null，统一要求使用包装类型
+        throw new IllegalArgumentException("不支持的字段类型: " + field.getDeclaringClass().getSimpleName()
+                + "." + field.getName() + " (" + field.getGenericType().getTypeName() + ")");
+    }
+
+    private static boolean isStringList(Type genericType) {
+        return genericType instanceof ParameterizedType
+                && ((ParameterizedType) genericType).getActualTypeArguments()[0] == String.class;
+    }
+}
@@ -28,9 +28,10 @@ public interface ChatService {
     List<ChatSessionVO> listSessions();
     
     /**
-     * 获取历史消息
+     * 获取历史消息（按消息ID从新到旧）
+     * @param beforeId 上一页最早一条消息的ID，为空时返回最新一页
      */
-    List<ChatMessageVO> listMessages(String sessionId, Integer page, Integer pageSize);
+    List<ChatMessageVO> listMessages(String sessionId, Long beforeId, Integer pageSize);
     
     /**
      * 标记消息已读
@@ -1,5 +1,7 @@
 package com.xyz.service;
 
+import java.util.Map;
+
 /**
  * 收藏数同步服务接口
  */
@@ -21,4 +23,9 @@ public interface CollectNumSyncService {
      * @param goodsId 商品ID
      */
     void forceSyncCollectNum(Long goodsId);
+
+    /**
+     * 同步吞吐量、积压量和延迟统计
+     */
+    Map<String, Object> stats();
 }
\ No newline at end of file
@@ -27,12 +27,12 @@ public interface CommentService {
     /**
      * 获取商品的顶层评论列表（游标分页）
      */
-    PageResult<CommentVO> getTopComments(Long goodsId, Long cursor, Integer size);
+    PageResult<CommentVO> getTopComments(Long goodsId, Long cursor, Long cursorId, Integer size);
 
     /**
      * 获取某条评论的所有回复（游标分页）
      */
-    PageResult<CommentVO> getReplies(Long parentId, Long cursor, Integer size);
+    PageResult<CommentVO> getReplies(Long parentId, Long cursor, Long cursorId, Integer size);
 
     /**
      * 管理员删除评论（违规屏蔽）
@@ -47,10 +47,10 @@ public interface CommentService {
     /**
      * 管理员获取商品的顶层评论列表（包含所有状态）
      */
-    PageResult<CommentVO> getTopCommentsByAdmin(Long goodsId, Long cursor, Integer size);
+    PageResult<CommentVO> getTopCommentsByAdmin(Long goodsId, Long cursor, Long cursorId, Integer size);
 
     /**
      * 管理员获取评论的回复列表（包含所有状态）
      */
-    PageResult<CommentVO> getRepliesByAdmin(Long parentId, Long cursor, Integer size);
+    PageResult<CommentVO> getRepliesByAdmin(Long parentId, Long cursor, Long cursorId, Integer size);
 }
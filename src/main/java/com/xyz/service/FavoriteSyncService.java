@@ -0,0 +1,12 @@
+package com.xyz.service;
+
+/**
+ * 收藏状态落库服务接口
+ */
+public interface FavoriteSyncService {
+
+    /**
+     * 把 Redis 中有变化的收藏状态批量写入 goods_favorite
+     */
+    void batchSyncFavorites();
+}
@@ -15,7 +15,7 @@ public interface GoodsService {
     /**
      * 搜索商品（模糊查询）
      */
-    PageResult<GoodsCardVO> searchGoods(String keyword, Long cursor, int size);
+    PageResult<GoodsCardVO> searchGoods(String keyword, Long cursor, Long cursorId, int size);
 
     void offlineGoods(Long goodsId, Long ownerId);
 
@@ -67,4 +67,12 @@ public interface GoodsService {
      * @return true-已收藏, false-未收藏
      */
     boolean isFavorite(Long userId, Long goodsId);
+
+    /**
+     * 批量判断用户是否已收藏（用于列表页一次标记整页商品的收藏状态）
+     * @param userId 用户ID
+     * @param goodsIds 商品ID列表
+     * @return 其中已收藏的商品ID
+     */
+    List<Long> getFavoritedGoodsIds(Long userId, List<Long> goodsIds);
 }
@@ -0,0 +1,30 @@
+package com.xyz.service;
+
+import com.xyz.dto.UploadPolicyDTO;
+import com.xyz.vo.UploadPolicyVO;
+
+/**
+ * 文件直传服务
+ */
+public interface UploadService {
+
+    /**
+     * 签发直传凭证
+     * @param userId 当前用户ID
+     * @param dto 上传场景、文件类型和大小
+     */
+    UploadPolicyVO createPolicy(Long userId, UploadPolicyDTO dto);
+
+    /**
+     * 确认直传完成，校验存储中的文件
+     * @param userId 当前用户ID
+     * @param objectKey 对象名
+     * @return 文件访问URL
+     */
+    String complete(Long userId, String objectKey);
+
+    /**
+     * 删除已签发凭证但过期仍未确认的直传对象
+     */
+    void sweepExpired();
+}
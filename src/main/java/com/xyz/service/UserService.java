@@ -51,7 +51,7 @@ public interface UserService {
      * 游标分页查询用户列表（管理员）
      * 使用Redis ZSet缓存 + 用户卡片缓存
      */
-    PageResult<UserListVO> getUserList(Long cursor, int size);
+    PageResult<UserListVO> getUserList(Long cursor, Long cursorId, int size);
 
     /**
      * 获取用户详细信息（管理员）
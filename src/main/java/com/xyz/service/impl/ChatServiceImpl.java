@@ -18,9 +18,18 @@ import com.xyz.mapper.GoodsMapper;
 import com.xyz.mapper.UserMapper;
 import com.xyz.service.ChatService;
 import com.xyz.util.BaseContext;
+import com.xyz.util.ChatMessageWriter;
+import com.xyz.util.ChatPresenceRegistry;
+import com.xyz.util.ChatRecentMessageBuffer;
+import com.xyz.util.ChatSessionCache;
+import com.xyz.util.DistributedIdGenerator;
+import com.xyz.util.IdBloomFilterUtil;
+import com.xyz.util.SnowflakeIdGenerator;
+import com.xyz.util.UserProfileCache;
 import com.xyz.vo.ChatMessageVO;
 import com.xyz.vo.ChatSessionVO;
 import com.xyz.vo.GoodsCardVO;
+import com.xyz.vo.UserProfileVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
@@ -30,8 +39,11 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * 聊天服务实现类
@@ -54,9 +66,27 @@ public class ChatServiceImpl implements ChatService {
     
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
-    
-    private static final String ONLINE_USERS_KEY = "chat:online:user:";
-    private static final String UNREAD_TOTAL_CACHE_KEY = "chat:unread:total:";
+
+    @Autowired
+    private IdBloomFilterUtil idBloomFilterUtil;
+
+    @Autowired
+    private ChatPresenceRegistry chatPresenceRegistry;
+
+    @Autowired
+    private ChatSessionCache chatSessionCache;
+
+    @Autowired
+    private ChatMessageWriter chatMessageWriter;
+
+    @Autowired
+    private ChatRecentMessageBuffer chatRecentMessageBuffer;
+
+    @Autowired
+    private UserProfileCache userProfileCache;
+
+    @Autowired
+    private DistributedIdGenerator distributedIdGenerator;
     
     /**
      * 生成会话ID（包含商品ID）
@@ -93,6 +123,7 @@ public class ChatServiceImpl implements ChatService {
         
         // 创建新会话
         ChatSession chatSession = ChatSession.builder()
+                .id(distributedIdGenerator.nextId())
                 .sessionId(sessionId)
                 .user1Id(Math.min(currentUserId, receiverId))
                 .user2Id(Math.max(currentUserId, receiverId))
@@ -111,14 +142,16 @@ public class ChatServiceImpl implements ChatService {
         return sessionId;
     }
     
+    /**
+     * 发送消息：会话参与者取自本地缓存，消息ID本地分配，写入 Stream 后即返回，由后台批量落库（见 ChatMessageWriter）
+     */
     @Override
-    @Transactional
     public ChatMessageVO sendMessage(ChatMessageDTO chatMessageDTO) {
         Long currentUserId = BaseContext.getCurrentId();
         String sessionId = chatMessageDTO.getSessionId();
         
         // 验证会话是否存在
-        ChatSession session = chatSessionMapper.getBySessionId(sessionId);
+        ChatSession session = chatSessionCache.get(sessionId);
         if (session == null) {
             throw new ChatSessionNotFoundException(MessageConstant.CHAT_SESSION_NOT_FOUND);
         }
@@ -128,37 +161,25 @@ public class ChatServiceImpl implements ChatService {
             throw new ChatPermissionException(MessageConstant.CHAT_NO_PERMISSION);
         }
         
-        // 发送消息时自动取消双方的隐藏状态(重新显示会话)
-        chatSessionMapper.unhideSession(sessionId, currentUserId);
-        chatSessionMapper.unhideSession(sessionId, chatMessageDTO.getReceiverId());
+        // 接收者固定为会话的另一方
+        Long receiverId = session.getUser1Id().equals(currentUserId) ? session.getUser2Id() : session.getUser1Id();
         
         // 创建消息
-        LocalDateTime now = LocalDateTime.now();
         ChatMessage chatMessage = ChatMessage.builder()
+                .id(distributedIdGenerator.nextId())
                 .sessionId(sessionId)
                 .senderId(currentUserId)
-                .receiverId(chatMessageDTO.getReceiverId())
+                .receiverId(receiverId)
                 .messageType(chatMessageDTO.getMessageType())
                 .content(chatMessageDTO.getContent())
                 .goodsId(chatMessageDTO.getGoodsId())
                 .isRead(ChatConstant.MESSAGE_UNREAD)
                 .isRecalled(0)
-                .sendTime(now)
+                .sendTime(LocalDateTime.now())
                 .build();
         
-        chatMessageMapper.insert(chatMessage);
-        
-        // 更新会话最后消息
-        session.setLastMessage(chatMessageDTO.getContent());
-        session.setLastMessageTime(now);
-        chatSessionMapper.updateLastMessage(session);
-        
-        // 增加接收者未读数
-        chatSessionMapper.incrementUnread(sessionId, chatMessageDTO.getReceiverId());
-        
-        // 清除接收者的未读数缓存（因为未读数变化了）
-        String receiverUnreadKey = UNREAD_TOTAL_CACHE_KEY + chatMessageDTO.getReceiverId();
-        redisTemplate.delete(receiverUnreadKey);
+        // 写入消息、更新会话最后消息和未读数、取消双方隐藏、清除未读数缓存均由写入器完成
+        chatMessageWriter.write(chatMessage);
         
         // 构建返回VO
         ChatMessageVO messageVO = buildChatMessageVO(chatMessage);
@@ -184,12 +205,15 @@ public class ChatServiceImpl implements ChatService {
         return sessionVOList;
     }
     
+    /**
+     * 历史消息按消息ID翻页；打开会话时的最新一页从 Redis 最新消息缓存读取，发送者资料按页批量填充
+     */
     @Override
-    public List<ChatMessageVO> listMessages(String sessionId, Integer page, Integer pageSize) {
+    public List<ChatMessageVO> listMessages(String sessionId, Long beforeId, Integer pageSize) {
         Long currentUserId = BaseContext.getCurrentId();
         
         // 验证会话是否存在
-        ChatSession session = chatSessionMapper.getBySessionId(sessionId);
+        ChatSession session = chatSessionCache.get(sessionId);
         if (session == null) {
             throw new ChatSessionNotFoundException(MessageConstant.CHAT_SESSION_NOT_FOUND);
         }
@@ -199,24 +223,21 @@ public class ChatServiceImpl implements ChatService {
             throw new ChatPermissionException(MessageConstant.CHAT_NO_PERMISSION);
         }
         
-        // 分页查询消息
         if (pageSize == null || pageSize <= 0) {
             pageSize = ChatConstant.DEFAULT_PAGE_SIZE;
         }
-        if (page == null || page <= 0) {
-            page = 1;
-        }
-        int offset = (page - 1) * pageSize;
-        
-        List<ChatMessage> messages = chatMessageMapper.listBySessionId(sessionId, offset, pageSize);
         
-        List<ChatMessageVO> messageVOList = new ArrayList<>();
-        for (ChatMessage message : messages) {
-            ChatMessageVO vo = buildChatMessageVO(message);
-            messageVOList.add(vo);
+        List<ChatMessage> messages;
+        if (beforeId == null && pageSize <= ChatConstant.RECENT_MESSAGE_SIZE) {
+            // 最新一页
+            List<ChatMessage> recent = chatRecentMessageBuffer.getOrLoad(sessionId,
+                    () -> chatMessageMapper.listBySessionId(sessionId, null, ChatConstant.RECENT_MESSAGE_SIZE));
+            messages = recent.size() > pageSize ? recent.subList(0, pageSize) : recent;
+        } else {
+            messages = chatMessageMapper.listBySessionId(sessionId, beforeId, pageSize);
         }
         
-        return messageVOList;
+        return buildChatMessageVOs(messages);
     }
     
     @Override
@@ -239,14 +260,17 @@ public class ChatServiceImpl implements ChatService {
         Long otherUserId = session.getUser1Id().equals(currentUserId) ? 
                 session.getUser2Id() : session.getUser1Id();
         
-        // 标记消息为已读
-        chatMessageMapper.markAsRead(sessionId, currentUserId);
+        // 清空未读数并推进已读水位（先锁定会话行，与消息写入互斥，见 ChatMessageWriter）
+        chatSessionMapper.clearUnread(sessionId, currentUserId, SnowflakeIdGenerator.maxIdAt(System.currentTimeMillis()));
         
-        // 清空未读数
-        chatSessionMapper.clearUnread(sessionId, currentUserId);
+        // 标记消息为已读
+        if (chatMessageMapper.markAsRead(sessionId, currentUserId) > 0) {
+            // 缓存的最新消息中有消息变为已读
+            chatRecentMessageBuffer.invalidate(sessionId);
+        }
         
         // 清除未读数缓存
-        String key = UNREAD_TOTAL_CACHE_KEY + currentUserId;
+        String key = RedisConstant.CHAT_UNREAD_TOTAL_KEY + currentUserId;
         redisTemplate.delete(key);
         log.debug("清除未读数缓存: userId={}", currentUserId);
         
@@ -273,28 +297,29 @@ public class ChatServiceImpl implements ChatService {
         Long otherUserId = session.getUser1Id().equals(currentUserId) ? 
                 session.getUser2Id() : session.getUser1Id();
         
+        // 清空未读数并推进已读水位（先锁定会话行，与消息写入互斥，见 ChatMessageWriter）
+        chatSessionMapper.clearUnread(sessionId, currentUserId, SnowflakeIdGenerator.maxIdAt(System.currentTimeMillis()));
+        
         // 查询当前用户未读的消息（即对方发送给我的未读消息）
         List<ChatMessage> unreadMessages = chatMessageMapper.getUnreadMessagesByReceiver(sessionId, currentUserId);
         
         // 标记消息为已读
-        chatMessageMapper.markAsRead(sessionId, currentUserId);
-        
-        // 清空未读数
-        chatSessionMapper.clearUnread(sessionId, currentUserId);
+        if (chatMessageMapper.markAsRead(sessionId, currentUserId) > 0) {
+            // 缓存的最新消息中有消息变为已读
+            chatRecentMessageBuffer.invalidate(sessionId);
+        }
         
         // 清除未读数缓存
-        String key = UNREAD_TOTAL_CACHE_KEY + currentUserId;
+        String key = RedisConstant.CHAT_UNREAD_TOTAL_KEY + currentUserId;
         redisTemplate.delete(key);
         log.debug("清除未读数缓存: userId={}", currentUserId);
         
         // 构建已读消息的VO列表（用于推送给发送者）
-        List<ChatMessageVO> messageVOList = new ArrayList<>();
         for (ChatMessage message : unreadMessages) {
             // 更新消息的已读状态
             message.setIsRead(1);
-            ChatMessageVO vo = buildChatMessageVO(message);
-            messageVOList.add(vo);
         }
+        List<ChatMessageVO> messageVOList = buildChatMessageVOs(unreadMessages);
         
         log.info("标记消息已读: sessionId={}, userId={}, 已读消息数={}", sessionId, currentUserId, messageVOList.size());
         
@@ -312,7 +337,7 @@ public class ChatServiceImpl implements ChatService {
         return total;
         
         /* 原有缓存逻辑
-        String key = UNREAD_TOTAL_CACHE_KEY + currentUserId;
+        String key = RedisConstant.CHAT_UNREAD_TOTAL_KEY + currentUserId;
         
         // 先从 Redis 获取缓存
         Object cached = redisTemplate.opsForValue().get(key);
@@ -361,6 +386,11 @@ public class ChatServiceImpl implements ChatService {
     public ChatMessageVO recallMessage(Long messageId) {
         Long currentUserId = BaseContext.getCurrentId();
         
+        // 刚发送的消息可能还在 Stream 中等待落库，先在独立事务中写入（要在本事务第一次读之前，否则读不到）
+        if (System.currentTimeMillis() - SnowflakeIdGenerator.timestampOf(messageId) <= ChatConstant.RECALL_TIME_LIMIT) {
+            chatMessageWriter.flushPending(messageId);
+        }
+        
         // 查询消息
         ChatMessage message = chatMessageMapper.getById(messageId);
         if (message == null) {
@@ -388,6 +418,7 @@ public class ChatServiceImpl implements ChatService {
         
         // 撤回消息
         chatMessageMapper.recallMessage(messageId);
+        chatRecentMessageBuffer.invalidate(message.getSessionId());
         
         // 更新会话最后消息
         ChatSession session = chatSessionMapper.getBySessionId(message.getSessionId());
@@ -405,33 +436,27 @@ public class ChatServiceImpl implements ChatService {
     
     @Override
     public boolean isUserOnline(Long userId) {
-        String key = ONLINE_USERS_KEY + userId;
-        return Boolean.TRUE.equals(redisTemplate.hasKey(key));
+        return chatPresenceRegistry.isOnline(userId);
     }
     
     @Override
     public void userOnline(Long userId) {
-        String key = ONLINE_USERS_KEY + userId;
-        // 设置用户在线状态,5分钟过期
-        redisTemplate.opsForValue().set(key, "1", ChatConstant.ONLINE_STATUS_EXPIRE, TimeUnit.SECONDS);
+        // 记录用户连接所在节点,5分钟过期
+        chatPresenceRegistry.online(userId);
         log.info("用户上线: userId={}", userId);
     }
     
     @Override
     public void userOffline(Long userId) {
-        String key = ONLINE_USERS_KEY + userId;
-        redisTemplate.delete(key);
+        chatPresenceRegistry.offline(userId);
         log.info("用户下线: userId={}", userId);
     }
     
     @Override
     public void userHeartbeat(Long userId) {
-        String key = ONLINE_USERS_KEY + userId;
-        // 心跳续期5分钟
-        if (Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
-            redisTemplate.expire(key, ChatConstant.ONLINE_STATUS_EXPIRE, TimeUnit.SECONDS);
-            log.debug("用户心跳: userId={}", userId);
-        }
+        // 心跳续期5分钟，同时确认连接所在节点
+        chatPresenceRegistry.online(userId);
+        log.debug("用户心跳: userId={}", userId);
     }
     
     /**
@@ -441,6 +466,11 @@ public class ChatServiceImpl implements ChatService {
         if (userId == null) {
             return null;
         }
+
+        // 布隆过滤器判定一定不存在的用户，直接返回
+        if (!idBloomFilterUtil.mightContainUser(userId)) {
+            return null;
+        }
         
         String key = RedisConstant.USER_INFO_KEY + userId;
         
@@ -508,22 +538,35 @@ public class ChatServiceImpl implements ChatService {
      * 构建ChatMessageVO(不包含商品信息,商品信息由ChatSessionVO提供)
      */
     private ChatMessageVO buildChatMessageVO(ChatMessage message) {
-        // 使用缓存查询发送者信息
-        User sender = getUserWithCache(message.getSenderId());
-        
-        return ChatMessageVO.builder()
-                .id(message.getId())
-                .sessionId(message.getSessionId())
-                .senderId(message.getSenderId())
-                .senderUsername(sender != null ? sender.getNickname() : "未知用户")
-                .senderAvatar(sender != null ? sender.getImage() : null)
-                .receiverId(message.getReceiverId())
-                .messageType(message.getMessageType())
-                .content(message.getContent())
-                .isRead(message.getIsRead())
-                .isRecalled(message.getIsRecalled())
-                .sendTime(message.getSendTime() != null ? 
-                        message.getSendTime().toInstant(ZoneOffset.of("+8")).toEpochMilli() : null)
-                .build();
+        return buildChatMessageVOs(Collections.singletonList(message)).get(0);
+    }
+    
+    /**
+     * 批量构建ChatMessageVO，本页发送者资料去重后一次批量获取
+     */
+    private List<ChatMessageVO> buildChatMessageVOs(List<ChatMessage> messages) {
+        Map<Long, UserProfileVO> senders = userProfileCache.getProfiles(messages.stream()
+                .map(ChatMessage::getSenderId)
+                .collect(Collectors.toList()));
+        
+        List<ChatMessageVO> messageVOList = new ArrayList<>(messages.size());
+        for (ChatMessage message : messages) {
+            UserProfileVO sender = senders.get(message.getSenderId());
+            messageVOList.add(ChatMessageVO.builder()
+                    .id(message.getId())
+                    .sessionId(message.getSessionId())
+                    .senderId(message.getSenderId())
+                    .senderUsername(sender != null ? sender.getNickname() : "未知用户")
+                    .senderAvatar(sender != null ? sender.getAvatar() : null)
+                    .receiverId(message.getReceiverId())
+                    .messageType(message.getMessageType())
+                    .content(message.getContent())
+                    .isRead(message.getIsRead())
+                    .isRecalled(message.getIsRecalled())
+                    .sendTime(message.getSendTime() != null ? 
+                            message.getSendTime().toInstant(ZoneOffset.of("+8")).toEpochMilli() : null)
+                    .build());
+        }
+        return messageVOList;
     }
 }
@@ -2,20 +2,29 @@ package com.xyz.service.impl;
 
 import com.xyz.constant.RedisConstant;
 import com.xyz.mapper.GoodsMapper;
+import com.xyz.properties.CollectSyncProperties;
 import com.xyz.service.CollectNumSyncService;
+import com.xyz.util.CollectNumCacheUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 收藏数同步服务实现类
+ * 1. 待同步商品按 商品ID % 分片数 放入分片 ZSet，score 为首次标记时间（ZADD NX），最早的标记即当前同步延迟
+ * 2. 每次调度从随机分片开始逐个尝试分片锁，多个节点各自拿到不同分片并行同步，单个分片同一时刻只有一个节点处理
+ * 3. 每批 ZPOPMIN 取出最早标记的 chunkSize 个商品，一次管道 HMGET 读取收藏数桶，一条多行 UPDATE ... CASE 写入，失败时放回分片
+ * 4. 直接写入缓存中的收藏数（而不是增量），重复同步结果相同；同步期间又有变化的商品会被重新标记，下一批再同步
  */
 @Slf4j
 @Service
@@ -26,23 +35,28 @@ public class CollectNumSyncServiceImpl implements CollectNumSyncService {
     
     @Autowired
     private GoodsMapper goodsMapper;
-    
-    /** 待同步商品ID集合的Redis Key */
-    private static final String SYNC_PENDING_KEY = "goods:collect:sync:pending";
-    
-    /** 同步锁的Redis Key */
-    private static final String SYNC_LOCK_KEY = "goods:collect:sync:lock";
-    
-    /** 同步锁过期时间（秒） */
-    private static final int SYNC_LOCK_TTL = 300; // 5分钟
+
+    @Autowired
+    private CollectSyncProperties collectSyncProperties;
+
+    @Autowired
+    private CollectNumCacheUtil collectNumCacheUtil;
+
+    private final LongAdder syncedGoods = new LongAdder();
+    private final LongAdder skippedGoods = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder chunkNanos = new LongAdder();
+    private final LongAccumulator maxLagMillis = new LongAccumulator(Long::max, 0);
+    private volatile long lastLagMillis;
+    private volatile long lastRunGoods;
+    private volatile long lastRunMillis;
 
     @Override
     public void markForSync(Long goodsId) {
         try {
-            // 将商品ID添加到待同步集合
-            redisTemplate.opsForSet().add(SYNC_PENDING_KEY, goodsId);
-            // 设置过期时间，防止集合无限增长
-            redisTemplate.expire(SYNC_PENDING_KEY, 24, TimeUnit.HOURS);
+            // NX：只记录首次标记时间，重复标记不会把商品往后推
+            redisTemplate.opsForZSet().addIfAbsent(buildShardKey(goodsId), goodsId, System.currentTimeMillis());
             log.debug("标记商品收藏数待同步: goodsId={}", goodsId);
         } catch (Exception e) {
             log.error("标记商品收藏数待同步失败: goodsId={}, error={}", goodsId, e.getMessage());
@@ -50,21 +64,22 @@ public class CollectNumSyncServiceImpl implements CollectNumSyncService {
     }
 
     @Override
-    @Scheduled(fixedRate = 60000) // 每分钟执行一次
+    @Scheduled(fixedRate = 10000) // 每10秒执行一次
     public void batchSyncCollectNum() {
-        // 尝试获取分布式锁
-        Boolean lockAcquired = redisTemplate.opsForValue()
-                .setIfAbsent(SYNC_LOCK_KEY, "locked", SYNC_LOCK_TTL, TimeUnit.SECONDS);
-        
-        if (Boolean.TRUE.equals(lockAcquired)) {
-            try {
-                doSyncCollectNum();
-            } finally {
-                // 释放锁
-                redisTemplate.delete(SYNC_LOCK_KEY);
-            }
-        } else {
-            log.debug("收藏数同步任务已在其他实例执行，跳过本次同步");
+        long start = System.currentTimeMillis();
+        drainLegacyPendingSet();
+
+        int shards = collectSyncProperties.getShards();
+        int first = ThreadLocalRandom.current().nextInt(shards);
+        long synced = 0;
+        for (int i = 0; i < shards; i++) {
+            synced += syncShard((first + i) % shards);
+        }
+
+        lastRunGoods = synced;
+        lastRunMillis = System.currentTimeMillis() - start;
+        if (synced > 0) {
+            log.info("批量同步商品收藏数完成: 商品数={}, 耗时={}ms", synced, lastRunMillis);
         }
     }
 
@@ -72,82 +87,150 @@ public class CollectNumSyncServiceImpl implements CollectNumSyncService {
     @Async("asyncTaskExecutor")
     public void forceSyncCollectNum(Long goodsId) {
         try {
-            syncSingleGoodsCollectNum(goodsId);
+            syncChunk(Collections.singletonList(goodsId));
             log.info("强制同步商品收藏数完成: goodsId={}", goodsId);
         } catch (Exception e) {
             log.error("强制同步商品收藏数失败: goodsId={}, error={}", goodsId, e.getMessage());
         }
     }
 
+    @Override
+    public Map<String, Object> stats() {
+        long chunkCount = chunks.sum();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("syncedGoods", syncedGoods.sum());
+        map.put("skippedGoods", skippedGoods.sum());
+        map.put("chunks", chunkCount);
+        map.put("errors", errors.sum());
+        map.put("avgChunkSize", chunkCount == 0 ? 0.0 : (double) syncedGoods.sum() / chunkCount);
+        map.put("avgChunkMillis", chunkCount == 0 ? 0.0 : chunkNanos.sum() / 1_000_000.0 / chunkCount);
+        map.put("lastRunGoods", lastRunGoods);
+        map.put("lastRunMillis", lastRunMillis);
+        map.put("lastRunGoodsPerSecond", lastRunMillis == 0 ? 0.0 : lastRunGoods * 1000.0 / lastRunMillis);
+        map.put("lastLagMillis", lastLagMillis);
+        map.put("maxLagMillis", maxLagMillis.get());
+
+        // 各分片当前积压量和最早标记的等待时间
+        long pending = 0;
+        long oldestLag = 0;
+        long now = System.currentTimeMillis();
+        try {
+            for (int shard = 0; shard < collectSyncProperties.getShards(); shard++) {
+                String key = RedisConstant.GOODS_COLLECT_SYNC_SHARD_KEY + shard;
+                Long size = redisTemplate.opsForZSet().zCard(key);
+                pending += size == null ? 0 : size;
+                Set<ZSetOperations.TypedTuple<Object>> oldest = redisTemplate.opsForZSet().rangeWithScores(key, 0, 0);
+                if (oldest != null && !oldest.isEmpty()) {
+                    oldestLag = Math.max(oldestLag, now - oldest.iterator().next().getScore().longValue());
+                }
+            }
+            map.put("pending", pending);
+            map.put("pendingLagMillis", oldestLag);
+        } catch (Exception e) {
+            map.put("pending", "unavailable");
+        }
+        return map;
+    }
+
     /**
-     * 执行收藏数同步
+     * 同步一个分片（拿不到分片锁说明其他节点正在处理，直接跳过）
+     * @return 写入的商品数
      */
-    private void doSyncCollectNum() {
+    private long syncShard(int shard) {
+        String lockKey = RedisConstant.GOODS_COLLECT_SYNC_LOCK_KEY + shard;
+        String token = UUID.randomUUID().toString();
         try {
-            // 获取所有待同步的商品ID
-            Set<Object> pendingIds = redisTemplate.opsForSet().members(SYNC_PENDING_KEY);
-            
-            if (pendingIds == null || pendingIds.isEmpty()) {
-                log.debug("没有待同步的商品收藏数");
-                return;
+            Boolean lockAcquired = redisTemplate.opsForValue()
+                    .setIfAbsent(lockKey, token, RedisConstant.GOODS_COLLECT_SYNC_LOCK_TTL, TimeUnit.SECONDS);
+            if (!Boolean.TRUE.equals(lockAcquired)) {
+                return 0;
             }
-            
-            log.info("开始批量同步商品收藏数，待同步商品数量: {}", pendingIds.size());
-            
-            int successCount = 0;
-            int failCount = 0;
-            
-            for (Object idObj : pendingIds) {
+        } catch (Exception e) {
+            log.error("获取收藏数同步锁失败: shard={}, error={}", shard, e.getMessage());
+            return 0;
+        }
+
+        String key = RedisConstant.GOODS_COLLECT_SYNC_SHARD_KEY + shard;
+        int chunkSize = collectSyncProperties.getChunkSize();
+        long synced = 0;
+        try {
+            for (int i = 0; i < collectSyncProperties.getMaxChunksPerShard(); i++) {
+                Set<ZSetOperations.TypedTuple<Object>> popped = redisTemplate.opsForZSet().popMin(key, chunkSize);
+                if (popped == null || popped.isEmpty()) {
+                    break;
+                }
+                List<Long> goodsIds = new ArrayList<>(popped.size());
+                long oldestMark = Long.MAX_VALUE;
+                for (ZSetOperations.TypedTuple<Object> tuple : popped) {
+                    goodsIds.add(((Number) tuple.getValue()).longValue());
+                    oldestMark = Math.min(oldestMark, tuple.getScore().longValue());
+                }
+                lastLagMillis = System.currentTimeMillis() - oldestMark;
+                maxLagMillis.accumulate(lastLagMillis);
+
                 try {
-                    Long goodsId = ((Number) idObj).longValue();
-                    syncSingleGoodsCollectNum(goodsId);
-                    
-                    // 同步成功后从待同步集合中移除
-                    redisTemplate.opsForSet().remove(SYNC_PENDING_KEY, goodsId);
-                    successCount++;
-                    
+                    synced += syncChunk(goodsIds);
                 } catch (Exception e) {
-                    log.error("同步单个商品收藏数失败: goodsId={}, error={}", idObj, e.getMessage());
-                    failCount++;
+                    errors.increment();
+                    log.error("批量同步商品收藏数失败，放回待同步分片: shard={}, size={}, error={}",
+                            shard, goodsIds.size(), e.getMessage());
+                    redisTemplate.opsForZSet().addIfAbsent(key, popped);
+                    break;
+                }
+                if (popped.size() < chunkSize) {
+                    break;
                 }
             }
-            
-            log.info("批量同步商品收藏数完成，成功: {}, 失败: {}", successCount, failCount);
-            
         } catch (Exception e) {
-            log.error("批量同步商品收藏数异常: {}", e.getMessage(), e);
+            log.error("同步收藏数分片异常: shard={}, error={}", shard, e.getMessage());
+        } finally {
+            try {
+                if (token.equals(redisTemplate.opsForValue().get(lockKey))) {
+                    redisTemplate.delete(lockKey);
+                }
+            } catch (Exception e) {
+                log.error("释放收藏数同步锁失败: shard={}, error={}", shard, e.getMessage());
+            }
         }
+        return synced;
     }
 
     /**
-     * 同步单个商品的收藏数
+     * 一批商品：管道 HMGET 收藏数桶，一条多行 UPDATE 写入（缓存已过期的商品跳过，过期前的变化已经同步过）
+     * @return 写入的商品数
      */
-    @Transactional
-    private void syncSingleGoodsCollectNum(Long goodsId) {
-        // 从Redis获取最新的收藏数
-        String collectKey = RedisConstant.GOODS_COLLECT_KEY + goodsId;
-        Object collectNumObj = redisTemplate.opsForValue().get(collectKey);
-        
-        if (collectNumObj == null) {
-            log.warn("商品收藏数缓存不存在，跳过同步: goodsId={}", goodsId);
-            return;
-        }
-        
-        Integer cacheCollectNum = (Integer) collectNumObj;
-        
-        // 获取数据库中的收藏数
-        Integer dbCollectNum = goodsMapper.getCollectNumById(goodsId);
-        if (dbCollectNum == null) {
-            log.warn("商品不存在，跳过同步: goodsId={}", goodsId);
-            return;
+    private int syncChunk(List<Long> goodsIds) {
+        long start = System.nanoTime();
+        Map<Long, Integer> counts = collectNumCacheUtil.getCachedCollectNums(goodsIds);
+        skippedGoods.add(goodsIds.size() - counts.size());
+        if (!counts.isEmpty()) {
+            goodsMapper.batchSetCollectNum(counts);
         }
-        
-        // 如果缓存和数据库的收藏数不一致，则更新数据库
-        if (!cacheCollectNum.equals(dbCollectNum)) {
-            int delta = cacheCollectNum - dbCollectNum;
-            goodsMapper.updateCollectNum(goodsId, delta);
-            log.debug("同步商品收藏数: goodsId={}, 数据库: {}, 缓存: {}, 增量: {}", 
-                     goodsId, dbCollectNum, cacheCollectNum, delta);
+
+        chunks.increment();
+        syncedGoods.add(counts.size());
+        chunkNanos.add(System.nanoTime() - start);
+        return counts.size();
+    }
+
+    /**
+     * 迁移旧版单个待同步 Set 中剩余的商品ID到分片 ZSet（旧 Set 为空时只有一次 SPOP）
+     */
+    private void drainLegacyPendingSet() {
+        try {
+            List<Object> legacy;
+            while ((legacy = redisTemplate.opsForSet().pop(RedisConstant.GOODS_COLLECT_SYNC_PENDING_KEY,
+                    collectSyncProperties.getChunkSize())) != null && !legacy.isEmpty()) {
+                for (Object idObj : legacy) {
+                    markForSync(((Number) idObj).longValue());
+                }
+            }
+        } catch (Exception e) {
+            log.error("迁移旧版待同步集合失败: {}", e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private String buildShardKey(Long goodsId) {
+        return RedisConstant.GOODS_COLLECT_SYNC_SHARD_KEY + Math.floorMod(goodsId, collectSyncProperties.getShards());
+    }
+}
@@ -129,17 +129,20 @@ public class CommentServiceImpl implements CommentService {
     }
 
     @Override
-    public PageResult<CommentVO> getTopComments(Long goodsId, Long cursor, Integer size) {
+    public PageResult<CommentVO> getTopComments(Long goodsId, Long cursor, Long cursorId, Integer size) {
         // 设置默认值
         if (cursor == null || cursor == 0) {
             cursor = System.currentTimeMillis();
         }
+        if (cursorId == null) {
+            cursorId = 0L;
+        }
         if (size == null || size <= 0) {
             size = 10;
         }
         
         // 查询顶层评论（多查一条用于判断是否还有更多）
-        List<Comments> comments = commentMapper.getTopCommentsByGoodsId(goodsId, cursor, size + 1);
+        List<Comments> comments = commentMapper.getTopCommentsByGoodsId(goodsId, cursor, cursorId, size + 1);
         
         if (comments.isEmpty()) {
             return PageResult.empty();
@@ -151,8 +154,10 @@ public class CommentServiceImpl implements CommentService {
             comments = comments.subList(0, size);
         }
         
-        // 获取下一页游标
-        Long nextCursor = hasMore ? getTimestamp(comments.get(comments.size() - 1).getCreateTime()) : null;
+        // 获取下一页游标 (创建时间, ID)
+        Comments last = comments.get(comments.size() - 1);
+        Long nextCursor = hasMore ? getTimestamp(last.getCreateTime()) : null;
+        Long nextCursorId = hasMore ? last.getId() : null;
         
         // 批量查询回复数量和最新回复
         List<Long> commentIds = comments.stream().map(Comments::getId).collect(Collectors.toList());
@@ -183,23 +188,26 @@ public class CommentServiceImpl implements CommentService {
         }
         
         // 构建返回结果
-        PageResult<CommentVO> result = PageResult.of(commentVOList, nextCursor, hasMore);
+        PageResult<CommentVO> result = PageResult.of(commentVOList, nextCursor, nextCursorId, hasMore);
         result.setTotal(total);
         return result;
     }
 
     @Override
-    public PageResult<CommentVO> getReplies(Long parentId, Long cursor, Integer size) {
+    public PageResult<CommentVO> getReplies(Long parentId, Long cursor, Long cursorId, Integer size) {
         // 设置默认值
         if (cursor == null || cursor == 0) {
             cursor = System.currentTimeMillis();
         }
+        if (cursorId == null) {
+            cursorId = 0L;
+        }
         if (size == null || size <= 0) {
             size = 5; // 默认每次加载5条回复
         }
         
         // 查询子评论（多查一条用于判断是否还有更多）
-        List<Comments> replies = commentMapper.getRepliesByParentId(parentId, cursor, size + 1);
+        List<Comments> replies = commentMapper.getRepliesByParentId(parentId, cursor, cursorId, size + 1);
         
         if (replies.isEmpty()) {
             return PageResult.empty();
@@ -212,8 +220,10 @@ public class CommentServiceImpl implements CommentService {
             replies = replies.subList(0, size);
         }
         
-        // 获取下一页游标
-        Long nextCursor = hasMore ? getTimestamp(replies.get(replies.size() - 1).getCreateTime()) : null;
+        // 获取下一页游标 (创建时间, ID)
+        Comments last = replies.get(replies.size() - 1);
+        Long nextCursor = hasMore ? getTimestamp(last.getCreateTime()) : null;
+        Long nextCursorId = hasMore ? last.getId() : null;
         
         // 获取父评论的商品ID（用于判断是否为卖家）
         Comments parentComment = commentMapper.getCommentById(parentId);
@@ -224,7 +234,7 @@ public class CommentServiceImpl implements CommentService {
                 .map(reply -> buildCommentVO(reply, goodsId))
                 .collect(Collectors.toList());
         
-        return PageResult.of(replyVOList, nextCursor, hasMore);
+        return PageResult.of(replyVOList, nextCursor, nextCursorId, hasMore);
     }
 
     @Override
@@ -284,17 +294,20 @@ public class CommentServiceImpl implements CommentService {
     }
 
     @Override
-    public PageResult<CommentVO> getTopCommentsByAdmin(Long goodsId, Long cursor, Integer size) {
+    public PageResult<CommentVO> getTopCommentsByAdmin(Long goodsId, Long cursor, Long cursorId, Integer size) {
         // 设置默认值
         if (cursor == null || cursor == 0) {
             cursor = System.currentTimeMillis();
         }
+        if (cursorId == null) {
+            cursorId = 0L;
+        }
         if (size == null || size <= 0) {
             size = 10;
         }
         
         // 查询顶层评论（所有状态，多查一条用于判断是否还有更多）
-        List<Comments> comments = commentMapper.getTopCommentsByGoodsIdForAdmin(goodsId, cursor, size + 1);
+        List<Comments> comments = commentMapper.getTopCommentsByGoodsIdForAdmin(goodsId, cursor, cursorId, size + 1);
         
         if (comments.isEmpty()) {
             return PageResult.empty();
@@ -306,8 +319,10 @@ public class CommentServiceImpl implements CommentService {
             comments = comments.subList(0, size);
         }
         
-        // 获取下一页游标
-        Long nextCursor = hasMore ? getTimestamp(comments.get(comments.size() - 1).getCreateTime()) : null;
+        // 获取下一页游标 (创建时间, ID)
+        Comments last = comments.get(comments.size() - 1);
+        Long nextCursor = hasMore ? getTimestamp(last.getCreateTime()) : null;
+        Long nextCursorId = hasMore ? last.getId() : null;
         
         // 批量查询回复数量和最新回复
         List<Long> commentIds = comments.stream().map(Comments::getId).collect(Collectors.toList());
@@ -330,21 +345,24 @@ public class CommentServiceImpl implements CommentService {
                 })
                 .collect(Collectors.toList());
         
-        return PageResult.of(commentVOList, nextCursor, hasMore);
+        return PageResult.of(commentVOList, nextCursor, nextCursorId, hasMore);
     }
 
     @Override
-    public PageResult<CommentVO> getRepliesByAdmin(Long parentId, Long cursor, Integer size) {
+    public PageResult<CommentVO> getRepliesByAdmin(Long parentId, Long cursor, Long cursorId, Integer size) {
         // 设置默认值
         if (cursor == null || cursor == 0) {
             cursor = System.currentTimeMillis();
         }
+        if (cursorId == null) {
+            cursorId = 0L;
+        }
         if (size == null || size <= 0) {
             size = 20;
         }
         
         // 查询子评论（所有状态，多查一条用于判断是否还有更多）
-        List<Comments> replies = commentMapper.getRepliesByParentIdForAdmin(parentId, cursor, size + 1);
+        List<Comments> replies = commentMapper.getRepliesByParentIdForAdmin(parentId, cursor, cursorId, size + 1);
         
         if (replies.isEmpty()) {
             return PageResult.empty();
@@ -356,8 +374,10 @@ public class CommentServiceImpl implements CommentService {
             replies = replies.subList(0, size);
         }
         
-        // 获取下一页游标
-        Long nextCursor = hasMore ? getTimestamp(replies.get(replies.size() - 1).getCreateTime()) : null;
+        // 获取下一页游标 (创建时间, ID)
+        Comments last = replies.get(replies.size() - 1);
+        Long nextCursor = hasMore ? getTimestamp(last.getCreateTime()) : null;
+        Long nextCursorId = hasMore ? last.getId() : null;
         
         // 获取父评论的商品ID（用于判断是否为卖家）
         Comments parentComment = commentMapper.getCommentByIdWithoutStatus(parentId);
@@ -368,7 +388,7 @@ public class CommentServiceImpl implements CommentService {
                 .map(reply -> buildCommentVO(reply, goodsId))
                 .collect(Collectors.toList());
         
-        return PageResult.of(replyVOList, nextCursor, hasMore);
+        return PageResult.of(replyVOList, nextCursor, nextCursorId, hasMore);
     }
 
     /**
@@ -0,0 +1,151 @@
+package com.xyz.service.impl;
+
+import com.xyz.constant.RedisConstant;
+import com.xyz.entity.GoodsFavorite;
+import com.xyz.mapper.GoodsMapper;
+import com.xyz.service.FavoriteSyncService;
+import com.xyz.util.FavoriteStateUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 收藏状态落库服务实现类（write-behind）
+ * 1. 收藏脚本把变化的 {userId}:{goodsId} 加入待落库集合，这里每秒 SPOP 一批
+ * 2. 不记录操作流水，落库时按 Redis 中的当前状态写入：已收藏的多行 INSERT ... ON DUPLICATE KEY UPDATE，未收藏的多行 DELETE，
+ *    重复落库结果相同，同一对 (用户, 商品) 在一批之内多次切换也只写一次
+ * 3. 落库失败时把这批成员放回待落库集合，下次重试
+ */
+@Slf4j
+@Service
+public class FavoriteSyncServiceImpl implements FavoriteSyncService {
+
+    /** 每批落库的最大条数 */
+    private static final int BATCH_SIZE = 500;
+
+    /** 每次调度最多处理的批数，剩余的留给下一次调度 */
+    private static final int MAX_BATCHES = 20;
+
+    /** 同步锁过期时间（秒） */
+    private static final int SYNC_LOCK_TTL = 60;
+
+    private static final StringRedisSerializer STRING_SERIALIZER = StringRedisSerializer.UTF_8;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private GoodsMapper goodsMapper;
+
+    @Autowired
+    private FavoriteStateUtil favoriteStateUtil;
+
+    @Override
+    @Scheduled(fixedRate = 1000)
+    public void batchSyncFavorites() {
+        // 同一时刻只有一个节点落库，避免两个节点读到新旧不同的状态后乱序写入
+        String token = UUID.randomUUID().toString();
+        Boolean lockAcquired;
+        try {
+            lockAcquired = redisTemplate.opsForValue()
+                    .setIfAbsent(RedisConstant.FAVORITE_SYNC_LOCK_KEY, token, SYNC_LOCK_TTL, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.error("获取收藏落库锁失败: {}", e.getMessage());
+            return;
+        }
+        if (!Boolean.TRUE.equals(lockAcquired)) {
+            return;
+        }
+        try {
+            for (int i = 0; i < MAX_BATCHES; i++) {
+                if (syncBatch() < BATCH_SIZE) {
+                    break;
+                }
+            }
+        } finally {
+            try {
+                if (token.equals(redisTemplate.opsForValue().get(RedisConstant.FAVORITE_SYNC_LOCK_KEY))) {
+                    redisTemplate.delete(RedisConstant.FAVORITE_SYNC_LOCK_KEY);
+                }
+            } catch (Exception e) {
+                log.error("释放收藏落库锁失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 落库一批
+     * @return 本批取出的成员数
+     */
+    private int syncBatch() {
+        byte[] pendingKey = STRING_SERIALIZER.serialize(RedisConstant.FAVORITE_SYNC_PENDING_KEY);
+        List<byte[]> popped;
+        try {
+            popped = redisTemplate.execute(
+                    (RedisCallback<List<byte[]>>) connection -> connection.setCommands().sPop(pendingKey, BATCH_SIZE));
+        } catch (Exception e) {
+            log.error("读取待落库收藏失败: {}", e.getMessage());
+            return 0;
+        }
+        if (popped == null || popped.isEmpty()) {
+            return 0;
+        }
+
+        // 按用户分组，每个用户一次 HMGET 读取当前状态
+        Map<Long, List<Long>> goodsIdsByUser = new HashMap<>();
+        for (byte[] member : popped) {
+            String[] parts = STRING_SERIALIZER.deserialize(member).split(":");
+            goodsIdsByUser.computeIfAbsent(Long.parseLong(parts[0]), k -> new ArrayList<>()).add(Long.parseLong(parts[1]));
+        }
+
+        List<GoodsFavorite> upserts = new ArrayList<>();
+        List<GoodsFavorite> deletes = new ArrayList<>();
+        try {
+            for (Map.Entry<Long, List<Long>> entry : goodsIdsByUser.entrySet()) {
+                Long userId = entry.getKey();
+                Map<Long, Long> times = favoriteStateUtil.getFavoriteTimes(userId, entry.getValue());
+                if (times == null) {
+                    // 收藏状态已不在 Redis 中（被淘汰或数据丢失），以 MySQL 为准
+                    log.warn("收藏状态不存在，跳过落库: userId={}, size={}", userId, entry.getValue().size());
+                    continue;
+                }
+                for (Long goodsId : entry.getValue()) {
+                    Long time = times.get(goodsId);
+                    GoodsFavorite favorite = GoodsFavorite.builder().userId(userId).goodsId(goodsId).build();
+                    if (time != null) {
+                        favorite.setCreateTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault()));
+                        upserts.add(favorite);
+                    } else {
+                        deletes.add(favorite);
+                    }
+                }
+            }
+            if (!upserts.isEmpty()) {
+                goodsMapper.batchUpsertFavorites(upserts);
+            }
+            if (!deletes.isEmpty()) {
+                goodsMapper.batchDeleteFavorites(deletes);
+            }
+            log.debug("收藏状态落库完成: 写入={}, 删除={}", upserts.size(), deletes.size());
+        } catch (Exception e) {
+            log.error("收藏状态落库失败，放回待落库集合: size={}, error={}", popped.size(), e.getMessage());
+            try {
+                redisTemplate.execute((RedisCallback<Long>) connection ->
+                        connection.setCommands().sAdd(pendingKey, popped.toArray(new byte[0][])));
+            } catch (Exception ex) {
+                log.error("放回待落库集合失败: {}", ex.getMessage());
+            }
+        }
+        return popped.size();
+    }
+}
@@ -3,18 +3,23 @@ package com.xyz.service.impl;
 import com.xyz.constant.RedisConstant;
 import com.xyz.mapper.GoodsQueryMapper;
 import com.xyz.service.GoodsQueryService;
+import com.xyz.util.BulkCacheWriter;
 import com.xyz.util.CollectNumCacheUtil;
+import com.xyz.util.FavoriteStateUtil;
+import com.xyz.util.GoodsLocalCache;
+import com.xyz.util.GoodsTrendingUtil;
+import com.xyz.util.SingleFlightUtil;
+import com.xyz.util.UserProfileCache;
+import com.xyz.util.ZSetIndexUtil;
 import com.xyz.vo.GoodsCardVO;
 import com.xyz.vo.PageResult;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -33,192 +38,228 @@ public class GoodsQueryServiceImpl implements GoodsQueryService {
     @Autowired
     private CollectNumCacheUtil collectNumCacheUtil;
 
+    @Autowired
+    private GoodsLocalCache goodsLocalCache;
+
+    @Autowired
+    private ZSetIndexUtil zSetIndexUtil;
+
+    @Autowired
+    private SingleFlightUtil singleFlightUtil;
+
+    @Autowired
+    private BulkCacheWriter bulkCacheWriter;
+
+    @Autowired
+    private GoodsTrendingUtil goodsTrendingUtil;
+
+    @Autowired
+    private UserProfileCache userProfileCache;
+
+    @Autowired
+    private FavoriteStateUtil favoriteStateUtil;
+
     @Override
-    public PageResult<GoodsCardVO> getFavoriteGoods(Long userId, Long cursor, Integer size) {
-        log.info("查询收藏列表: userId={}, cursor={}, size={}", userId, cursor, size);
+    public PageResult<GoodsCardVO> getFavoriteGoods(Long userId, Long cursor, Long cursorId, Integer size) {
+        log.info("查询收藏列表: userId={}, cursor={}, cursorId={}, size={}", userId, cursor, cursorId, size);
 
         // 设置默认值
         long cursorTime = (cursor == null || cursor <= 0) ? System.currentTimeMillis() : cursor;
+        long cursorIdValue = cursorId == null ? 0 : cursorId;
         if (size == null || size <= 0) {
             size = 10;
         }
 
         String zsetKey = buildZSetKey(RedisConstant.FAVORITE_USER_IDS_KEY, userId, RedisConstant.FAVORITE_USER_IDS_SUFFIX);
 
-        // 尝试从 Redis ZSet 获取ID列表
-        List<Long> ids = getIdsFromZSet(zsetKey, cursorTime, size + 1);
-
-        List<GoodsCardVO> list;
-        if (ids != null && !ids.isEmpty()) {
-            // ZSet命中，先从缓存批量获取，未命中的再查MySQL
-            list = getGoodsCardsFromCacheOrDB(ids);
-        } else {
-            // ZSet未命中，直接查MySQL并重建缓存
-            list = goodsQueryMapper.getFavoriteGoodsByUserId(userId, cursorTime, size + 1);
-            rebuildFavoriteZSet(userId);
-            // 将查询结果存入卡片缓存
-            cacheGoodsCards(list);
-        }
-
-        return buildPageResult(list, size);
+        // 优先从 Redis 窗口ZSet 获取ID列表，窗口之外或ZSet未命中时从收藏状态 Hash 读取（游标是收藏时间，不是商品更新时间）
+        return queryPage(zsetKey, cursorTime, cursorIdValue, size, new FavoriteChunkLoader(userId),
+                "goodsId", "createTime", () -> rebuildFavoriteZSet(userId));
     }
 
 
     @Override
-    public PageResult<GoodsCardVO> getGoodsPageByCategoryId(Long categoryId, Long cursor, Integer size) {
-        log.info("查询分类商品列表: categoryId={}, cursor={}, size={}", categoryId, cursor, size);
+    public PageResult<GoodsCardVO> getGoodsPageByCategoryId(Long categoryId, Long cursor, Long cursorId, Integer size) {
+        log.info("查询分类商品列表: categoryId={}, cursor={}, cursorId={}, size={}", categoryId, cursor, cursorId, size);
         
         // 设置默认值
         long cursorTime = (cursor == null || cursor <= 0) ? System.currentTimeMillis() : cursor;
+        long cursorIdValue = cursorId == null ? 0 : cursorId;
         if (size == null || size <= 0) {
             size = 10;
         }
         
         String zsetKey = buildZSetKey(RedisConstant.GOODS_CAT_IDS_KEY, categoryId, RedisConstant.GOODS_CAT_IDS_SUFFIX);
         
-        // 尝试从 Redis ZSet 获取ID列表
-        List<Long> ids = getIdsFromZSet(zsetKey, cursorTime, size + 1);
-        
-        List<GoodsCardVO> list;
-        if (ids != null && !ids.isEmpty()) {
-            // ZSet命中，先从缓存批量获取，未命中的再查MySQL
-            list = getGoodsCardsFromCacheOrDB(ids);
-        } else {
-            // ZSet未命中，直接查MySQL并重建缓存
-            list = goodsQueryMapper.getGoodsPageByCategoryId(categoryId, cursorTime, size + 1);
-            rebuildCategoryZSet(categoryId);
-            // 将查询结果存入卡片缓存
-            cacheGoodsCards(list);
-        }
-        
-        return buildPageResult(list, size);
+        // 优先从 Redis 窗口ZSet 获取ID列表，窗口之外或ZSet未命中时查MySQL
+        return queryPage(zsetKey, cursorTime, cursorIdValue, size,
+                (c, cid, limit) -> goodsQueryMapper.getGoodsIdsWithTimeByCategoryId(categoryId, c, cid, limit),
+                "id", "updateTime", () -> rebuildCategoryZSet(categoryId));
     }
 
 
 
     @Override
-    public PageResult<GoodsCardVO> getUserPublishedGoods(Long targetUserId, Long cursor, Integer size) {
-        log.info("查询用户发布的商品: targetUserId={}, cursor={}, size={}", targetUserId, cursor, size);
+    public PageResult<GoodsCardVO> getUserPublishedGoods(Long targetUserId, Long cursor, Long cursorId, Integer size) {
+        log.info("查询用户发布的商品: targetUserId={}, cursor={}, cursorId={}, size={}", targetUserId, cursor, cursorId, size);
 
         // 设置默认值
         long cursorTime = (cursor == null || cursor <= 0) ? System.currentTimeMillis() : cursor;
+        long cursorIdValue = cursorId == null ? 0 : cursorId;
         if (size == null || size <= 0) {
             size = 10;
         }
 
         String zsetKey = buildZSetKey(RedisConstant.GOODS_OWNER_IDS_KEY, targetUserId, RedisConstant.GOODS_OWNER_IDS_SUFFIX);
 
-        // 尝试从 Redis ZSet 获取ID列表
-        List<Long> ids = getIdsFromZSet(zsetKey, cursorTime, size + 1);
-
-        List<GoodsCardVO> list;
-        if (ids != null && !ids.isEmpty()) {
-            // ZSet命中，先从缓存批量获取
-            list = getGoodsCardsFromCacheOrDB(ids);
-        } else {
-            // ZSet未命中，直接查MySQL并重建缓存
-            list = goodsQueryMapper.getGoodsPageByOwnerId(targetUserId, cursorTime, size + 1);
-            rebuildOwnerZSet(targetUserId);
-            cacheGoodsCards(list);
-        }
-
-        return buildPageResult(list, size);
+        // 优先从 Redis 窗口ZSet 获取ID列表，窗口之外或ZSet未命中时查MySQL
+        return queryPage(zsetKey, cursorTime, cursorIdValue, size,
+                (c, cid, limit) -> goodsQueryMapper.getGoodsIdsWithTimeByOwnerId(targetUserId, c, cid, limit),
+                "id", "updateTime", () -> rebuildOwnerZSet(targetUserId));
     }
 
     @Override
-    public PageResult<GoodsCardVO> getMyPublishedGoods(Long userId, Long cursor, Integer size) {
-        log.info("查询我发布的商品: userId={}, cursor={}, size={}", userId, cursor, size);
+    public PageResult<GoodsCardVO> getMyPublishedGoods(Long userId, Long cursor, Long cursorId, Integer size) {
+        log.info("查询我发布的商品: userId={}, cursor={}, cursorId={}, size={}", userId, cursor, cursorId, size);
         // 直接复用 getUserPublishedGoods 方法
-        return getUserPublishedGoods(userId, cursor, size);
+        return getUserPublishedGoods(userId, cursor, cursorId, size);
     }
 
     @Override
-    public PageResult<GoodsCardVO> getAllGoodsPage(Long cursor, Integer size) {
-        log.info("查询所有商品列表: cursor={}, size={}", cursor, size);
+    public PageResult<GoodsCardVO> getAllGoodsPage(Long cursor, Long cursorId, Integer size) {
+        log.info("查询所有商品列表: cursor={}, cursorId={}, size={}", cursor, cursorId, size);
         
         // 设置默认值
         long cursorTime = (cursor == null || cursor <= 0) ? System.currentTimeMillis() : cursor;
+        long cursorIdValue = cursorId == null ? 0 : cursorId;
         if (size == null || size <= 0) {
             size = 10;
         }
         
         String zsetKey = RedisConstant.GOODS_ALL_IDS_KEY + RedisConstant.GOODS_ALL_IDS_SUFFIX;
         
-        // 尝试从 Redis ZSet 获取ID列表
-        List<Long> ids = getIdsFromZSet(zsetKey, cursorTime, size + 1);
-        
-        List<GoodsCardVO> list;
-        if (ids != null && !ids.isEmpty()) {
-            // ZSet命中，先从缓存批量获取，未命中的再查MySQL
-            list = getGoodsCardsFromCacheOrDB(ids);
-        } else {
-            // ZSet未命中，直接查MySQL并重建缓存
-            list = goodsQueryMapper.getAllGoodsPage(cursorTime, size + 1);
-            rebuildAllGoodsZSet();
-            // 将查询结果存入卡片缓存
-            cacheGoodsCards(list);
-        }
-        
-        return buildPageResult(list, size);
+        // 优先从 Redis 窗口ZSet 获取ID列表，窗口之外或ZSet未命中时查MySQL
+        return queryPage(zsetKey, cursorTime, cursorIdValue, size,
+                goodsQueryMapper::getAllGoodsIdsWithTime,
+                "id", "updateTime", this::rebuildAllGoodsZSet);
     }
 
     @Override
-    public PageResult<GoodsCardVO> getMyOfflineGoods(Long userId, Long cursor, Integer size) {
-        log.info("查询我下架的商品: userId={}, cursor={}, size={}", userId, cursor, size);
+    public PageResult<GoodsCardVO> getTrendingGoods(Long cursor, Long cursorId, Integer size) {
+        log.info("查询热门商品列表: cursor={}, cursorId={}, size={}", cursor, cursorId, size);
 
         // 设置默认值
-        long cursorTime = (cursor == null || cursor <= 0) ? System.currentTimeMillis() : cursor;
         if (size == null || size <= 0) {
             size = 10;
         }
 
-        String zsetKey = buildZSetKey(RedisConstant.GOODS_OFFLINE_IDS_KEY, userId, RedisConstant.GOODS_OFFLINE_IDS_SUFFIX);
+        // 热度排名全部在 Redis ZSet 中，不回源 MySQL
+        GoodsTrendingUtil.TrendingPage page = goodsTrendingUtil.readPage(
+                (cursor == null || cursor <= 0) ? null : cursor, cursorId, size);
+        if (page.getIds().isEmpty()) {
+            return PageResult.empty();
+        }
+        List<GoodsCardVO> list = getGoodsCardsFromCacheOrDB(page.getIds());
+        return PageResult.of(list, page.getNextCursor(), page.getNextCursorId(), page.isHasMore());
+    }
 
-        // 尝试从 Redis ZSet 获取ID列表
-        List<Long> ids = getIdsFromZSet(zsetKey, cursorTime, size + 1);
+    @Override
+    public PageResult<GoodsCardVO> getMyOfflineGoods(Long userId, Long cursor, Long cursorId, Integer size) {
+        log.info("查询我下架的商品: userId={}, cursor={}, cursorId={}, size={}", userId, cursor, cursorId, size);
 
-        List<GoodsCardVO> list;
-        if (ids != null && !ids.isEmpty()) {
-            // ZSet命中，先从缓存批量获取
-            list = getGoodsCardsFromCacheOrDB(ids);
-        } else {
-            // ZSet未命中，直接查MySQL并重建缓存
-            list = goodsQueryMapper.getOfflineGoodsByOwnerId(userId, cursorTime, size + 1);
-            rebuildOfflineZSet(userId);
-            cacheGoodsCards(list);
+        // 设置默认值
+        long cursorTime = (cursor == null || cursor <= 0) ? System.currentTimeMillis() : cursor;
+        long cursorIdValue = cursorId == null ? 0 : cursorId;
+        if (size == null || size <= 0) {
+            size = 10;
         }
 
-        return buildPageResult(list, size);
+        String zsetKey = buildZSetKey(RedisConstant.GOODS_OFFLINE_IDS_KEY, userId, RedisConstant.GOODS_OFFLINE_IDS_SUFFIX);
+
+        // 优先从 Redis 窗口ZSet 获取ID列表，窗口之外或ZSet未命中时查MySQL
+        return queryPage(zsetKey, cursorTime, cursorIdValue, size,
+                (c, cid, limit) -> goodsQueryMapper.getOfflineGoodsIdsWithTimeByOwnerId(userId, c, cid, limit),
+                "id", "updateTime", () -> rebuildOfflineZSet(userId));
     }
 
     
     // ==================== Redis缓存辅助方法 ====================
     
     /**
-     * 从 ZSet 中获取商品ID列表
-     * @param key ZSet的key
-     * @param cursor 游标时间戳
-     * @param count 获取数量
-     * @return ID列表，如果ZSet不存在返回null
+     * 基于窗口ZSet的 (时间戳, ID) 复合游标分页查询
+     * 1. ZSet不存在：合并并发请求，只由一个线程（跨节点只由一个节点）分块重建ZSet（只缓存最新的窗口），重建后再读ZSet；
+     *    重建失败时直接查MySQL
+     * 2. ZSet存在：从窗口中取ID；读到窗口底部仍不够一页时，剩余部分以窗口内最后一个 (score, ID) 为游标查MySQL
+     * 3. ZSet存在但本页为空且没有到达窗口底部：说明数据已全部加载完，不再重建
+     * MySQL 只查 (ID, 时间戳)，走 (..., time, id) 复合索引的范围扫描，商品卡片统一从 L1/Redis/MySQL 批量获取
+     * @param zsetKey ZSet的key
+     * @param cursorTime 游标时间戳
+     * @param cursorId 游标ID
+     * @param size 每页大小（实际多取1条用于判断是否有更多）
+     * @param dbLoader MySQL复合游标分页查询函数 (cursor, cursorId, limit) -> (ID, 时间戳) 行
+     * @param idField ID字段名
+     * @param timeField 时间字段名
+     * @param rebuilder ZSet重建函数
+     * @return 分页结果
      */
-    private List<Long> getIdsFromZSet(String key, long cursor, int count) {
-        if (Boolean.FALSE.equals(redisTemplate.hasKey(key))) {
-            return null;
+    private PageResult<GoodsCardVO> queryPage(String zsetKey, long cursorTime, long cursorId, int size,
+                                              ZSetIndexUtil.ChunkLoader dbLoader, String idField, String timeField,
+                                              Runnable rebuilder) {
+        ZSetIndexUtil.WindowPage page = zSetIndexUtil.readWindow(zsetKey, cursorTime, cursorId, size + 1);
+        if (page == null) {
+            // ZSet未命中，合并重建（同一个key只重建一次），然后重新读取
+            rebuildOnce(zsetKey, rebuilder);
+            page = zSetIndexUtil.readWindow(zsetKey, cursorTime, cursorId, size + 1);
         }
-        // reverseRangeByScore: 按score从大到小排序，范围是[min, max]
-        Set<ZSetOperations.TypedTuple<Object>> tuples = redisTemplate.opsForZSet()
-                .reverseRangeByScoreWithScores(key, 0, cursor - 1, 0, count);
-        
-        if (tuples == null || tuples.isEmpty()) {
-            return List.of();
+
+        List<Long> ids = new ArrayList<>();
+        List<Long> times = new ArrayList<>();
+        if (page == null) {
+            // 重建失败，直接查MySQL
+            appendRows(dbLoader.load(cursorTime, cursorId, size + 1), idField, timeField, ids, times);
+        } else {
+            ids.addAll(page.getIds());
+            times.addAll(page.getScores());
+            // 越过窗口底部，剩余部分走MySQL游标查询
+            if (page.isTruncated() && ids.size() < size + 1) {
+                long deepCursor = page.getLastScore() != null ? page.getLastScore() : cursorTime;
+                long deepCursorId = page.getLastId() != null ? page.getLastId() : cursorId;
+                appendRows(dbLoader.load(deepCursor, deepCursorId, size + 1 - ids.size()), idField, timeField, ids, times);
+            }
+        }
+        return buildPageResult(ids, times, size);
+    }
+
+    private void appendRows(List<Map<String, Object>> rows, String idField, String timeField,
+                            List<Long> ids, List<Long> times) {
+        if (rows == null) {
+            return;
+        }
+        for (Map<String, Object> row : rows) {
+            ids.add(((Number) row.get(idField)).longValue());
+            times.add(((Number) row.get(timeField)).longValue());
         }
-        
-        return tuples.stream()
-                .map(t -> ((Number) t.getValue()).longValue())
-                .collect(Collectors.toList());
     }
 
 
+    /**
+     * 合并重建ZSet：进程内只有一个线程执行，跨节点通过租约锁只有一个节点执行
+     * 没拿到租约的节点等待ZSet出现即返回
+     */
+    private void rebuildOnce(String zsetKey, Runnable rebuilder) {
+        try {
+            singleFlightUtil.execute(zsetKey, () -> singleFlightUtil.loadWithLease(
+                    RedisConstant.REBUILD_LOCK_KEY + zsetKey,
+                    () -> Boolean.TRUE.equals(redisTemplate.hasKey(zsetKey)) ? Boolean.TRUE : null,
+                    () -> {
+                        rebuilder.run();
+                        return Boolean.TRUE;
+                    }));
+        } catch (Exception e) {
+            log.error("重建ZSet失败: key={}, error={}", zsetKey, e.getMessage());
+        }
+    }
+
     /**
      * 构建ZSet Key的通用方法
      * @param prefix Key前缀
@@ -231,51 +272,101 @@ public class GoodsQueryServiceImpl implements GoodsQueryService {
     }
 
 
-    /**
-     * 重建ZSet缓存的通用方法
-     * @param key Redis ZSet的key
-     * @param dataSupplier 数据获取函数
-     * @param idField ID字段名
-     * @param timeField 时间字段名
-     * @param ttl 缓存过期时间（分钟）
-     */
-    private void rebuildZSet(String key, Supplier<List<Map<String, Object>>> dataSupplier,
-                             String idField, String timeField, long ttl) {
-        List<Map<String, Object>> data = dataSupplier.get();
-        if (data == null || data.isEmpty()) {
-            return;
-        }
-
-//        TypedTuple {
-//            Object value;   // ZSet 的 member（成员值），这里是商品ID
-//            Double score;   // ZSet 的 score（排序分数），这里是时间戳
-//        }
-        Set<ZSetOperations.TypedTuple<Object>> tuples = data.stream()
-                .map(m -> ZSetOperations.TypedTuple.of(
-                        (Object) ((Number) m.get(idField)).longValue(),
-                        ((Number) m.get(timeField)).doubleValue()
-                ))
-                .collect(Collectors.toSet());
-        
-        redisTemplate.opsForZSet().add(key, tuples);
-        redisTemplate.expire(key, ttl, TimeUnit.MINUTES);
-    }
-    
     /**
      * 重建用户收藏列表ZSet缓存
      */
     private void rebuildFavoriteZSet(Long userId) {
         String key = buildZSetKey(RedisConstant.FAVORITE_USER_IDS_KEY, userId, RedisConstant.FAVORITE_USER_IDS_SUFFIX);
-        rebuildZSet(key, () -> goodsQueryMapper.getFavoriteIdsWithTimeByUserId(userId),
+        zSetIndexUtil.rebuildWindow(key, new FavoriteChunkLoader(userId),
                     "goodsId", "createTime", RedisConstant.GOODS_IDS_TTL);
     }
+
+    /**
+     * 收藏列表的分块数据加载函数
+     * goods_favorite 由 FavoriteSyncService 异步落库，刚收藏或取消收藏的还没写进去，按它重建会让 ZSet 在整个过期时间内都是旧列表；
+     * 因此以 Redis 收藏状态 Hash 为准：第一次调用时读取整个 Hash 并按 (收藏时间, 商品ID) 倒序排好，之后按复合游标逐块返回上架商品。
+     * Redis 不可用时回退到 goods_favorite
+     */
+    private class FavoriteChunkLoader implements ZSetIndexUtil.ChunkLoader {
+
+        private final Long userId;
+
+        /** 按 (收藏时间, 商品ID) 倒序排列的 {商品ID, 收藏时间}，Redis 不可用时为空 */
+        private List<long[]> favorites;
+
+        private boolean loaded;
+
+        FavoriteChunkLoader(Long userId) {
+            this.userId = userId;
+        }
+
+        @Override
+        public List<Map<String, Object>> load(long cursor, long cursorId, int limit) {
+            if (!loaded) {
+                favorites = loadFavorites();
+                loaded = true;
+            }
+            if (favorites == null) {
+                return goodsQueryMapper.getFavoriteIdsWithTimeByUserId(userId, cursor, cursorId, limit);
+            }
+
+            List<Map<String, Object>> rows = new ArrayList<>();
+            int from = firstAfter(cursor, cursorId);
+            while (from < favorites.size() && rows.size() < limit) {
+                // 每次取还差的条数，下架或删除的商品过滤掉后再补
+                List<long[]> candidates = favorites.subList(from, Math.min(favorites.size(), from + limit - rows.size()));
+                List<Long> ids = candidates.stream().map(f -> f[0]).collect(Collectors.toList());
+                Set<Long> onSale = new HashSet<>(goodsQueryMapper.getOnSaleGoodsIds(ids));
+                for (long[] favorite : candidates) {
+                    if (onSale.contains(favorite[0])) {
+                        Map<String, Object> row = new HashMap<>();
+                        row.put("goodsId", favorite[0]);
+                        row.put("createTime", favorite[1]);
+                        rows.add(row);
+                    }
+                }
+                from += candidates.size();
+            }
+            return rows;
+        }
+
+        private List<long[]> loadFavorites() {
+            Map<Long, Long> times = favoriteStateUtil.getAllFavoriteTimes(userId);
+            if (times == null) {
+                return null;
+            }
+            List<long[]> sorted = new ArrayList<>(times.size());
+            times.forEach((goodsId, time) -> sorted.add(new long[]{goodsId, time}));
+            sorted.sort((a, b) -> a[1] != b[1] ? Long.compare(b[1], a[1]) : Long.compare(b[0], a[0]));
+            return sorted;
+        }
+
+        /**
+         * 二分查找第一个 (收藏时间, 商品ID) 严格小于 (cursor, cursorId) 的位置
+         */
+        private int firstAfter(long cursor, long cursorId) {
+            int low = 0;
+            int high = favorites.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                long[] favorite = favorites.get(mid);
+                if (favorite[1] < cursor || (favorite[1] == cursor && favorite[0] < cursorId)) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+    }
     
     /**
      * 重建分类ZSet缓存
      */
     private void rebuildCategoryZSet(Long categoryId) {
         String key = buildZSetKey(RedisConstant.GOODS_CAT_IDS_KEY, categoryId, RedisConstant.GOODS_CAT_IDS_SUFFIX);
-        rebuildZSet(key, () -> goodsQueryMapper.getGoodsIdsWithTimeByCategoryId(categoryId), 
+        zSetIndexUtil.rebuildWindow(key,
+                    (cursor, cursorId, limit) -> goodsQueryMapper.getGoodsIdsWithTimeByCategoryId(categoryId, cursor, cursorId, limit),
                     "id", "updateTime", RedisConstant.GOODS_IDS_TTL);
     }
 
@@ -284,7 +375,8 @@ public class GoodsQueryServiceImpl implements GoodsQueryService {
      */
     private void rebuildOwnerZSet(Long ownerId) {
         String key = buildZSetKey(RedisConstant.GOODS_OWNER_IDS_KEY, ownerId, RedisConstant.GOODS_OWNER_IDS_SUFFIX);
-        rebuildZSet(key, () -> goodsQueryMapper.getGoodsIdsWithTimeByOwnerId(ownerId), 
+        zSetIndexUtil.rebuildWindow(key,
+                    (cursor, cursorId, limit) -> goodsQueryMapper.getGoodsIdsWithTimeByOwnerId(ownerId, cursor, cursorId, limit),
                     "id", "updateTime", RedisConstant.GOODS_IDS_TTL);
     }
 
@@ -293,7 +385,7 @@ public class GoodsQueryServiceImpl implements GoodsQueryService {
      */
     private void rebuildAllGoodsZSet() {
         String key = RedisConstant.GOODS_ALL_IDS_KEY + RedisConstant.GOODS_ALL_IDS_SUFFIX;
-        rebuildZSet(key, () -> goodsQueryMapper.getAllGoodsIdsWithTime(),
+        zSetIndexUtil.rebuildWindow(key, goodsQueryMapper::getAllGoodsIdsWithTime,
                     "id", "updateTime", RedisConstant.GOODS_IDS_TTL);
     }
 
@@ -302,50 +394,60 @@ public class GoodsQueryServiceImpl implements GoodsQueryService {
      */
     private void rebuildOfflineZSet(Long ownerId) {
         String key = buildZSetKey(RedisConstant.GOODS_OFFLINE_IDS_KEY, ownerId, RedisConstant.GOODS_OFFLINE_IDS_SUFFIX);
-        rebuildZSet(key, () -> goodsQueryMapper.getOfflineGoodsIdsWithTimeByOwnerId(ownerId), 
+        zSetIndexUtil.rebuildWindow(key,
+                    (cursor, cursorId, limit) -> goodsQueryMapper.getOfflineGoodsIdsWithTimeByOwnerId(ownerId, cursor, cursorId, limit),
                     "id", "updateTime", RedisConstant.GOODS_IDS_TTL);
     }
     
     /**
      * 从缓存或数据库获取商品卡片列表（复用商品卡片缓存）
+     * 查找顺序：本地L1缓存 -> Redis -> MySQL
      * @param ids 商品ID列表
      * @return 商品卡片列表，保持原始ids顺序
      */
-    private List<GoodsCardVO> getGoodsCardsFromCacheOrDB(List<Long> ids) {
-        // 1. 构建缓存 keys
-        List<String> keys = ids.stream()
-                .map(id -> RedisConstant.GOODS_CARD_KEY + id)
+    List<GoodsCardVO> getGoodsCardsFromCacheOrDB(List<Long> ids) {
+        //HashMap是无序的，这个Long类型是用来记录GoodsCardVO对应的商品id的，用于在最后根据ids顺序进行排序再返回
+        // 1. 先查本地L1缓存
+        Map<Long, GoodsCardVO> resultMap = goodsLocalCache.getCards(ids);
+        List<Long> redisIds = ids.stream()
+                .filter(id -> !resultMap.containsKey(id))
                 .collect(Collectors.toList());
-        
-        // 2. 批量从缓存获取商品卡片信息
-        List<Object> cached = redisTemplate.opsForValue().multiGet(keys);
-        
-        // 3. 找出缓存未命中的 ids
-        List<Long> missIds = new ArrayList<>();
 
-        //HashMap是无序的，这个Long类型是用来记录GoodsCardVO对应的商品id的，用于在第5步根据ids顺序进行排序再返回
-        Map<Long, GoodsCardVO> resultMap = new HashMap<>();
-        
-        for (int i = 0; i < ids.size(); i++) {
-            Long id = ids.get(i);
-            Object value = (cached != null && i < cached.size()) ? cached.get(i) : null;
-            if (value != null) {
-                resultMap.put(id, (GoodsCardVO) value);
-            } else {
-                missIds.add(id);
+        // 2. L1未命中的，批量从Redis获取商品卡片信息
+        List<Long> missIds = new ArrayList<>();
+        if (!redisIds.isEmpty()) {
+            List<String> keys = redisIds.stream()
+                    .map(id -> RedisConstant.GOODS_CARD_KEY + id)
+                    .collect(Collectors.toList());
+            List<Object> cached = redisTemplate.opsForValue().multiGet(keys);
+
+            // 3. 找出Redis也未命中的 ids，命中的回填L1
+            for (int i = 0; i < redisIds.size(); i++) {
+                Long id = redisIds.get(i);
+                Object value = (cached != null && i < cached.size()) ? cached.get(i) : null;
+                if (value != null) {
+                    GoodsCardVO vo = (GoodsCardVO) value;
+                    resultMap.put(id, vo);
+                    goodsLocalCache.putCard(vo);
+                } else {
+                    missIds.add(id);
+                }
             }
+            goodsLocalCache.recordRedisCard(redisIds.size() - missIds.size(), missIds.size());
         }
         
         // 4. 缓存未命中的，从 MySQL 查询并存入缓存
         if (!missIds.isEmpty()) {
             List<GoodsCardVO> fromDB = goodsQueryMapper.getGoodsCardsByIds(missIds);
+            Map<String, Object> toCache = new HashMap<>();
             for (GoodsCardVO vo : fromDB) {
                 resultMap.put(vo.getId(), vo);
-                // 存入缓存（点赞数可能过时，后续会从点赞数缓存重新获取最新值）
-                String key = RedisConstant.GOODS_CARD_KEY + vo.getId();
-                long ttl = RedisConstant.GOODS_CARD_TTL + new Random().nextInt(5);
-                redisTemplate.opsForValue().set(key, vo, ttl, TimeUnit.MINUTES);
+                toCache.put(RedisConstant.GOODS_CARD_KEY + vo.getId(), vo);
+                goodsLocalCache.putCard(vo);
             }
+            // 存入缓存（点赞数可能过时，后续会从点赞数缓存重新获取最新值），管道一次写入
+            bulkCacheWriter.setAll(toCache, RedisConstant.GOODS_CARD_TTL,
+                    RedisConstant.GOODS_CARD_TTL_RANDOM, TimeUnit.MINUTES);
         }
         
         // 5. 批量获取点赞数并赋值给商品卡片
@@ -356,29 +458,13 @@ public class GoodsQueryServiceImpl implements GoodsQueryService {
         
         // 批量设置点赞数
         batchSetCollectNum(result);
+
+        // 按本页去重后的发布者批量填充昵称和头像（卡片缓存中不包含发布者信息）
+        userProfileCache.fillCardOwners(result);
         
         return result;
     }
     
-    /**
-     * 批量将商品卡片存入缓存
-     */
-    private void cacheGoodsCards(List<GoodsCardVO> cards) {
-        if (cards == null || cards.isEmpty()) {
-            return;
-        }
-        
-        // 批量设置点赞数
-        batchSetCollectNum(cards);
-        
-        // 存入商品卡片缓存（点赞数可能过时，后续会从点赞数缓存重新获取最新值）
-        for (GoodsCardVO vo : cards) {
-            String key = RedisConstant.GOODS_CARD_KEY + vo.getId();
-            long ttl = RedisConstant.GOODS_CARD_TTL + new Random().nextInt(5);
-            redisTemplate.opsForValue().set(key, vo, ttl, TimeUnit.MINUTES);
-        }
-    }
-    
     /**
      * 批量设置商品卡片的点赞数
      * @param cards 商品卡片列表
@@ -405,21 +491,24 @@ public class GoodsQueryServiceImpl implements GoodsQueryService {
     
     /**
      * 构建分页结果
+     * 游标取自本页最后一个 (ID, 时间戳)，而不是商品卡片，这样收藏列表（按收藏时间排序）和被删除而查不到卡片的ID都不影响翻页
      */
-    private PageResult<GoodsCardVO> buildPageResult(List<GoodsCardVO> list, int size) {
-        if (list == null || list.isEmpty()) {
+    private PageResult<GoodsCardVO> buildPageResult(List<Long> ids, List<Long> times, int size) {
+        if (ids.isEmpty()) {
             return PageResult.empty();
         }
         
-        boolean hasMore = list.size() > size;
+        boolean hasMore = ids.size() > size;
         if (hasMore) {
-            list = list.subList(0, size); // 移除多查的那一条
+            ids = ids.subList(0, size); // 移除多查的那一条
         }
         
-        // 下一页游标 = 本页最后一条的时间戳
-        Long nextCursor = list.isEmpty() ? null : list.get(list.size() - 1).getUpdateTimestamp();
+        // 先从缓存批量获取，未命中的再查MySQL
+        List<GoodsCardVO> list = getGoodsCardsFromCacheOrDB(ids);
         
-        return PageResult.of(list, nextCursor, hasMore);
+        // 下一页游标 = 本页最后一条的 (时间戳, ID)
+        int last = ids.size() - 1;
+        return PageResult.of(list, times.get(last), ids.get(last), hasMore);
     }
 
 }
@@ -7,15 +7,30 @@ import com.xyz.constant.GoodsConditionConstant;
 import com.xyz.dto.GoodsDTO;
 import com.xyz.dto.GoodsQueryDTO;
 import com.xyz.entity.Goods;
-import com.xyz.entity.GoodsFavorite;
+import com.xyz.event.GoodsEventPublisher;
+import com.xyz.event.GoodsReleasedEvent;
+import com.xyz.event.GoodsStatusChangedEvent;
+import com.xyz.event.GoodsUpdatedEvent;
+import com.xyz.exception.FavoriteUnavailableException;
 import com.xyz.exception.GoodsInRentException;
 import com.xyz.exception.GoodsNotFoundException;
 import com.xyz.mapper.GoodsMapper;
 import com.xyz.mapper.GoodsQueryMapper;
 import com.xyz.service.CollectNumSyncService;
 import com.xyz.service.GoodsService;
+import com.xyz.util.AliOssUtil;
 import com.xyz.util.BaseContext;
 import com.xyz.util.CollectNumCacheUtil;
+import com.xyz.util.FavoriteStateUtil;
+import com.xyz.util.GoodsFacetIndex;
+import com.xyz.util.GoodsLocalCache;
+import com.xyz.util.GoodsSearchIndex;
+import com.xyz.util.GoodsTrendingUtil;
+import com.xyz.util.IdBloomFilterUtil;
+import com.xyz.util.SingleFlightUtil;
+import com.xyz.util.TransactionUtil;
+import com.xyz.util.UserProfileCache;
+import com.xyz.util.ZSetIndexUtil;
 import com.xyz.vo.GoodsCardVO;
 import com.xyz.vo.GoodsDetailVO;
 import com.xyz.vo.PageResult;
@@ -28,12 +43,11 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.LocalDateTime;
 import java.util.*;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -57,8 +71,46 @@ public class GoodsServiceImpl implements GoodsService {
     @Autowired
     private CollectNumCacheUtil collectNumCacheUtil;
 
+    @Autowired
+    private GoodsLocalCache goodsLocalCache;
+
+    @Autowired
+    private ZSetIndexUtil zSetIndexUtil;
+
+    @Autowired
+    private SingleFlightUtil singleFlightUtil;
+
+    @Autowired
+    private IdBloomFilterUtil idBloomFilterUtil;
+
+    @Autowired
+    private GoodsSearchIndex goodsSearchIndex;
+
+    @Autowired
+    private GoodsFacetIndex goodsFacetIndex;
+
+    @Autowired
+    private GoodsEventPublisher goodsEventPublisher;
+
+    @Autowired
+    private GoodsTrendingUtil goodsTrendingUtil;
+
+    @Autowired
+    private FavoriteStateUtil favoriteStateUtil;
+
+    @Autowired
+    private UserProfileCache userProfileCache;
+
+    @Autowired
+    private AliOssUtil aliOssUtil;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 发布商品：查询卡片缩略图（对象存储请求）在事务之外完成，事务只包含写库和发件箱
+     */
     @Override
-    @Transactional
     public void releaseGoods(GoodsDTO goodsDTO) {
         // 从上下文获取当前用户ID
         Long currentUserId = BaseContext.getCurrentId();
@@ -76,106 +128,76 @@ public class GoodsServiceImpl implements GoodsService {
         // 商品状态由后端统一设置为上架
         goods.setStatus(GoodsStatusConstant.ON_SALE);
         
-        // 设置封面图（取第一张）
-        goods.setCoverUrl(imageUrls.get(0));
-        
-        goodsMapper.insertGoods(goods);
-        
-        // 添加到分类ZSet缓存（只有当分类ID不为空且ZSet已存在时才添加）
-        if (goodsDTO.getCategoryId() != null) {
-            String catKey = buildCategoryKey(goodsDTO.getCategoryId());
-            if (Boolean.TRUE.equals(redisTemplate.hasKey(catKey))) {
-                redisTemplate.opsForZSet().add(catKey, goods.getId(), System.currentTimeMillis());
-            }
-        }
-        
-        // 添加到用户商品ZSet缓存（只有当ZSet已存在时才添加）
-        String ownerKey = buildOwnerKey(goods.getOwnerId());
-        if (Boolean.TRUE.equals(redisTemplate.hasKey(ownerKey))) {
-            redisTemplate.opsForZSet().add(ownerKey, goods.getId(), System.currentTimeMillis());
-        }
-        
-        // 添加到所有商品ZSet缓存（只有当ZSet已存在时才添加）
-        String allGoodsKey = RedisConstant.GOODS_ALL_IDS_KEY + RedisConstant.GOODS_ALL_IDS_SUFFIX;
-        if (Boolean.TRUE.equals(redisTemplate.hasKey(allGoodsKey))) {
-            redisTemplate.opsForZSet().add(allGoodsKey, goods.getId(), System.currentTimeMillis());
+        // 设置封面图（取第一张，有卡片缩略图时使用缩略图）
+        goods.setCoverUrl(aliOssUtil.coverUrlOf(imageUrls.get(0)));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            goodsMapper.insertGoods(goods);
+
+            // 事务提交后加入商品ZSet缓存、搜索索引和筛选索引
+            goodsEventPublisher.publish(new GoodsReleasedEvent(goods.getId(), currentUserId));
+
+            // 提交后立即加入布隆过滤器并清除该ID的空结果占位，不等事件异步处理，
+            // 发布后马上打开详情不会读到"商品不存在"（事件处理时再次添加，补上这里失败的情况）
+            idBloomFilterUtil.addGoods(goods.getId());
+            TransactionUtil.afterCommit(() -> evictDetailPlaceholder(goods.getId()));
+        });
+    }
+
+    /**
+     * 新商品还没有详情缓存，该 key 上只可能是发布前写入的空结果占位
+     */
+    private void evictDetailPlaceholder(Long goodsId) {
+        try {
+            redisTemplate.delete(RedisConstant.GOODS_DETAIL_KEY + goodsId);
+        } catch (Exception e) {
+            // 占位最多保留 EMPTY_CACHE_TTL 分钟，事件处理时也会再次清除
+            log.warn("清除商品详情空结果占位失败: goodsId={}, error={}", goodsId, e.getMessage());
         }
     }
 
 
     //TODO:这个搜索功能考虑直接放到GoodsQueryImpl中
     @Override
-    public PageResult<GoodsCardVO> searchGoods(String keyword, Long cursor, int size) {
-        long cursorTime = (cursor == null || cursor <= 0) ? System.currentTimeMillis() : cursor;
+    public PageResult<GoodsCardVO> searchGoods(String keyword, Long cursor, Long cursorId, int size) {
+        // 两种查询的游标含义不同：索引游标是 (快照版本, 分数)，MySQL 游标是更新时间，翻页时沿用第一页的查询方式
+        boolean firstPage = cursor == null || cursor <= 0;
+        boolean indexCursor = GoodsSearchIndex.isIndexCursor(cursor);
+
+        // 优先走进程内倒排索引：按相关度排序，游标是上一页最后一条的 (分数, 商品ID)
+        if (goodsSearchIndex.isReady() && (firstPage || indexCursor)) {
+            GoodsSearchIndex.SearchPage page = goodsSearchIndex.search(keyword,
+                    firstPage ? null : cursor, cursorId, size);
+            if (page.getIds().isEmpty()) {
+                return PageResult.empty();
+            }
+            List<GoodsCardVO> list = goodsQueryServiceImpl.getGoodsCardsFromCacheOrDB(page.getIds());
+            return PageResult.of(list, page.getNextCursor(), page.getNextCursorId(), page.isHasMore());
+        }
+
+        // 索引未就绪时回退到 MySQL 全文索引（按更新时间排序），回退查询的后续页即使索引已就绪也继续走 MySQL；
+        // 本节点索引未就绪却收到索引游标时（例如请求落到了刚启动的节点），索引游标无法换算成时间，从最新一页开始回退查询
+        boolean restart = firstPage || indexCursor;
+        if (indexCursor) {
+            log.warn("搜索索引未就绪，索引游标改为从头回退到MySQL: keyword={}", keyword);
+        }
+        long cursorTime = restart ? System.currentTimeMillis() : cursor;
+        long cursorIdValue = restart || cursorId == null ? 0 : cursorId;
         
         // 1. 全文索引只查ID（轻量级查询）
-        List<Long> ids = goodsMapper.searchGoodsIds(keyword, cursorTime, size + 1);
+        List<Long> ids = goodsMapper.searchGoodsIds(keyword, cursorTime, cursorIdValue, size + 1);
         
         if (ids == null || ids.isEmpty()) {
             return PageResult.empty();
         }
 
-        //TODO:考虑怎么复用GoodsQueryImpl中的getGoodsCardsFromCacheOrDB方法
-        // 2. 根据ID从Redis缓存批量获取商品卡片，未命中的再查MySQL（已包含时间戳）
-        List<GoodsCardVO> list = getGoodsCardsFromCacheOrDB(ids);
+        // 2. 根据ID从本地缓存/Redis批量获取商品卡片，未命中的再查MySQL（已包含时间戳）
+        List<GoodsCardVO> list = goodsQueryServiceImpl.getGoodsCardsFromCacheOrDB(ids);
         
         return buildPageResult(list, size);
     }
 
 
-    //TODO：getGoodsCardsFromCacheOrDB这个方法在GoodsQueryImpl中已经有了，考虑复用
-    /**
-     * 从缓存或数据库获取商品卡片列表，缓存未命中的再查MySQL
-     * @param ids 商品ID列表
-     * @return 商品卡片列表，保持原始ids顺序
-     */
-    private List<GoodsCardVO> getGoodsCardsFromCacheOrDB(List<Long> ids) {
-        // 1. 构建缓存 keys
-        List<String> keys = ids.stream()
-                .map(id -> RedisConstant.GOODS_CARD_KEY + id)
-                .collect(Collectors.toList());
-        
-        // 2. 批量从缓存获取
-        List<Object> cached = redisTemplate.opsForValue().multiGet(keys);
-        
-        // 3. 找出缓存未命中的 ids
-        List<Long> missIds = new ArrayList<>();
-        Map<Long, GoodsCardVO> resultMap = new HashMap<>();
-        
-        for (int i = 0; i < ids.size(); i++) {
-            Long id = ids.get(i);
-            Object value = (cached != null && i < cached.size()) ? cached.get(i) : null;
-            if (value != null) {
-                resultMap.put(id, (GoodsCardVO) value);
-            } else {
-                missIds.add(id);
-            }
-        }
-        
-        // 4. 缓存未命中的，从 MySQL 查询并存入缓存
-        if (!missIds.isEmpty()) {
-            List<GoodsCardVO> fromDB = goodsQueryMapper.getGoodsCardsByIds(missIds);
-            for (GoodsCardVO vo : fromDB) {
-                resultMap.put(vo.getId(), vo);
-                // 存入缓存（点赞数可能过时，后续会从点赞数缓存重新获取最新值）
-                String key = RedisConstant.GOODS_CARD_KEY + vo.getId();
-                long ttl = RedisConstant.GOODS_CARD_TTL + new Random().nextInt(5);
-                redisTemplate.opsForValue().set(key, vo, ttl, TimeUnit.MINUTES);
-            }
-        }
-        
-        // 5. 批量获取点赞数并赋值给商品卡片
-        List<GoodsCardVO> result = ids.stream()
-                .map(resultMap::get)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-        
-        // 批量设置点赞数
-        batchSetCollectNum(result);
-        
-        return result;
-    }
-    
     /**
      * 为商品详情设置最新的收藏数
      * @param detail 商品详情对象
@@ -210,32 +232,6 @@ public class GoodsServiceImpl implements GoodsService {
         }
     }
     
-    /**
-     * 批量设置商品卡片的点赞数（复用GoodsQueryServiceImpl的逻辑）
-     * @param cards 商品卡片列表
-     */
-    private void batchSetCollectNum(List<GoodsCardVO> cards) {
-        if (cards == null || cards.isEmpty()) {
-            return;
-        }
-        
-        // 提取商品ID列表
-        List<Long> goodsIds = cards.stream()
-                .map(GoodsCardVO::getId)
-                .collect(Collectors.toList());
-        
-        // 批量获取收藏数
-        Map<Long, Integer> collectNumMap = collectNumCacheUtil.batchGetCollectNum(goodsIds);
-        
-        // 将收藏数赋值给商品卡片
-        for (GoodsCardVO card : cards) {
-            Integer collectNum = collectNumMap.get(card.getId());
-            card.setCollectNum(collectNum != null ? collectNum : 0);
-        }
-    }
-    
-
-
     //TODO：这个方法在GoodsQueryImpl中已经有了，考虑复用
     /**
      * 构建分页结果
@@ -250,31 +246,9 @@ public class GoodsServiceImpl implements GoodsService {
             list = list.subList(0, size); // 移除多查的那一条
         }
         
-        // 下一页游标 = 本页最后一条的时间戳
-        Long nextCursor = list.isEmpty() ? null : list.get(list.size() - 1).getUpdateTimestamp();
-        
-        return PageResult.of(list, nextCursor, hasMore);
-    }
-
-    /**
-     * 构建分类ZSet Key
-     */
-    private String buildCategoryKey(long categoryId) {
-        return RedisConstant.GOODS_CAT_IDS_KEY + categoryId + RedisConstant.GOODS_CAT_IDS_SUFFIX;
-    }
-
-    /**
-     * 构建用户商品ZSet Key
-     */
-    private String buildOwnerKey(long ownerId) {
-        return RedisConstant.GOODS_OWNER_IDS_KEY + ownerId + RedisConstant.GOODS_OWNER_IDS_SUFFIX;
-    }
-
-    /**
-     * 构建用户下架商品ZSet Key
-     */
-    private String buildOfflineKey(long ownerId) {
-        return RedisConstant.GOODS_OFFLINE_IDS_KEY + ownerId + RedisConstant.GOODS_OFFLINE_IDS_SUFFIX;
+        // 下一页游标 = 本页最后一条的 (时间戳, ID)
+        GoodsCardVO last = list.get(list.size() - 1);
+        return PageResult.of(list, last.getUpdateTimestamp(), last.getId(), hasMore);
     }
 
     @Override
@@ -294,36 +268,37 @@ public class GoodsServiceImpl implements GoodsService {
         // 3. 将状态更新为已下架
         goodsMapper.updateGoodsStatus(goodsId, ownerId, GoodsStatusConstant.OFF_SHELF);
         
-        // 4. 从上架商品 ZSet 中移除
-        removeGoodsFromZSet(goodsId);
-        
-        // 5. 添加到下架商品 ZSet 中
-        addGoodsToOfflineZSet(goodsId, ownerId);
-        
-        // 6. 清除商品缓存
-        clearGoodsCache(goodsId);
+        // 4. 事务提交后从上架商品 ZSet 迁移到下架商品 ZSet，并清除商品缓存
+        goodsEventPublisher.publish(new GoodsStatusChangedEvent(goodsId, ownerId, GoodsStatusConstant.OFF_SHELF));
     }
 
     @Override
     public GoodsDetailVO getGoodsDetailById(Long id) {
         String cacheKey = RedisConstant.GOODS_DETAIL_KEY + id;
         
-        // 1. 先查缓存
-        Object cached = redisTemplate.opsForValue().get(cacheKey);
-        GoodsDetailVO detail;
-        
-        if (cached != null) {
-            detail = (GoodsDetailVO) cached;
-        } else {
-            // 2. 缓存未命中，查数据库
-            detail = goodsMapper.getGoodsDetailById(id);
-            if (detail == null) {
+        // 1. 先查本地L1缓存，再查Redis
+        GoodsDetailVO detail = goodsLocalCache.getDetail(id);
+        if (detail == null) {
+            // 布隆过滤器判定一定不存在的商品，不再访问Redis和MySQL
+            if (!idBloomFilterUtil.mightContainGoods(id)) {
+                return null;
+            }
+            Object cached = redisTemplate.opsForValue().get(cacheKey);
+            goodsLocalCache.recordRedisDetail(cached);
+            if (cached == null) {
+                // 2. 缓存未命中，合并并发回源（进程内 single-flight + 跨节点租约锁）
+                cached = singleFlightUtil.execute(cacheKey, () -> singleFlightUtil.loadWithLease(
+                        RedisConstant.REBUILD_LOCK_KEY + cacheKey,
+                        () -> redisTemplate.opsForValue().get(cacheKey),
+                        () -> loadGoodsDetailToCache(id)));
+            }
+            // 空结果占位（负缓存），商品不存在
+            if (!(cached instanceof GoodsDetailVO)) {
                 return null;
             }
-            
-            // 3. 存入缓存，设置过期时间（基础TTL + 随机浮动，防止缓存雪崩）
-            long ttl = RedisConstant.GOODS_DETAIL_TTL + new Random().nextInt((int) RedisConstant.GOODS_DETAIL_TTL_RANDOM);
-            redisTemplate.opsForValue().set(cacheKey, detail, ttl, TimeUnit.MINUTES);
+            // 加载结果由多个请求共享，复制后再修改
+            detail = goodsLocalCache.copyDetail((GoodsDetailVO) cached);
+            goodsLocalCache.putDetail(detail);
         }
         
         // 4. 从收藏数缓存中获取最新的收藏数
@@ -331,12 +306,36 @@ public class GoodsServiceImpl implements GoodsService {
         
         // 5. 处理成色显示逻辑：如果是明显使用痕迹，则不显示成色
         processConditionLevel(detail);
+
+        // 6. 填充发布者昵称和头像（详情缓存中不包含发布者信息）
+        userProfileCache.fillDetailOwner(detail);
         
         return detail;
     }
 
+    /**
+     * 从数据库加载商品详情并写入Redis
+     * @return 商品详情；商品不存在时写入空结果占位并返回占位值
+     */
+    private Object loadGoodsDetailToCache(Long id) {
+        String cacheKey = RedisConstant.GOODS_DETAIL_KEY + id;
+        GoodsDetailVO detail = goodsMapper.getGoodsDetailById(id);
+        if (detail == null) {
+            redisTemplate.opsForValue().set(cacheKey, RedisConstant.EMPTY_CACHE_VALUE,
+                    RedisConstant.EMPTY_CACHE_TTL, TimeUnit.MINUTES);
+            return RedisConstant.EMPTY_CACHE_VALUE;
+        }
+
+        // 存入缓存，设置过期时间（基础TTL + 随机浮动，防止缓存雪崩）
+        long ttl = RedisConstant.GOODS_DETAIL_TTL + ThreadLocalRandom.current().nextLong(RedisConstant.GOODS_DETAIL_TTL_RANDOM);
+        redisTemplate.opsForValue().set(cacheKey, detail, ttl, TimeUnit.MINUTES);
+        return detail;
+    }
+
+    /**
+     * 修改商品：与发布相同，封面缩略图在事务之外查询
+     */
     @Override
-    @Transactional
     public void updateGoods(Long goodsId, GoodsDTO goodsDTO, Long ownerId) {
         // 1. 构建更新对象
         Goods goods = new Goods();
@@ -344,23 +343,27 @@ public class GoodsServiceImpl implements GoodsService {
         goods.setId(goodsId);
         goods.setOwnerId(ownerId);
         
-        // 2. 更新封面图（取第一张）
+        // 2. 更新封面图（取第一张，有卡片缩略图时使用缩略图）
         List<String> imageUrls = goodsDTO.getImageUrls();
         if (imageUrls != null && !imageUrls.isEmpty()) {
-            goods.setCoverUrl(imageUrls.get(0));
-        }
-        
-        // 3. 执行更新（WHERE中包含id和owner_id，权限校验）
-        int rows = goodsMapper.updateGoods(goods);
-        if (rows == 0) {
-            throw new GoodsNotFoundException(MessageConstant.GOODS_UPDATE_FAILED);
+            goods.setCoverUrl(aliOssUtil.coverUrlOf(imageUrls.get(0)));
         }
         
-        // 4. 清除商品缓存
-        clearGoodsCache(goodsId);
-        
-        // 5. 更新 ZSet 中的 score（时间戳）
-        updateGoodsScoreInZSet(goodsId);
+        transactionTemplate.executeWithoutResult(status -> {
+            // 记录修改前的分类，分类变化时需要从原分类的 ZSet 中移除
+            Map<String, Object> previous = goodsMapper.getGoodsCategoryAndTimeById(goodsId);
+            Long previousCategoryId = (previous != null && previous.get("categoryId") != null)
+                    ? ((Number) previous.get("categoryId")).longValue() : null;
+
+            // 3. 执行更新（WHERE中包含id和owner_id，权限校验）
+            int rows = goodsMapper.updateGoods(goods);
+            if (rows == 0) {
+                throw new GoodsNotFoundException(MessageConstant.GOODS_UPDATE_FAILED);
+            }
+
+            // 4. 事务提交后清除商品缓存，更新 ZSet 中的 score（时间戳）
+            goodsEventPublisher.publish(new GoodsUpdatedEvent(goodsId, ownerId, previousCategoryId));
+        });
     }
 
     @Override
@@ -372,14 +375,8 @@ public class GoodsServiceImpl implements GoodsService {
             throw new GoodsNotFoundException(MessageConstant.GOODS_NOT_FOUND_OR_NO_PERMISSION);
         }
         
-        // 从下架商品 ZSet 中移除
-        removeGoodsFromOfflineZSet(goodsId, ownerId);
-        
-        // 添加到上架商品 ZSet 中
-        updateGoodsScoreInZSet(goodsId);
-        
-        // 清除商品缓存
-        clearGoodsCache(goodsId);
+        // 事务提交后从下架商品 ZSet 迁移到上架商品 ZSet，并清除商品缓存
+        goodsEventPublisher.publish(new GoodsStatusChangedEvent(goodsId, ownerId, GoodsStatusConstant.ON_SALE));
     }
 
     @Override
@@ -391,11 +388,8 @@ public class GoodsServiceImpl implements GoodsService {
             throw new GoodsNotFoundException(MessageConstant.GOODS_NOT_FOUND_OR_NO_PERMISSION);
         }
         
-        // 从ZSet中移除
-        removeGoodsFromZSet(goodsId);
-        
-        // 清除商品缓存
-        clearGoodsCache(goodsId);
+        // 事务提交后从ZSet中移除，并清除商品缓存
+        goodsEventPublisher.publish(new GoodsStatusChangedEvent(goodsId, ownerId, GoodsStatusConstant.USER_DELETED));
     }
 
     @Override
@@ -407,11 +401,8 @@ public class GoodsServiceImpl implements GoodsService {
             throw new GoodsNotFoundException(MessageConstant.GOODS_NOT_FOUND_OR_NO_PERMISSION);
         }
         
-        // 从ZSet中移除（已售出不再展示）
-        removeGoodsFromZSet(goodsId);
-        
-        // 清除商品缓存
-        clearGoodsCache(goodsId);
+        // 事务提交后从ZSet中移除（已售出不再展示），并清除商品缓存
+        goodsEventPublisher.publish(new GoodsStatusChangedEvent(goodsId, ownerId, GoodsStatusConstant.SOLD));
     }
 
     @Override
@@ -423,172 +414,80 @@ public class GoodsServiceImpl implements GoodsService {
             throw new GoodsNotFoundException(MessageConstant.GOODS_NOT_FOUND_OR_NO_PERMISSION);
         }
         
-        // 从ZSet中移除（租借中不再展示）
-        removeGoodsFromZSet(goodsId);
-        
-        // 清除商品缓存
-        clearGoodsCache(goodsId);
-    }
-    
-    /**
-     * 清除商品缓存（只清除详情缓存，卡片缓存保留）
-     */
-    private void clearGoodsCache(Long goodsId) {
-        redisTemplate.delete(RedisConstant.GOODS_DETAIL_KEY + goodsId);
-        // 不再清除商品卡片缓存，因为点赞数已经单独缓存
-        // redisTemplate.delete(RedisConstant.GOODS_CARD_KEY + goodsId);
-    }
-    
-    /**
-     * 从zSet中移除商品（分类缓存 + 用户缓存 + 全局缓存）
-     */
-    private void removeGoodsFromZSet(Long goodsId) {
-        Map<String, Object> info = goodsMapper.getGoodsCategoryAndTimeById(goodsId);
-        if (info != null) {
-            // 从分类ZSet移除（categoryId 可能为 null）
-            Object categoryIdObj = info.get("categoryId");
-            if (categoryIdObj != null) {
-                String catKey = buildCategoryKey(((Number) categoryIdObj).longValue());
-                redisTemplate.opsForZSet().remove(catKey, goodsId);
-            }
-            
-            // 从用户ZSet移除
-            String ownerKey = buildOwnerKey(((Number) info.get("ownerId")).longValue());
-            redisTemplate.opsForZSet().remove(ownerKey, goodsId);
-            
-            // 从全局所有商品ZSet移除
-            String allGoodsKey = RedisConstant.GOODS_ALL_IDS_KEY + RedisConstant.GOODS_ALL_IDS_SUFFIX;
-            redisTemplate.opsForZSet().remove(allGoodsKey, goodsId);
-        }
+        // 事务提交后从ZSet中移除（租借中不再展示），并清除商品缓存
+        goodsEventPublisher.publish(new GoodsStatusChangedEvent(goodsId, ownerId, GoodsStatusConstant.RENTING));
     }
     
-    /**
-     * 添加/更新商品在ZSet中的score（分类缓存 + 用户缓存 + 全局缓存）
-     * ZSet的add是幂等的：不存在则添加，存在则更新score
-     */
-    private void updateGoodsScoreInZSet(Long goodsId) {
-        Map<String, Object> info = goodsMapper.getGoodsCategoryAndTimeById(goodsId);
-        if (info != null) {
-            long timestamp = ((Number) info.get("updateTime")).longValue();
-            
-            // 更新分类ZSet（categoryId 可能为 null）
-            Object categoryIdObj = info.get("categoryId");
-            if (categoryIdObj != null) {
-                String catKey = buildCategoryKey(((Number) categoryIdObj).longValue());
-                if (Boolean.TRUE.equals(redisTemplate.hasKey(catKey))) {
-                    redisTemplate.opsForZSet().add(catKey, goodsId, timestamp);
-                }
-            }
-            
-            // 更新用户ZSet
-            String ownerKey = buildOwnerKey(((Number) info.get("ownerId")).longValue());
-            if (Boolean.TRUE.equals(redisTemplate.hasKey(ownerKey))) {
-                redisTemplate.opsForZSet().add(ownerKey, goodsId, timestamp);
-            }
-            
-            // 更新全局所有商品ZSet
-            String allGoodsKey = RedisConstant.GOODS_ALL_IDS_KEY + RedisConstant.GOODS_ALL_IDS_SUFFIX;
-            if (Boolean.TRUE.equals(redisTemplate.hasKey(allGoodsKey))) {
-                redisTemplate.opsForZSet().add(allGoodsKey, goodsId, timestamp);
-            }
-        }
-    }
-
-    
     // ==================== 收藏相关方法 ====================
     
     @Override
-    @Transactional
     public boolean toggleFavorite(Long userId, Long goodsId) {
         log.info("切换收藏状态: userId={}, goodsId={}", userId, goodsId);
 
-        // 检查商品是否存在
-        Goods goods = goodsMapper.getGoodsById(goodsId);
+        // 检查商品是否存在（走详情缓存，不查MySQL）
+        GoodsDetailVO goods = getGoodsDetailById(goodsId);
         if (goods == null) {
             throw new GoodsNotFoundException("商品不存在");
         }
 
-        // 检查是否已收藏
-        int count = goodsMapper.checkFavorite(userId, goodsId);
-        
-        if (count > 0) {
-            // 已收藏，取消收藏
-            goodsMapper.deleteFavorite(userId, goodsId);
-            // 异步更新商品收藏数（-1）
-            updateGoodsCollectNumAsync(goodsId, -1);
+        // Redis 中切换收藏状态并增减收藏数缓存，goods_favorite 由 FavoriteSyncService 批量落库
+        FavoriteStateUtil.ToggleResult result = favoriteStateUtil.toggle(userId, goodsId);
+        if (result == null) {
+            // Redis 是收藏状态的权威数据，不可用时不能直接写 MySQL，否则恢复后两边状态不一致
+            throw new FavoriteUnavailableException("收藏失败，请稍后重试");
+        }
+        int delta = result.isFavorited() ? 1 : -1;
+        if (!result.isCollectNumCached()) {
+            collectNumCacheUtil.initCollectNumCache(goodsId, delta);
+        }
+        // 标记需要异步同步到数据库
+        collectNumSyncService.markForSync(goodsId);
+
+        if (result.isFavorited()) {
+            // 增加热度（只有上架商品进入热门榜）
+            if (goods.getStatus() != null && goods.getStatus() == GoodsStatusConstant.ON_SALE) {
+                goodsTrendingUtil.record(goodsId, 1, result.getFavoriteTime());
+            }
+            // 添加到 Redis ZSet
+            addToFavoriteZSet(userId, goodsId, result.getFavoriteTime());
+            log.info("收藏成功: userId={}, goodsId={}", userId, goodsId);
+        } else {
+            // 按原收藏时间扣减热度
+            goodsTrendingUtil.record(goodsId, -1, result.getFavoriteTime());
             // 从 Redis ZSet 中移除
             removeFromFavoriteZSet(userId, goodsId);
             log.info("取消收藏成功: userId={}, goodsId={}", userId, goodsId);
-            return false;
-        } else {
-            // 未收藏，添加收藏
-            GoodsFavorite favorite = GoodsFavorite.builder()
-                    .userId(userId)
-                    .goodsId(goodsId)
-                    .createTime(LocalDateTime.now())
-                    .build();
-            goodsMapper.insertFavorite(favorite);
-            // 异步更新商品收藏数（+1）
-            updateGoodsCollectNumAsync(goodsId, 1);
-            // 添加到 Redis ZSet
-            addToFavoriteZSet(userId, goodsId);
-            log.info("收藏成功: userId={}, goodsId={}", userId, goodsId);
-            return true;
         }
+        return result.isFavorited();
     }
 
     @Override
     public boolean isFavorite(Long userId, Long goodsId) {
+        Boolean favorite = favoriteStateUtil.isFavorite(userId, goodsId);
+        if (favorite != null) {
+            return favorite;
+        }
+        // Redis 不可用时回退到 MySQL（可能落后于最近一秒内的收藏操作）
         int count = goodsMapper.checkFavorite(userId, goodsId);
         return count > 0;
     }
-    
-    /**
-     * 异步更新商品收藏数（只更新缓存，数据库异步同步）
-     * @param goodsId 商品ID
-     * @param delta 变化量（+1表示添加收藏，-1表示取消收藏）
-     */
-    private void updateGoodsCollectNumAsync(Long goodsId, Integer delta) {
-        try {
-            // 只更新缓存中的点赞数
-            updateCollectNumCache(goodsId, delta);
-            
-            // 标记需要异步同步到数据库
-            collectNumSyncService.markForSync(goodsId);
-            
-            log.info("异步更新商品收藏数缓存: goodsId={}, delta={}", goodsId, delta);
-        } catch (Exception e) {
-            log.error("异步更新商品收藏数失败: goodsId={}, error={}", goodsId, e.getMessage());
-            // 异步更新失败时，降级为同步更新
-            updateGoodsCollectNumSync(goodsId, delta);
-        }
-    }
-    
-    /**
-     * 同步更新商品收藏数（兼容旧逻辑，用于降级）
-     * @param goodsId 商品ID
-     * @param delta 变化量
-     */
-    private void updateGoodsCollectNumSync(Long goodsId, Integer delta) {
-        try {
-            // 更新商品表的收藏数字段（增量更新）
-            goodsMapper.updateCollectNum(goodsId, delta);
-            log.info("同步更新商品收藏数: goodsId={}, delta={}", goodsId, delta);
-            
-            // 更新点赞数缓存
-            updateCollectNumCache(goodsId, delta);
-        } catch (Exception e) {
-            log.error("同步更新商品收藏数失败: goodsId={}, error={}", goodsId, e.getMessage());
+
+    @Override
+    public List<Long> getFavoritedGoodsIds(Long userId, List<Long> goodsIds) {
+        if (goodsIds == null || goodsIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<Long> favorited = favoriteStateUtil.getFavoritedIds(userId, goodsIds);
+        if (favorited == null) {
+            favorited = new HashSet<>(goodsMapper.getFavoritedGoodsIds(userId, goodsIds));
+        }
+        List<Long> result = new ArrayList<>();
+        for (Long goodsId : goodsIds) {
+            if (favorited.contains(goodsId)) {
+                result.add(goodsId);
+            }
         }
-    }
-    
-    /**
-     * 更新点赞数缓存
-     * @param goodsId 商品ID
-     * @param delta 变化量
-     */
-    private void updateCollectNumCache(Long goodsId, Integer delta) {
-        collectNumCacheUtil.updateCollectNumCache(goodsId, delta);
+        return result;
     }
     
     /**
@@ -601,11 +500,8 @@ public class GoodsServiceImpl implements GoodsService {
     /**
      * 添加到收藏 ZSet（只有当ZSet已存在时才添加）
      */
-    private void addToFavoriteZSet(Long userId, Long goodsId) {
-        String key = buildFavoriteZSetKey(userId);
-        if (Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
-            redisTemplate.opsForZSet().add(key, goodsId, System.currentTimeMillis());
-        }
+    private void addToFavoriteZSet(Long userId, Long goodsId, long favoriteTime) {
+        zSetIndexUtil.addIfExists(buildFavoriteZSetKey(userId), goodsId, favoriteTime);
     }
     
     /**
@@ -638,11 +534,8 @@ public class GoodsServiceImpl implements GoodsService {
         // 更新为系统屏蔽状态
         goodsMapper.updateGoodsStatusByAdmin(goodsId, GoodsStatusConstant.SYSTEM_BLOCKED);
 
-        // 从 ZSet 中移除
-        removeGoodsFromZSet(goodsId);
-
-        // 清除商品缓存
-        clearGoodsCache(goodsId);
+        // 事务提交后从 ZSet 中移除，并清除商品缓存
+        goodsEventPublisher.publish(new GoodsStatusChangedEvent(goodsId, null, GoodsStatusConstant.SYSTEM_BLOCKED));
 
         // TODO: 记录违规原因（可以后续扩展，存入日志表）
         if (reason != null && !reason.trim().isEmpty()) {
@@ -667,8 +560,8 @@ public class GoodsServiceImpl implements GoodsService {
         // 恢复为上架状态
         goodsMapper.updateGoodsStatusByAdmin(goodsId, GoodsStatusConstant.ON_SALE);
 
-        // 添加到 ZSet
-        updateGoodsScoreInZSet(goodsId);
+        // 事务提交后添加到 ZSet，清除商品缓存，重新加入搜索索引和筛选索引
+        goodsEventPublisher.publish(new GoodsStatusChangedEvent(goodsId, null, GoodsStatusConstant.ON_SALE));
     }
 
     @Override
@@ -677,10 +570,23 @@ public class GoodsServiceImpl implements GoodsService {
         if (query.getCursor() == null || query.getCursor() <= 0) {
             query.setCursor(System.currentTimeMillis());
         }
+        if (query.getCursorId() == null) {
+            query.setCursorId(0L);
+        }
         if (query.getSize() == null || query.getSize() <= 0) {
             query.setSize(10);
         }
 
+        // 不带关键词时走进程内筛选索引：位图求交集后按 (更新时间, ID) 倒序取一页，只按ID回表取卡片
+        if ((query.getKeyword() == null || query.getKeyword().isEmpty()) && goodsFacetIndex.isReady()) {
+            GoodsFacetIndex.FacetPage page = goodsFacetIndex.query(query);
+            if (page.getIds().isEmpty()) {
+                return PageResult.empty();
+            }
+            List<GoodsCardVO> list = goodsQueryServiceImpl.getGoodsCardsFromCacheOrDB(page.getIds());
+            return PageResult.of(list, page.getNextCursor(), page.getNextCursorId(), page.isHasMore());
+        }
+
         // 查询 size+1 条，用于判断是否还有更多数据
         int originalSize = query.getSize();
         query.setSize(originalSize + 1);
@@ -691,25 +597,8 @@ public class GoodsServiceImpl implements GoodsService {
         // 恢复原始 size
         query.setSize(originalSize);
 
-        return buildPageResult(list, originalSize);
-    }
-
-    /**
-     * 将商品添加到下架商品ZSet缓存中
-     */
-    private void addGoodsToOfflineZSet(Long goodsId, Long ownerId) {
-        String offlineKey = buildOfflineKey(ownerId);
-        // 只有当ZSet已存在时才添加
-        if (Boolean.TRUE.equals(redisTemplate.hasKey(offlineKey))) {
-            redisTemplate.opsForZSet().add(offlineKey, goodsId, System.currentTimeMillis());
-        }
-    }
-
-    /**
-     * 从下架商品ZSet缓存中移除商品
-     */
-    private void removeGoodsFromOfflineZSet(Long goodsId, Long ownerId) {
-        String offlineKey = buildOfflineKey(ownerId);
-        redisTemplate.opsForZSet().remove(offlineKey, goodsId);
+        PageResult<GoodsCardVO> page = buildPageResult(list, originalSize);
+        userProfileCache.fillCardOwners(page.getList());
+        return page;
     }
 }
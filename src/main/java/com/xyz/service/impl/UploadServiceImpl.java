@@ -0,0 +1,159 @@
+package com.xyz.service.impl;
+
+import com.xyz.constant.RedisConstant;
+import com.xyz.dto.UploadPolicyDTO;
+import com.xyz.exception.UploadException;
+import com.xyz.properties.StorageProperties;
+import com.xyz.service.UploadService;
+import com.xyz.storage.StorageBackend;
+import com.xyz.storage.StoredObject;
+import com.xyz.storage.UploadPolicy;
+import com.xyz.vo.UploadPolicyVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件直传服务实现类
+ * 1. 签发凭证时生成对象名，凭证锁定对象名、内容类型和大小上限，客户端直接上传到存储，文件内容不经过应用服务器
+ * 2. 签发记录保存在 Redis 中，确认时只有签发给自己的对象才能确认
+ * 3. 确认时查询存储中的对象元信息，不符合要求（包括存储未返回内容类型）的对象直接删除
+ * 4. 签发的对象名同时按确认截止时间记入清理队列，过期仍未确认的对象（上传了但没有确认、或确认失败）由定时任务删除
+ */
+@Slf4j
+@Service
+public class UploadServiceImpl implements UploadService {
+
+    /** 各上传场景的大小上限（与经由应用服务器上传的限制一致） */
+    private static final Map<String, Long> SCENE_MAX_BYTES = Map.of(
+            "avatar", 2L * 1024 * 1024,
+            "goods", 5L * 1024 * 1024,
+            "chat", 5L * 1024 * 1024);
+
+    /** 允许上传的图片类型及扩展名 */
+    private static final Map<String, String> IMAGE_EXTENSIONS = Map.of(
+            "image/jpeg", ".jpg",
+            "image/png", ".png",
+            "image/gif", ".gif",
+            "image/webp", ".webp");
+
+    /** 清理时在确认截止时间之后多等待的时间（毫秒），避开截止前一刻开始的确认请求 */
+    private static final long SWEEP_MARGIN_MILLIS = 60_000;
+
+    /** 每次清理的最多对象数 */
+    private static final int SWEEP_BATCH_SIZE = 200;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private StorageProperties storageProperties;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Override
+    public UploadPolicyVO createPolicy(Long userId, UploadPolicyDTO dto) {
+        Long maxBytes = SCENE_MAX_BYTES.get(dto.getScene());
+        if (maxBytes == null) {
+            throw new UploadException("不支持的上传场景");
+        }
+        String extension = IMAGE_EXTENSIONS.get(dto.getContentType());
+        if (extension == null) {
+            throw new UploadException("只能上传图片文件");
+        }
+        if (dto.getSize() <= 0 || dto.getSize() > maxBytes) {
+            throw new UploadException("图片文件大小不能超过" + (maxBytes / 1024 / 1024) + "MB");
+        }
+
+        String objectKey = dto.getScene() + "/" + UUID.randomUUID().toString().replace("-", "") + extension;
+        long expireAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(storageProperties.getPresignExpireSeconds());
+        UploadPolicy policy = storageBackend.presignUpload(objectKey, dto.getContentType(), maxBytes, expireAt);
+
+        // 记录签发信息，确认时校验归属；同时记入清理队列，过期未确认时删除对象
+        long pendingSeconds = storageProperties.getPresignExpireSeconds() + RedisConstant.UPLOAD_PENDING_GRACE;
+        redisTemplate.opsForZSet().add(RedisConstant.UPLOAD_EXPIRY_KEY, objectKey,
+                System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(pendingSeconds));
+        redisTemplate.opsForValue().set(RedisConstant.UPLOAD_PENDING_KEY + objectKey,
+                userId + "|" + dto.getContentType() + "|" + maxBytes, pendingSeconds, TimeUnit.SECONDS);
+
+        return UploadPolicyVO.builder()
+                .objectKey(objectKey)
+                .uploadUrl(policy.getUploadUrl())
+                .fields(policy.getFields())
+                .expireAt(policy.getExpireAt())
+                .build();
+    }
+
+    @Override
+    public String complete(Long userId, String objectKey) {
+        String pendingKey = RedisConstant.UPLOAD_PENDING_KEY + objectKey;
+        Object pending = redisTemplate.opsForValue().get(pendingKey);
+        String[] parts = pending == null ? null : pending.toString().split("\\|");
+        if (parts == null || parts.length != 3 || !parts[0].equals(String.valueOf(userId))) {
+            throw new UploadException("上传凭证不存在或已过期");
+        }
+
+        StoredObject object = storageBackend.stat(objectKey);
+        if (object == null) {
+            throw new UploadException("文件尚未上传完成");
+        }
+        redisTemplate.delete(pendingKey);
+        redisTemplate.opsForZSet().remove(RedisConstant.UPLOAD_EXPIRY_KEY, objectKey);
+
+        // 存储端已按凭证校验，这里再校验一次，防止凭证条件被绕过；取不到内容类型时同样视为不符合
+        boolean sizeValid = object.getSize() > 0 && object.getSize() <= Long.parseLong(parts[2]);
+        boolean typeValid = parts[1].equals(object.getContentType());
+        if (!sizeValid || !typeValid) {
+            log.warn("直传文件不符合凭证要求，已删除: objectKey={}, size={}, contentType={}",
+                    objectKey, object.getSize(), object.getContentType());
+            storageBackend.delete(objectKey);
+            throw new UploadException("上传的文件不符合要求");
+        }
+
+        String url = storageBackend.urlOf(objectKey);
+        log.info("直传文件确认成功: userId={}, url={}", userId, url);
+        return url;
+    }
+
+    /**
+     * 每分钟清理一次：先从队列中移除再删除对象，多个节点同时清理时每个对象只由移除成功的节点删除
+     */
+    @Override
+    @Scheduled(fixedDelay = 60000)
+    public void sweepExpired() {
+        Set<Object> expired;
+        try {
+            expired = redisTemplate.opsForZSet().rangeByScore(RedisConstant.UPLOAD_EXPIRY_KEY,
+                    0, System.currentTimeMillis() - SWEEP_MARGIN_MILLIS, 0, SWEEP_BATCH_SIZE);
+        } catch (Exception e) {
+            log.error("读取待清理的直传对象失败: {}", e.getMessage());
+            return;
+        }
+        if (expired == null || expired.isEmpty()) {
+            return;
+        }
+        int deleted = 0;
+        for (Object member : expired) {
+            String objectKey = member.toString();
+            try {
+                Long removed = redisTemplate.opsForZSet().remove(RedisConstant.UPLOAD_EXPIRY_KEY, objectKey);
+                if (removed == null || removed == 0) {
+                    continue;
+                }
+                storageBackend.delete(objectKey);
+                deleted++;
+            } catch (Exception e) {
+                log.error("清理未确认的直传对象失败: objectKey={}, error={}", objectKey, e.getMessage());
+            }
+        }
+        log.info("清理过期未确认的直传对象: {}", deleted);
+    }
+}
@@ -12,6 +12,10 @@ import com.xyz.exception.AccountBannedException;
 import com.xyz.exception.PasswordErrorException;
 import com.xyz.mapper.UserMapper;
 import com.xyz.service.UserService;
+import com.xyz.util.BulkCacheWriter;
+import com.xyz.util.IdBloomFilterUtil;
+import com.xyz.util.UserProfileCache;
+import com.xyz.util.ZSetIndexUtil;
 import com.xyz.vo.UserInfoVO;
 import com.xyz.vo.UserPublicVO;
 import com.xyz.vo.UserListVO;
@@ -21,7 +25,6 @@ import com.xyz.vo.PageResult;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -42,6 +45,18 @@ public class UserServiceImpl implements UserService {
     
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private ZSetIndexUtil zSetIndexUtil;
+
+    @Autowired
+    private IdBloomFilterUtil idBloomFilterUtil;
+
+    @Autowired
+    private BulkCacheWriter bulkCacheWriter;
+
+    @Autowired
+    private UserProfileCache userProfileCache;
     
 
     
@@ -75,13 +90,12 @@ public class UserServiceImpl implements UserService {
 
         // 保存用户到数据库
         userMapper.insert(user);
+
+        // 加入布隆过滤器
+        idBloomFilterUtil.addUser(user.getId());
         
-        // 添加到ZSet缓存（只有当ZSet已存在时才添加）
-        String zsetKey = RedisConstant.USER_LIST_IDS_KEY;
-        if (Boolean.TRUE.equals(redisTemplate.hasKey(zsetKey))) {
-            long timestamp = System.currentTimeMillis();
-            redisTemplate.opsForZSet().add(zsetKey, user.getId(), timestamp);
-        }
+        // 添加到ZSet缓存（只有当ZSet已存在时才添加，超出窗口的最旧成员会被裁掉）
+        zSetIndexUtil.addIfExists(RedisConstant.USER_LIST_IDS_KEY, user.getId(), System.currentTimeMillis());
 
         // 返回用户（不包含密码）
         return user;
@@ -268,22 +282,32 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public PageResult<UserListVO> getUserList(Long cursor, int size) {
+    public PageResult<UserListVO> getUserList(Long cursor, Long cursorId, int size) {
         // 首次请求或cursor为null，使用当前时间
         long cursorTime = (cursor == null || cursor <= 0) ? System.currentTimeMillis() : cursor;
+        long cursorIdValue = cursorId == null ? 0 : cursorId;
         
         String zsetKey = RedisConstant.USER_LIST_IDS_KEY;
         
-        // 尝试从Redis ZSet获取ID列表
-        List<Long> ids = getIdsFromZSet(zsetKey, cursorTime, size + 1);
+        // 尝试从Redis窗口ZSet获取ID列表
+        ZSetIndexUtil.WindowPage page = zSetIndexUtil.readWindow(zsetKey, cursorTime, cursorIdValue, size + 1);
         
         List<UserListVO> list;
-        if (ids != null && !ids.isEmpty()) {
+        if (page != null) {
             // ZSet命中，先从缓存批量获取，未命中的再查MySQL
-            list = getUserCardsFromCacheOrDB(ids);
+            List<Long> ids = page.getIds();
+            list = ids.isEmpty() ? new ArrayList<>() : new ArrayList<>(getUserCardsFromCacheOrDB(ids));
+            // 越过窗口底部，剩余部分走MySQL游标查询
+            if (page.isTruncated() && ids.size() < size + 1) {
+                long deepCursor = page.getLastScore() != null ? page.getLastScore() : cursorTime;
+                long deepCursorId = page.getLastId() != null ? page.getLastId() : cursorIdValue;
+                List<UserListVO> deep = userMapper.getUserListByCursor(deepCursor, deepCursorId, size + 1 - ids.size());
+                cacheUserCards(deep);
+                list.addAll(deep);
+            }
         } else {
             // ZSet未命中，直接查MySQL并重建缓存
-            list = userMapper.getUserListByCursor(cursorTime, size + 1);
+            list = userMapper.getUserListByCursor(cursorTime, cursorIdValue, size + 1);
             rebuildUserListZSet();
             // 将查询结果存入卡片缓存
             cacheUserCards(list);
@@ -341,48 +365,11 @@ public class UserServiceImpl implements UserService {
     // ==================== Redis缓存辅助方法 ====================
     
     /**
-     * 从ZSet中获取用户ID列表
-     * @param key ZSet的key
-     * @param cursor 游标时间戳
-     * @param count 获取数量
-     * @return ID列表，如果ZSet不存在返回null
-     */
-    private List<Long> getIdsFromZSet(String key, long cursor, int count) {
-        if (Boolean.FALSE.equals(redisTemplate.hasKey(key))) {
-            return null;
-        }
-        // reverseRangeByScore: 按score从大到小排序
-        Set<ZSetOperations.TypedTuple<Object>> tuples = redisTemplate.opsForZSet()
-                .reverseRangeByScoreWithScores(key, 0, cursor - 1, 0, count);
-        
-        if (tuples == null || tuples.isEmpty()) {
-            return List.of();
-        }
-        
-        return tuples.stream()
-                .map(t -> ((Number) t.getValue()).longValue())
-                .collect(Collectors.toList());
-    }
-    
-    /**
-     * 重建用户列表ZSet缓存
+     * 重建用户列表ZSet缓存（分块读取，只缓存最新注册的窗口）
      */
     private void rebuildUserListZSet() {
-        String key = RedisConstant.USER_LIST_IDS_KEY;
-        List<Map<String, Object>> data = userMapper.getAllUserIdsWithTime();
-        if (data == null || data.isEmpty()) {
-            return;
-        }
-        
-        Set<ZSetOperations.TypedTuple<Object>> tuples = data.stream()
-                .map(m -> ZSetOperations.TypedTuple.of(
-                        (Object) ((Number) m.get("id")).longValue(),
-                        ((Number) m.get("createTime")).doubleValue()
-                ))
-                .collect(Collectors.toSet());
-        
-        redisTemplate.opsForZSet().add(key, tuples);
-        redisTemplate.expire(key, RedisConstant.USER_LIST_IDS_TTL, TimeUnit.MINUTES);
+        zSetIndexUtil.rebuildWindow(RedisConstant.USER_LIST_IDS_KEY, userMapper::getAllUserIdsWithTime,
+                "id", "createTime", RedisConstant.USER_LIST_IDS_TTL);
     }
     
     /**
@@ -418,11 +405,8 @@ public class UserServiceImpl implements UserService {
             List<UserListVO> fromDB = userMapper.getUserCardsByIds(missIds);
             for (UserListVO vo : fromDB) {
                 resultMap.put(vo.getId(), vo);
-                // 存入缓存
-                String key = RedisConstant.USER_CARD_KEY + vo.getId();
-                long ttl = RedisConstant.USER_CARD_TTL + new Random().nextInt((int) RedisConstant.USER_CARD_TTL_RANDOM);
-                redisTemplate.opsForValue().set(key, vo, ttl, TimeUnit.MINUTES);
             }
+            cacheUserCards(fromDB);
         }
         
         // 5. 按原始ids顺序返回
@@ -439,11 +423,13 @@ public class UserServiceImpl implements UserService {
         if (cards == null || cards.isEmpty()) {
             return;
         }
+        // 管道一次写入
+        Map<String, Object> toCache = new HashMap<>();
         for (UserListVO vo : cards) {
-            String key = RedisConstant.USER_CARD_KEY + vo.getId();
-            long ttl = RedisConstant.USER_CARD_TTL + new Random().nextInt((int) RedisConstant.USER_CARD_TTL_RANDOM);
-            redisTemplate.opsForValue().set(key, vo, ttl, TimeUnit.MINUTES);
+            toCache.put(RedisConstant.USER_CARD_KEY + vo.getId(), vo);
         }
+        bulkCacheWriter.setAll(toCache, RedisConstant.USER_CARD_TTL,
+                RedisConstant.USER_CARD_TTL_RANDOM, TimeUnit.MINUTES);
     }
     
     /**
@@ -459,10 +445,9 @@ public class UserServiceImpl implements UserService {
             list = list.subList(0, size); // 移除多查的那一条
         }
         
-        // 下一页游标 = 本页最后一条的时间戳
-        Long nextCursor = list.isEmpty() ? null : list.get(list.size() - 1).getCreateTimeTimestamp();
-        
-        return PageResult.of(list, nextCursor, hasMore);
+        // 下一页游标 = 本页最后一条的 (时间戳, ID)
+        UserListVO last = list.get(list.size() - 1);
+        return PageResult.of(list, last.getCreateTimeTimestamp(), last.getId(), hasMore);
     }
     
     /**
@@ -473,16 +458,15 @@ public class UserServiceImpl implements UserService {
         redisTemplate.delete(RedisConstant.USER_CARD_KEY + userId);
         // 清除用户信息缓存（聊天服务使用）
         redisTemplate.delete(RedisConstant.USER_INFO_KEY + userId);
+        // 清除用户资料片段缓存（商品卡片/详情的发布者信息）
+        userProfileCache.invalidate(userId);
     }
     
     /**
      * 更新用户在ZSet中的score
      */
     private void updateUserInZSet(Long userId, long timestamp) {
-        String key = RedisConstant.USER_LIST_IDS_KEY;
-        if (Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
-            redisTemplate.opsForZSet().add(key, userId, timestamp);
-        }
+        zSetIndexUtil.addIfExists(RedisConstant.USER_LIST_IDS_KEY, userId, timestamp);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.xyz.storage;
+
+import com.aliyun.oss.ClientBuilderConfiguration;
+import com.aliyun.oss.OSS;
+import com.aliyun.oss.OSSClientBuilder;
+import com.aliyun.oss.OSSErrorCode;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.common.utils.BinaryUtil;
+import com.aliyun.oss.model.MatchMode;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PolicyConditions;
+import com.xyz.properties.AliOssProperties;
+import com.xyz.properties.StorageProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 阿里云 OSS 存储
+ * OSS 客户端内部维护 HTTP 连接池，整个应用共享一个长期存活的客户端，
+ * 复用已建立的连接和 TLS 会话，不再每个文件新建客户端、握手、用完关闭
+ * 直传使用 PostObject 表单上传，Policy 中锁定 key、Content-Type 和 content-length-range，由 OSS 校验
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "trade.storage", name = "type", havingValue = "oss", matchIfMissing = true)
+public class AliOssStorageBackend implements StorageBackend {
+
+    @Autowired
+    private AliOssProperties aliOssProperties;
+
+    @Autowired
+    private StorageProperties storageProperties;
+
+    private OSS ossClient;
+
+    private String urlPrefix;
+
+    /** 表单直传地址 */
+    private String postUrl;
+
+    @PostConstruct
+    public void init() {
+        ClientBuilderConfiguration configuration = new ClientBuilderConfiguration();
+        configuration.setMaxConnections(storageProperties.getMaxConnections());
+        configuration.setConnectionTimeout(storageProperties.getConnectTimeoutMillis());
+        configuration.setSocketTimeout(storageProperties.getSocketTimeoutMillis());
+        ossClient = new OSSClientBuilder().build(aliOssProperties.getEndpoint(),
+                aliOssProperties.getAccessKeyId(), aliOssProperties.getAccessKeySecret(), configuration);
+        urlPrefix = "https://" + aliOssProperties.getBucketName() + "." + aliOssProperties.getEndpoint() + "/";
+        postUrl = "https://" + aliOssProperties.getBucketName() + "." + aliOssProperties.getEndpoint();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ossClient != null) {
+            ossClient.shutdown();
+        }
+    }
+
+    @Override
+    public String put(String objectName, InputStream inputStream, long size, String contentType) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(contentType);
+        metadata.setContentLength(size);
+        ossClient.putObject(aliOssProperties.getBucketName(), objectName, inputStream, metadata);
+        return urlPrefix + objectName;
+    }
+
+    @Override
+    public void delete(String objectName) {
+        ossClient.deleteObject(aliOssProperties.getBucketName(), objectName);
+    }
+
+    @Override
+    public String objectNameOf(String url) {
+        return url != null && url.startsWith(urlPrefix) ? url.substring(urlPrefix.length()) : null;
+    }
+
+    @Override
+    public String urlOf(String objectName) {
+        return urlPrefix + objectName;
+    }
+
+    @Override
+    public UploadPolicy presignUpload(String objectName, String contentType, long maxBytes, long expireAt) {
+        PolicyConditions conditions = new PolicyConditions();
+        conditions.addConditionItem(MatchMode.Exact, PolicyConditions.COND_KEY, objectName);
+        conditions.addConditionItem(MatchMode.Exact, PolicyConditions.COND_CONTENT_TYPE, contentType);
+        conditions.addConditionItem(PolicyConditions.COND_CONTENT_LENGTH_RANGE, 1, maxBytes);
+        String policy = ossClient.generatePostPolicy(new Date(expireAt), conditions);
+
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("key", objectName);
+        fields.put("Content-Type", contentType);
+        fields.put("OSSAccessKeyId", aliOssProperties.getAccessKeyId());
+        fields.put("policy", BinaryUtil.toBase64String(policy.getBytes(StandardCharsets.UTF_8)));
+        fields.put("Signature", ossClient.calculatePostSignature(policy));
+        fields.put("success_action_status", "200");
+        return UploadPolicy.builder().uploadUrl(postUrl).fields(fields).expireAt(expireAt).build();
+    }
+
+    @Override
+    public StoredObject stat(String objectName) {
+        try {
+            ObjectMetadata metadata = ossClient.getObjectMetadata(aliOssProperties.getBucketName(), objectName);
+            return new StoredObject(metadata.getContentLength(), metadata.getContentType());
+        } catch (OSSException e) {
+            if (OSSErrorCode.NO_SUCH_KEY.equals(e.getErrorCode())) {
+                return null;
+            }
+            throw e;
+        }
+    }
+}
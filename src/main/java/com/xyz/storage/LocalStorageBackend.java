@@ -0,0 +1,210 @@
+package com.xyz.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xyz.exception.UploadException;
+import com.xyz.properties.StorageProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 本地文件系统存储（开发和测试环境使用，不依赖 OSS）
+ * 1. 文件写入 trade.storage.local-dir，通过 WebMvcConfiguration 注册的 /files/** 静态资源路径访问
+ * 2. 直传凭证模拟 OSS PostObject：策略（对象名、内容类型、大小上限、过期时间）Base64 后用 HMAC-SHA256 签名，
+ *    由 LocalUploadController 接收表单并校验签名和策略
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "trade.storage", name = "type", havingValue = "local")
+public class LocalStorageBackend implements StorageBackend {
+
+    @Autowired
+    private StorageProperties storageProperties;
+
+    private Path root;
+
+    private String urlPrefix;
+
+    private byte[] signingKey;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /** 常见图片扩展名对应的内容类型 */
+    private static final Map<String, String> EXTENSION_CONTENT_TYPES = Map.of(
+            "jpg", "image/jpeg",
+            "jpeg", "image/jpeg",
+            "png", "image/png",
+            "gif", "image/gif",
+            "webp", "image/webp");
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(storageProperties.getLocalDir()).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        String prefix = storageProperties.getLocalUrlPrefix();
+        urlPrefix = prefix.endsWith("/") ? prefix : prefix + "/";
+        String secret = storageProperties.getLocalSigningSecret();
+        if (secret == null || secret.isEmpty()) {
+            // 未配置时每次启动随机生成，重启前签发的凭证失效
+            signingKey = new byte[32];
+            new SecureRandom().nextBytes(signingKey);
+        } else {
+            signingKey = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        log.info("使用本地文件存储: dir={}, urlPrefix={}", root, urlPrefix);
+    }
+
+    @Override
+    public String put(String objectName, InputStream inputStream, long size, String contentType) {
+        Path target = resolve(objectName);
+        try {
+            Files.createDirectories(target.getParent());
+            // 先写临时文件再原子改名，读取方不会看到写了一半的文件
+            Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+            try {
+                Files.copy(inputStream, temp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入本地文件失败: " + objectName, e);
+        }
+        return urlPrefix + objectName;
+    }
+
+    @Override
+    public void delete(String objectName) {
+        try {
+            Files.deleteIfExists(resolve(objectName));
+        } catch (IOException e) {
+            throw new UncheckedIOException("删除本地文件失败: " + objectName, e);
+        }
+    }
+
+    @Override
+    public String objectNameOf(String url) {
+        return url != null && url.startsWith(urlPrefix) ? url.substring(urlPrefix.length()) : null;
+    }
+
+    @Override
+    public String urlOf(String objectName) {
+        return urlPrefix + objectName;
+    }
+
+    @Override
+    public UploadPolicy presignUpload(String objectName, String contentType, long maxBytes, long expireAt) {
+        Map<String, Object> conditions = new LinkedHashMap<>();
+        conditions.put("key", objectName);
+        conditions.put("contentType", contentType);
+        conditions.put("maxBytes", maxBytes);
+        conditions.put("expireAt", expireAt);
+        String policy;
+        try {
+            policy = Base64.getEncoder().encodeToString(objectMapper.writeValueAsBytes(conditions));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("key", objectName);
+        fields.put("Content-Type", contentType);
+        fields.put("policy", policy);
+        fields.put("signature", sign(policy));
+        return UploadPolicy.builder().uploadUrl(urlPrefix + "upload").fields(fields).expireAt(expireAt).build();
+    }
+
+    @Override
+    public StoredObject stat(String objectName) {
+        Path path = resolve(objectName);
+        try {
+            return Files.isRegularFile(path) ? new StoredObject(Files.size(path), contentTypeOf(path)) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取本地文件信息失败: " + objectName, e);
+        }
+    }
+
+    /**
+     * 接收直传表单：校验签名和策略后写入文件（对应 OSS 服务端对 PostObject 的校验）
+     */
+    public void acceptUpload(String key, String contentType, String policy, String signature, MultipartFile file) {
+        if (policy == null || signature == null
+                || !MessageDigest.isEqual(sign(policy).getBytes(StandardCharsets.UTF_8), signature.getBytes(StandardCharsets.UTF_8))) {
+            throw new UploadException("上传凭证签名无效");
+        }
+        Map<?, ?> conditions;
+        try {
+            conditions = objectMapper.readValue(Base64.getDecoder().decode(policy), Map.class);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new UploadException("上传凭证无效");
+        }
+        if (System.currentTimeMillis() > ((Number) conditions.get("expireAt")).longValue()) {
+            throw new UploadException("上传凭证已过期");
+        }
+        if (!conditions.get("key").equals(key) || !conditions.get("contentType").equals(contentType)) {
+            throw new UploadException("上传的文件与凭证不符");
+        }
+        if (file == null || file.isEmpty() || file.getSize() > ((Number) conditions.get("maxBytes")).longValue()) {
+            throw new UploadException("文件大小超出凭证限制");
+        }
+        try (InputStream inputStream = file.getInputStream()) {
+            put(key, inputStream, file.getSize(), contentType);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取上传文件失败: " + key, e);
+        }
+    }
+
+    private String sign(String policy) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(signingKey, "HmacSHA256"));
+            return Base64.getEncoder().encodeToString(mac.doFinal(policy.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("签名失败", e);
+        }
+    }
+
+    /**
+     * 文件内容类型：系统无法识别时（部分环境没有 MIME 类型库）按扩展名判断
+     */
+    private static String contentTypeOf(Path path) throws IOException {
+        String contentType = Files.probeContentType(path);
+        if (contentType != null) {
+            return contentType;
+        }
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? null : EXTENSION_CONTENT_TYPES.get(name.substring(dot + 1).toLowerCase());
+    }
+
+    /**
+     * 对象名解析为本地路径，不允许通过 .. 跳出存储目录
+     */
+    private Path resolve(String objectName) {
+        Path path = root.resolve(objectName).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("非法的对象名: " + objectName);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,52 @@
+package com.xyz.storage;
+
+import java.io.InputStream;
+
+/**
+ * 对象存储后端（阿里云 OSS / 本地文件系统）
+ * 由 trade.storage.type 选择实现，实现类需要线程安全，整个应用共享一个实例
+ * 除了经由应用服务器写入，还支持签发直传凭证，由客户端把文件直接上传到存储
+ */
+public interface StorageBackend {
+
+    /**
+     * 写入对象
+     * @param objectName 对象名（如 goods/xxx.jpg）
+     * @param inputStream 内容
+     * @param size 内容长度
+     * @param contentType 内容类型
+     * @return 对象访问URL
+     */
+    String put(String objectName, InputStream inputStream, long size, String contentType);
+
+    /**
+     * 删除对象（对象不存在时不报错）
+     */
+    void delete(String objectName);
+
+    /**
+     * 从访问URL解析对象名
+     * @return 不是本存储的URL时返回 null
+     */
+    String objectNameOf(String url);
+
+    /**
+     * 对象访问URL
+     */
+    String urlOf(String objectName);
+
+    /**
+     * 签发直传凭证，凭证锁定对象名、内容类型和大小上限
+     * @param objectName 对象名
+     * @param contentType 内容类型
+     * @param maxBytes 大小上限（字节）
+     * @param expireAt 过期时间戳（毫秒）
+     */
+    UploadPolicy presignUpload(String objectName, String contentType, long maxBytes, long expireAt);
+
+    /**
+     * 查询对象元信息
+     * @return 对象不存在时返回 null
+     */
+    StoredObject stat(String objectName);
+}
@@ -0,0 +1,18 @@
+package com.xyz.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 已存储对象的元信息
+ */
+@Data
+@AllArgsConstructor
+public class StoredObject {
+
+    /** 对象大小（字节） */
+    private long size;
+
+    /** 内容类型，未知时为 null */
+    private String contentType;
+}
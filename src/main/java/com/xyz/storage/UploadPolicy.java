@@ -0,0 +1,27 @@
+package com.xyz.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 直传凭证：客户端以表单 POST 到 uploadUrl，携带 fields 中的全部字段，文件字段名为 file 且放在最后
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadPolicy {
+
+    /** 表单提交地址 */
+    private String uploadUrl;
+
+    /** 表单字段（对象名、内容类型、策略和签名），客户端原样提交 */
+    private Map<String, String> fields;
+
+    /** 过期时间戳（毫秒） */
+    private Long expireAt;
+}
@@ -1,71 +1,226 @@
 package com.xyz.util;
 
-import com.aliyun.oss.OSS;
-import com.aliyun.oss.OSSClientBuilder;
-import com.aliyun.oss.model.ObjectMetadata;
-import com.xyz.properties.AliOssProperties;
+import com.xyz.properties.StorageProperties;
+import com.xyz.properties.ThumbnailProperties;
+import com.xyz.storage.StorageBackend;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.InputStream;
-import java.util.UUID;
+import java.io.ByteArrayInputStream;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 /**
- * 阿里云 OSS 工具类
+ * 文件上传工具类
+ * 1. 实际存储由 StorageBackend 完成（阿里云 OSS 或本地文件系统），存储客户端全局共享
+ * 2. 多个文件在上传线程池中并行上传，总耗时超过上限或任一文件失败时整体失败，已上传的文件随后删除
+ * 3. 商品图片和聊天图片上传时，在缩略图线程池中生成卡片/详情缩略图（与原图上传同时进行），存放在原图旁边：
+ *    goods/xxx.png -> goods/xxx_card.jpg、goods/xxx_detail.jpg；缩略图生成失败或超时只跳过缩略图
+ * 4. 上传时计算内容 SHA-256，相同内容复用已有文件（见 ImageContentIndex）：文件在写入存储前读入内存并计算摘要，命中时不再写入；
+ *    并发上传相同内容时在登记阶段发现重复，删除刚写入的对象；删除文件时按引用次数决定是否真正删除
+ * 5. 记录每个文件的上传耗时和缩略图生成耗时分布，通过 /admin/monitor/storage 查看
  */
 @Slf4j
 @Component
 public class AliOssUtil {
 
     @Autowired
-    private AliOssProperties aliOssProperties;
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private StorageProperties storageProperties;
+
+    @Autowired
+    private ThumbnailProperties thumbnailProperties;
+
+    @Autowired
+    private ImageContentIndex imageContentIndex;
+
+    @Autowired
+    @Qualifier("uploadExecutor")
+    private Executor uploadExecutor;
+
+    @Autowired
+    @Qualifier("thumbnailExecutor")
+    private Executor thumbnailExecutor;
+
+    private ImageThumbnailer thumbnailer;
+
+    private final LatencyHistogram uploadLatency = new LatencyHistogram();
+    private final LatencyHistogram thumbnailLatency = new LatencyHistogram();
+    private final LongAdder uploadBytes = new LongAdder();
+    private final LongAdder uploadErrors = new LongAdder();
+    private final LongAdder batchTimeouts = new LongAdder();
+    private final LongAdder thumbnailBytes = new LongAdder();
+    private final LongAdder thumbnailSkipped = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        thumbnailer = new ImageThumbnailer(thumbnailProperties.getCardSize(), thumbnailProperties.getDetailSize(),
+                thumbnailProperties.getQuality(), thumbnailProperties.getMaxPixels());
+    }
 
     /**
-     * 上传文件到 OSS
+     * 上传文件
      *
      * @param file   文件
      * @param folder 存储文件夹（如 avatar、goods）
      * @return 文件访问URL
      */
     public String upload(MultipartFile file, String folder) {
-        // 获取配置
-        String endpoint = aliOssProperties.getEndpoint();
-        String accessKeyId = aliOssProperties.getAccessKeyId();
-        String accessKeySecret = aliOssProperties.getAccessKeySecret();
-        String bucketName = aliOssProperties.getBucketName();
+        String objectName = newObjectName(file, folder);
+        long start = System.nanoTime();
+        byte[] content;
+        try {
+            content = file.getBytes();
+        } catch (Exception e) {
+            uploadErrors.increment();
+            log.error("读取上传文件失败", e);
+            throw new RuntimeException("文件上传失败: " + e.getMessage());
+        }
 
-        // 生成唯一文件名
-        String originalFilename = file.getOriginalFilename();
-        String extension = originalFilename != null ? originalFilename.substring(originalFilename.lastIndexOf(".")) : ".jpg";
-        String objectName = folder + "/" + UUID.randomUUID().toString().replace("-", "") + extension;
+        // 相同内容已存在时直接复用，不再写入（例如重复上传同一张头像）
+        MessageDigest digest = ImageContentIndex.newDigest();
+        digest.update(content);
+        String hash = ImageContentIndex.hex(digest);
+        String existing = imageContentIndex.acquire(hash, content.length);
+        if (existing != null) {
+            log.info("文件内容已存在，复用: {}", existing);
+            return existing;
+        }
+
+        String url;
+        try {
+            url = storageBackend.put(objectName, new ByteArrayInputStream(content), content.length, file.getContentType());
+            uploadLatency.record(System.nanoTime() - start);
+            uploadBytes.add(content.length);
+            log.info("文件上传成功: {}", url);
+        } catch (Exception e) {
+            uploadErrors.increment();
+            log.error("文件上传失败", e);
+            throw new RuntimeException("文件上传失败: " + e.getMessage());
+        }
+        String indexed = imageContentIndex.register(hash, objectName, url, content.length);
+        if (!indexed.equals(url)) {
+            deleteObjects(objectName);
+        }
+        return indexed;
+    }
 
-        OSS ossClient = null;
+    /**
+     * 上传图片并生成缩略图
+     * 原图上传的同时在缩略图线程池中解码和缩放，原图上传完成后等待缩略图并上传
+     * @return 原图访问URL
+     */
+    public String uploadImage(MultipartFile file, String folder) {
+        if (!thumbnailProperties.isEnabled()) {
+            return upload(file, folder);
+        }
+        String objectName = newObjectName(file, folder);
+        long start = System.nanoTime();
+        byte[] content;
+        String url;
         try {
-            // 创建 OSS 客户端
-            ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
+            content = file.getBytes();
+        } catch (Exception e) {
+            uploadErrors.increment();
+            log.error("读取上传文件失败", e);
+            throw new RuntimeException("文件上传失败: " + e.getMessage());
+        }
 
-            // 设置文件元信息
-            ObjectMetadata metadata = new ObjectMetadata();
-            metadata.setContentType(file.getContentType());
-            metadata.setContentLength(file.getSize());
+        // 相同内容已存在时直接复用，原图和缩略图都不再生成和写入
+        MessageDigest digest = ImageContentIndex.newDigest();
+        digest.update(content);
+        String hash = ImageContentIndex.hex(digest);
+        String existing = imageContentIndex.acquire(hash, content.length);
+        if (existing != null) {
+            log.info("文件内容已存在，复用: {}", existing);
+            return existing;
+        }
 
-            // 上传文件
-            InputStream inputStream = file.getInputStream();
-            ossClient.putObject(bucketName, objectName, inputStream, metadata);
+        CompletableFuture<Map<String, byte[]>> thumbnails;
+        try {
+            thumbnails = CompletableFuture.supplyAsync(() -> generateThumbnails(content), thumbnailExecutor);
+        } catch (RejectedExecutionException e) {
+            thumbnailSkipped.increment();
+            log.warn("缩略图队列已满，跳过缩略图: {}", objectName);
+            thumbnails = CompletableFuture.completedFuture(Collections.emptyMap());
+        }
 
-            // 返回访问URL
-            String url = "https://" + bucketName + "." + endpoint + "/" + objectName;
+        try {
+            url = storageBackend.put(objectName, new ByteArrayInputStream(content), content.length, file.getContentType());
+            uploadLatency.record(System.nanoTime() - start);
+            uploadBytes.add(content.length);
             log.info("文件上传成功: {}", url);
-            return url;
         } catch (Exception e) {
+            uploadErrors.increment();
             log.error("文件上传失败", e);
             throw new RuntimeException("文件上传失败: " + e.getMessage());
-        } finally {
-            if (ossClient != null) {
-                ossClient.shutdown();
+        }
+
+        // 缩略图只是优化，失败不影响原图上传结果
+        try {
+            Map<String, byte[]> derivatives = thumbnails.get(thumbnailProperties.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            for (Map.Entry<String, byte[]> entry : derivatives.entrySet()) {
+                byte[] data = entry.getValue();
+                storageBackend.put(ImageThumbnailer.derivativeName(objectName, entry.getKey()),
+                        new ByteArrayInputStream(data), data.length, "image/jpeg");
+                thumbnailBytes.add(data.length);
+            }
+        } catch (Exception e) {
+            thumbnailSkipped.increment();
+            log.warn("生成缩略图失败，商品卡片将使用原图: objectName={}, error={}", objectName, e.toString());
+        }
+
+        String indexed = imageContentIndex.register(hash, objectName, url, content.length);
+        if (!indexed.equals(url)) {
+            deleteObjects(objectName);
+        }
+        return indexed;
+    }
+
+    /**
+     * 并行上传多个文件
+     * @return 文件访问URL，与 files 顺序一致
+     */
+    public List<String> uploadAll(List<MultipartFile> files, String folder) {
+        return uploadAll(files, file -> upload(file, folder));
+    }
+
+    private List<String> uploadAll(List<MultipartFile> files, Function<MultipartFile, String> uploader) {
+        if (files.size() == 1) {
+            return Collections.singletonList(uploader.apply(files.get(0)));
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(storageProperties.getBatchTimeoutMillis());
+        List<CompletableFuture<String>> futures = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            futures.add(CompletableFuture.supplyAsync(() -> uploader.apply(file), uploadExecutor));
+        }
+
+        List<String> urls = new ArrayList<>(files.size());
+        try {
+            for (CompletableFuture<String> future : futures) {
+                urls.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
             }
+            return urls;
+        } catch (TimeoutException e) {
+            batchTimeouts.increment();
+            discard(futures);
+            throw new RuntimeException("文件上传超时，请稍后重试");
+        } catch (ExecutionException e) {
+            discard(futures);
+            throw new RuntimeException(e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            discard(futures);
+            throw new RuntimeException("文件上传被中断");
         }
     }
 
@@ -80,46 +235,124 @@ public class AliOssUtil {
      * 上传商品图片
      */
     public String uploadGoodsImage(MultipartFile file) {
-        return upload(file, "goods");
+        return uploadImage(file, "goods");
+    }
+
+    /**
+     * 并行上传多张商品图片
+     */
+    public List<String> uploadGoodsImages(List<MultipartFile> files) {
+        return uploadAll(files, file -> uploadImage(file, "goods"));
     }
 
     /**
      * 上传聊天图片
      */
     public String uploadChatImage(MultipartFile file) {
-        return upload(file, "chat");
+        return uploadImage(file, "chat");
+    }
+
+    /**
+     * 商品卡片封面URL：卡片缩略图存在时使用缩略图，否则（旧图片、直传图片、缩略图生成失败）使用原图
+     * @param imageUrl 原图URL
+     */
+    public String coverUrlOf(String imageUrl) {
+        String objectName = storageBackend.objectNameOf(imageUrl);
+        if (objectName == null || !thumbnailProperties.isEnabled()) {
+            return imageUrl;
+        }
+        try {
+            String cardName = ImageThumbnailer.derivativeName(objectName, ImageThumbnailer.CARD);
+            return storageBackend.stat(cardName) != null ? storageBackend.urlOf(cardName) : imageUrl;
+        } catch (Exception e) {
+            log.warn("查询卡片缩略图失败，使用原图: url={}, error={}", imageUrl, e.getMessage());
+            return imageUrl;
+        }
     }
 
     /**
-     * 删除文件
+     * 删除文件（释放一次引用，没有其他引用时才删除存储对象）
      *
      * @param fileUrl 文件URL
      */
     public void delete(String fileUrl) {
-        String endpoint = aliOssProperties.getEndpoint();
-        String accessKeyId = aliOssProperties.getAccessKeyId();
-        String accessKeySecret = aliOssProperties.getAccessKeySecret();
-        String bucketName = aliOssProperties.getBucketName();
-
-        // 从URL提取objectName
-        String prefix = "https://" + bucketName + "." + endpoint + "/";
-        if (!fileUrl.startsWith(prefix)) {
+        String objectName = storageBackend.objectNameOf(fileUrl);
+        if (objectName == null) {
             log.warn("无效的文件URL: {}", fileUrl);
             return;
         }
-        String objectName = fileUrl.substring(prefix.length());
+        if (!imageContentIndex.release(objectName)) {
+            log.info("文件仍被引用，保留: {}", fileUrl);
+            return;
+        }
+        deleteObjects(objectName);
+        log.info("文件删除成功: {}", fileUrl);
+    }
+
+    /**
+     * 上传统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("backend", storageProperties.getType());
+        map.put("uploadBytes", uploadBytes.sum());
+        map.put("uploadErrors", uploadErrors.sum());
+        map.put("batchTimeouts", batchTimeouts.sum());
+        map.put("uploadLatency", uploadLatency.snapshot());
+        map.put("thumbnailBytes", thumbnailBytes.sum());
+        map.put("thumbnailSkipped", thumbnailSkipped.sum());
+        map.put("thumbnailLatency", thumbnailLatency.snapshot());
+        map.putAll(imageContentIndex.stats());
+        return map;
+    }
+
+    /**
+     * 删除存储对象及其缩略图（不存在时删除不报错）
+     */
+    private void deleteObjects(String objectName) {
+        try {
+            storageBackend.delete(objectName);
+            storageBackend.delete(ImageThumbnailer.derivativeName(objectName, ImageThumbnailer.CARD));
+            storageBackend.delete(ImageThumbnailer.derivativeName(objectName, ImageThumbnailer.DETAIL));
+        } catch (Exception e) {
+            log.error("文件删除失败: objectName={}", objectName, e);
+        }
+    }
+
+    /**
+     * 生成唯一对象名
+     */
+    private String newObjectName(MultipartFile file, String folder) {
+        String originalFilename = file.getOriginalFilename();
+        String extension = (originalFilename != null && originalFilename.contains("."))
+                ? originalFilename.substring(originalFilename.lastIndexOf(".")) : ".jpg";
+        return folder + "/" + UUID.randomUUID().toString().replace("-", "") + extension;
+    }
 
-        OSS ossClient = null;
+    /**
+     * 在缩略图线程池中执行：解码、缩放、压缩
+     */
+    private Map<String, byte[]> generateThumbnails(byte[] content) {
+        long start = System.nanoTime();
         try {
-            ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
-            ossClient.deleteObject(bucketName, objectName);
-            log.info("文件删除成功: {}", fileUrl);
+            Map<String, byte[]> result = thumbnailer.generate(content);
+            thumbnailLatency.record(System.nanoTime() - start);
+            return result;
         } catch (Exception e) {
-            log.error("文件删除失败", e);
-        } finally {
-            if (ossClient != null) {
-                ossClient.shutdown();
-            }
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * 整批失败时，删除已经上传或稍后上传完成的文件，避免留下没有被引用的对象
+     */
+    private void discard(List<CompletableFuture<String>> futures) {
+        for (CompletableFuture<String> future : futures) {
+            future.whenComplete((url, error) -> {
+                if (url != null) {
+                    delete(url);
+                }
+            });
         }
     }
 }
@@ -0,0 +1,93 @@
+package com.xyz.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 批量缓存写入工具
+ * 1. 缓存未命中回源后，多个 key 的 SET EX 通过管道一次发送，一页数据只需一次往返
+ * 2. 每个 key 的过期时间 = 基础TTL + 随机浮动，防止同一批缓存同时过期（缓存雪崩）
+ * 3. 缓存写入失败只记录日志，不影响已经查到的数据返回
+ */
+@Slf4j
+@Component
+public class BulkCacheWriter {
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder keys = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAccumulator maxBatchSize = new LongAccumulator(Long::max, 0);
+    private final LongAccumulator maxFlushNanos = new LongAccumulator(Long::max, 0);
+
+    /**
+     * 管道批量写入缓存
+     * @param entries Map<缓存key, 缓存值>
+     * @param ttl 基础过期时间
+     * @param ttlRandom 过期时间随机浮动范围 [0, ttlRandom)，0 表示不浮动
+     * @param unit 时间单位
+     */
+    public void setAll(Map<String, ?> entries, long ttl, long ttlRandom, TimeUnit unit) {
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    // 回调拿到的就是 redisTemplate 本身，键值类型与它相同
+                    @SuppressWarnings("unchecked")
+                    RedisOperations<String, Object> template = (RedisOperations<String, Object>) operations;
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (Map.Entry<String, ?> entry : entries.entrySet()) {
+                        long keyTtl = ttlRandom > 0 ? ttl + random.nextLong(ttlRandom) : ttl;
+                        template.opsForValue().set(entry.getKey(), entry.getValue(), keyTtl, unit);
+                    }
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            errors.increment();
+            log.error("批量写入缓存失败: size={}, error={}", entries.size(), e.getMessage());
+        } finally {
+            long cost = System.nanoTime() - start;
+            flushes.increment();
+            keys.add(entries.size());
+            flushNanos.add(cost);
+            maxBatchSize.accumulate(entries.size());
+            maxFlushNanos.accumulate(cost);
+        }
+    }
+
+    /**
+     * 批量写入统计（批次大小、刷新耗时）
+     */
+    public Map<String, Object> stats() {
+        long flushCount = flushes.sum();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("flushes", flushCount);
+        map.put("keys", keys.sum());
+        map.put("errors", errors.sum());
+        map.put("avgBatchSize", flushCount == 0 ? 0.0 : (double) keys.sum() / flushCount);
+        map.put("maxBatchSize", maxBatchSize.get());
+        map.put("avgFlushMillis", flushCount == 0 ? 0.0 : flushNanos.sum() / 1_000_000.0 / flushCount);
+        map.put("maxFlushMillis", maxFlushNanos.get() / 1_000_000.0);
+        return map;
+    }
+}
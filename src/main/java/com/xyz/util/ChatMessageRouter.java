@@ -0,0 +1,480 @@
+package com.xyz.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xyz.constant.RedisConstant;
+import com.xyz.properties.ChatRouteProperties;
+import com.xyz.properties.ChatSessionProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.websocket.Session;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 聊天消息路由（多设备、多节点）
+ * 1. 同一用户在本节点可以有多个连接（手机、浏览器等），推送发给该用户在本节点的全部连接；连接数超过上限时关闭最早的连接
+ * 2. 每个连接有独立的有界发送队列，推送只入队，由发送线程池逐个连接串行发送；队列满时按配置丢弃最早的帧或关闭慢连接，
+ *    慢连接只影响自己，不阻塞请求线程和转发线程
+ * 3. 用户在其他节点也有连接时进入转发队列，由转发线程按目标节点凑批，一批合并为一次 PUBLISH 发到 chat:route:{nodeId}，
+ *    目标节点收到后推送给本地连接
+ * 4. 用户不在线、转发队列已满、目标节点没有订阅者（已宕机）时放弃推送，消息已落库，客户端上线或刷新时拉取；
+ *    目标节点已宕机时顺便清除指向它的在线记录
+ * 5. 推送内容在发出节点序列化为最终的 JSON 文本，转发节点只透传
+ * 6. 各环节计数和发送队列深度通过 /admin/monitor/chat-route 查看
+ */
+@Slf4j
+@Component
+public class ChatMessageRouter implements MessageListener {
+
+    /** 连接对象在 WebSocketSession 属性中的 key */
+    private static final String CONNECTION_ATTR = "chatConnection";
+
+    /** Tomcat 阻塞发送超时的会话属性 */
+    private static final String TOMCAT_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    @Autowired
+    private ChatRouteProperties chatRouteProperties;
+
+    @Autowired
+    private ChatSessionProperties chatSessionProperties;
+
+    @Autowired
+    private ChatPresenceRegistry chatPresenceRegistry;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Autowired
+    @Qualifier("chatSendExecutor")
+    private Executor chatSendExecutor;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /** 本节点的连接，按用户分组 */
+    private final Map<Long, List<Connection>> localConnections = new ConcurrentHashMap<>();
+
+    private BlockingQueue<Route> outbound;
+    private Thread forwarder;
+    private volatile boolean running = true;
+
+    private final LongAdder localDelivered = new LongAdder();
+    private final LongAdder offline = new LongAdder();
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder forwardBatches = new LongAdder();
+    private final LongAdder forwardDropped = new LongAdder();
+    private final LongAdder deadNodes = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder misrouted = new LongAdder();
+    private final LongAdder framesSent = new LongAdder();
+    private final LongAdder framesDropped = new LongAdder();
+    private final LongAdder slowConsumersClosed = new LongAdder();
+    private final LongAdder devicesEvicted = new LongAdder();
+    private final LongAdder sendErrors = new LongAdder();
+    private final LatencyHistogram publishLatency = new LatencyHistogram();
+
+    /**
+     * 待转发的推送
+     */
+    private record Route(String node, Long userId, String text) {
+    }
+
+    @PostConstruct
+    public void init() {
+        outbound = new ArrayBlockingQueue<>(chatRouteProperties.getQueueCapacity());
+        forwarder = new Thread(this::forwardLoop, "chat-route-forwarder");
+        forwarder.setDaemon(true);
+        forwarder.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        forwarder.interrupt();
+    }
+
+    /**
+     * 应用启动完成后订阅本节点的投递频道
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribeRoute() {
+        String channel = RedisConstant.CHAT_ROUTE_CHANNEL + chatPresenceRegistry.nodeId();
+        try {
+            redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(channel));
+            log.info("已订阅聊天投递频道: {}", channel);
+        } catch (Exception e) {
+            log.error("订阅聊天投递频道失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 登记本节点上的连接，同一用户的连接数超过上限时关闭最早的连接
+     */
+    public void register(Long userId, WebSocketSession session) {
+        Connection connection = new Connection(session);
+        session.getAttributes().put(CONNECTION_ATTR, connection);
+        applySendTimeout(session);
+
+        List<Connection> evicted = new ArrayList<>();
+        localConnections.compute(userId, (id, group) -> {
+            List<Connection> connections = group != null ? group : new CopyOnWriteArrayList<>();
+            connections.add(connection);
+            while (connections.size() > chatSessionProperties.getMaxDevices()) {
+                evicted.add(connections.remove(0));
+            }
+            return connections;
+        });
+        for (Connection old : evicted) {
+            devicesEvicted.increment();
+            old.close(CloseStatus.POLICY_VIOLATION.withReason("登录设备过多"));
+        }
+    }
+
+    /**
+     * 移除本节点上的连接
+     * @return 用户在本节点已没有连接
+     */
+    public boolean unregister(Long userId, WebSocketSession session) {
+        Object connection = session.getAttributes().get(CONNECTION_ATTR);
+        List<Connection> remaining = localConnections.computeIfPresent(userId, (id, group) -> {
+            group.remove(connection);
+            return group.isEmpty() ? null : group;
+        });
+        return remaining == null;
+    }
+
+    /**
+     * 用户在本节点仍没有连接时执行 action（用于删除本节点的在线记录）
+     * 在用户的连接分组上执行，与 register 互斥：unregister 之后设备又在本节点重连时不执行，
+     * 避免重连写入的在线记录被随后的删除覆盖、其他节点直到下次心跳前都认为用户不在本节点
+     */
+    public void runIfNoConnections(Long userId, Runnable action) {
+        localConnections.compute(userId, (id, group) -> {
+            if (group == null) {
+                action.run();
+            }
+            return group;
+        });
+    }
+
+    /**
+     * 推送给用户的全部设备（不论连接在哪个节点）
+     * @param text 推送的 JSON 文本
+     */
+    public void push(Long userId, String text) {
+        boolean delivered = deliverLocal(userId, text);
+        List<String> nodes;
+        try {
+            nodes = chatPresenceRegistry.nodesOf(userId);
+        } catch (Exception e) {
+            log.error("查询用户所在节点失败: userId={}, error={}", userId, e.getMessage());
+            nodes = Collections.emptyList();
+        }
+        for (String node : nodes) {
+            if (node.equals(chatPresenceRegistry.nodeId())) {
+                continue;
+            }
+            delivered = true;
+            if (!outbound.offer(new Route(node, userId, text))) {
+                forwardDropped.increment();
+                log.warn("聊天转发队列已满，放弃推送: userId={}, node={}", userId, node);
+            }
+        }
+        if (!delivered) {
+            offline.increment();
+        }
+    }
+
+    /**
+     * 发送给指定连接（心跳响应、错误提示等只发给当前设备的消息），与推送共用发送队列
+     */
+    public void send(WebSocketSession session, String text) {
+        Object connection = session.getAttributes().get(CONNECTION_ATTR);
+        if (connection instanceof Connection) {
+            ((Connection) connection).enqueue(text);
+        }
+    }
+
+    /**
+     * 收到其他节点转发的一批推送，消息格式 [[userId, text], ...]
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            List<List<Object>> batch = objectMapper.readValue(
+                    new String(message.getBody(), StandardCharsets.UTF_8), new TypeReference<>() {
+                    });
+            for (List<Object> item : batch) {
+                received.increment();
+                Long userId = ((Number) item.get(0)).longValue();
+                if (!deliverLocal(userId, (String) item.get(1))) {
+                    // 用户的设备刚从本节点断开
+                    misrouted.increment();
+                }
+            }
+        } catch (Exception e) {
+            log.error("处理聊天转发消息失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 路由统计
+     */
+    public Map<String, Object> stats() {
+        int users = 0;
+        int connections = 0;
+        long queuedFrames = 0;
+        int maxQueueDepth = 0;
+        for (List<Connection> group : localConnections.values()) {
+            users++;
+            for (Connection connection : group) {
+                connections++;
+                int depth = connection.depth();
+                queuedFrames += depth;
+                maxQueueDepth = Math.max(maxQueueDepth, depth);
+            }
+        }
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("nodeId", chatPresenceRegistry.nodeId());
+        map.put("localUsers", users);
+        map.put("localConnections", connections);
+        map.put("queuedFrames", queuedFrames);
+        map.put("maxQueueDepth", maxQueueDepth);
+        map.put("overflowPolicy", chatSessionProperties.getOverflowPolicy());
+        map.put("localDelivered", localDelivered.sum());
+        map.put("framesSent", framesSent.sum());
+        map.put("framesDropped", framesDropped.sum());
+        map.put("slowConsumersClosed", slowConsumersClosed.sum());
+        map.put("devicesEvicted", devicesEvicted.sum());
+        map.put("sendErrors", sendErrors.sum());
+        map.put("offline", offline.sum());
+        map.put("forwarded", forwarded.sum());
+        map.put("forwardBatches", forwardBatches.sum());
+        map.put("forwardDropped", forwardDropped.sum());
+        map.put("forwardQueueSize", outbound.size());
+        map.put("deadNodes", deadNodes.sum());
+        map.put("received", received.sum());
+        map.put("misrouted", misrouted.sum());
+        map.put("publishLatency", publishLatency.snapshot());
+        return map;
+    }
+
+    /**
+     * 推送给用户在本节点的全部连接（只入队）
+     * @return 用户在本节点有连接
+     */
+    private boolean deliverLocal(Long userId, String text) {
+        List<Connection> group = localConnections.get(userId);
+        if (group == null || group.isEmpty()) {
+            return false;
+        }
+        for (Connection connection : group) {
+            connection.enqueue(text);
+        }
+        localDelivered.increment();
+        return true;
+    }
+
+    /**
+     * 设置单帧发送超时，发送超时的连接随后按发送失败关闭（非 Tomcat 容器时忽略）
+     */
+    private void applySendTimeout(WebSocketSession session) {
+        try {
+            Session nativeSession = ((NativeWebSocketSession) session).getNativeSession(Session.class);
+            if (nativeSession != null) {
+                nativeSession.getUserProperties().put(TOMCAT_SEND_TIMEOUT, chatSessionProperties.getSendTimeoutMillis());
+            }
+        } catch (Exception e) {
+            log.debug("设置 WebSocket 发送超时失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 转发线程：等到第一条消息后再等待凑批时间，按目标节点分组发送
+     */
+    private void forwardLoop() {
+        List<Route> drained = new ArrayList<>(chatRouteProperties.getBatchSize());
+        while (running) {
+            try {
+                Route first = outbound.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                drained.add(first);
+                if (chatRouteProperties.getLingerMillis() > 0 && outbound.size() < chatRouteProperties.getBatchSize()) {
+                    Thread.sleep(chatRouteProperties.getLingerMillis());
+                }
+                outbound.drainTo(drained, chatRouteProperties.getBatchSize() - 1);
+
+                Map<String, List<Route>> byNode = new LinkedHashMap<>();
+                for (Route route : drained) {
+                    byNode.computeIfAbsent(route.node(), k -> new ArrayList<>()).add(route);
+                }
+                byNode.forEach(this::publish);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("聊天消息转发失败: {}", e.getMessage());
+            } finally {
+                drained.clear();
+            }
+        }
+    }
+
+    private void publish(String node, List<Route> routes) {
+        List<List<Object>> batch = new ArrayList<>(routes.size());
+        for (Route route : routes) {
+            batch.add(List.of(route.userId(), route.text()));
+        }
+        long start = System.nanoTime();
+        try {
+            Long receivers = stringRedisTemplate.convertAndSend(RedisConstant.CHAT_ROUTE_CHANNEL + node,
+                    objectMapper.writeValueAsString(batch));
+            publishLatency.record(System.nanoTime() - start);
+            forwardBatches.increment();
+            if (receivers == null || receivers == 0) {
+                // 目标节点已不在线，清除指向它的在线记录，后续推送不再转发给它
+                deadNodes.increment();
+                for (Route route : routes) {
+                    chatPresenceRegistry.removeNode(route.userId(), node);
+                }
+                log.warn("聊天节点已不在线，放弃转发: node={}, size={}", node, routes.size());
+                return;
+            }
+            forwarded.add(routes.size());
+        } catch (Exception e) {
+            forwardDropped.add(routes.size());
+            log.error("聊天消息转发失败: node={}, size={}, error={}", node, routes.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 一个 WebSocket 连接及其有界发送队列
+     * 同一时刻最多一个发送任务（scheduled 标记），帧按入队顺序发送，WebSocketSession 不会被并发调用
+     */
+    private class Connection {
+
+        private final WebSocketSession session;
+        private final ArrayDeque<String> queue = new ArrayDeque<>();
+        private boolean scheduled;
+        private volatile boolean closed;
+
+        Connection(WebSocketSession session) {
+            this.session = session;
+        }
+
+        void enqueue(String text) {
+            boolean submit = false;
+            boolean overflowClose = false;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (queue.size() >= chatSessionProperties.getOutboundQueueCapacity()) {
+                    if (chatSessionProperties.getOverflowPolicy() == ChatSessionProperties.OverflowPolicy.CLOSE) {
+                        framesDropped.add(queue.size() + 1);
+                        overflowClose = true;
+                    } else {
+                        queue.pollFirst();
+                        framesDropped.increment();
+                    }
+                }
+                if (!overflowClose) {
+                    queue.addLast(text);
+                    submit = !scheduled;
+                    scheduled = true;
+                }
+            }
+            if (overflowClose) {
+                slowConsumersClosed.increment();
+                log.warn("发送队列已满，关闭慢连接: sessionId={}", session.getId());
+                close(CloseStatus.SESSION_NOT_RELIABLE);
+                return;
+            }
+            if (submit) {
+                chatSendExecutor.execute(this::drain);
+            }
+        }
+
+        int depth() {
+            synchronized (this) {
+                return queue.size();
+            }
+        }
+
+        void close(CloseStatus status) {
+            closed = true;
+            synchronized (this) {
+                queue.clear();
+            }
+            try {
+                session.close(status);
+            } catch (Exception e) {
+                log.debug("关闭 WebSocket 连接失败: {}", e.getMessage());
+            }
+        }
+
+        /**
+         * 在发送线程中执行：每轮最多发送 sendBatchSize 帧，仍有剩余时重新提交，让其他连接有机会发送
+         */
+        private void drain() {
+            for (int i = 0; i < chatSessionProperties.getSendBatchSize(); i++) {
+                String text;
+                synchronized (this) {
+                    text = closed ? null : queue.pollFirst();
+                    if (text == null) {
+                        scheduled = false;
+                        break;
+                    }
+                }
+                try {
+                    if (!session.isOpen()) {
+                        close(CloseStatus.NORMAL);
+                        return;
+                    }
+                    session.sendMessage(new TextMessage(text));
+                    framesSent.increment();
+                } catch (Exception e) {
+                    sendErrors.increment();
+                    log.warn("WebSocket 发送失败，关闭连接: sessionId={}, error={}", session.getId(), e.getMessage());
+                    close(CloseStatus.SESSION_NOT_RELIABLE);
+                    return;
+                }
+            }
+            boolean resubmit;
+            synchronized (this) {
+                resubmit = scheduled;
+            }
+            if (resubmit) {
+                chatSendExecutor.execute(this::drain);
+            }
+        }
+    }
+}
@@ -0,0 +1,539 @@
+package com.xyz.util;
+
+import com.xyz.constant.RedisConstant;
+import com.xyz.entity.ChatMessage;
+import com.xyz.entity.ChatSession;
+import com.xyz.mapper.ChatMessageMapper;
+import com.xyz.mapper.ChatSessionMapper;
+import com.xyz.properties.ChatWriteProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.connection.stream.*;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 聊天消息异步落库
+ * 1. 发送时消息（ID 已在本地分配）写入 Redis Stream 即视为发送成功，立即推送给双方；写入失败或未开启时在发送线程中同步落库
+ * 2. 每个节点一个写入线程，以节点标识为消费者从消费组读取一批消息，在一个事务中多行插入 chat_message，
+ *    同一会话的多条消息合并为一次会话更新（最后消息、未读数增量、取消隐藏），提交后确认并删除 Stream 中的消息
+ * 3. 写入失败或节点重启时消息留在消费组的待确认列表中，补偿任务认领超时未确认的消息重新写入；
+ *    整批写入失败时逐条重试，只有写不进去的消息留下，投递次数达到 maxDeliveries 的消息转入死信 Stream，不再阻塞其他消息
+ * 4. 每次写入都先跳过已存在的消息ID，只为真正插入的消息更新会话和未读数：XADD 超时但实际已写入时，
+ *    同步落库和写入线程会各处理一次同一条消息，未读数也只累加一次；两边并发插入导致插入行数不符时回滚重试
+ * 5. 提交后把新消息追加到会话最新消息缓存（ChatRecentMessageBuffer）
+ * 6. 落库延迟最长约为 blockMillis 加一次批量写入耗时：
+ *    标记已读时推进会话上的已读水位，写入前锁定会话行读取水位，ID 不大于水位的消息按已读写入、不计未读数，
+ *    标记已读和写入消息按会话行互斥，已读之后才落库的消息不会让未读数重新出现；
+ *    撤回刚发送、还在 Stream 中的消息时先由 flushPending 立即写入
+ */
+@Slf4j
+@Component
+public class ChatMessageWriter {
+
+    @Autowired
+    private ChatWriteProperties chatWriteProperties;
+
+    @Autowired
+    private ChatPresenceRegistry chatPresenceRegistry;
+
+    @Autowired
+    private ChatSessionCache chatSessionCache;
+
+    @Autowired
+    private ChatRecentMessageBuffer chatRecentMessageBuffer;
+
+    @Autowired
+    private ChatMessageMapper chatMessageMapper;
+
+    @Autowired
+    private ChatSessionMapper chatSessionMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /** 与其他写入方并发插入同一批消息时的最多尝试次数 */
+    private static final int MAX_PERSIST_ATTEMPTS = 3;
+
+    /** flushPending 按消息时间查找 Stream 记录时前后放宽的毫秒数（Stream 记录ID的时间取自 Redis，消息ID的时间取自发送节点） */
+    private static final long PENDING_SCAN_SLACK_MILLIS = 60000;
+
+    private Thread writer;
+    private volatile boolean running = true;
+    private volatile boolean groupReady;
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder appendFailures = new LongAdder();
+    private final LongAdder syncWritten = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder claimed = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder writeErrors = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+
+    /**
+     * 应用启动完成后启动写入线程（同步落库模式不启动）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!chatWriteProperties.isEnabled()) {
+            return;
+        }
+        writer = new Thread(this::writeLoop, "chat-message-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (writer != null) {
+            writer.interrupt();
+        }
+    }
+
+    /**
+     * 保存一条新消息：写入 Stream 成功即返回，失败时同步落库
+     */
+    public void write(ChatMessage message) {
+        if (chatWriteProperties.isEnabled()) {
+            try {
+                stringRedisTemplate.opsForStream().add(StreamRecords.newRecord()
+                        .in(RedisConstant.CHAT_MESSAGE_STREAM_KEY)
+                        .ofMap(toFields(message)));
+                appended.increment();
+                return;
+            } catch (Exception e) {
+                appendFailures.increment();
+                log.error("聊天消息写入 Stream 失败，改为同步落库: messageId={}, error={}", message.getId(), e.getMessage());
+            }
+        }
+        persist(Collections.singletonList(message));
+        syncWritten.increment();
+    }
+
+    /**
+     * 把还在 Stream 中等待落库的一条消息立即写入（撤回刚发送的消息前调用），已落库或不存在时什么也不做
+     * 在独立事务中提交，调用方的事务随后能读到这条消息；Stream 中的记录仍由写入线程确认删除（届时按已存在跳过）
+     * @return 是否在 Stream 中找到并写入了该消息
+     */
+    public boolean flushPending(long messageId) {
+        if (!chatWriteProperties.isEnabled()) {
+            return false;
+        }
+        long sendTime = SnowflakeIdGenerator.timestampOf(messageId);
+        long until = sendTime + PENDING_SCAN_SLACK_MILLIS;
+        RecordId from = RecordId.of(Math.max(0, sendTime - PENDING_SCAN_SLACK_MILLIS), 0);
+        String id = String.valueOf(messageId);
+        int count = chatWriteProperties.getBatchSize();
+        try {
+            while (true) {
+                List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().range(
+                        RedisConstant.CHAT_MESSAGE_STREAM_KEY, Range.rightUnbounded(Range.Bound.inclusive(from.getValue())),
+                        Limit.limit().count(count));
+                if (records == null || records.isEmpty()) {
+                    return false;
+                }
+                for (MapRecord<String, Object, Object> record : records) {
+                    if (record.getId().getTimestamp() > until) {
+                        return false;
+                    }
+                    if (id.equals(record.getValue().get("id"))) {
+                        TransactionTemplate requiresNew = new TransactionTemplate(transactionTemplate.getTransactionManager());
+                        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                        persist(Collections.singletonList(fromFields(record.getValue())), requiresNew);
+                        syncWritten.increment();
+                        return true;
+                    }
+                }
+                if (records.size() < count) {
+                    return false;
+                }
+                // 下一批从本批最后一条之后开始（XRANGE 的起点包含在内，序号加 1）
+                RecordId last = records.get(records.size() - 1).getId();
+                from = RecordId.of(last.getTimestamp(), last.getSequence() + 1);
+            }
+        } catch (Exception e) {
+            log.error("立即写入待落库的聊天消息失败: messageId={}, error={}", messageId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 补偿任务：认领超时未确认的消息（写入失败、节点重启后遗留）重新写入，顺便清理已无待确认消息的过期消费者
+     */
+    @Scheduled(fixedDelay = 10000)
+    public void claimStale() {
+        if (!chatWriteProperties.isEnabled() || !groupReady) {
+            return;
+        }
+        try {
+            Duration minIdle = Duration.ofSeconds(chatWriteProperties.getClaimIdleSeconds());
+            PendingMessages pending = stringRedisTemplate.opsForStream().pending(RedisConstant.CHAT_MESSAGE_STREAM_KEY,
+                    RedisConstant.CHAT_MESSAGE_STREAM_GROUP, Range.unbounded(), chatWriteProperties.getBatchSize());
+            List<PendingMessage> stale = pending.stream()
+                    .filter(p -> p.getElapsedTimeSinceLastDelivery().compareTo(minIdle) >= 0)
+                    .collect(Collectors.toList());
+            if (!stale.isEmpty()) {
+                Set<RecordId> exhausted = stale.stream()
+                        .filter(p -> p.getTotalDeliveryCount() >= chatWriteProperties.getMaxDeliveries())
+                        .map(PendingMessage::getId)
+                        .collect(Collectors.toSet());
+                List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().claim(
+                        RedisConstant.CHAT_MESSAGE_STREAM_KEY, RedisConstant.CHAT_MESSAGE_STREAM_GROUP,
+                        chatPresenceRegistry.nodeId(), minIdle,
+                        stale.stream().map(PendingMessage::getId).toArray(RecordId[]::new));
+                claimed.add(records.size());
+                log.warn("认领未确认的聊天消息重新落库: {}", records.size());
+                List<MapRecord<String, Object, Object>> retry = new ArrayList<>(records.size());
+                for (MapRecord<String, Object, Object> record : records) {
+                    if (exhausted.contains(record.getId())) {
+                        deadLetter(record, "投递次数已达上限");
+                    } else {
+                        retry.add(record);
+                    }
+                }
+                if (!retry.isEmpty()) {
+                    flush(retry);
+                }
+            }
+
+            for (StreamInfo.XInfoConsumer consumer : stringRedisTemplate.opsForStream().consumers(
+                    RedisConstant.CHAT_MESSAGE_STREAM_KEY, RedisConstant.CHAT_MESSAGE_STREAM_GROUP)) {
+                if (consumer.pendingCount() == 0 && consumer.idleTimeMs() > Duration.ofDays(1).toMillis()) {
+                    stringRedisTemplate.opsForStream().deleteConsumer(RedisConstant.CHAT_MESSAGE_STREAM_KEY,
+                            Consumer.from(RedisConstant.CHAT_MESSAGE_STREAM_GROUP, consumer.consumerName()));
+                }
+            }
+        } catch (Exception e) {
+            log.error("认领未确认的聊天消息失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 落库统计（含会话最新消息缓存的命中、回填、追加和失效次数）
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("enabled", chatWriteProperties.isEnabled());
+        map.put("appended", appended.sum());
+        map.put("appendFailures", appendFailures.sum());
+        map.put("syncWritten", syncWritten.sum());
+        map.put("written", written.sum());
+        map.put("batches", batches.sum());
+        map.put("claimed", claimed.sum());
+        map.put("duplicates", duplicates.sum());
+        map.put("writeErrors", writeErrors.sum());
+        map.put("deadLettered", deadLettered.sum());
+        map.put("flushLatency", flushLatency.snapshot());
+        map.putAll(chatRecentMessageBuffer.stats());
+        try {
+            map.put("streamLength", stringRedisTemplate.opsForStream().size(RedisConstant.CHAT_MESSAGE_STREAM_KEY));
+        } catch (Exception e) {
+            map.put("streamLength", null);
+        }
+        return map;
+    }
+
+    private void writeLoop() {
+        Consumer consumer = Consumer.from(RedisConstant.CHAT_MESSAGE_STREAM_GROUP, chatPresenceRegistry.nodeId());
+        StreamReadOptions options = StreamReadOptions.empty()
+                .count(chatWriteProperties.getBatchSize())
+                .block(Duration.ofMillis(chatWriteProperties.getBlockMillis()));
+        StreamOffset<String> offset = StreamOffset.create(RedisConstant.CHAT_MESSAGE_STREAM_KEY, ReadOffset.lastConsumed());
+        while (running) {
+            try {
+                if (!groupReady) {
+                    createGroup();
+                }
+                // read 的 StreamOffset 是泛型可变参数，这里只传一个 offset，没有堆污染
+                @SuppressWarnings("unchecked")
+                List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().read(consumer, options, offset);
+                if (records != null && !records.isEmpty()) {
+                    flush(records);
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.error("读取待落库的聊天消息失败: {}", e.getMessage());
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 创建消费组（Stream 不存在时一并创建），已存在时忽略
+     */
+    private void createGroup() {
+        try {
+            stringRedisTemplate.execute((RedisCallback<String>) connection -> connection.streamCommands().xGroupCreate(
+                    RedisConstant.CHAT_MESSAGE_STREAM_KEY.getBytes(StandardCharsets.UTF_8),
+                    RedisConstant.CHAT_MESSAGE_STREAM_GROUP, ReadOffset.from("0"), true));
+        } catch (Exception e) {
+            Throwable cause = e;
+            while (cause != null && (cause.getMessage() == null || !cause.getMessage().contains("BUSYGROUP"))) {
+                cause = cause.getCause();
+            }
+            if (cause == null) {
+                throw e;
+            }
+        }
+        groupReady = true;
+    }
+
+    /**
+     * 写入一批 Stream 消息，成功后确认并删除；整批失败时逐条重试，仍失败的保留在待确认列表中等待补偿，
+     * 字段无法解析的消息直接转入死信
+     */
+    private void flush(List<MapRecord<String, Object, Object>> records) {
+        long start = System.nanoTime();
+        List<MapRecord<String, Object, Object>> parsed = new ArrayList<>(records.size());
+        List<ChatMessage> messages = new ArrayList<>(records.size());
+        for (MapRecord<String, Object, Object> record : records) {
+            try {
+                messages.add(fromFields(record.getValue()));
+                parsed.add(record);
+            } catch (Exception e) {
+                deadLetter(record, "字段无法解析: " + e.getMessage());
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+        try {
+            persist(messages);
+        } catch (Exception e) {
+            writeErrors.increment();
+            log.error("聊天消息批量落库失败: size={}, error={}", messages.size(), e.getMessage());
+            if (messages.size() > 1) {
+                flushOneByOne(parsed, messages);
+            }
+            return;
+        }
+        acknowledge(parsed.stream().map(MapRecord::getId).toArray(RecordId[]::new));
+        written.add(messages.size());
+        batches.increment();
+        flushLatency.record(System.nanoTime() - start);
+    }
+
+    /**
+     * 整批失败后逐条写入，避免一条写不进去的消息拖住同批的其他消息
+     */
+    private void flushOneByOne(List<MapRecord<String, Object, Object>> records, List<ChatMessage> messages) {
+        int failed = 0;
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                persist(Collections.singletonList(messages.get(i)));
+            } catch (Exception e) {
+                failed++;
+                log.error("聊天消息落库失败，等待补偿: messageId={}, error={}", messages.get(i).getId(), e.getMessage());
+                continue;
+            }
+            acknowledge(records.get(i).getId());
+            written.increment();
+        }
+        if (failed > 0) {
+            writeErrors.add(failed);
+        }
+    }
+
+    /**
+     * 把无法落库的消息连同原因转入死信 Stream 后确认删除，由人工排查；转入失败时留在待确认列表中
+     */
+    private void deadLetter(MapRecord<String, Object, Object> record, String reason) {
+        Map<Object, Object> fields = new HashMap<>(record.getValue());
+        fields.put("recordId", record.getId().getValue());
+        fields.put("reason", reason);
+        try {
+            stringRedisTemplate.opsForStream().add(StreamRecords.newRecord()
+                    .in(RedisConstant.CHAT_MESSAGE_DEAD_LETTER_KEY)
+                    .ofMap(fields));
+            acknowledge(record.getId());
+        } catch (Exception e) {
+            log.error("聊天消息转入死信失败: recordId={}, error={}", record.getId(), e.getMessage());
+            return;
+        }
+        deadLettered.increment();
+        log.error("聊天消息转入死信: recordId={}, messageId={}, reason={}", record.getId(), fields.get("id"), reason);
+    }
+
+    private void acknowledge(RecordId... ids) {
+        stringRedisTemplate.opsForStream().acknowledge(RedisConstant.CHAT_MESSAGE_STREAM_KEY,
+                RedisConstant.CHAT_MESSAGE_STREAM_GROUP, ids);
+        stringRedisTemplate.opsForStream().delete(RedisConstant.CHAT_MESSAGE_STREAM_KEY, ids);
+    }
+
+    /**
+     * 在一个事务中写入消息并合并更新会话，已存在的消息跳过；
+     * 与其他写入方并发插入了同一条消息时（INSERT IGNORE 的插入行数少于待插入数）回滚，重新过滤后再写
+     */
+    private void persist(List<ChatMessage> messages) {
+        persist(messages, transactionTemplate);
+    }
+
+    private void persist(List<ChatMessage> messages, TransactionTemplate transaction) {
+        for (int attempt = 1; ; attempt++) {
+            if (tryPersist(messages, transaction)) {
+                return;
+            }
+            if (attempt >= MAX_PERSIST_ATTEMPTS) {
+                throw new IllegalStateException("聊天消息并发写入冲突，重试次数已用完");
+            }
+            log.warn("聊天消息与其他写入方并发插入，回滚后重试: size={}", messages.size());
+        }
+    }
+
+    /**
+     * @return false 表示插入行数与待插入数不符，事务已回滚
+     */
+    private boolean tryPersist(List<ChatMessage> messages, TransactionTemplate transaction) {
+        Set<Long> receivers = new HashSet<>();
+        Map<String, List<ChatMessage>> inserted = new LinkedHashMap<>();
+        Boolean committed = transaction.execute(status -> {
+            Set<Long> existing = new HashSet<>(chatMessageMapper.listExistingIds(
+                    messages.stream().map(ChatMessage::getId).collect(Collectors.toList())));
+            List<ChatMessage> toInsert = messages.stream()
+                    .filter(m -> !existing.contains(m.getId()))
+                    .collect(Collectors.toList());
+            if (toInsert.isEmpty()) {
+                duplicates.add(messages.size());
+                return true;
+            }
+
+            // 锁定会话行读取已读水位：接收者已读到的消息按已读写入，不计未读数
+            Map<String, ChatSession> watermarks = new HashMap<>();
+            for (ChatSession row : chatSessionMapper.lockReadWatermarks(
+                    toInsert.stream().map(ChatMessage::getSessionId).collect(Collectors.toCollection(TreeSet::new)))) {
+                watermarks.put(row.getSessionId(), row);
+            }
+            for (ChatMessage message : toInsert) {
+                if (message.getId() <= readWatermark(watermarks.get(message.getSessionId()), message.getReceiverId())) {
+                    message.setIsRead(1);
+                }
+            }
+            if (chatMessageMapper.insertBatch(toInsert) != toInsert.size()) {
+                status.setRollbackOnly();
+                return false;
+            }
+            duplicates.add(messages.size() - toInsert.size());
+
+            Map<String, List<ChatMessage>> bySession = toInsert.stream()
+                    .collect(Collectors.groupingBy(ChatMessage::getSessionId, LinkedHashMap::new, Collectors.toList()));
+            bySession.forEach((sessionId, sessionMessages) -> {
+                ChatSession session = chatSessionCache.get(sessionId);
+                ChatMessage last = sessionMessages.stream().max(Comparator.comparing(ChatMessage::getId)).get();
+                int user1Unread = 0;
+                int user2Unread = 0;
+                for (ChatMessage message : sessionMessages) {
+                    if (message.getIsRead() != null && message.getIsRead() == 1) {
+                        continue;
+                    }
+                    receivers.add(message.getReceiverId());
+                    if (session != null && message.getReceiverId().equals(session.getUser1Id())) {
+                        user1Unread++;
+                    } else if (session != null && message.getReceiverId().equals(session.getUser2Id())) {
+                        user2Unread++;
+                    }
+                }
+                chatSessionMapper.applyMessages(sessionId, last.getContent(), last.getSendTime(), user1Unread, user2Unread);
+            });
+            inserted.putAll(bySession);
+            return true;
+        });
+        if (!Boolean.TRUE.equals(committed)) {
+            return false;
+        }
+
+        // 提交后追加到会话最新消息缓存
+        inserted.forEach((sessionId, sessionMessages) -> {
+            sessionMessages.sort(Comparator.comparing(ChatMessage::getId));
+            chatRecentMessageBuffer.append(sessionId, sessionMessages);
+        });
+
+        // 接收者的未读总数已变化
+        if (!receivers.isEmpty()) {
+            try {
+                redisTemplate.delete(receivers.stream().map(id -> RedisConstant.CHAT_UNREAD_TOTAL_KEY + id).collect(Collectors.toList()));
+            } catch (Exception e) {
+                log.warn("清除未读数缓存失败: {}", e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 接收者在会话上的已读水位，会话不存在或没有标记过已读时为 0
+     */
+    private static long readWatermark(ChatSession row, Long receiverId) {
+        if (row == null) {
+            return 0;
+        }
+        Long readId = receiverId.equals(row.getUser1Id()) ? row.getUser1ReadId()
+                : receiverId.equals(row.getUser2Id()) ? row.getUser2ReadId() : null;
+        return readId != null ? readId : 0;
+    }
+
+    private Map<String, String> toFields(ChatMessage message) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("id", String.valueOf(message.getId()));
+        fields.put("sessionId", message.getSessionId());
+        fields.put("senderId", String.valueOf(message.getSenderId()));
+        fields.put("receiverId", String.valueOf(message.getReceiverId()));
+        fields.put("messageType", String.valueOf(message.getMessageType()));
+        fields.put("content", message.getContent());
+        if (message.getGoodsId() != null) {
+            fields.put("goodsId", String.valueOf(message.getGoodsId()));
+        }
+        fields.put("sendTime", String.valueOf(message.getSendTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+        return fields;
+    }
+
+    private ChatMessage fromFields(Map<Object, Object> fields) {
+        Object goodsId = fields.get("goodsId");
+        return ChatMessage.builder()
+                .id(Long.parseLong((String) fields.get("id")))
+                .sessionId((String) fields.get("sessionId"))
+                .senderId(Long.parseLong((String) fields.get("senderId")))
+                .receiverId(Long.parseLong((String) fields.get("receiverId")))
+                .messageType(Integer.parseInt((String) fields.get("messageType")))
+                .content((String) fields.get("content"))
+                .goodsId(goodsId != null ? Long.parseLong((String) goodsId) : null)
+                .isRead(0)
+                .isRecalled(0)
+                .sendTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong((String) fields.get("sendTime"))),
+                        ZoneId.systemDefault()))
+                .build();
+    }
+}
@@ -0,0 +1,106 @@
+package com.xyz.util;
+
+import com.xyz.constant.ChatConstant;
+import com.xyz.constant.RedisConstant;
+import com.xyz.properties.ChatRouteProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 聊天在线状态登记（userId -> 有连接的节点集合，同一用户可在多个节点上有设备在线）
+ * 1. 上线和心跳时在用户的 Hash 中写入本节点和过期时间戳，并续期整个 key
+ * 2. 用户在本节点的最后一个连接断开时只删除本节点的 field，不影响其他节点上的设备
+ * 3. 节点宕机时其 field 在过期时间戳之后不再视为在线；转发时发现目标节点没有订阅者会提前删除
+ */
+@Slf4j
+@Component
+public class ChatPresenceRegistry {
+
+    /** 写入节点过期时间戳并续期 key */
+    private static final DefaultRedisScript<Long> ONLINE = new DefaultRedisScript<>(
+            "redis.call('HSET', KEYS[1], ARGV[1], ARGV[2]) return redis.call('PEXPIRE', KEYS[1], ARGV[3])",
+            Long.class);
+
+    @Autowired
+    private ChatRouteProperties chatRouteProperties;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private String nodeId;
+
+    @PostConstruct
+    public void init() {
+        nodeId = chatRouteProperties.getNodeId();
+        if (nodeId == null || nodeId.isBlank()) {
+            String host;
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (Exception e) {
+                host = "node";
+            }
+            nodeId = host + "-" + UUID.randomUUID().toString().substring(0, 8);
+        }
+        log.info("聊天节点标识: {}", nodeId);
+    }
+
+    /**
+     * 本节点标识
+     */
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 用户在本节点上线（心跳时同样调用，续期并确认归属）
+     */
+    public void online(Long userId) {
+        long ttlMillis = ChatConstant.ONLINE_STATUS_EXPIRE * 1000;
+        stringRedisTemplate.execute(ONLINE, Collections.singletonList(RedisConstant.CHAT_ONLINE_KEY + userId),
+                nodeId, String.valueOf(System.currentTimeMillis() + ttlMillis), String.valueOf(ttlMillis));
+    }
+
+    /**
+     * 用户在本节点已没有连接
+     */
+    public void offline(Long userId) {
+        removeNode(userId, nodeId);
+    }
+
+    /**
+     * 删除用户在指定节点上的在线记录（目标节点已不在线时调用）
+     */
+    public void removeNode(Long userId, String node) {
+        stringRedisTemplate.opsForHash().delete(RedisConstant.CHAT_ONLINE_KEY + userId, node);
+    }
+
+    /**
+     * 用户有连接的节点（未过期），不在线时返回空列表
+     */
+    public List<String> nodesOf(Long userId) {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(RedisConstant.CHAT_ONLINE_KEY + userId);
+        List<String> nodes = new ArrayList<>(entries.size());
+        long now = System.currentTimeMillis();
+        entries.forEach((node, expireAt) -> {
+            if (Long.parseLong((String) expireAt) > now) {
+                nodes.add((String) node);
+            }
+        });
+        return nodes;
+    }
+
+    public boolean isOnline(Long userId) {
+        return !nodesOf(userId).isEmpty();
+    }
+}
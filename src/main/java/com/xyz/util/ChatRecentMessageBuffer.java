@@ -0,0 +1,178 @@
+package com.xyz.util;
+
+import com.xyz.constant.ChatConstant;
+import com.xyz.constant.RedisConstant;
+import com.xyz.entity.ChatMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 会话最新消息缓存（每个会话一个 Redis List，按消息ID从新到旧，最多 RECENT_MESSAGE_SIZE 条）
+ * 1. 打开会话时第一页只需一次 LRANGE；缓存的是消息实体，发送者昵称头像在读取时批量填充，改资料后立即生效
+ * 2. 消息落库提交后追加到已存在的 List 头部并截断；List 不存在时不追加，由下一次读取从 MySQL 回填
+ * 3. 每次追加或失效都递增版本号，回填只在读取 MySQL 前后版本号不变时写入，并发写入的新消息不会被旧数据覆盖
+ * 4. 撤回、标记已读改变了已缓存消息的内容或状态，直接失效整个 List
+ * 5. Redis 不可用时直接查 MySQL
+ */
+@Slf4j
+@Component
+public class ChatRecentMessageBuffer {
+
+    /** 版本号未变且 List 不存在时回填 */
+    private static final DefaultRedisScript<Long> FILL = new DefaultRedisScript<>(
+            "if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] or redis.call('EXISTS', KEYS[1]) == 1 then return 0 end " +
+                    "for i = 3, #ARGV do redis.call('RPUSH', KEYS[1], ARGV[i]) end " +
+                    "redis.call('EXPIRE', KEYS[1], ARGV[2]) return 1",
+            Long.class);
+
+    /** 递增版本号，List 存在时把新消息（按ID从旧到新）推入头部并截断 */
+    private static final DefaultRedisScript<Long> APPEND = new DefaultRedisScript<>(
+            "redis.call('INCR', KEYS[2]) redis.call('EXPIRE', KEYS[2], ARGV[2]) " +
+                    "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+                    "for i = 3, #ARGV do redis.call('LPUSH', KEYS[1], ARGV[i]) end " +
+                    "redis.call('LTRIM', KEYS[1], 0, tonumber(ARGV[1]) - 1) redis.call('EXPIRE', KEYS[1], ARGV[2]) return 1",
+            Long.class);
+
+    /** 递增版本号并删除 List */
+    private static final DefaultRedisScript<Long> INVALIDATE = new DefaultRedisScript<>(
+            "redis.call('INCR', KEYS[2]) redis.call('EXPIRE', KEYS[2], ARGV[1]) return redis.call('DEL', KEYS[1])",
+            Long.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder fills = new LongAdder();
+    private final LongAdder appends = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * 获取会话最新的消息（按ID从新到旧），缓存未命中时由 loader 从 MySQL 读取最新 RECENT_MESSAGE_SIZE 条并回填
+     */
+    public List<ChatMessage> getOrLoad(String sessionId, Supplier<List<ChatMessage>> loader) {
+        String key = RedisConstant.CHAT_RECENT_KEY + sessionId;
+        String gen;
+        try {
+            List<Object> cached = redisTemplate.opsForList().range(key, 0, -1);
+            if (cached != null && !cached.isEmpty()) {
+                hits.increment();
+                return sorted(cached);
+            }
+            gen = stringRedisTemplate.opsForValue().get(RedisConstant.CHAT_RECENT_GEN_KEY + sessionId);
+        } catch (Exception e) {
+            log.error("读取会话最新消息缓存失败: sessionId={}, error={}", sessionId, e.getMessage());
+            return loader.get();
+        }
+        misses.increment();
+
+        List<ChatMessage> messages = loader.get();
+        if (!messages.isEmpty()) {
+            try {
+                List<byte[]> args = new ArrayList<>(messages.size() + 2);
+                args.add((gen != null ? gen : "0").getBytes(StandardCharsets.UTF_8));
+                args.add(ttlSeconds());
+                for (ChatMessage message : messages) {
+                    args.add(serialize(message));
+                }
+                Long filled = redisTemplate.execute(FILL, RedisSerializer.byteArray(), null,
+                        keys(sessionId), args.toArray());
+                if (filled != null && filled == 1) {
+                    fills.increment();
+                }
+            } catch (Exception e) {
+                log.warn("回填会话最新消息缓存失败: sessionId={}, error={}", sessionId, e.getMessage());
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * 新消息已落库：追加到已缓存的 List（messages 为同一会话的消息，按ID从旧到新）
+     */
+    public void append(String sessionId, List<ChatMessage> messages) {
+        List<byte[]> args = new ArrayList<>(messages.size() + 2);
+        args.add(String.valueOf(ChatConstant.RECENT_MESSAGE_SIZE).getBytes(StandardCharsets.UTF_8));
+        args.add(ttlSeconds());
+        for (ChatMessage message : messages) {
+            args.add(serialize(message));
+        }
+        try {
+            redisTemplate.execute(APPEND, RedisSerializer.byteArray(), null, keys(sessionId), args.toArray());
+            appends.increment();
+        } catch (Exception e) {
+            // 追加失败时失效，避免缓存缺少这几条消息
+            log.warn("追加会话最新消息缓存失败: sessionId={}, error={}", sessionId, e.getMessage());
+            doInvalidate(sessionId);
+        }
+    }
+
+    /**
+     * 已缓存的消息被撤回或标记已读（在事务中调用时等到提交后再失效，失效后的回填一定读到提交后的数据）
+     */
+    public void invalidate(String sessionId) {
+        TransactionUtil.afterCommit(() -> doInvalidate(sessionId));
+    }
+
+    private void doInvalidate(String sessionId) {
+        try {
+            redisTemplate.execute(INVALIDATE, RedisSerializer.byteArray(), null, keys(sessionId), ttlSeconds());
+            invalidations.increment();
+        } catch (Exception e) {
+            log.error("失效会话最新消息缓存失败: sessionId={}, error={}", sessionId, e.getMessage());
+        }
+    }
+
+    /**
+     * 缓存统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("recentHits", hits.sum());
+        map.put("recentMisses", misses.sum());
+        map.put("recentFills", fills.sum());
+        map.put("recentAppends", appends.sum());
+        map.put("recentInvalidations", invalidations.sum());
+        return map;
+    }
+
+    /**
+     * 不同节点的写入线程可能乱序追加同一会话的消息，读取时按ID从新到旧排序并去重
+     */
+    private List<ChatMessage> sorted(List<Object> cached) {
+        Map<Long, ChatMessage> byId = new TreeMap<>(Comparator.reverseOrder());
+        for (Object value : cached) {
+            if (value instanceof ChatMessage message) {
+                byId.putIfAbsent(message.getId(), message);
+            }
+        }
+        return new ArrayList<>(byId.values());
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] serialize(ChatMessage message) {
+        return ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(message);
+    }
+
+    private static byte[] ttlSeconds() {
+        return String.valueOf(TimeUnit.HOURS.toSeconds(RedisConstant.CHAT_RECENT_TTL)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> keys(String sessionId) {
+        return Arrays.asList(RedisConstant.CHAT_RECENT_KEY + sessionId, RedisConstant.CHAT_RECENT_GEN_KEY + sessionId);
+    }
+}
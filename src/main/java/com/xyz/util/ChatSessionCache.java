@@ -0,0 +1,44 @@
+package com.xyz.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.xyz.entity.ChatSession;
+import com.xyz.mapper.ChatSessionMapper;
+import com.xyz.properties.ChatWriteProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+
+/**
+ * 会话参与者本地缓存
+ * 会话创建后参与者和关联商品不再变化、会话也不会被物理删除，缓存不需要失效，只按容量和访问时间淘汰；
+ * 发送消息时据此校验权限，不查 MySQL。缓存中的最后消息、未读数等字段不使用
+ */
+@Component
+public class ChatSessionCache {
+
+    @Autowired
+    private ChatSessionMapper chatSessionMapper;
+
+    @Autowired
+    private ChatWriteProperties chatWriteProperties;
+
+    private Cache<String, ChatSession> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(chatWriteProperties.getSessionCacheSize())
+                .expireAfterAccess(Duration.ofMinutes(30))
+                .build();
+    }
+
+    /**
+     * 获取会话参与者，会话不存在时返回 null（不缓存）
+     */
+    public ChatSession get(String sessionId) {
+        return cache.get(sessionId, chatSessionMapper::getBySessionId);
+    }
+}
@@ -4,46 +4,76 @@ import com.xyz.constant.RedisConstant;
 import com.xyz.mapper.GoodsQueryMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 /**
  * 收藏数缓存工具类
+ * 1. 收藏数按商品ID分桶存放：goods:collect:b:{id / 100} 的 field {id % 100}，
+ *    每个桶不超过 100 个 field，Redis 使用 listpack 紧凑编码，省去了每个商品一个 String key 的 key 对象、字典项和过期字典项开销
+ * 2. 过期时间按桶设置，桶内任意商品读取回填或更新时整桶续期，整桶一起过期
+ * 3. 批量读取按桶分组，管道发送 HMGET，一页商品一次往返；增减使用 HINCRBY
+ * 4. field 和 value 按纯字符串读写，HINCRBY 和 Lua 脚本可以直接操作
  */
 @Slf4j
 @Component
 public class CollectNumCacheUtil {
 
+    private static final StringRedisSerializer STRING_SERIALIZER = StringRedisSerializer.UTF_8;
+
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
-    
+
+    @Autowired
+    private IdBloomFilterUtil idBloomFilterUtil;
+
     @Autowired
     private GoodsQueryMapper goodsQueryMapper;
 
+    /**
+     * 商品所在的收藏数桶
+     */
+    public static String bucketKey(Long goodsId) {
+        return RedisConstant.GOODS_COLLECT_BUCKET_KEY + Math.floorDiv(goodsId, RedisConstant.GOODS_COLLECT_BUCKET_SIZE);
+    }
+
+    /**
+     * 商品在桶内的 field
+     */
+    public static String bucketField(Long goodsId) {
+        return String.valueOf(Math.floorMod(goodsId, RedisConstant.GOODS_COLLECT_BUCKET_SIZE));
+    }
+
     /**
      * 获取单个商品的收藏数
      * @param goodsId 商品ID
      * @return 收藏数，获取失败返回null
      */
     public Integer getCollectNum(Long goodsId) {
+        // 布隆过滤器判定一定不存在的商品，直接返回
+        if (!idBloomFilterUtil.mightContainGoods(goodsId)) {
+            return null;
+        }
         try {
-            String collectKey = RedisConstant.GOODS_COLLECT_KEY + goodsId;
-            Object collectNumObj = redisTemplate.opsForValue().get(collectKey);
-            
-            if (collectNumObj != null) {
-                return (Integer) collectNumObj;
-            } else {
-                // 缓存未命中，从数据库查询并缓存
-                Map<Long, Integer> dbResult = goodsQueryMapper.getCollectNumsByIds(Arrays.asList(goodsId));
-                Integer collectNum = dbResult.get(goodsId);
-                if (collectNum != null) {
-                    redisTemplate.opsForValue().set(collectKey, collectNum, 
-                            RedisConstant.GOODS_COLLECT_TTL, TimeUnit.MINUTES);
-                    return collectNum;
-                }
+            byte[] key = STRING_SERIALIZER.serialize(bucketKey(goodsId));
+            byte[] field = STRING_SERIALIZER.serialize(bucketField(goodsId));
+            byte[] value = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.hashCommands().hGet(key, field));
+            if (value != null) {
+                return Integer.parseInt(STRING_SERIALIZER.deserialize(value));
+            }
+
+            // 缓存未命中，从数据库查询并缓存
+            Map<Long, Integer> dbResult = goodsQueryMapper.getCollectNumsByIds(Arrays.asList(goodsId));
+            Integer collectNum = dbResult.get(goodsId);
+            if (collectNum != null) {
+                fillBuckets(dbResult);
+                return collectNum;
             }
         } catch (Exception e) {
             log.error("获取商品收藏数失败: goodsId={}, error={}", goodsId, e.getMessage());
@@ -58,85 +88,131 @@ public class CollectNumCacheUtil {
      */
     public Map<Long, Integer> batchGetCollectNum(List<Long> goodsIds) {
         Map<Long, Integer> result = new HashMap<>();
-        
+
         if (goodsIds == null || goodsIds.isEmpty()) {
             return result;
         }
-        
+
         try {
-            // 1. 构建缓存keys
-            List<String> collectKeys = new ArrayList<>();
-            for (Long goodsId : goodsIds) {
-                collectKeys.add(RedisConstant.GOODS_COLLECT_KEY + goodsId);
-            }
-            
-            // 2. 批量从缓存获取
-            List<Object> collectNums = redisTemplate.opsForValue().multiGet(collectKeys);
-            
-            // 3. 找出缓存未命中的商品ID
+            // 1. 按桶分组，管道批量 HMGET
+            result.putAll(getCachedCollectNums(goodsIds));
+
+            // 2. 找出缓存未命中的商品ID
             List<Long> missIds = new ArrayList<>();
-            
-            for (int i = 0; i < goodsIds.size(); i++) {
-                Long goodsId = goodsIds.get(i);
-                Object collectNum = (collectNums != null && i < collectNums.size()) ? collectNums.get(i) : null;
-                if (collectNum != null) {
-                    result.put(goodsId, (Integer) collectNum);
-                } else {
+            for (Long goodsId : goodsIds) {
+                if (!result.containsKey(goodsId)) {
                     missIds.add(goodsId);
                 }
             }
-            
-            // 4. 缓存未命中的，从数据库查询并存入缓存
+
+            // 3. 缓存未命中的，从数据库查询并回填到各自的桶（管道一次写入）
             if (!missIds.isEmpty()) {
                 Map<Long, Integer> dbCollectNums = goodsQueryMapper.getCollectNumsByIds(missIds);
-                for (Map.Entry<Long, Integer> entry : dbCollectNums.entrySet()) {
-                    Long goodsId = entry.getKey();
-                    Integer collectNum = entry.getValue();
-                    result.put(goodsId, collectNum);
-                    
-                    // 存入缓存
-                    String collectKey = RedisConstant.GOODS_COLLECT_KEY + goodsId;
-                    redisTemplate.opsForValue().set(collectKey, collectNum, 
-                            RedisConstant.GOODS_COLLECT_TTL, TimeUnit.MINUTES);
-                }
+                result.putAll(dbCollectNums);
+                fillBuckets(dbCollectNums);
             }
-            
+
         } catch (Exception e) {
             log.error("批量获取商品收藏数失败: goodsIds={}, error={}", goodsIds, e.getMessage());
         }
-        
+
         return result;
     }
 
     /**
-     * 更新收藏数缓存
+     * 只从缓存批量读取收藏数（不回源数据库，用于把缓存中的收藏数同步到数据库）
+     * @param goodsIds 商品ID列表
+     * @return Map<商品ID, 收藏数>，缓存中没有的商品不在结果中
+     */
+    public Map<Long, Integer> getCachedCollectNums(List<Long> goodsIds) {
+        Map<String, List<Long>> buckets = groupByBucket(goodsIds);
+        List<String> bucketKeys = new ArrayList<>(buckets.keySet());
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String bucketKey : bucketKeys) {
+                List<Long> ids = buckets.get(bucketKey);
+                byte[][] fields = new byte[ids.size()][];
+                for (int i = 0; i < ids.size(); i++) {
+                    fields[i] = STRING_SERIALIZER.serialize(bucketField(ids.get(i)));
+                }
+                connection.hashCommands().hMGet(STRING_SERIALIZER.serialize(bucketKey), fields);
+            }
+            return null;
+        }, STRING_SERIALIZER);
+
+        Map<Long, Integer> result = new HashMap<>();
+        for (int b = 0; b < bucketKeys.size(); b++) {
+            List<Long> ids = buckets.get(bucketKeys.get(b));
+            List<?> values = (List<?>) replies.get(b);
+            for (int i = 0; i < ids.size(); i++) {
+                Object value = values == null ? null : values.get(i);
+                if (value != null) {
+                    result.put(ids.get(i), Integer.parseInt(value.toString()));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 收藏数缓存不存在时，从数据库加载并加上本次变化量
+     * 并发加载时只有一个 HSETNX 生效，其余的直接在已有缓存上增减
      * @param goodsId 商品ID
      * @param delta 变化量
      */
-    public void updateCollectNumCache(Long goodsId, Integer delta) {
+    public void initCollectNumCache(Long goodsId, Integer delta) {
         try {
-            String collectKey = RedisConstant.GOODS_COLLECT_KEY + goodsId;
-            
-            // 尝试增量更新缓存
-            Long newCollectNum = redisTemplate.opsForValue().increment(collectKey, delta);
-            
-            // 如果缓存不存在（increment返回的是delta值），从数据库查询并设置
-            if (newCollectNum.equals(delta.longValue())) {
-                Map<Long, Integer> dbResult = goodsQueryMapper.getCollectNumsByIds(Arrays.asList(goodsId));
-                Integer dbCollectNum = dbResult.get(goodsId);
-                if (dbCollectNum != null) {
-                    redisTemplate.opsForValue().set(collectKey, dbCollectNum, 
-                            RedisConstant.GOODS_COLLECT_TTL, TimeUnit.MINUTES);
-                }
-            } else {
-                // 设置过期时间（increment不会自动设置过期时间）
-                redisTemplate.expire(collectKey, RedisConstant.GOODS_COLLECT_TTL, TimeUnit.MINUTES);
+            Integer dbCollectNum = goodsQueryMapper.getCollectNumsByIds(Arrays.asList(goodsId)).get(goodsId);
+            if (dbCollectNum == null) {
+                return;
             }
+            byte[] key = STRING_SERIALIZER.serialize(bucketKey(goodsId));
+            byte[] field = STRING_SERIALIZER.serialize(bucketField(goodsId));
+            byte[] value = STRING_SERIALIZER.serialize(String.valueOf(Math.max(0, dbCollectNum + delta)));
+            long ttl = TimeUnit.MINUTES.toSeconds(RedisConstant.GOODS_COLLECT_TTL);
+            redisTemplate.execute((RedisCallback<Object>) connection -> {
+                if (!Boolean.TRUE.equals(connection.hashCommands().hSetNX(key, field, value))) {
+                    connection.hashCommands().hIncrBy(key, field, delta);
+                }
+                connection.keyCommands().expire(key, ttl);
+                return null;
+            });
         } catch (Exception e) {
-            log.error("更新收藏数缓存失败: goodsId={}, delta={}, error={}", goodsId, delta, e.getMessage());
-            // 删除缓存，下次查询时重新从数据库获取
-            String collectKey = RedisConstant.GOODS_COLLECT_KEY + goodsId;
-            redisTemplate.delete(collectKey);
+            log.error("初始化收藏数缓存失败: goodsId={}, delta={}, error={}", goodsId, delta, e.getMessage());
+        }
+    }
+
+    /**
+     * 把数据库中查到的收藏数回填到各自的桶（HSETNX 不覆盖并发写入的新值，每个桶续期一次，管道一次发送）
+     */
+    private void fillBuckets(Map<Long, Integer> collectNums) {
+        if (collectNums.isEmpty()) {
+            return;
+        }
+        try {
+            Map<String, List<Long>> buckets = groupByBucket(new ArrayList<>(collectNums.keySet()));
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Map.Entry<String, List<Long>> bucket : buckets.entrySet()) {
+                    byte[] key = STRING_SERIALIZER.serialize(bucket.getKey());
+                    for (Long goodsId : bucket.getValue()) {
+                        connection.hashCommands().hSetNX(key, STRING_SERIALIZER.serialize(bucketField(goodsId)),
+                                STRING_SERIALIZER.serialize(String.valueOf(collectNums.get(goodsId))));
+                    }
+                    long ttl = RedisConstant.GOODS_COLLECT_TTL + random.nextLong(RedisConstant.GOODS_COLLECT_TTL_RANDOM);
+                    connection.keyCommands().expire(key, TimeUnit.MINUTES.toSeconds(ttl));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("回填收藏数缓存失败: size={}, error={}", collectNums.size(), e.getMessage());
+        }
+    }
+
+    private static Map<String, List<Long>> groupByBucket(List<Long> goodsIds) {
+        Map<String, List<Long>> buckets = new LinkedHashMap<>();
+        for (Long goodsId : goodsIds) {
+            buckets.computeIfAbsent(bucketKey(goodsId), k -> new ArrayList<>()).add(goodsId);
         }
+        return buckets;
     }
-}
\ No newline at end of file
+}
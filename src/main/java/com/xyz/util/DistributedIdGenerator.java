@@ -0,0 +1,208 @@
+package com.xyz.util;
+
+import com.xyz.constant.MessageConstant;
+import com.xyz.constant.RedisConstant;
+import com.xyz.exception.IdLeaseExpiredException;
+import com.xyz.properties.IdGeneratorProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分布式ID生成器（聊天消息、会话主键）
+ * 1. 每个节点从 Redis 租用一个未被占用的工作节点号（0~1023），每 20 秒续期；也可通过配置固定节点号
+ * 2. 续期时记录已分配的最大时间戳，节点号被下一任持有者租用时从该时间戳之后开始，节点重启后时钟回拨也不会生成重复ID
+ * 3. 租约丢失（长时间无法续期后被其他节点租用）时立即换租新的节点号，时间戳不回退
+ * 4. 只在租约有效期内分配ID：有效期按本地最后一次续期成功的时间计算，续期持续失败超过租约时长后拒绝分配，
+ *    节点号此时可能已被其他节点租用，继续分配会产生重复ID（消息按ID幂等落库，重复ID的消息会被当作重复而丢弃）
+ * 5. 启动时租不到节点号（Redis 不可用或节点号耗尽）时不使用未租用的节点号，在续期任务中重试租用，租到之前拒绝分配；
+ *    需要脱离 Redis 运行时配置固定节点号
+ */
+@Slf4j
+@Component
+public class DistributedIdGenerator {
+
+    /** 租用节点号，成功时返回该节点号记录的最大时间戳（没有时为 0），已被占用时返回 nil */
+    private static final DefaultRedisScript<String> ACQUIRE = new DefaultRedisScript<>(
+            "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'EX', ARGV[2]) then " +
+                    "return redis.call('GET', KEYS[2]) or '0' end return false",
+            String.class);
+
+    /** 续期并记录最大时间戳，租约已不属于自己时返回 0 */
+    private static final DefaultRedisScript<Long> RENEW = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+                    "redis.call('EXPIRE', KEYS[1], ARGV[2]) redis.call('SET', KEYS[2], ARGV[3], 'EX', ARGV[4]) return 1 end " +
+                    "return 0",
+            Long.class);
+
+    /** 交还节点号（仅删除自己持有的租约） */
+    private static final DefaultRedisScript<Long> RELEASE = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+                    "redis.call('SET', KEYS[2], ARGV[2], 'EX', ARGV[3]) return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+
+    @Autowired
+    private IdGeneratorProperties idGeneratorProperties;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final String owner = UUID.randomUUID().toString();
+
+    private volatile SnowflakeIdGenerator generator;
+    private volatile boolean leased;
+    private long leaseLosses;
+
+    /** 租约在本地视角下的到期时间（毫秒），按发出续期请求的时间计算，早于 Redis 中的实际过期时间 */
+    private volatile long leaseExpiresAt;
+
+    /** 租约过期被拒绝的分配次数 */
+    private final LongAdder rejected = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        int configured = idGeneratorProperties.getWorkerId();
+        if (configured > SnowflakeIdGenerator.MAX_WORKER) {
+            // 截断会与其他节点的节点号重复并分配重复ID，启动失败
+            throw new IllegalStateException("trade.id-generator.worker-id 超出范围 0~"
+                    + SnowflakeIdGenerator.MAX_WORKER + ": " + configured);
+        }
+        if (configured >= 0) {
+            generator = new SnowflakeIdGenerator(configured, 0,
+                    idGeneratorProperties.getMaxBackwardMillis());
+            leaseExpiresAt = Long.MAX_VALUE;
+            log.info("ID生成器使用配置的工作节点号: {}", generator.workerId());
+            return;
+        }
+        if (!lease(0)) {
+            log.error("ID生成器未能租用工作节点号，租到之前拒绝分配ID（可配置 trade.id-generator.worker-id 固定节点号）");
+        }
+    }
+
+    /**
+     * 分配ID，租约已过期（长时间续期失败或已丢失）时抛出 IdLeaseExpiredException
+     */
+    public long nextId() {
+        if (System.currentTimeMillis() >= leaseExpiresAt) {
+            rejected.increment();
+            throw new IdLeaseExpiredException(MessageConstant.ID_LEASE_EXPIRED);
+        }
+        return generator.nextId();
+    }
+
+    /**
+     * 续期节点号租约；租约丢失或此前未租到时重新租用
+     */
+    @Scheduled(fixedDelay = 20000)
+    public void renew() {
+        if (idGeneratorProperties.getWorkerId() >= 0) {
+            return;
+        }
+        SnowflakeIdGenerator current = generator;
+        if (!leased) {
+            lease(current != null ? current.lastTimestamp() : 0);
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            Long renewed = stringRedisTemplate.execute(RENEW, keys(current.workerId()), owner,
+                    String.valueOf(idGeneratorProperties.getLeaseSeconds()), String.valueOf(current.lastTimestamp()),
+                    String.valueOf(TimeUnit.DAYS.toSeconds(RedisConstant.ID_WORKER_LAST_TTL)));
+            if (renewed == null || renewed == 0) {
+                leaseLosses++;
+                leased = false;
+                leaseExpiresAt = 0;
+                log.warn("ID生成器工作节点号 {} 的租约已丢失，重新租用", current.workerId());
+                lease(current.lastTimestamp());
+            } else {
+                leaseExpiresAt = start + TimeUnit.SECONDS.toMillis(idGeneratorProperties.getLeaseSeconds());
+            }
+        } catch (Exception e) {
+            // 不延长本地有效期，超过租约时长仍未续期成功时 nextId 拒绝分配
+            log.error("ID生成器续期工作节点号失败: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!leased) {
+            return;
+        }
+        SnowflakeIdGenerator current = generator;
+        try {
+            stringRedisTemplate.execute(RELEASE, keys(current.workerId()), owner, String.valueOf(current.lastTimestamp()),
+                    String.valueOf(TimeUnit.DAYS.toSeconds(RedisConstant.ID_WORKER_LAST_TTL)));
+        } catch (Exception e) {
+            log.warn("ID生成器交还工作节点号失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * ID生成统计
+     */
+    public Map<String, Object> stats() {
+        SnowflakeIdGenerator current = generator;
+        Map<String, Object> map = new LinkedHashMap<>();
+        if (current == null) {
+            map.put("leased", false);
+            map.put("rejected", rejected.sum());
+            return map;
+        }
+        map.put("workerId", current.workerId());
+        map.put("leased", leased);
+        map.put("leaseLosses", leaseLosses);
+        map.put("leaseRemainingMillis", leaseExpiresAt == Long.MAX_VALUE ? -1
+                : Math.max(0, leaseExpiresAt - System.currentTimeMillis()));
+        map.put("rejected", rejected.sum());
+        map.put("clockWaits", current.clockWaits());
+        map.put("logicalAdvances", current.logicalAdvances());
+        map.put("lastTimestamp", current.lastTimestamp());
+        return map;
+    }
+
+    /**
+     * 从随机位置开始依次尝试租用空闲的节点号，成功后替换生成器（时间戳不早于 lastTimestamp）
+     */
+    private boolean lease(long lastTimestamp) {
+        int total = (int) SnowflakeIdGenerator.MAX_WORKER + 1;
+        int start = ThreadLocalRandom.current().nextInt(total);
+        try {
+            for (int i = 0; i < total; i++) {
+                int workerId = (start + i) % total;
+                long requestedAt = System.currentTimeMillis();
+                String previous = stringRedisTemplate.execute(ACQUIRE, keys(workerId), owner,
+                        String.valueOf(idGeneratorProperties.getLeaseSeconds()));
+                if (previous != null) {
+                    generator = new SnowflakeIdGenerator(workerId, Math.max(lastTimestamp, Long.parseLong(previous)),
+                            idGeneratorProperties.getMaxBackwardMillis());
+                    leased = true;
+                    leaseExpiresAt = requestedAt + TimeUnit.SECONDS.toMillis(idGeneratorProperties.getLeaseSeconds());
+                    log.info("ID生成器租用工作节点号: {}", workerId);
+                    return true;
+                }
+            }
+            log.error("ID生成器没有空闲的工作节点号");
+        } catch (Exception e) {
+            log.error("ID生成器租用工作节点号失败: {}", e.getMessage());
+        }
+        return false;
+    }
+
+    private static List<String> keys(long workerId) {
+        return Arrays.asList(RedisConstant.ID_WORKER_LEASE_KEY + workerId, RedisConstant.ID_WORKER_LAST_KEY + workerId);
+    }
+}
@@ -0,0 +1,232 @@
+package com.xyz.util;
+
+import com.xyz.constant.RedisConstant;
+import com.xyz.mapper.GoodsMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户收藏状态（Redis 为权威数据，MySQL 由 FavoriteSyncService 异步落库）
+ * 1. 每个用户一个 Hash：field 为商品ID，value 为收藏时间戳；field 0 是加载标记，用户没有收藏时 Hash 也存在
+ * 2. Hash 不存在时从 goods_favorite 整体加载一次，之后所有读写都只访问 Redis，不设置过期时间
+ * 3. 收藏/取消收藏在一个 Lua 脚本中完成：修改 Hash、增减收藏数缓存、标记待落库，一次往返
+ * 4. Redis 不可用时读操作返回 null，由调用方回退到 MySQL；写操作直接失败，避免 MySQL 与 Redis 的状态分叉
+ */
+@Slf4j
+@Component
+public class FavoriteStateUtil {
+
+    /** Hash 的 field/value 和脚本参数按纯字符串传输 */
+    private static final StringRedisSerializer STRING_SERIALIZER = StringRedisSerializer.UTF_8;
+    private static final GenericToStringSerializer<Long> LONG_SERIALIZER = new GenericToStringSerializer<>(Long.class);
+
+    /**
+     * toggle 脚本返回 {delta, 收藏时间, 收藏数缓存是否存在}，全是整数，Spring 不会调用结果序列化器；
+     * execute 的返回类型取自结果序列化器的泛型，这里只是把它声明为 List 类型
+     */
+    @SuppressWarnings("unchecked")
+    private static final RedisSerializer<List<Object>> TOGGLE_RESULT_SERIALIZER =
+            (RedisSerializer<List<Object>>) (RedisSerializer<?>) STRING_SERIALIZER;
+
+    private static final DefaultRedisScript<List<Object>> TOGGLE_SCRIPT = new DefaultRedisScript<>();
+    private static final DefaultRedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        TOGGLE_SCRIPT.setLocation(new ClassPathResource("lua/favorite_toggle.lua"));
+        @SuppressWarnings("unchecked")
+        Class<List<Object>> listType = (Class<List<Object>>) (Class<?>) List.class;
+        TOGGLE_SCRIPT.setResultType(listType);
+        LOAD_SCRIPT.setLocation(new ClassPathResource("lua/favorite_load.lua"));
+        LOAD_SCRIPT.setResultType(Long.class);
+    }
+
+    /** 加载标记 field */
+    private static final String LOADED_FIELD = "0";
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private GoodsMapper goodsMapper;
+
+    /**
+     * 切换收藏状态
+     * @return 切换结果，Redis 不可用时返回 null
+     */
+    public ToggleResult toggle(Long userId, Long goodsId) {
+        String key = buildStateKey(userId);
+        List<String> keys = Arrays.asList(key, CollectNumCacheUtil.bucketKey(goodsId),
+                RedisConstant.FAVORITE_SYNC_PENDING_KEY);
+        try {
+            for (int attempt = 0; attempt < 2; attempt++) {
+                List<Object> result = redisTemplate.execute(TOGGLE_SCRIPT, STRING_SERIALIZER,
+                        TOGGLE_RESULT_SERIALIZER, keys,
+                        String.valueOf(goodsId), String.valueOf(System.currentTimeMillis()), String.valueOf(userId),
+                        String.valueOf(TimeUnit.MINUTES.toSeconds(RedisConstant.GOODS_COLLECT_TTL)),
+                        CollectNumCacheUtil.bucketField(goodsId));
+                int delta = result == null ? 0 : ((Number) result.get(0)).intValue();
+                if (delta != 0) {
+                    return new ToggleResult(delta > 0, ((Number) result.get(1)).longValue(),
+                            ((Number) result.get(2)).intValue() == 1);
+                }
+                // 状态未加载，加载后重试
+                load(userId);
+            }
+            log.error("切换收藏状态失败，收藏状态未能加载: userId={}", userId);
+        } catch (Exception e) {
+            log.error("切换收藏状态失败: userId={}, goodsId={}, error={}", userId, goodsId, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * 是否已收藏
+     * @return Redis 不可用时返回 null
+     */
+    public Boolean isFavorite(Long userId, Long goodsId) {
+        Set<Long> favorited = getFavoritedIds(userId, Collections.singletonList(goodsId));
+        return favorited == null ? null : favorited.contains(goodsId);
+    }
+
+    /**
+     * 批量判断是否已收藏（一页商品一次 HMGET）
+     * @return 已收藏的商品ID，Redis 不可用时返回 null
+     */
+    public Set<Long> getFavoritedIds(Long userId, List<Long> goodsIds) {
+        Set<Long> favorited = new HashSet<>();
+        if (goodsIds == null || goodsIds.isEmpty()) {
+            return favorited;
+        }
+        try {
+            for (int attempt = 0; attempt < 2; attempt++) {
+                List<byte[]> values = readFields(userId, goodsIds);
+                if (values != null) {
+                    for (int i = 0; i < goodsIds.size(); i++) {
+                        if (values.get(i + 1) != null) {
+                            favorited.add(goodsIds.get(i));
+                        }
+                    }
+                    return favorited;
+                }
+                load(userId);
+            }
+        } catch (Exception e) {
+            log.error("查询收藏状态失败: userId={}, error={}", userId, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * 读取一个用户部分商品的收藏时间（用于落库）
+     * @return Map<商品ID, 收藏时间戳>，未收藏的不在结果中；收藏状态未加载时返回 null
+     */
+    public Map<Long, Long> getFavoriteTimes(Long userId, List<Long> goodsIds) {
+        List<byte[]> values = readFields(userId, goodsIds);
+        if (values == null) {
+            return null;
+        }
+        Map<Long, Long> times = new HashMap<>();
+        for (int i = 0; i < goodsIds.size(); i++) {
+            byte[] value = values.get(i + 1);
+            if (value != null) {
+                times.put(goodsIds.get(i), Long.parseLong(STRING_SERIALIZER.deserialize(value)));
+            }
+        }
+        return times;
+    }
+
+    /**
+     * 读取用户的全部收藏时间（状态未加载时先从 MySQL 加载）
+     * goods_favorite 由后台异步落库，会落后于 Redis，收藏列表的 ZSet 重建和窗口之外的翻页都以这里为准
+     * @return Map<商品ID, 收藏时间戳>，Redis 不可用时返回 null
+     */
+    public Map<Long, Long> getAllFavoriteTimes(Long userId) {
+        byte[] key = STRING_SERIALIZER.serialize(buildStateKey(userId));
+        try {
+            for (int attempt = 0; attempt < 2; attempt++) {
+                Map<byte[], byte[]> entries = redisTemplate.execute(
+                        (RedisCallback<Map<byte[], byte[]>>) connection -> connection.hashCommands().hGetAll(key));
+                if (entries != null && !entries.isEmpty()) {
+                    Map<Long, Long> times = new HashMap<>();
+                    for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+                        String field = STRING_SERIALIZER.deserialize(entry.getKey());
+                        if (!LOADED_FIELD.equals(field)) {
+                            times.put(Long.parseLong(field), Long.parseLong(STRING_SERIALIZER.deserialize(entry.getValue())));
+                        }
+                    }
+                    return times;
+                }
+                load(userId);
+            }
+            log.error("读取全部收藏失败，收藏状态未能加载: userId={}", userId);
+        } catch (Exception e) {
+            log.error("读取全部收藏失败: userId={}, error={}", userId, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * HMGET 加载标记和各商品的收藏时间
+     * @return 第0个为加载标记，之后与 goodsIds 一一对应；收藏状态未加载时返回 null
+     */
+    private List<byte[]> readFields(Long userId, List<Long> goodsIds) {
+        byte[] key = STRING_SERIALIZER.serialize(buildStateKey(userId));
+        byte[][] fields = new byte[goodsIds.size() + 1][];
+        fields[0] = STRING_SERIALIZER.serialize(LOADED_FIELD);
+        for (int i = 0; i < goodsIds.size(); i++) {
+            fields[i + 1] = STRING_SERIALIZER.serialize(String.valueOf(goodsIds.get(i)));
+        }
+        List<byte[]> values = redisTemplate.execute(
+                (RedisCallback<List<byte[]>>) connection -> connection.hashCommands().hMGet(key, fields));
+        return (values == null || values.get(0) == null) ? null : values;
+    }
+
+    /**
+     * 从 MySQL 加载用户的全部收藏（Hash 已存在时脚本不做任何修改）
+     */
+    private void load(Long userId) {
+        List<Map<String, Object>> rows = goodsMapper.getFavoriteTimesByUserId(userId);
+        List<String> args = new ArrayList<>(rows.size() * 2);
+        for (Map<String, Object> row : rows) {
+            args.add(String.valueOf(((Number) row.get("goodsId")).longValue()));
+            args.add(String.valueOf(((Number) row.get("createTime")).longValue()));
+        }
+        redisTemplate.execute(LOAD_SCRIPT, STRING_SERIALIZER, LONG_SERIALIZER,
+                Collections.singletonList(buildStateKey(userId)), args.toArray());
+        log.debug("加载用户收藏状态: userId={}, size={}", userId, rows.size());
+    }
+
+    private String buildStateKey(Long userId) {
+        return RedisConstant.FAVORITE_USER_IDS_KEY + userId + RedisConstant.FAVORITE_USER_STATE_SUFFIX;
+    }
+
+    /**
+     * 收藏状态切换结果
+     */
+    @Data
+    @AllArgsConstructor
+    public static class ToggleResult {
+
+        /** 切换后是否为已收藏 */
+        private boolean favorited;
+
+        /** 收藏时间戳（取消收藏时为原收藏时间） */
+        private long favoriteTime;
+
+        /** 收藏数缓存是否已在脚本中更新（缓存不存在时为 false，需要调用方从 MySQL 加载） */
+        private boolean collectNumCached;
+    }
+}
@@ -0,0 +1,210 @@
+package com.xyz.util;
+
+import com.xyz.mapper.GoodsMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 由商品变更通知增量维护的进程内商品索引（搜索索引、筛选索引）的公共生命周期
+ * 1. 启动完成后异步按ID顺序分块读取 MySQL 构建，构建完成前 isReady() 返回 false，调用方回退到 MySQL
+ * 2. 之后由 GoodsChangeNotifier 通知各节点重新加载变化的商品：读到则替换为最新数据，读不到（或不再属于该索引）则删除
+ * 3. 构建和增量更新并发时，构建期间被增量更新过的商品在构建时跳过，避免用较早读到的数据覆盖
+ * 4. 索引数据由 lock 保护，子类实现持有写锁时的增删和压缩
+ * @param <T> 一个商品在索引中的条目
+ */
+@Slf4j
+public abstract class GoodsChangeIndex<T> {
+
+    @Autowired
+    protected GoodsMapper goodsMapper;
+
+    @Autowired
+    private GoodsChangeNotifier goodsChangeNotifier;
+
+    protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    private volatile boolean building;
+
+    /** 构建期间被增量更新过的商品，构建时跳过 */
+    private final Set<Long> touchedDuringBuild = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+    private final LongAccumulator maxQueryNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder updates = new LongAdder();
+    protected final LongAdder compactions = new LongAdder();
+
+    // ==================== 子类实现 ====================
+
+    protected abstract boolean isEnabled();
+
+    /** 日志中的索引名称 */
+    protected abstract String indexName();
+
+    protected abstract int buildChunkSize();
+
+    /** 构建时按ID顺序读取 ID 大于 lastId 的一块 */
+    protected abstract List<Map<String, Object>> loadChunk(long lastId, int limit);
+
+    /** 解析构建时读到的一行 */
+    protected abstract T parse(Map<String, Object> row);
+
+    /** 重新读取单个商品，不存在或不属于该索引时返回 null */
+    protected abstract T load(long goodsId);
+
+    protected abstract long goodsIdOf(T entry);
+
+    protected abstract void putLocked(T entry);
+
+    protected abstract void removeLocked(long goodsId);
+
+    /** 增量更新后检查是否需要压缩 */
+    protected abstract void maybeCompactLocked();
+
+    /** 所有分块读取完成、标记可用之前调用 */
+    protected void finishBuildLocked() {
+    }
+
+    // ==================== 生命周期 ====================
+
+    /**
+     * 注册商品变更监听：商品变化后从 MySQL 重新加载并更新索引
+     */
+    @PostConstruct
+    public void init() {
+        if (isEnabled()) {
+            goodsChangeNotifier.addListener(this::reload);
+        }
+    }
+
+    /**
+     * 启动完成后异步构建
+     */
+    @Async("asyncTaskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!isEnabled()) {
+            return;
+        }
+        building = true;
+        try {
+            long start = System.currentTimeMillis();
+            int chunkSize = Math.max(1, buildChunkSize());
+            long lastId = 0;
+            long total = 0;
+            while (true) {
+                List<Map<String, Object>> rows = loadChunk(lastId, chunkSize);
+                if (rows == null || rows.isEmpty()) {
+                    break;
+                }
+                List<T> chunk = new ArrayList<>(rows.size());
+                for (Map<String, Object> row : rows) {
+                    T entry = parse(row);
+                    lastId = goodsIdOf(entry);
+                    chunk.add(entry);
+                }
+                lock.writeLock().lock();
+                try {
+                    for (T entry : chunk) {
+                        if (!touchedDuringBuild.contains(goodsIdOf(entry))) {
+                            putLocked(entry);
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                total += rows.size();
+                if (rows.size() < chunkSize) {
+                    break;
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                finishBuildLocked();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            ready = true;
+            log.info("{}构建完成: rows={}, cost={}ms", indexName(), total, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("{}构建失败，查询回退到MySQL: {}", indexName(), e.getMessage());
+        } finally {
+            building = false;
+            touchedDuringBuild.clear();
+        }
+    }
+
+    /**
+     * 索引是否可用（已启用且构建完成）
+     */
+    public boolean isReady() {
+        return isEnabled() && ready;
+    }
+
+    protected boolean isBuilding() {
+        return building;
+    }
+
+    /**
+     * 商品发生变化（由 GoodsChangeNotifier 在事务提交后回调，包括其他节点的广播）
+     */
+    private void reload(long goodsId) {
+        if (building) {
+            touchedDuringBuild.add(goodsId);
+        }
+        try {
+            T entry = load(goodsId);
+            lock.writeLock().lock();
+            try {
+                if (entry != null) {
+                    putLocked(entry);
+                } else {
+                    removeLocked(goodsId);
+                }
+                maybeCompactLocked();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            updates.increment();
+        } catch (Exception e) {
+            log.error("更新{}失败: goodsId={}, error={}", indexName(), goodsId, e.getMessage());
+        }
+    }
+
+    // ==================== 统计 ====================
+
+    protected void recordQuery(long nanos) {
+        queries.increment();
+        queryNanos.add(nanos);
+        maxQueryNanos.accumulate(nanos);
+    }
+
+    /**
+     * 查询耗时和增量更新统计
+     * @param countKey 查询次数的统计项名（searches / queries）
+     * @param unit 耗时统计项名中的查询名称（Search / Query）
+     */
+    protected void putCommonStats(Map<String, Object> map, String countKey, String unit) {
+        long count = queries.sum();
+        map.put(countKey, count);
+        map.put("avg" + unit + "Micros", count == 0 ? 0.0 : queryNanos.sum() / 1000.0 / count);
+        map.put("max" + unit + "Micros", maxQueryNanos.get() / 1000.0);
+        map.put("updates", updates.sum());
+        map.put("compactions", compactions.sum());
+    }
+}
@@ -0,0 +1,185 @@
+package com.xyz.util;
+
+import com.xyz.constant.RedisConstant;
+import com.xyz.mapper.GoodsMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
+
+/**
+ * 商品变更通知（驱动各个进程内商品索引的增量更新）
+ * 1. 商品的状态、描述、价格、分类等发生变化时调用 notifyChanged，事务提交后通知本节点注册的监听器
+ * 2. 同时通过 Pub/Sub 广播给其他节点；消息带上发送节点标识，本节点发出的消息收到后忽略，避免重复加载
+ * 3. 监听器只拿到商品ID，自行从 MySQL 读取最新数据；广播失败只记录日志，本节点的变更仍然生效
+ * 4. Pub/Sub 不保证送达，每个节点定期按 update_time 扫描上次同步位置之后变化的商品，重新通知本节点的监听器，
+ *    漏掉的广播最多延迟一个扫描周期生效
+ */
+@Slf4j
+@Component
+public class GoodsChangeNotifier implements MessageListener {
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Autowired
+    private GoodsMapper goodsMapper;
+
+    /** 补偿扫描每批读取的商品数 */
+    private static final int CATCH_UP_BATCH_SIZE = 500;
+
+    /**
+     * 补偿扫描回看的时间（毫秒）：update_time 是语句执行时间，晚提交的事务写入的更新时间可能早于已扫描过的位置
+     */
+    private static final long CATCH_UP_OVERLAP_MILLIS = 60000;
+
+    /** 本节点标识，用于识别自己发出的广播 */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final List<LongConsumer> listeners = new CopyOnWriteArrayList<>();
+
+    // ========== 补偿扫描状态 ==========
+
+    /** 已同步到的最大更新时间，null 表示尚未订阅 */
+    private volatile Long watermark;
+
+    /** 回看窗口内已补偿过的商品及其更新时间，同一版本不重复通知（只在调度线程中访问） */
+    private final Map<Long, Long> caughtUp = new HashMap<>();
+
+    /**
+     * 应用启动完成后订阅商品变更广播频道
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribeChanges() {
+        try {
+            redisMessageListenerContainer.addMessageListener(this,
+                    new ChannelTopic(RedisConstant.GOODS_CHANGED_CHANNEL));
+            log.info("已订阅商品变更频道: {}", RedisConstant.GOODS_CHANGED_CHANNEL);
+        } catch (Exception e) {
+            log.error("订阅商品变更频道失败: {}", e.getMessage());
+        }
+        // 从订阅时刻开始补偿，之前的数据由各索引启动构建时读取；用本地时间，不在启动线程上查询数据库，时钟偏差由回看时间覆盖
+        watermark = System.currentTimeMillis();
+    }
+
+    /**
+     * 注册监听器（参数为商品ID）
+     */
+    public void addListener(LongConsumer listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 商品发生变化：在事务提交后通知本节点并广播给其他节点（不在事务中则立即执行）
+     */
+    public void notifyChanged(Long goodsId) {
+        if (goodsId == null) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> notifyNow(goodsId));
+    }
+
+    /**
+     * 收到商品变更广播，消息格式 {节点标识}:{商品ID}
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (!(body instanceof String)) {
+                return;
+            }
+            String text = (String) body;
+            int sep = text.lastIndexOf(':');
+            if (sep <= 0 || text.substring(0, sep).equals(nodeId)) {
+                return;
+            }
+            dispatch(Long.parseLong(text.substring(sep + 1)));
+        } catch (Exception e) {
+            log.error("处理商品变更广播失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定期补偿：重新通知 (水位 - 回看时间) 之后更新过的商品，补上丢失的广播
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void catchUp() {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        if (watermark == null) {
+            return;
+        }
+        long since = watermark - CATCH_UP_OVERLAP_MILLIS;
+        long sinceId = 0;
+        long max = watermark;
+        int notified = 0;
+        try {
+            while (true) {
+                List<Map<String, Object>> rows = goodsMapper.getChangedGoodsAfter(since, sinceId, CATCH_UP_BATCH_SIZE);
+                if (rows == null || rows.isEmpty()) {
+                    break;
+                }
+                for (Map<String, Object> row : rows) {
+                    sinceId = ((Number) row.get("id")).longValue();
+                    since = ((Number) row.get("updateTime")).longValue();
+                    max = Math.max(max, since);
+                    Long previous = caughtUp.put(sinceId, since);
+                    if (previous == null || previous != since) {
+                        dispatch(sinceId);
+                        notified++;
+                    }
+                }
+                if (rows.size() < CATCH_UP_BATCH_SIZE) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("商品变更补偿扫描失败: {}", e.getMessage());
+        }
+        // 水位只推进到已扫描的位置，失败时下次从中断处之前重新扫描
+        watermark = max;
+        long oldest = max - CATCH_UP_OVERLAP_MILLIS;
+        caughtUp.values().removeIf(updateTime -> updateTime < oldest);
+        if (notified > 0) {
+            log.info("商品变更补偿扫描: notified={}, watermark={}", notified, max);
+        }
+    }
+
+    private void notifyNow(Long goodsId) {
+        dispatch(goodsId);
+        try {
+            redisTemplate.convertAndSend(RedisConstant.GOODS_CHANGED_CHANNEL, nodeId + ":" + goodsId);
+        } catch (Exception e) {
+            log.error("广播商品变更失败: goodsId={}, error={}", goodsId, e.getMessage());
+        }
+    }
+
+    private void dispatch(long goodsId) {
+        for (LongConsumer listener : listeners) {
+            try {
+                listener.accept(goodsId);
+            } catch (Exception e) {
+                log.error("商品变更监听器执行失败: goodsId={}, error={}", goodsId, e.getMessage());
+            }
+        }
+    }
+}
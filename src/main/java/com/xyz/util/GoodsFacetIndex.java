@@ -0,0 +1,579 @@
+package com.xyz.util;
+
+import com.xyz.dto.GoodsQueryDTO;
+import com.xyz.properties.FacetProperties;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntToLongFunction;
+
+/**
+ * 商品筛选条件进程内列式索引（管理员多条件查询不再逐行扫描 goods 表）
+ * 1. 每个商品占一行，行号单调递增分配，各字段按列存放在基本类型数组中
+ * 2. 状态/分类/类型每个取值一个位图（BitSet）；发布用户取值太多，每个用户只存行号列表，查询时再转成位图
+ * 3. 售价、租金（分）和发布时间按值排序存放，范围条件二分查找后转成位图；更新时间按 (更新时间, 商品ID) 排序，用于排序和复合游标定位
+ * 4. 查询：各条件的位图求交集，再沿 (更新时间, 商品ID) 倒序遍历，取出前 size 条在交集中的行，结果和 SQL 的 ORDER BY update_time DESC, id DESC 一致
+ * 5. 更新 = 旧行打删除标记 + 追加新行；新行先放在未排序的尾部，尾部超过阈值时归并进有序数组；删除行过多时整体压缩
+ * 6. 索引所有状态的商品，构建和增量更新见 GoodsChangeIndex；构建期间新行只追加，构建完成后一次性排序
+ * 7. 关键词条件（LIKE 模糊匹配）以及构建完成前由调用方回退到 MySQL
+ */
+@Slf4j
+@Component
+public class GoodsFacetIndex extends GoodsChangeIndex<GoodsFacetIndex.Row> {
+
+    /** 价格为 NULL 时的取值，任何价格范围都不包含 */
+    private static final long NO_PRICE = Long.MIN_VALUE;
+
+    @Autowired
+    private FacetProperties facetProperties;
+
+    // ========== 以下字段由 lock 保护 ==========
+
+    private long[] goodsIds = new long[1024];
+    private int[] statuses = new int[1024];
+    private long[] categoryIds = new long[1024];
+    private long[] ownerIds = new long[1024];
+    private int[] goodsTypes = new int[1024];
+    private long[] sellPrices = new long[1024];
+    private long[] rentPrices = new long[1024];
+    private long[] createTimes = new long[1024];
+    private long[] updateTimes = new long[1024];
+
+    private int rowCount;
+
+    /** 存活的行（每个商品只有最新的一行存活） */
+    private final BitSet live = new BitSet();
+
+    private final Map<Long, Integer> rowByGoodsId = new HashMap<>();
+
+    private final Map<Integer, BitSet> statusBits = new HashMap<>();
+    private final Map<Long, BitSet> categoryBits = new HashMap<>();
+    private final Map<Integer, BitSet> typeBits = new HashMap<>();
+    private final Map<Long, IntList> ownerRows = new HashMap<>();
+
+    private final SortedColumn sellColumn = new SortedColumn(row -> sellPrices[row]);
+    private final SortedColumn rentColumn = new SortedColumn(row -> rentPrices[row]);
+    private final SortedColumn createColumn = new SortedColumn(row -> createTimes[row]);
+    private final SortedColumn updateColumn = new SortedColumn(row -> updateTimes[row]);
+
+    private final LongAdder merges = new LongAdder();
+
+    // ==================== 构建和增量更新 ====================
+
+    @Override
+    protected boolean isEnabled() {
+        return facetProperties.isEnabled();
+    }
+
+    @Override
+    protected String indexName() {
+        return "商品筛选索引";
+    }
+
+    @Override
+    protected int buildChunkSize() {
+        return facetProperties.getBuildChunkSize();
+    }
+
+    @Override
+    protected List<Map<String, Object>> loadChunk(long lastId, int limit) {
+        return goodsMapper.getFacetRowsAfter(lastId, limit);
+    }
+
+    /**
+     * 商品存在则替换为最新的一行，不存在则删除
+     */
+    @Override
+    protected Row load(long goodsId) {
+        Map<String, Object> row = goodsMapper.getFacetRowById(goodsId);
+        return row != null ? parse(row) : null;
+    }
+
+    @Override
+    protected long goodsIdOf(Row row) {
+        return row.goodsId;
+    }
+
+    /**
+     * 构建期间只追加，全部读完后一次性排序
+     */
+    @Override
+    protected void finishBuildLocked() {
+        mergeAllLocked();
+    }
+
+    // ==================== 查询 ====================
+
+    /**
+     * 按条件查询商品ID，按 (更新时间, 商品ID) 倒序（不处理 keyword）
+     * @param query 查询条件，cursor/cursorId/size 由调用方填好默认值
+     * @return 一页结果
+     */
+    public FacetPage query(GoodsQueryDTO query) {
+        long start = System.nanoTime();
+        FacetPage page = new FacetPage();
+        int size = query.getSize();
+        long cursor = query.getCursor();
+        long cursorId = query.getCursorId() != null ? query.getCursorId() : 0;
+        lock.readLock().lock();
+        try {
+            BitSet candidates = filterLocked(query);
+            int[] rows = candidates.isEmpty() ? new int[0] : updateColumn.topBefore(candidates, cursor, cursorId, size + 1);
+            page.setHasMore(rows.length > size);
+            int count = Math.min(rows.length, size);
+            for (int i = 0; i < count; i++) {
+                page.getIds().add(goodsIds[rows[i]]);
+            }
+            if (count > 0) {
+                int last = rows[count - 1];
+                page.setNextCursor(updateTimes[last]);
+                page.setNextCursorId(goodsIds[last]);
+            }
+        } finally {
+            lock.readLock().unlock();
+            recordQuery(System.nanoTime() - start);
+        }
+        return page;
+    }
+
+    /**
+     * 索引统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            int liveRows = live.cardinality();
+            map.put("ready", isReady());
+            map.put("rows", liveRows);
+            map.put("deletedRows", rowCount - liveRows);
+            map.put("unsortedRows", updateColumn.tail.size);
+            map.put("categories", categoryBits.size());
+            map.put("owners", ownerRows.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        putCommonStats(map, "queries", "Query");
+        map.put("merges", merges.sum());
+        return map;
+    }
+
+    // ==================== 查询辅助（调用方持有读锁） ====================
+
+    /**
+     * 各条件位图求交集，价格条件与 SQL 一致：出售看售价，租赁看租金，出售或租赁任一满足即可
+     */
+    private BitSet filterLocked(GoodsQueryDTO query) {
+        BitSet result = (BitSet) live.clone();
+        if (query.getStatus() != null) {
+            result.and(statusBits.getOrDefault(query.getStatus(), new BitSet()));
+        }
+        if (query.getCategoryId() != null) {
+            result.and(categoryBits.getOrDefault(query.getCategoryId(), new BitSet()));
+        }
+        if (query.getGoodsType() != null) {
+            result.and(typeBits.getOrDefault(query.getGoodsType(), new BitSet()));
+        }
+        if (query.getOwnerId() != null && !result.isEmpty()) {
+            BitSet owned = new BitSet();
+            IntList list = ownerRows.get(query.getOwnerId());
+            if (list != null) {
+                for (int i = 0; i < list.size; i++) {
+                    owned.set(list.values[i]);
+                }
+            }
+            result.and(owned);
+        }
+        if (query.getMinPrice() != null && !result.isEmpty()) {
+            result.and(priceBits(toCents(query.getMinPrice(), RoundingMode.CEILING), Long.MAX_VALUE));
+        }
+        if (query.getMaxPrice() != null && !result.isEmpty()) {
+            result.and(priceBits(NO_PRICE + 1, toCents(query.getMaxPrice(), RoundingMode.FLOOR)));
+        }
+        if ((query.getStartTime() != null || query.getEndTime() != null) && !result.isEmpty()) {
+            long from = query.getStartTime() != null ? query.getStartTime() : Long.MIN_VALUE;
+            long to = query.getEndTime() != null ? query.getEndTime() : Long.MAX_VALUE;
+            result.and(createColumn.rangeBits(from, to));
+        }
+        return result;
+    }
+
+    private BitSet priceBits(long from, long to) {
+        BitSet sell = sellColumn.rangeBits(from, to);
+        BitSet rent = rentColumn.rangeBits(from, to);
+        BitSet result = new BitSet();
+        BitSet sellOnly = typeBits.get(1);
+        if (sellOnly != null) {
+            result.or(sellOnly);
+            result.and(sell);
+        }
+        BitSet rentOnly = typeBits.get(2);
+        if (rentOnly != null) {
+            BitSet matched = (BitSet) rentOnly.clone();
+            matched.and(rent);
+            result.or(matched);
+        }
+        BitSet both = typeBits.get(3);
+        if (both != null) {
+            BitSet matched = (BitSet) sell.clone();
+            matched.or(rent);
+            matched.and(both);
+            result.or(matched);
+        }
+        return result;
+    }
+
+    // ==================== 索引维护（调用方持有写锁） ====================
+
+    @Override
+    protected void putLocked(Row row) {
+        removeLocked(row.goodsId);
+        ensureCapacity(rowCount + 1);
+        int r = rowCount++;
+        goodsIds[r] = row.goodsId;
+        statuses[r] = row.status;
+        categoryIds[r] = row.categoryId;
+        ownerIds[r] = row.ownerId;
+        goodsTypes[r] = row.goodsType;
+        sellPrices[r] = row.sellPrice;
+        rentPrices[r] = row.rentPrice;
+        createTimes[r] = row.createTime;
+        updateTimes[r] = row.updateTime;
+
+        live.set(r);
+        rowByGoodsId.put(row.goodsId, r);
+        statusBits.computeIfAbsent(row.status, k -> new BitSet()).set(r);
+        categoryBits.computeIfAbsent(row.categoryId, k -> new BitSet()).set(r);
+        typeBits.computeIfAbsent(row.goodsType, k -> new BitSet()).set(r);
+        ownerRows.computeIfAbsent(row.ownerId, k -> new IntList()).add(r);
+
+        sellColumn.add(r);
+        rentColumn.add(r);
+        createColumn.add(r);
+        updateColumn.add(r);
+    }
+
+    /**
+     * 删除只清除存活标记和取值位图，有序数组中的行在下次归并时清理，用户行号列表在压缩时清理
+     */
+    @Override
+    protected void removeLocked(long goodsId) {
+        Integer r = rowByGoodsId.remove(goodsId);
+        if (r == null) {
+            return;
+        }
+        live.clear(r);
+        statusBits.get(statuses[r]).clear(r);
+        categoryBits.get(categoryIds[r]).clear(r);
+        typeBits.get(goodsTypes[r]).clear(r);
+    }
+
+    private void mergeAllLocked() {
+        sellColumn.merge();
+        rentColumn.merge();
+        createColumn.merge();
+        updateColumn.merge();
+    }
+
+    /**
+     * 已删除行过多时按存活行重新编号，回收空间
+     */
+    @Override
+    protected void maybeCompactLocked() {
+        int liveRows = rowByGoodsId.size();
+        int deleted = rowCount - liveRows;
+        if (deleted < facetProperties.getCompactThreshold() || deleted <= liveRows) {
+            return;
+        }
+        List<Row> rows = new ArrayList<>(liveRows);
+        for (int r = live.nextSetBit(0); r >= 0; r = live.nextSetBit(r + 1)) {
+            rows.add(rowAt(r));
+        }
+        rowCount = 0;
+        live.clear();
+        rowByGoodsId.clear();
+        statusBits.clear();
+        categoryBits.clear();
+        typeBits.clear();
+        ownerRows.clear();
+        sellColumn.clear();
+        rentColumn.clear();
+        createColumn.clear();
+        updateColumn.clear();
+        for (Row row : rows) {
+            putLocked(row);
+        }
+        mergeAllLocked();
+        compactions.increment();
+        log.info("商品筛选索引压缩完成: rows={}, removed={}", liveRows, deleted);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= goodsIds.length) {
+            return;
+        }
+        int length = Math.max(capacity, goodsIds.length * 2);
+        goodsIds = Arrays.copyOf(goodsIds, length);
+        statuses = Arrays.copyOf(statuses, length);
+        categoryIds = Arrays.copyOf(categoryIds, length);
+        ownerIds = Arrays.copyOf(ownerIds, length);
+        goodsTypes = Arrays.copyOf(goodsTypes, length);
+        sellPrices = Arrays.copyOf(sellPrices, length);
+        rentPrices = Arrays.copyOf(rentPrices, length);
+        createTimes = Arrays.copyOf(createTimes, length);
+        updateTimes = Arrays.copyOf(updateTimes, length);
+    }
+
+    private Row rowAt(int r) {
+        Row row = new Row();
+        row.goodsId = goodsIds[r];
+        row.status = statuses[r];
+        row.categoryId = categoryIds[r];
+        row.ownerId = ownerIds[r];
+        row.goodsType = goodsTypes[r];
+        row.sellPrice = sellPrices[r];
+        row.rentPrice = rentPrices[r];
+        row.createTime = createTimes[r];
+        row.updateTime = updateTimes[r];
+        return row;
+    }
+
+    // ==================== 数据转换 ====================
+
+    @Override
+    protected Row parse(Map<String, Object> map) {
+        Row row = new Row();
+        row.goodsId = ((Number) map.get("id")).longValue();
+        row.status = intValue(map.get("status"));
+        row.categoryId = longValue(map.get("categoryId"));
+        row.ownerId = longValue(map.get("ownerId"));
+        row.goodsType = intValue(map.get("goodsType"));
+        row.sellPrice = priceValue(map.get("sellPrice"));
+        row.rentPrice = priceValue(map.get("rentPrice"));
+        row.createTime = longValue(map.get("createTime"));
+        row.updateTime = longValue(map.get("updateTime"));
+        return row;
+    }
+
+    private static int intValue(Object value) {
+        return value != null ? ((Number) value).intValue() : 0;
+    }
+
+    private static long longValue(Object value) {
+        return value != null ? ((Number) value).longValue() : 0;
+    }
+
+    /**
+     * 价格转换为分，NULL 为 NO_PRICE
+     */
+    private static long priceValue(Object value) {
+        if (value == null) {
+            return NO_PRICE;
+        }
+        BigDecimal price = value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+        return price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    private static long toCents(double price, RoundingMode mode) {
+        return BigDecimal.valueOf(price).movePointRight(2).setScale(0, mode).longValue();
+    }
+
+    // ==================== 数据结构 ====================
+
+    /**
+     * 按 (值, 商品ID) 排序的列：有序的行号数组 + 未排序的尾部
+     */
+    private class SortedColumn {
+        private final IntToLongFunction key;
+        private int[] sorted = new int[0];
+        private int sortedSize;
+        private final IntList tail = new IntList();
+
+        SortedColumn(IntToLongFunction key) {
+            this.key = key;
+        }
+
+        void add(int row) {
+            tail.add(row);
+            // 构建期间只追加，构建完成后一次性排序
+            if (!isBuilding() && tail.size >= facetProperties.getMergeThreshold()) {
+                merge();
+            }
+        }
+
+        void clear() {
+            sorted = new int[0];
+            sortedSize = 0;
+            tail.size = 0;
+        }
+
+        /**
+         * 尾部排序后与有序数组归并，同时丢弃已删除的行
+         */
+        void merge() {
+            if (tail.size == 0) {
+                return;
+            }
+            Integer[] pending = new Integer[tail.size];
+            for (int i = 0; i < tail.size; i++) {
+                pending[i] = tail.values[i];
+            }
+            Arrays.sort(pending, (a, b) -> compareRows(a, b));
+            int[] merged = new int[sortedSize + pending.length];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < sortedSize || j < pending.length) {
+                int row;
+                if (j >= pending.length || (i < sortedSize && compareRows(sorted[i], pending[j]) <= 0)) {
+                    row = sorted[i++];
+                } else {
+                    row = pending[j++];
+                }
+                if (live.get(row)) {
+                    merged[n++] = row;
+                }
+            }
+            sorted = merged;
+            sortedSize = n;
+            tail.size = 0;
+            merges.increment();
+        }
+
+        /**
+         * 值在 [from, to] 范围内的行
+         */
+        BitSet rangeBits(long from, long to) {
+            BitSet bits = new BitSet();
+            if (from > to) {
+                return bits;
+            }
+            int begin = lowerBound(from, Long.MIN_VALUE);
+            for (int i = begin; i < sortedSize; i++) {
+                int row = sorted[i];
+                if (key.applyAsLong(row) > to) {
+                    break;
+                }
+                bits.set(row);
+            }
+            for (int i = 0; i < tail.size; i++) {
+                long value = key.applyAsLong(tail.values[i]);
+                if (value >= from && value <= to) {
+                    bits.set(tail.values[i]);
+                }
+            }
+            return bits;
+        }
+
+        /**
+         * 在候选行中按 (值, 商品ID) 倒序取小于游标的前 limit 行
+         */
+        int[] topBefore(BitSet candidates, long cursor, long cursorId, int limit) {
+            // 尾部中符合条件的行单独排序，再和有序数组的倒序遍历归并
+            List<Integer> pending = new ArrayList<>();
+            for (int i = 0; i < tail.size; i++) {
+                int row = tail.values[i];
+                if (candidates.get(row) && before(row, cursor, cursorId)) {
+                    pending.add(row);
+                }
+            }
+            pending.sort((a, b) -> compareRows(b, a));
+
+            int[] result = new int[limit];
+            int n = 0;
+            int i = lowerBound(cursor, cursorId) - 1;
+            int j = 0;
+            while (n < limit) {
+                while (i >= 0 && !candidates.get(sorted[i])) {
+                    i--;
+                }
+                if (i < 0 && j >= pending.size()) {
+                    break;
+                }
+                if (j >= pending.size() || (i >= 0 && compareRows(sorted[i], pending.get(j)) > 0)) {
+                    result[n++] = sorted[i--];
+                } else {
+                    result[n++] = pending.get(j++);
+                }
+            }
+            return Arrays.copyOf(result, n);
+        }
+
+        /**
+         * 有序数组中第一个 (值, 商品ID) >= (value, goodsId) 的位置
+         */
+        private int lowerBound(long value, long goodsId) {
+            int low = 0;
+            int high = sortedSize;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int row = sorted[mid];
+                long v = key.applyAsLong(row);
+                if (v < value || (v == value && goodsIds[row] < goodsId)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private boolean before(int row, long value, long goodsId) {
+            long v = key.applyAsLong(row);
+            return v < value || (v == value && goodsIds[row] < goodsId);
+        }
+
+        private int compareRows(int a, int b) {
+            int c = Long.compare(key.applyAsLong(a), key.applyAsLong(b));
+            return c != 0 ? c : Long.compare(goodsIds[a], goodsIds[b]);
+        }
+    }
+
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    static class Row {
+        private long goodsId;
+        private int status;
+        private long categoryId;
+        private long ownerId;
+        private int goodsType;
+        private long sellPrice;
+        private long rentPrice;
+        private long createTime;
+        private long updateTime;
+    }
+
+    /**
+     * 一页查询结果
+     */
+    @Data
+    public static class FacetPage {
+
+        /** 本页商品ID（按更新时间倒序） */
+        private List<Long> ids = new ArrayList<>();
+
+        /** 下一页游标：本页最后一条的更新时间戳（毫秒） */
+        private Long nextCursor;
+
+        /** 下一页游标ID：本页最后一条的商品ID */
+        private Long nextCursorId;
+
+        private boolean hasMore;
+    }
+}
@@ -0,0 +1,271 @@
+package com.xyz.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.xyz.constant.RedisConstant;
+import com.xyz.properties.LocalCacheProperties;
+import com.xyz.vo.GoodsCardVO;
+import com.xyz.vo.GoodsDetailVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 商品进程内一级缓存（L1），位于 Redis（L2）之前
+ * 1. 只缓存 goods:card: 和 goods:detail: 两类数据，按估算字节数限制容量
+ * 2. L1 的 TTL 比 Redis 短，Redis 未命中时才回源 MySQL
+ * 3. 商品变更时通过 Redis Pub/Sub 广播商品ID，所有节点（包括自己）收到后清除本地缓存
+ */
+@Slf4j
+@Component
+public class GoodsLocalCache implements MessageListener {
+
+    @Autowired
+    private LocalCacheProperties localCacheProperties;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private Cache<Long, GoodsCardVO> cardCache;
+
+    private Cache<Long, GoodsDetailVO> detailCache;
+
+    // Redis（L2）层的命中统计，L1 的统计由 Caffeine 自己记录
+    private final LongAdder redisCardHits = new LongAdder();
+    private final LongAdder redisCardMisses = new LongAdder();
+    private final LongAdder redisDetailHits = new LongAdder();
+    private final LongAdder redisDetailMisses = new LongAdder();
+    private final LongAdder redisDetailPlaceholderHits = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        cardCache = Caffeine.newBuilder()
+                .maximumWeight(localCacheProperties.getCardMaxWeightBytes())
+                .weigher((Long id, GoodsCardVO vo) -> estimateCardSize(vo))
+                .expireAfterWrite(Duration.ofSeconds(localCacheProperties.getCardTtlSeconds()))
+                .recordStats()
+                .build();
+        detailCache = Caffeine.newBuilder()
+                .maximumWeight(localCacheProperties.getDetailMaxWeightBytes())
+                .weigher((Long id, GoodsDetailVO vo) -> estimateDetailSize(vo))
+                .expireAfterWrite(Duration.ofSeconds(localCacheProperties.getDetailTtlSeconds()))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 应用启动完成后订阅失效广播频道
+     * 订阅失败（如 Redis 暂不可用）只记录日志，其他节点的变更依赖 L1 的短 TTL 兜底
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribeInvalidation() {
+        try {
+            redisMessageListenerContainer.addMessageListener(this,
+                    new ChannelTopic(RedisConstant.GOODS_CACHE_INVALIDATE_CHANNEL));
+            log.info("已订阅商品本地缓存失效频道: {}", RedisConstant.GOODS_CACHE_INVALIDATE_CHANNEL);
+        } catch (Exception e) {
+            log.error("订阅商品本地缓存失效频道失败: {}", e.getMessage());
+        }
+    }
+
+    // ==================== 商品卡片 ====================
+
+    /**
+     * 批量从 L1 获取商品卡片
+     * @param ids 商品ID列表
+     * @return Map<商品ID, 卡片副本>，只包含命中的
+     */
+    public Map<Long, GoodsCardVO> getCards(List<Long> ids) {
+        Map<Long, GoodsCardVO> result = new HashMap<>();
+        if (!localCacheProperties.isEnabled()) {
+            return result;
+        }
+        for (Long id : ids) {
+            GoodsCardVO vo = cardCache.getIfPresent(id);
+            if (vo != null) {
+                // 返回副本，调用方会修改收藏数，不能污染缓存中的共享对象
+                result.put(id, copyCard(vo));
+            }
+        }
+        return result;
+    }
+
+    public void putCard(GoodsCardVO vo) {
+        if (localCacheProperties.isEnabled() && vo != null && vo.getId() != null) {
+            cardCache.put(vo.getId(), copyCard(vo));
+        }
+    }
+
+    // ==================== 商品详情 ====================
+
+    /**
+     * 从 L1 获取商品详情
+     * @return 详情副本，未命中返回null
+     */
+    public GoodsDetailVO getDetail(Long id) {
+        if (!localCacheProperties.isEnabled()) {
+            return null;
+        }
+        GoodsDetailVO vo = detailCache.getIfPresent(id);
+        return vo != null ? copyDetail(vo) : null;
+    }
+
+    public void putDetail(GoodsDetailVO vo) {
+        if (localCacheProperties.isEnabled() && vo != null && vo.getId() != null) {
+            detailCache.put(vo.getId(), copyDetail(vo));
+        }
+    }
+
+    // ==================== Redis 层统计 ====================
+
+    public void recordRedisCard(int hits, int misses) {
+        redisCardHits.add(hits);
+        redisCardMisses.add(misses);
+    }
+
+    /**
+     * 记录一次 Redis 详情读取，读到空结果占位（负缓存）时单独计数，不算作命中
+     * @param cached Redis 中读到的值，未命中为 null
+     */
+    public void recordRedisDetail(Object cached) {
+        if (cached == null) {
+            redisDetailMisses.increment();
+        } else if (cached instanceof GoodsDetailVO) {
+            redisDetailHits.increment();
+        } else {
+            redisDetailPlaceholderHits.increment();
+        }
+    }
+
+    // ==================== 失效 ====================
+
+    /**
+     * 广播失效某个商品的本地缓存（所有节点）
+     * 发布失败时至少清除本节点，其他节点依赖 L1 的短 TTL 兜底
+     */
+    public void invalidate(Long goodsId) {
+        if (goodsId == null) {
+            return;
+        }
+        evictLocal(goodsId);
+        try {
+            redisTemplate.convertAndSend(RedisConstant.GOODS_CACHE_INVALIDATE_CHANNEL, goodsId);
+        } catch (Exception e) {
+            log.error("广播商品本地缓存失效失败: goodsId={}, error={}", goodsId, e.getMessage());
+        }
+    }
+
+    /**
+     * 收到失效广播
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (body instanceof Number) {
+                evictLocal(((Number) body).longValue());
+            }
+        } catch (Exception e) {
+            log.error("处理商品本地缓存失效广播失败: {}", e.getMessage());
+        }
+    }
+
+    private void evictLocal(Long goodsId) {
+        cardCache.invalidate(goodsId);
+        detailCache.invalidate(goodsId);
+        log.debug("清除商品本地缓存: goodsId={}", goodsId);
+    }
+
+    /**
+     * 各层命中统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("l1Card", toMap(cardCache.stats(), cardCache.estimatedSize()));
+        result.put("l1Detail", toMap(detailCache.stats(), detailCache.estimatedSize()));
+        result.put("redisCard", toMap(redisCardHits.sum(), redisCardMisses.sum()));
+        // 命中率只按真实详情计算，负缓存命中单独列出
+        Map<String, Object> redisDetail = toMap(redisDetailHits.sum(), redisDetailMisses.sum());
+        redisDetail.put("placeholderHits", redisDetailPlaceholderHits.sum());
+        result.put("redisDetail", redisDetail);
+        return result;
+    }
+
+    private Map<String, Object> toMap(CacheStats stats, long size) {
+        Map<String, Object> map = toMap(stats.hitCount(), stats.missCount());
+        map.put("evictions", stats.evictionCount());
+        map.put("size", size);
+        return map;
+    }
+
+    private Map<String, Object> toMap(long hits, long misses) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("hits", hits);
+        map.put("misses", misses);
+        long total = hits + misses;
+        map.put("hitRate", total == 0 ? 0.0 : (double) hits / total);
+        return map;
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private GoodsCardVO copyCard(GoodsCardVO source) {
+        GoodsCardVO target = new GoodsCardVO();
+        BeanUtils.copyProperties(source, target);
+        return target;
+    }
+
+    /**
+     * 复制商品详情（多个请求共享同一个加载结果时，各自修改前先复制）
+     */
+    public GoodsDetailVO copyDetail(GoodsDetailVO source) {
+        GoodsDetailVO target = new GoodsDetailVO();
+        BeanUtils.copyProperties(source, target);
+        if (source.getImageUrls() != null) {
+            target.setImageUrls(new ArrayList<>(source.getImageUrls()));
+        }
+        return target;
+    }
+
+    /**
+     * 估算卡片占用字节数（对象头 + 字段 + 字符串内容）
+     */
+    private int estimateCardSize(GoodsCardVO vo) {
+        return 160 + sizeOf(vo.getBriefDescription()) + sizeOf(vo.getCoverUrl())
+                + sizeOf(vo.getOwnerName()) + sizeOf(vo.getOwnerAvatar());
+    }
+
+    /**
+     * 估算详情占用字节数
+     */
+    private int estimateDetailSize(GoodsDetailVO vo) {
+        int size = 240 + sizeOf(vo.getDescription()) + sizeOf(vo.getOwnerName()) + sizeOf(vo.getOwnerAvatar());
+        if (vo.getImageUrls() != null) {
+            for (String url : vo.getImageUrls()) {
+                size += 16 + sizeOf(url);
+            }
+        }
+        return size;
+    }
+
+    private int sizeOf(String s) {
+        return s == null ? 0 : 40 + s.length() * 2;
+    }
+}
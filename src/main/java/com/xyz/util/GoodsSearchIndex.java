@@ -0,0 +1,611 @@
+package com.xyz.util;
+
+import com.xyz.constant.GoodsStatusConstant;
+import com.xyz.properties.SearchProperties;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 商品描述进程内倒排索引（替代 MATCH ... AGAINST OR LIKE '%kw%' 的全表扫描）
+ * 1. 分词：中文等 CJK 连续字符切成单字 + 二元词（bigram），英文/数字按连续字母数字切词并转小写
+ * 2. 倒排表：每个词项对应按内部文档号升序的 int 数组，文档号单调递增分配，新增只需追加；删除只打标记，删除过多时整体压缩
+ * 3. 查询：各查询词的倒排表取最短的作为驱动，在其余倒排表中二分求交集，BM25 打分，按 (分数, 商品ID) 倒序取 top-k
+ *    英文/数字查询词按前缀匹配（"iph" 可以搜到 "iphone"），中文查询词要求所有二元词都出现
+ * 4. 只索引上架商品，构建和增量更新见 GoodsChangeIndex
+ * 5. BM25 用到的文档数、平均长度和文档频率取自定期刷新的统计快照，同一快照内文档的分数不随其他商品的变化而变化；
+ *    快照版本是按刷新间隔划分的时间段编号，各节点同一时间段内版本相同。翻页游标带有版本，
+ *    版本不一致时（跨越了刷新时间点，或各节点统计略有差异）仍从游标中的 (分数, 商品ID) 继续，只计数不报错，
+ *    分数略有变化的文档可能被跳过或重复，但翻页不会中断
+ */
+@Slf4j
+@Component
+public class GoodsSearchIndex extends GoodsChangeIndex<GoodsSearchIndex.Doc> {
+
+    private static final double BM25_K1 = 1.2;
+    private static final double BM25_B = 0.75;
+
+    /** 英文/数字词项的最大长度，过长的（如链接）截断 */
+    private static final int MAX_WORD_LENGTH = 32;
+
+    /**
+     * 索引游标编码：第 62 位为标记（MySQL 回退查询的游标是毫秒时间戳，该位为 0），
+     * 第 32~61 位为打分快照版本，低 32 位为分数（float 位模式，非负分数的位模式与数值同序）
+     */
+    private static final long INDEX_CURSOR_FLAG = 1L << 62;
+    private static final int SNAPSHOT_VERSION_MASK = (1 << 30) - 1;
+
+    @Autowired
+    private SearchProperties searchProperties;
+
+    // ========== 以下字段由 lock 保护 ==========
+
+    /** 词项 -> 倒排表（有序，英文前缀查询时按范围展开） */
+    private final TreeMap<String, Posting> postings = new TreeMap<>();
+
+    /** 文档号 -> 文档，已删除的为 null */
+    private final List<Doc> docs = new ArrayList<>();
+
+    private final Map<Long, Integer> docNoByGoodsId = new HashMap<>();
+
+    private int liveCount;
+
+    private long totalLength;
+
+    /** 打分统计快照：文档数和平均长度（各词项的文档频率快照在 Posting.df 中） */
+    private int scoredDocCount;
+
+    private double scoredAvgLength = 1;
+
+    private int snapshotVersion;
+
+    private volatile long snapshotTime;
+
+    /** 快照所属的时间段编号（snapshotTime / 刷新间隔） */
+    private volatile long snapshotBucket = -1;
+
+    private final LongAdder staleCursors = new LongAdder();
+
+    /** 前缀匹配的词项超过展开上限、只保留了文档频率最高部分的次数 */
+    private final LongAdder truncatedPrefixes = new LongAdder();
+
+    // ==================== 构建和增量更新 ====================
+
+    @Override
+    protected boolean isEnabled() {
+        return searchProperties.isEnabled();
+    }
+
+    @Override
+    protected String indexName() {
+        return "商品搜索索引";
+    }
+
+    @Override
+    protected int buildChunkSize() {
+        return searchProperties.getBuildChunkSize();
+    }
+
+    @Override
+    protected List<Map<String, Object>> loadChunk(long lastId, int limit) {
+        return goodsMapper.getOnSaleDescriptionsAfter(lastId, limit);
+    }
+
+    @Override
+    protected Doc parse(Map<String, Object> row) {
+        return analyze(((Number) row.get("id")).longValue(), (String) row.get("description"));
+    }
+
+    /**
+     * 上架的商品加入（或更新）索引，其他状态的从索引移除
+     */
+    @Override
+    protected Doc load(long goodsId) {
+        Map<String, Object> row = goodsMapper.getDescriptionAndStatusById(goodsId);
+        boolean onSale = row != null && row.get("status") != null
+                && ((Number) row.get("status")).intValue() == GoodsStatusConstant.ON_SALE;
+        return onSale ? analyze(goodsId, (String) row.get("description")) : null;
+    }
+
+    @Override
+    protected long goodsIdOf(Doc doc) {
+        return doc.goodsId;
+    }
+
+    // ==================== 查询 ====================
+
+    /**
+     * 搜索商品ID，按相关度倒序
+     * @param keyword 关键词
+     * @param cursor 游标（上一页返回的 nextCursor，包含快照版本和最后一条的分数），null 表示第一页
+     * @param cursorId 游标商品ID，分数相同的只返回ID小于它的
+     * @param size 每页数量
+     * @return 一页结果
+     */
+    public SearchPage search(String keyword, Long cursor, Long cursorId, int size) {
+        long start = System.nanoTime();
+        SearchPage page = new SearchPage();
+        List<QueryTerm> terms = analyzeQuery(keyword);
+        if (terms.isEmpty() || size <= 0) {
+            return page;
+        }
+        float cursorScore = cursor != null ? Float.intBitsToFloat((int) (long) cursor) : Float.POSITIVE_INFINITY;
+        long cursorGoodsId = cursorId != null ? cursorId : Long.MAX_VALUE;
+        if (currentBucket() != snapshotBucket) {
+            refreshSnapshot();
+        }
+
+        // 小顶堆保留 (分数, 商品ID) 最大的 size + 1 条
+        PriorityQueue<Hit> top = new PriorityQueue<>(size + 2, Hit.ORDER);
+        int version;
+        lock.readLock().lock();
+        try {
+            version = snapshotVersion;
+            if (cursor != null && cursorVersion(cursor) != version) {
+                // 分数来自另一个快照，仍按游标中的 (分数, 商品ID) 继续
+                staleCursors.increment();
+            }
+            if (liveCount == 0) {
+                return page;
+            }
+
+            // 每个查询词展开为一组倒排表（精确匹配1个，前缀匹配可能多个），任意一组为空则没有结果
+            List<Posting[]> clauses = new ArrayList<>(terms.size());
+            for (QueryTerm term : terms) {
+                Posting[] clause = expand(term);
+                if (clause.length == 0) {
+                    return page;
+                }
+                clauses.add(clause);
+            }
+            clauses.sort(Comparator.comparingLong(GoodsSearchIndex::totalSize));
+
+            int[] candidates = union(clauses.get(0));
+            int[][] positions = new int[clauses.size()][];
+            for (int c = 0; c < clauses.size(); c++) {
+                positions[c] = new int[clauses.get(c).length];
+            }
+
+            for (int docNo : candidates) {
+                Doc doc = docs.get(docNo);
+                if (doc == null) {
+                    continue;
+                }
+                double sum = 0;
+                boolean matched = true;
+                for (int c = 0; c < clauses.size() && matched; c++) {
+                    double clauseScore = scoreClause(clauses.get(c), positions[c], docNo, doc.length);
+                    if (clauseScore < 0) {
+                        matched = false;
+                    } else {
+                        sum += clauseScore;
+                    }
+                }
+                if (!matched) {
+                    continue;
+                }
+                // 按游标中保存的精度比较和排序
+                float score = (float) sum;
+                if (score > cursorScore || (score == cursorScore && doc.goodsId >= cursorGoodsId)) {
+                    continue;
+                }
+                Hit hit = new Hit(score, doc.goodsId);
+                if (top.size() <= size) {
+                    top.offer(hit);
+                } else if (Hit.ORDER.compare(hit, top.peek()) > 0) {
+                    top.poll();
+                    top.offer(hit);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+            recordQuery(System.nanoTime() - start);
+        }
+
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort(Hit.ORDER.reversed());
+        page.setHasMore(hits.size() > size);
+        if (page.isHasMore()) {
+            hits = hits.subList(0, size);
+        }
+        for (Hit hit : hits) {
+            page.getIds().add(hit.goodsId);
+        }
+        if (!hits.isEmpty()) {
+            Hit last = hits.get(hits.size() - 1);
+            page.setNextCursor(encodeCursor(version, last.score));
+            page.setNextCursorId(last.goodsId);
+        }
+        return page;
+    }
+
+    /**
+     * 索引统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            map.put("ready", isReady());
+            map.put("docs", liveCount);
+            map.put("deletedDocs", docs.size() - liveCount);
+            map.put("terms", postings.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        putCommonStats(map, "searches", "Search");
+        map.put("staleCursors", staleCursors.sum());
+        map.put("truncatedPrefixes", truncatedPrefixes.sum());
+        map.put("snapshotAgeSeconds", (System.currentTimeMillis() - snapshotTime) / 1000);
+        return map;
+    }
+
+    /**
+     * 游标是否由索引查询生成（否则是 MySQL 回退查询的时间戳游标）
+     */
+    public static boolean isIndexCursor(Long cursor) {
+        return cursor != null && cursor > 0 && (cursor & INDEX_CURSOR_FLAG) != 0;
+    }
+
+    // ==================== 索引维护（调用方持有写锁） ====================
+
+    @Override
+    protected void putLocked(Doc doc) {
+        removeLocked(doc.goodsId);
+        int docNo = docs.size();
+        docs.add(doc);
+        docNoByGoodsId.put(doc.goodsId, docNo);
+        for (int i = 0; i < doc.terms.length; i++) {
+            postings.computeIfAbsent(doc.terms[i], t -> new Posting()).add(docNo, doc.tfs[i]);
+        }
+        liveCount++;
+        totalLength += doc.length;
+    }
+
+    @Override
+    protected void removeLocked(long goodsId) {
+        Integer docNo = docNoByGoodsId.remove(goodsId);
+        if (docNo == null) {
+            return;
+        }
+        Doc doc = docs.set(docNo, null);
+        liveCount--;
+        totalLength -= doc.length;
+    }
+
+    /**
+     * 已删除文档过多时重新编号并重建倒排表，回收空间
+     */
+    @Override
+    protected void maybeCompactLocked() {
+        int deleted = docs.size() - liveCount;
+        if (deleted < searchProperties.getCompactThreshold() || deleted <= liveCount) {
+            return;
+        }
+        List<Doc> live = new ArrayList<>(liveCount);
+        for (Doc doc : docs) {
+            if (doc != null) {
+                live.add(doc);
+            }
+        }
+        docs.clear();
+        docNoByGoodsId.clear();
+        postings.clear();
+        liveCount = 0;
+        totalLength = 0;
+        for (Doc doc : live) {
+            putLocked(doc);
+        }
+        // 倒排表已重建，文档频率快照随之丢失
+        snapshotLocked();
+        compactions.increment();
+        log.info("商品搜索索引压缩完成: docs={}, removed={}", liveCount, deleted);
+    }
+
+    /**
+     * 刷新打分统计快照
+     */
+    private void refreshSnapshot() {
+        lock.writeLock().lock();
+        try {
+            if (currentBucket() != snapshotBucket) {
+                snapshotLocked();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void snapshotLocked() {
+        for (Posting posting : postings.values()) {
+            posting.df = posting.size;
+        }
+        scoredDocCount = liveCount;
+        scoredAvgLength = liveCount == 0 ? 1 : (double) totalLength / liveCount;
+        snapshotTime = System.currentTimeMillis();
+        snapshotBucket = snapshotTime / snapshotIntervalMillis();
+        snapshotVersion = (int) (snapshotBucket & SNAPSHOT_VERSION_MASK);
+    }
+
+    private long currentBucket() {
+        return System.currentTimeMillis() / snapshotIntervalMillis();
+    }
+
+    private long snapshotIntervalMillis() {
+        return Math.max(1, searchProperties.getScoreSnapshotSeconds() * 1000);
+    }
+
+    private static long encodeCursor(int version, float score) {
+        return INDEX_CURSOR_FLAG | ((long) version << 32) | (Float.floatToIntBits(score) & 0xFFFFFFFFL);
+    }
+
+    private static int cursorVersion(long cursor) {
+        return (int) (cursor >>> 32) & SNAPSHOT_VERSION_MASK;
+    }
+
+    // ==================== 查询辅助（调用方持有读锁） ====================
+
+    private Posting[] expand(QueryTerm term) {
+        if (!term.prefix) {
+            Posting posting = postings.get(term.text);
+            return posting != null ? new Posting[]{posting} : new Posting[0];
+        }
+        // 超过展开上限时保留文档数最多的词项（按字典序截断会丢掉排在后面的常用词）
+        int limit = Math.max(1, searchProperties.getMaxPrefixExpansions());
+        PriorityQueue<Posting> top = new PriorityQueue<>(Comparator.comparingInt((Posting p) -> p.size));
+        boolean truncated = false;
+        for (Posting posting : postings.subMap(term.text, true, term.text + Character.MAX_VALUE, false).values()) {
+            if (top.size() < limit) {
+                top.add(posting);
+            } else {
+                truncated = true;
+                if (posting.size > top.peek().size) {
+                    top.poll();
+                    top.add(posting);
+                }
+            }
+        }
+        if (truncated) {
+            truncatedPrefixes.increment();
+        }
+        return top.toArray(new Posting[0]);
+    }
+
+    private static long totalSize(Posting[] clause) {
+        long total = 0;
+        for (Posting posting : clause) {
+            total += posting.size;
+        }
+        return total;
+    }
+
+    /**
+     * 合并一组倒排表的文档号（升序去重）
+     */
+    private static int[] union(Posting[] clause) {
+        if (clause.length == 1) {
+            return Arrays.copyOf(clause[0].docs, clause[0].size);
+        }
+        int[] merged = new int[(int) totalSize(clause)];
+        int n = 0;
+        for (Posting posting : clause) {
+            System.arraycopy(posting.docs, 0, merged, n, posting.size);
+            n += posting.size;
+        }
+        Arrays.sort(merged);
+        int unique = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (i == 0 || merged[i] != merged[i - 1]) {
+                merged[unique++] = merged[i];
+            }
+        }
+        return Arrays.copyOf(merged, unique);
+    }
+
+    /**
+     * 计算一个查询词在文档上的 BM25 分数（语料统计取自快照，快照之后新增的词项文档频率按 0 计）
+     * 文档号按升序访问，positions 记录每个倒排表上次查找的位置，下次从该位置继续查找
+     * @return 分数，文档不包含该查询词返回 -1
+     */
+    private double scoreClause(Posting[] clause, int[] positions, int docNo, int docLength) {
+        double score = -1;
+        for (int p = 0; p < clause.length; p++) {
+            Posting posting = clause[p];
+            int pos = lowerBound(posting.docs, positions[p], posting.size, docNo);
+            positions[p] = pos;
+            if (pos < posting.size && posting.docs[pos] == docNo) {
+                double tf = posting.tfs[pos];
+                // 倒排表中可能还有已删除文档，文档频率不超过存活文档数
+                double df = Math.min(posting.df, scoredDocCount);
+                double idf = Math.log(1 + (scoredDocCount - df + 0.5) / (df + 0.5));
+                double norm = tf * (BM25_K1 + 1) / (tf + BM25_K1 * (1 - BM25_B + BM25_B * docLength / scoredAvgLength));
+                score = Math.max(score, 0) + idf * norm;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * 在 [from, to) 中查找第一个 >= target 的位置（先倍增跳跃再二分）
+     */
+    private static int lowerBound(int[] array, int from, int to, int target) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < to && array[high] < target) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        high = Math.min(high, to);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // ==================== 分词 ====================
+
+    private static Doc analyze(long goodsId, String text) {
+        Map<String, Integer> tfs = new HashMap<>();
+        int length = 0;
+        for (String token : tokenize(text, false)) {
+            tfs.merge(token, 1, Integer::sum);
+            length++;
+        }
+        Doc doc = new Doc();
+        doc.goodsId = goodsId;
+        doc.length = length;
+        doc.terms = new String[tfs.size()];
+        doc.tfs = new int[tfs.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : tfs.entrySet()) {
+            doc.terms[i] = entry.getKey();
+            doc.tfs[i] = entry.getValue();
+            i++;
+        }
+        return doc;
+    }
+
+    /**
+     * 查询分词：中文只有1个字时用单字，否则用二元词；英文/数字按前缀匹配
+     */
+    private static List<QueryTerm> analyzeQuery(String keyword) {
+        Map<String, QueryTerm> terms = new LinkedHashMap<>();
+        for (String token : tokenize(keyword, true)) {
+            boolean prefix = !isCjk(token.codePointAt(0));
+            terms.putIfAbsent(token, new QueryTerm(token, prefix));
+        }
+        return new ArrayList<>(terms.values());
+    }
+
+    /**
+     * 分词
+     * @param query true 时中文只输出二元词（单独一个字时输出单字），false（建索引）时同时输出单字和二元词
+     */
+    private static List<String> tokenize(String text, boolean query) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        // NFKC 把全角字母数字转成半角
+        int[] cps = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT).codePoints().toArray();
+        int i = 0;
+        while (i < cps.length) {
+            if (isCjk(cps[i])) {
+                int j = i;
+                while (j < cps.length && isCjk(cps[j])) {
+                    j++;
+                }
+                for (int k = i; k < j; k++) {
+                    if (!query || j - i == 1) {
+                        tokens.add(new String(cps, k, 1));
+                    }
+                    if (k + 1 < j) {
+                        tokens.add(new String(cps, k, 2));
+                    }
+                }
+                i = j;
+            } else if (Character.isLetterOrDigit(cps[i])) {
+                int j = i;
+                while (j < cps.length && Character.isLetterOrDigit(cps[j]) && !isCjk(cps[j])) {
+                    j++;
+                }
+                tokens.add(new String(cps, i, Math.min(j - i, MAX_WORD_LENGTH)));
+                i = j;
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    // ==================== 数据结构 ====================
+
+    /**
+     * 倒排表：文档号升序的 int 数组 + 对应词频
+     */
+    private static class Posting {
+        private int[] docs = new int[4];
+        private int[] tfs = new int[4];
+        private int size;
+        /** 打分快照时的文档频率 */
+        private int df;
+
+        void add(int docNo, int tf) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                tfs = Arrays.copyOf(tfs, size * 2);
+            }
+            docs[size] = docNo;
+            tfs[size] = tf;
+            size++;
+        }
+    }
+
+    static class Doc {
+        private long goodsId;
+        private String[] terms;
+        private int[] tfs;
+        private int length;
+    }
+
+    private static class QueryTerm {
+        private final String text;
+        private final boolean prefix;
+
+        QueryTerm(String text, boolean prefix) {
+            this.text = text;
+            this.prefix = prefix;
+        }
+    }
+
+    private static class Hit {
+        static final Comparator<Hit> ORDER = Comparator.<Hit>comparingDouble(h -> h.score)
+                .thenComparingLong(h -> h.goodsId);
+
+        private final float score;
+        private final long goodsId;
+
+        Hit(float score, long goodsId) {
+            this.score = score;
+            this.goodsId = goodsId;
+        }
+    }
+
+    /**
+     * 一页搜索结果
+     */
+    @Data
+    public static class SearchPage {
+
+        /** 本页商品ID（按相关度倒序） */
+        private List<Long> ids = new ArrayList<>();
+
+        /** 下一页游标：打分快照版本 + 本页最后一条的分数 */
+        private Long nextCursor;
+
+        /** 下一页游标ID：本页最后一条的商品ID */
+        private Long nextCursorId;
+
+        private boolean hasMore;
+    }
+}
@@ -0,0 +1,238 @@
+package com.xyz.util;
+
+import com.xyz.constant.RedisConstant;
+import com.xyz.mapper.GoodsMapper;
+import com.xyz.properties.TrendingProperties;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热门商品榜（按时间衰减的收藏热度）
+ * 1. 热度 = Σ 2^((收藏时间 - 基准时间) / 半衰期)：采用前向衰减，新收藏的权重随时间指数增长，
+ *    等价于所有旧收藏同时指数衰减，收藏/取消收藏时只需 ZINCRBY 一个成员，排序时直接比较 score
+ * 2. score 随基准时间的推移指数增长，定时检查，超过一定半衰期数后把所有 score 乘以同一个系数并重置基准时间（排序不变）
+ * 3. 热度过低的商品移出榜单，榜单只保留热度最高的 maxSize 个商品
+ * 4. 基准时间只由初始化和缩放写入，作为已初始化的标记；基准时间或 ZSet 不存在时（首次部署、Redis 数据丢失或被淘汰）
+ *    从最近的收藏记录汇总初始化，之后不再访问 MySQL；初始化完成前的收藏不单独记录，由汇总覆盖
+ * 5. 按 (热度, 商品ID) 复合游标分页，游标是上一页最后一条热度的 Double.doubleToLongBits 编码；
+ *    翻页期间热度仍在变化，商品可能在页间移动，热门列表不保证严格不重不漏
+ */
+@Slf4j
+@Component
+public class GoodsTrendingUtil {
+
+    private static final DefaultRedisScript<Long> INCR_SCRIPT = new DefaultRedisScript<>();
+    private static final DefaultRedisScript<Long> RESCALE_SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        INCR_SCRIPT.setLocation(new ClassPathResource("lua/trending_incr.lua"));
+        INCR_SCRIPT.setResultType(Long.class);
+        RESCALE_SCRIPT.setLocation(new ClassPathResource("lua/trending_rescale.lua"));
+        RESCALE_SCRIPT.setResultType(Long.class);
+    }
+
+    /** 脚本参数按纯字符串传输，成员和 ZSet 中其他写入方式（JSON 数字）的字节一致 */
+    private static final StringRedisSerializer STRING_SERIALIZER = StringRedisSerializer.UTF_8;
+    private static final GenericToStringSerializer<Long> LONG_SERIALIZER = new GenericToStringSerializer<>(Long.class);
+
+    private static final List<String> KEYS = List.of(RedisConstant.GOODS_TRENDING_KEY, RedisConstant.GOODS_TRENDING_EPOCH_KEY);
+
+    @Autowired
+    private TrendingProperties trendingProperties;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private GoodsMapper goodsMapper;
+
+    @Autowired
+    private ZSetIndexUtil zSetIndexUtil;
+
+    /**
+     * 启动完成后检查榜单是否已初始化（基准时间和 ZSet 都存在），否则从最近的收藏记录初始化（同一时刻只有一个节点执行）
+     */
+    @Async("asyncTaskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void initOnStartup() {
+        if (!trendingProperties.isEnabled()) {
+            return;
+        }
+        String lockKey = RedisConstant.REBUILD_LOCK_KEY + RedisConstant.GOODS_TRENDING_KEY;
+        try {
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(RedisConstant.GOODS_TRENDING_EPOCH_KEY))
+                    && Boolean.TRUE.equals(redisTemplate.hasKey(RedisConstant.GOODS_TRENDING_KEY))) {
+                return;
+            }
+            Boolean leased = redisTemplate.opsForValue().setIfAbsent(lockKey, UUID.randomUUID().toString(),
+                    RedisConstant.GOODS_TRENDING_INIT_LOCK_TTL, TimeUnit.MINUTES);
+            if (!Boolean.TRUE.equals(leased)) {
+                return;
+            }
+        } catch (Exception e) {
+            log.error("热门商品榜初始化失败: {}", e.getMessage());
+            return;
+        }
+
+        try {
+            long now = System.currentTimeMillis();
+            long halfLife = halfLifeMillis();
+            long since = now - halfLife * trendingProperties.getInitHalfLives();
+            List<Map<String, Object>> rows = goodsMapper.getDecayedFavoriteScores(since, now, halfLife,
+                    trendingProperties.getMaxSize());
+            Set<ZSetOperations.TypedTuple<Object>> tuples = new HashSet<>();
+            for (Map<String, Object> row : rows) {
+                double score = ((Number) row.get("score")).doubleValue();
+                if (score >= trendingProperties.getMinScore()) {
+                    tuples.add(ZSetOperations.TypedTuple.of(((Number) row.get("goodsId")).longValue(), score));
+                }
+            }
+            redisTemplate.delete(RedisConstant.GOODS_TRENDING_KEY);
+            if (!tuples.isEmpty()) {
+                redisTemplate.opsForZSet().add(RedisConstant.GOODS_TRENDING_KEY, tuples);
+            }
+            // 基准时间最后写入，作为初始化完成的标记（按纯字符串写入，脚本中直接 tonumber）；
+            // 汇总的热度以当前时间为基准，ZSet 被淘汰而基准时间仍在时一并覆盖
+            redisTemplate.execute((RedisCallback<Object>) connection -> connection.stringCommands().set(
+                    STRING_SERIALIZER.serialize(RedisConstant.GOODS_TRENDING_EPOCH_KEY),
+                    STRING_SERIALIZER.serialize(String.valueOf(now))));
+            log.info("热门商品榜初始化完成: size={}", tuples.size());
+        } catch (Exception e) {
+            log.error("热门商品榜初始化失败: {}", e.getMessage());
+        } finally {
+            try {
+                redisTemplate.delete(lockKey);
+            } catch (Exception e) {
+                log.error("释放热门商品榜初始化锁失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 记录一次收藏/取消收藏
+     * @param goodsId 商品ID
+     * @param delta 收藏 +1，取消收藏 -1
+     * @param eventTime 收藏时间（毫秒），取消收藏时传原收藏时间，恰好抵消当初加上的热度
+     */
+    public void record(Long goodsId, int delta, long eventTime) {
+        if (!trendingProperties.isEnabled() || goodsId == null) {
+            return;
+        }
+        try {
+            redisTemplate.execute(INCR_SCRIPT, STRING_SERIALIZER, LONG_SERIALIZER, KEYS,
+                    String.valueOf(goodsId), String.valueOf(delta), String.valueOf(eventTime),
+                    String.valueOf(System.currentTimeMillis()), String.valueOf(halfLifeMillis()),
+                    String.valueOf(trendingProperties.getMaxSize()), String.valueOf(trendingProperties.getMinScore()));
+        } catch (Exception e) {
+            log.error("更新商品热度失败: goodsId={}, delta={}, error={}", goodsId, delta, e.getMessage());
+        }
+    }
+
+    /**
+     * 商品不再上架（下架、售出、删除、屏蔽）时移出榜单
+     */
+    public void remove(Long goodsId) {
+        if (!trendingProperties.isEnabled() || goodsId == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForZSet().remove(RedisConstant.GOODS_TRENDING_KEY, goodsId);
+        } catch (Exception e) {
+            log.error("移出热门商品榜失败: goodsId={}, error={}", goodsId, e.getMessage());
+        }
+    }
+
+    /**
+     * 定时缩放热度并清理过低的商品（每小时检查一次，未到缩放条件时只清理）
+     */
+    @Scheduled(fixedRate = 3600000)
+    public void rescale() {
+        if (!trendingProperties.isEnabled()) {
+            return;
+        }
+        try {
+            Long rescaled = redisTemplate.execute(RESCALE_SCRIPT, STRING_SERIALIZER, LONG_SERIALIZER, KEYS,
+                    String.valueOf(System.currentTimeMillis()), String.valueOf(halfLifeMillis()),
+                    String.valueOf(trendingProperties.getRescaleHalfLives()),
+                    String.valueOf(trendingProperties.getMinScore()));
+            if (rescaled != null && rescaled == 1) {
+                log.info("热门商品热度已重新缩放");
+            }
+        } catch (Exception e) {
+            log.error("热门商品热度缩放失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 按热度倒序读取一页商品ID
+     * @param cursor 游标（上一页最后一条热度的 Double.doubleToLongBits 编码），null 表示第一页
+     * @param cursorId 游标商品ID，热度相同的只返回ID小于它的
+     * @param size 每页数量
+     */
+    public TrendingPage readPage(Long cursor, Long cursorId, int size) {
+        TrendingPage page = new TrendingPage();
+        if (!trendingProperties.isEnabled() || size <= 0) {
+            return page;
+        }
+        String cursorScore = cursor != null ? Double.toString(Double.longBitsToDouble(cursor)) : "+inf";
+        long cursorIdValue = cursor != null && cursorId != null ? cursorId : 0;
+        List<String> rows;
+        try {
+            rows = zSetIndexUtil.readPage(RedisConstant.GOODS_TRENDING_KEY, cursorScore, cursorIdValue, size + 1);
+        } catch (Exception e) {
+            log.error("读取热门商品榜失败: {}", e.getMessage());
+            return page;
+        }
+        if (rows == null) {
+            return page;
+        }
+        int count = Math.min(rows.size() / 2, size);
+        page.setHasMore(rows.size() / 2 > size);
+        for (int i = 0; i < count; i++) {
+            page.getIds().add(Long.parseLong(rows.get(i * 2)));
+        }
+        if (count > 0) {
+            page.setNextCursor(Double.doubleToLongBits(Double.parseDouble(rows.get(count * 2 - 1))));
+            page.setNextCursorId(page.getIds().get(count - 1));
+        }
+        return page;
+    }
+
+    private long halfLifeMillis() {
+        return Math.max(1, (long) (trendingProperties.getHalfLifeHours() * 3600000));
+    }
+
+    /**
+     * 一页热门商品
+     */
+    @Data
+    public static class TrendingPage {
+
+        /** 本页商品ID（按热度倒序） */
+        private List<Long> ids = new ArrayList<>();
+
+        /** 下一页游标：本页最后一条的热度（Double.doubleToLongBits 编码） */
+        private Long nextCursor;
+
+        /** 下一页游标ID：本页最后一条的商品ID */
+        private Long nextCursorId;
+
+        private boolean hasMore;
+    }
+}
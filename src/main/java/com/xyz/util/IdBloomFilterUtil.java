@@ -0,0 +1,212 @@
+package com.xyz.util;
+
+import com.xyz.constant.RedisConstant;
+import com.xyz.mapper.GoodsMapper;
+import com.xyz.mapper.UserMapper;
+import com.xyz.properties.BloomFilterProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * 商品/用户ID布隆过滤器（防缓存穿透）
+ * 1. 启动后异步从 MySQL 分块扫描ID构建，同一时刻只有一个节点构建，构建完成前所有ID放行；
+ *    Redis 中的过滤器不完整（位图被淘汰）时同样重建，重建期间旧过滤器照常使用
+ * 2. 发布商品、注册用户后添加，在事务中调用时等到提交后再添加（重建扫描一定能读到已提交的ID，
+ *    提交后添加的ID由重建期间的双写保留）；添加失败时过滤器整体放行，下次启动时重建
+ * 3. 查详情、收藏数、用户信息前先判断，一定不存在的ID直接返回，不访问 Redis 缓存和 MySQL
+ */
+@Slf4j
+@Component
+public class IdBloomFilterUtil {
+
+    @Autowired
+    private BloomFilterProperties bloomFilterProperties;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private GoodsMapper goodsMapper;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    private RedisBloomFilter goodsFilter;
+
+    private RedisBloomFilter userFilter;
+
+    @PostConstruct
+    public void init() {
+        goodsFilter = new RedisBloomFilter(redisTemplate, "goods", bloomFilterProperties.getGoodsCapacity(),
+                bloomFilterProperties.getFpp(), bloomFilterProperties.getMaxLayers());
+        userFilter = new RedisBloomFilter(redisTemplate, "user", bloomFilterProperties.getUserCapacity(),
+                bloomFilterProperties.getFpp(), bloomFilterProperties.getMaxLayers());
+    }
+
+    /**
+     * 启动完成后异步构建（Redis 中已有构建好的过滤器则跳过）
+     */
+    @Async("asyncTaskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!bloomFilterProperties.isEnabled()) {
+            return;
+        }
+        build(goodsFilter, goodsMapper::getGoodsIdsAfter);
+        build(userFilter, userMapper::getUserIdsAfter);
+    }
+
+    // ==================== 商品 ====================
+
+    /**
+     * 商品ID是否可能存在
+     * @return false 表示一定不存在
+     */
+    public boolean mightContainGoods(Long goodsId) {
+        if (!bloomFilterProperties.isEnabled() || goodsId == null) {
+            return true;
+        }
+        return goodsFilter.mightContain(goodsId);
+    }
+
+    /**
+     * 提交后添加商品ID（失败时过滤器已标记为未完成并放行，不影响提交后的请求）
+     */
+    public void addGoods(Long goodsId) {
+        if (bloomFilterProperties.isEnabled() && goodsId != null) {
+            TransactionUtil.afterCommit(() -> addQuietly(goodsFilter, goodsId));
+        }
+    }
+
+    /**
+     * 立即添加商品ID，失败时抛出异常（供商品事件处理使用，失败后由发件箱重试）
+     */
+    public void ensureGoods(Long goodsId) {
+        if (bloomFilterProperties.isEnabled() && goodsId != null) {
+            goodsFilter.add(goodsId);
+        }
+    }
+
+    // ==================== 用户 ====================
+
+    /**
+     * 用户ID是否可能存在
+     * @return false 表示一定不存在
+     */
+    public boolean mightContainUser(Long userId) {
+        if (!bloomFilterProperties.isEnabled() || userId == null) {
+            return true;
+        }
+        return userFilter.mightContain(userId);
+    }
+
+    public void addUser(Long userId) {
+        if (bloomFilterProperties.isEnabled() && userId != null) {
+            TransactionUtil.afterCommit(() -> addQuietly(userFilter, userId));
+        }
+    }
+
+    /**
+     * 拦截统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("goods", toMap(goodsFilter));
+        result.put("user", toMap(userFilter));
+        return result;
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private void addQuietly(RedisBloomFilter filter, long id) {
+        try {
+            filter.add(id);
+        } catch (Exception e) {
+            log.warn("提交后添加布隆过滤器失败，过滤器放行直到重建: name={}, id={}", filter.getName(), id);
+        }
+    }
+
+    /**
+     * 构建过滤器：按ID顺序分块扫描，每块管道批量添加到重建中的过滤器，完成后原子替换
+     * @param idLoader (lastId, limit) -> ID列表
+     */
+    private void build(RedisBloomFilter filter, BiFunction<Long, Integer, List<Long>> idLoader) {
+        String lockKey = RedisConstant.REBUILD_LOCK_KEY + RedisConstant.BLOOM_KEY + filter.getName();
+        String token = UUID.randomUUID().toString();
+        try {
+            if (filter.isReady()) {
+                log.info("布隆过滤器已存在，跳过构建: name={}", filter.getName());
+                return;
+            }
+            Boolean leased = redisTemplate.opsForValue().setIfAbsent(lockKey, token,
+                    RedisConstant.BLOOM_BUILD_LOCK_TTL, TimeUnit.MINUTES);
+            if (!Boolean.TRUE.equals(leased)) {
+                log.info("其他节点正在构建布隆过滤器: name={}", filter.getName());
+                return;
+            }
+        } catch (Exception e) {
+            log.error("布隆过滤器构建失败，暂时放行所有ID: name={}, error={}", filter.getName(), e.getMessage());
+            return;
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            int chunkSize = bloomFilterProperties.getBuildChunkSize();
+            filter.beginBuild(TimeUnit.MINUTES.toMillis(RedisConstant.BLOOM_BUILD_LOCK_TTL));
+            long lastId = 0;
+            long total = 0;
+            while (true) {
+                List<Long> ids = idLoader.apply(lastId, chunkSize);
+                if (ids == null || ids.isEmpty()) {
+                    break;
+                }
+                filter.addAll(ids);
+                total += ids.size();
+                lastId = ids.get(ids.size() - 1);
+                if (ids.size() < chunkSize) {
+                    break;
+                }
+            }
+            filter.finishBuild();
+            log.info("布隆过滤器构建完成: name={}, count={}, cost={}ms",
+                    filter.getName(), total, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("布隆过滤器构建失败: name={}, error={}", filter.getName(), e.getMessage());
+            try {
+                filter.abortBuild();
+            } catch (Exception ex) {
+                log.error("清除重建中的布隆过滤器失败: name={}, error={}", filter.getName(), ex.getMessage());
+            }
+        } finally {
+            try {
+                // 扫描超过租约时长时锁可能已被其他节点接管，只释放自己持有的锁
+                if (token.equals(redisTemplate.opsForValue().get(lockKey))) {
+                    redisTemplate.delete(lockKey);
+                }
+            } catch (Exception e) {
+                log.error("释放布隆过滤器构建锁失败: name={}, error={}", filter.getName(), e.getMessage());
+            }
+        }
+    }
+
+    private Map<String, Object> toMap(RedisBloomFilter filter) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("checks", filter.getChecks());
+        map.put("rejects", filter.getRejects());
+        map.put("degraded", filter.getDegraded());
+        return map;
+    }
+}
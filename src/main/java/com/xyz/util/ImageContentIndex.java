@@ -0,0 +1,138 @@
+package com.xyz.util;
+
+import com.xyz.entity.ImageObject;
+import com.xyz.mapper.ImageObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 图片内容索引（按 SHA-256 去重，相同内容只存一份）
+ * 1. MySQL image_object 记录 哈希 -> 对象名/URL 和引用次数，是唯一可信来源
+ * 2. 写入存储前先查找：按主键在 image_object 中增加引用，命中则复用已有URL；并发上传相同内容时在登记时由唯一主键兜底
+ *    （复用已有记录，删除刚上传的重复对象）。不在 Redis 缓存 哈希 -> URL：每次查找都必须在 MySQL 中增加引用，
+ *    缓存只能省掉随后的一次主键查询，却要处理缓存与记录删除的一致性
+ * 3. 删除文件时引用次数 -1，降为 0 才删除记录和存储对象；复用和删除的条件互斥（ref_count > 0 / ref_count = 0），不会删掉刚被复用的对象
+ * 4. MySQL 不可用时不去重，按原方式上传；无法确认引用次数时不删除存储对象
+ */
+@Slf4j
+@Component
+public class ImageContentIndex {
+
+    @Autowired
+    private ImageObjectMapper imageObjectMapper;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+    private final LongAdder lateMerges = new LongAdder();
+    private final LongAdder retained = new LongAdder();
+
+    /**
+     * 新建 SHA-256 摘要（调用方在上传前对完整文件内容计算摘要，先据此查找已有文件，找不到时才写入存储）
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * 查找相同内容的已有文件，找到时增加一次引用
+     * @param hash 内容哈希
+     * @param size 文件大小（用于统计节省的字节数）
+     * @return 已有文件的URL，没有时返回 null
+     */
+    public String acquire(String hash, long size) {
+        try {
+            // 按主键增加引用，同时确认记录仍然存在（ref_count > 0）
+            if (imageObjectMapper.acquire(hash) == 0) {
+                return null;
+            }
+            String url = imageObjectMapper.getUrlByHash(hash);
+            hits.increment();
+            savedBytes.add(size);
+            return url;
+        } catch (Exception e) {
+            log.error("查询图片内容索引失败，跳过去重: hash={}, error={}", hash, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 登记刚上传的文件
+     * @return 应返回给调用方的URL；与传入的 url 不同时说明相同内容已被登记（并发上传或缓存漏判），
+     *         已改为引用已有文件，调用方应删除刚上传的对象
+     */
+    public String register(String hash, String objectName, String url, long size) {
+        try {
+            ImageObject imageObject = ImageObject.builder()
+                    .hash(hash)
+                    .objectName(objectName)
+                    .url(url)
+                    .size(size)
+                    .build();
+            if (imageObjectMapper.insertIgnore(imageObject) == 1) {
+                return url;
+            }
+            if (imageObjectMapper.acquire(hash) == 1) {
+                String existing = imageObjectMapper.getUrlByHash(hash);
+                if (existing != null) {
+                    lateMerges.increment();
+                    savedBytes.add(size);
+                    return existing;
+                }
+            }
+        } catch (Exception e) {
+            log.error("登记图片内容索引失败: objectName={}, error={}", objectName, e.getMessage());
+        }
+        // 已有记录正在删除或数据库不可用：保留刚上传的对象，不纳入索引
+        return url;
+    }
+
+    /**
+     * 释放一次引用
+     * @return true 表示没有其他引用，可以删除存储对象（未纳入索引的对象也返回 true）
+     */
+    public boolean release(String objectName) {
+        try {
+            ImageObject imageObject = imageObjectMapper.getByObjectName(objectName);
+            if (imageObject == null) {
+                return true;
+            }
+            imageObjectMapper.release(objectName);
+            if (imageObjectMapper.deleteUnreferenced(objectName) == 1) {
+                return true;
+            }
+            retained.increment();
+            return false;
+        } catch (Exception e) {
+            log.error("释放图片引用失败，保留存储对象: objectName={}, error={}", objectName, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 去重统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("dedupHits", hits.sum());
+        map.put("dedupLateMerges", lateMerges.sum());
+        map.put("dedupSavedBytes", savedBytes.sum());
+        map.put("deleteRetained", retained.sum());
+        return map;
+    }
+}
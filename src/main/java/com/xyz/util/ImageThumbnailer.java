@@ -0,0 +1,162 @@
+package com.xyz.util;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 图片缩略图生成（纯 CPU 计算，线程安全）
+ * 1. 解码时按目标尺寸做整数倍降采样（ImageReader 的 source subsampling），大图不必完整解码，解码耗时和内存按倍数下降
+ * 2. 先缩放到详情尺寸，再由详情图缩放到卡片尺寸；缩小超过一半时逐级减半再双线性插值，兼顾速度和画质
+ * 3. 输出为渐进式 JPEG，透明背景铺白；原图不超过目标尺寸时不放大，只重新压缩
+ * 4. 像素数超过上限的图片拒绝处理，防止解压炸弹
+ */
+public class ImageThumbnailer {
+
+    /** 卡片缩略图后缀 */
+    public static final String CARD = "card";
+
+    /** 详情缩略图后缀 */
+    public static final String DETAIL = "detail";
+
+    private final int cardSize;
+    private final int detailSize;
+    private final float quality;
+    private final long maxPixels;
+
+    /**
+     * @param cardSize 卡片缩略图最长边（像素）
+     * @param detailSize 详情缩略图最长边（像素）
+     * @param quality JPEG 压缩质量 0~1
+     * @param maxPixels 允许处理的最大像素数
+     */
+    public ImageThumbnailer(int cardSize, int detailSize, float quality, long maxPixels) {
+        this.cardSize = cardSize;
+        this.detailSize = detailSize;
+        this.quality = quality;
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * 生成卡片和详情缩略图
+     * @param original 原图内容
+     * @return Map<后缀, JPEG 内容>，按 detail、card 顺序
+     * @throws IOException 不是可识别的图片或像素数超过上限
+     */
+    public Map<String, byte[]> generate(byte[] original) throws IOException {
+        BufferedImage source = decode(original, detailSize);
+        BufferedImage detail = scale(source, detailSize);
+        BufferedImage card = scale(detail, cardSize);
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        result.put(DETAIL, encodeJpeg(detail));
+        result.put(CARD, encodeJpeg(card));
+        return result;
+    }
+
+    /**
+     * 缩略图对象名：原对象名去掉扩展名后加 _{后缀}.jpg，与原图放在同一目录
+     */
+    public static String derivativeName(String objectName, String suffix) {
+        int slash = objectName.lastIndexOf('/');
+        int dot = objectName.lastIndexOf('.');
+        String base = dot > slash ? objectName.substring(0, dot) : objectName;
+        return base + "_" + suffix + ".jpg";
+    }
+
+    /**
+     * 解码，按目标最长边计算整数降采样倍数（降采样后最长边仍不小于目标）
+     */
+    private BufferedImage decode(byte[] data, int targetSize) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("无法识别的图片格式");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IOException("图片像素数超过上限: " + width + "x" + height);
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int factor = Math.max(1, Math.max(width, height) / targetSize);
+                if (factor > 1) {
+                    param.setSourceSubsampling(factor, factor, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 等比缩放到最长边不超过 maxSize，输出 RGB 图像
+     */
+    private static BufferedImage scale(BufferedImage source, int maxSize) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) maxSize / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+
+        BufferedImage current = source;
+        // 逐级减半，避免一次缩小太多时双线性插值丢失细节产生锯齿
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        if (current.getWidth() != targetWidth || current.getHeight() != targetHeight
+                || current.getType() != BufferedImage.TYPE_INT_RGB) {
+            current = draw(current, targetWidth, targetHeight);
+        }
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
@@ -90,6 +90,8 @@ public class JwtTokenUserInterceptor implements HandlerInterceptor {
             "/user/goods-query/offline/my",       // 我下架的商品
             "/user/chat/",                        // 聊天相关
             "/user/comment/",                     // 评论相关（发表、删除、点赞）
+            "/user/common/upload/policy",         // 申请直传凭证
+            "/user/common/upload/complete",       // 确认直传完成
         };
         
         // POST、PUT、DELETE方法的商品接口需要登录
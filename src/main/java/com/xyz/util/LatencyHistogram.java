@@ -0,0 +1,82 @@
+package com.xyz.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 耗时直方图（固定分桶，无锁记录）
+ * 分桶上界按 1-2-5 递增，分位数取所在分桶的上界，精度足够观察长尾
+ */
+public class LatencyHistogram {
+
+    /** 分桶上界（毫秒），最后一个分桶无上界 */
+    private static final long[] BOUNDS_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000};
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MILLIS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long millis = nanos / 1_000_000;
+        int i = 0;
+        while (i < BOUNDS_MILLIS.length && millis >= BOUNDS_MILLIS[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * 统计快照：次数、平均/最大耗时、P50/P90/P99 和各分桶次数
+     */
+    public Map<String, Object> snapshot() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", total);
+        map.put("avgMillis", total == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / count.sum());
+        map.put("maxMillis", maxNanos.get() / 1_000_000.0);
+        map.put("p50Millis", percentile(counts, total, 0.50));
+        map.put("p90Millis", percentile(counts, total, 0.90));
+        map.put("p99Millis", percentile(counts, total, 0.99));
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            histogram.put(i < BOUNDS_MILLIS.length ? "<" + BOUNDS_MILLIS[i] + "ms" : ">=" + BOUNDS_MILLIS[i - 1] + "ms", counts[i]);
+        }
+        map.put("buckets", histogram);
+        return map;
+    }
+
+    /**
+     * 分位数所在分桶的上界（毫秒），落在最后一个分桶时返回最大耗时
+     */
+    private double percentile(long[] counts, long total, double quantile) {
+        if (total == 0) {
+            return 0.0;
+        }
+        long rank = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return BOUNDS_MILLIS[i];
+            }
+        }
+        return maxNanos.get() / 1_000_000.0;
+    }
+}
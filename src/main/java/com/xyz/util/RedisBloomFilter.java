@@ -0,0 +1,299 @@
+package com.xyz.util;
+
+import com.xyz.constant.RedisConstant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于 Redis 位图的可扩展布隆过滤器（Scalable Bloom Filter），所有节点共享
+ * 1. 第 i 层容量为 capacity * 2^i，误判率为 fpp * 0.5^i，当前层写满后自动开启新层，总误判率不超过 2 * fpp
+ * 2. 位置采用双重哈希 h1 + j * h2 在本地计算，判断/添加各只需一次 Lua 调用
+ * 3. 构建完成前、或完成标记还在但层数/位图被淘汰时，一律返回"可能存在"，宁可放行也不误拦
+ * 4. 重建写入独立的 bloom:{name}:build:* key，期间旧过滤器照常判断，新增的ID同时写入新旧两组；
+ *    扫描完成后一次 Lua 调用用 RENAME 原子替换，重建期间新增的ID不会丢失
+ * 5. 查询时 Redis 异常同样放行，不影响正常请求；添加失败时删除完成标记，过滤器放行直到重建
+ * key 结构：bloom:{name}:ready / bloom:{name}:layers / bloom:{name}:count:{i} / bloom:{name}:bits:{i}，
+ * 重建中为 bloom:{name}:building 及 bloom:{name}:build:layers / count:{i} / bits:{i}
+ */
+@Slf4j
+public class RedisBloomFilter {
+
+    private static final DefaultRedisScript<Long> CONTAINS_SCRIPT = new DefaultRedisScript<>();
+    private static final DefaultRedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>();
+    private static final DefaultRedisScript<Long> SWAP_SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        CONTAINS_SCRIPT.setLocation(new ClassPathResource("lua/bloom_contains.lua"));
+        CONTAINS_SCRIPT.setResultType(Long.class);
+        ADD_SCRIPT.setLocation(new ClassPathResource("lua/bloom_add.lua"));
+        ADD_SCRIPT.setResultType(Long.class);
+        SWAP_SCRIPT.setLocation(new ClassPathResource("lua/bloom_swap.lua"));
+        SWAP_SCRIPT.setResultType(Long.class);
+    }
+
+    /** 脚本参数和 key 都按纯字符串传输（数字不能经过 JSON 序列化器加引号） */
+    private static final StringRedisSerializer STRING_SERIALIZER = StringRedisSerializer.UTF_8;
+    private static final GenericToStringSerializer<Long> LONG_SERIALIZER = new GenericToStringSerializer<>(Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final String name;
+    private final long[] capacities;
+    private final long[] bitSizes;
+    private final int[] hashCounts;
+
+    private final String readyKey;
+    private final String buildingKey;
+    private final List<String> containsKeys = new ArrayList<>();
+    /** 正式过滤器的 key：[层数, 第 0 层计数, 第 0 层位图, ...] */
+    private final List<String> liveKeys = new ArrayList<>();
+    /** 重建中的过滤器的 key，与 liveKeys 一一对应 */
+    private final List<String> stagingKeys = new ArrayList<>();
+    /** 在线添加：重建标记 + 正式 + 重建中 */
+    private final List<String> addKeys = new ArrayList<>();
+    /** 重建时批量添加：重建标记 + 重建中 */
+    private final List<String> buildKeys = new ArrayList<>();
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder rejects = new LongAdder();
+    private final LongAdder degraded = new LongAdder();
+
+    /**
+     * @param name 过滤器名称（goods / user）
+     * @param capacity 第一层容量
+     * @param fpp 第一层误判率
+     * @param maxLayers 最大层数
+     */
+    public RedisBloomFilter(RedisTemplate<String, Object> redisTemplate, String name,
+                            long capacity, double fpp, int maxLayers) {
+        this.redisTemplate = redisTemplate;
+        this.name = name;
+        this.capacities = new long[maxLayers];
+        this.bitSizes = new long[maxLayers];
+        this.hashCounts = new int[maxLayers];
+
+        String prefix = RedisConstant.BLOOM_KEY + name + ":";
+        String stagingPrefix = prefix + "build:";
+        this.readyKey = prefix + "ready";
+        this.buildingKey = prefix + "building";
+        containsKeys.add(readyKey);
+        containsKeys.add(prefix + "layers");
+        liveKeys.add(prefix + "layers");
+        stagingKeys.add(stagingPrefix + "layers");
+
+        for (int i = 0; i < maxLayers; i++) {
+            long layerCapacity = capacity << i;
+            double layerFpp = fpp / (1L << i);
+            // m = -n * ln(p) / (ln2)^2，k = m / n * ln2
+            long m = (long) Math.ceil(-layerCapacity * Math.log(layerFpp) / (Math.log(2) * Math.log(2)));
+            capacities[i] = layerCapacity;
+            bitSizes[i] = m;
+            hashCounts[i] = Math.max(1, (int) Math.round((double) m / layerCapacity * Math.log(2)));
+
+            containsKeys.add(prefix + "bits:" + i);
+            liveKeys.add(prefix + "count:" + i);
+            liveKeys.add(prefix + "bits:" + i);
+            stagingKeys.add(stagingPrefix + "count:" + i);
+            stagingKeys.add(stagingPrefix + "bits:" + i);
+        }
+        addKeys.add(buildingKey);
+        addKeys.addAll(liveKeys);
+        addKeys.addAll(stagingKeys);
+        buildKeys.add(buildingKey);
+        buildKeys.addAll(stagingKeys);
+    }
+
+    /**
+     * 判断ID是否可能存在
+     * @return false 表示一定不存在
+     */
+    public boolean mightContain(long id) {
+        checks.increment();
+        try {
+            Long result = redisTemplate.execute(CONTAINS_SCRIPT, STRING_SERIALIZER, LONG_SERIALIZER,
+                    containsKeys, (Object[]) containsArgs(id));
+            if (result != null && result == 0) {
+                rejects.increment();
+                return false;
+            }
+            if (result != null && result < 0) {
+                degraded.increment();
+            }
+        } catch (Exception e) {
+            log.error("布隆过滤器查询失败，放行: name={}, id={}, error={}", name, id, e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * 添加ID（正在重建时同时写入重建中的过滤器）
+     * 添加失败时该ID会被一直判定为不存在，因此先删除完成标记让过滤器整体放行（下次启动时重建），再抛出异常
+     */
+    public void add(long id) {
+        try {
+            redisTemplate.execute(ADD_SCRIPT, STRING_SERIALIZER, LONG_SERIALIZER, addKeys, (Object[]) addArgs(id));
+        } catch (RuntimeException e) {
+            log.error("布隆过滤器添加失败，标记为未完成: name={}, id={}, error={}", name, id, e.getMessage());
+            markIncomplete();
+            throw e;
+        }
+    }
+
+    /**
+     * 批量添加ID到重建中的过滤器（管道执行，在 beginBuild 和 finishBuild 之间调用）
+     */
+    public void addAll(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        byte[] sha = loadScript(ADD_SCRIPT);
+        int numKeys = buildKeys.size();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Long id : ids) {
+                String[] args = addArgs(id);
+                byte[][] keysAndArgs = new byte[numKeys + args.length][];
+                for (int i = 0; i < numKeys; i++) {
+                    keysAndArgs[i] = STRING_SERIALIZER.serialize(buildKeys.get(i));
+                }
+                for (int i = 0; i < args.length; i++) {
+                    keysAndArgs[numKeys + i] = STRING_SERIALIZER.serialize(args[i]);
+                }
+                connection.scriptingCommands().evalSha(sha, ReturnType.INTEGER, numKeys, keysAndArgs);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 是否已构建完成且完整（完成标记、层数和已用到的每一层位图都存在）
+     */
+    public boolean isReady() {
+        byte[] layersValue = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(STRING_SERIALIZER.serialize(liveKeys.get(0))));
+        if (layersValue == null) {
+            return false;
+        }
+        int layers = Math.min(Integer.parseInt(STRING_SERIALIZER.deserialize(layersValue)), bitSizes.length);
+        List<String> keys = new ArrayList<>(containsKeys.subList(0, 2 + layers));
+        Long existing = redisTemplate.countExistingKeys(keys);
+        return existing != null && existing == keys.size();
+    }
+
+    /**
+     * 开始重建：清空上次残留的重建 key 并设置重建标记，此后在线添加的ID同时写入重建中的过滤器
+     * @param ttlMillis 重建标记过期时间，重建节点崩溃后自动停止双写
+     */
+    public void beginBuild(long ttlMillis) {
+        redisTemplate.delete(stagingKeys);
+        redisTemplate.execute((RedisCallback<Object>) connection ->
+                connection.stringCommands().set(STRING_SERIALIZER.serialize(buildingKey), STRING_SERIALIZER.serialize("1"),
+                        Expiration.milliseconds(ttlMillis), RedisStringCommands.SetOption.upsert()));
+    }
+
+    /**
+     * 重建完成：原子替换正式过滤器并设置完成标记，此后不存在的ID开始被拦截
+     */
+    public void finishBuild() {
+        List<String> keys = new ArrayList<>(2 + stagingKeys.size() * 2);
+        keys.add(readyKey);
+        keys.add(buildingKey);
+        keys.addAll(stagingKeys);
+        keys.addAll(liveKeys);
+        redisTemplate.execute(SWAP_SCRIPT, STRING_SERIALIZER, LONG_SERIALIZER, keys);
+    }
+
+    /**
+     * 重建失败：停止双写并清除重建中的 key，正式过滤器不受影响
+     */
+    public void abortBuild() {
+        List<String> keys = new ArrayList<>(stagingKeys);
+        keys.add(buildingKey);
+        redisTemplate.delete(keys);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getChecks() {
+        return checks.sum();
+    }
+
+    public long getRejects() {
+        return rejects.sum();
+    }
+
+    public long getDegraded() {
+        return degraded.sum();
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private void markIncomplete() {
+        try {
+            redisTemplate.delete(readyKey);
+        } catch (Exception e) {
+            log.error("删除布隆过滤器完成标记失败: name={}, error={}", name, e.getMessage());
+        }
+    }
+
+    private String[] containsArgs(long id) {
+        List<String> args = new ArrayList<>();
+        long h1 = mix(id);
+        long h2 = mix(id + 0x9E3779B97F4A7C15L) | 1;
+        for (int layer = 0; layer < bitSizes.length; layer++) {
+            args.add(String.valueOf(hashCounts[layer]));
+            appendPositions(args, h1, h2, layer);
+        }
+        return args.toArray(new String[0]);
+    }
+
+    private String[] addArgs(long id) {
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(bitSizes.length));
+        long h1 = mix(id);
+        long h2 = mix(id + 0x9E3779B97F4A7C15L) | 1;
+        for (int layer = 0; layer < bitSizes.length; layer++) {
+            args.add(String.valueOf(capacities[layer]));
+            args.add(String.valueOf(hashCounts[layer]));
+            appendPositions(args, h1, h2, layer);
+        }
+        return args.toArray(new String[0]);
+    }
+
+    private void appendPositions(List<String> args, long h1, long h2, int layer) {
+        for (int j = 0; j < hashCounts[layer]; j++) {
+            args.add(String.valueOf(Math.floorMod(h1 + j * h2, bitSizes[layer])));
+        }
+    }
+
+    /**
+     * SplitMix64 混淆函数，把连续的自增ID打散成均匀分布的哈希值
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private byte[] loadScript(DefaultRedisScript<Long> script) {
+        byte[] body = script.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+        String sha = redisTemplate.execute((RedisCallback<String>) (RedisConnection connection) ->
+                connection.scriptingCommands().scriptLoad(body));
+        return STRING_SERIALIZER.serialize(sha);
+    }
+}
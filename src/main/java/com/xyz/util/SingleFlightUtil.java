@@ -0,0 +1,134 @@
+package com.xyz.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * 缓存重建请求合并工具（防止缓存击穿）
+ * 1. 进程内 single-flight：同一个 key 同一时刻只有一个线程执行加载，其他线程等待并直接拿它的结果
+ * 2. 跨节点 Redis 租约锁：SET NX PX，拿到租约的节点负责回源，其他节点短暂轮询缓存，等到结果就用，等不到再自己回源
+ * 3. Redis 异常时直接回源，不影响正常请求
+ */
+@Slf4j
+@Component
+public class SingleFlightUtil {
+
+    /** 等待进程内其他线程加载结果的最长时间（毫秒），超时后自己加载 */
+    private static final long FLIGHT_WAIT_MILLIS = 3000;
+
+    /** Redis 租约锁过期时间（毫秒），防止持有者宕机后锁无法释放 */
+    private static final long LEASE_TTL_MILLIS = 10000;
+
+    /** 没拿到租约时轮询缓存的间隔和最长等待时间（毫秒） */
+    private static final long LEASE_POLL_INTERVAL_MILLIS = 50;
+    private static final long LEASE_WAIT_MILLIS = 500;
+
+    /** 只删除自己持有的租约（比较 token 后删除） */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 进程内合并同一个 key 的并发加载
+     * @param key 合并的 key（通常就是缓存 key）
+     * @param loader 加载函数，只会被其中一个线程执行
+     * @return 加载结果（多个线程共享同一个对象，调用方如需修改请先复制）
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> loader) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            try {
+                return (T) existing.get(FLIGHT_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                log.warn("等待合并加载超时，自行加载: key={}", key);
+                return loader.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return loader.get();
+            }
+        }
+
+        try {
+            T value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * 跨节点互斥加载
+     * @param lockKey 租约锁 key
+     * @param cacheReader 读缓存函数，返回null表示还没有结果
+     * @param loader 回源加载函数（负责写缓存）
+     * @return 缓存中的结果或回源结果
+     */
+    public <T> T loadWithLease(String lockKey, Supplier<T> cacheReader, Supplier<T> loader) {
+        String token = UUID.randomUUID().toString();
+        boolean leased;
+        try {
+            leased = Boolean.TRUE.equals(redisTemplate.opsForValue()
+                    .setIfAbsent(lockKey, token, LEASE_TTL_MILLIS, TimeUnit.MILLISECONDS));
+        } catch (Exception e) {
+            log.error("获取重建租约失败，直接回源: lockKey={}, error={}", lockKey, e.getMessage());
+            return loader.get();
+        }
+
+        if (leased) {
+            try {
+                return loader.get();
+            } finally {
+                release(lockKey, token);
+            }
+        }
+
+        // 其他节点正在回源，短暂轮询等待它写入缓存
+        long deadline = System.currentTimeMillis() + LEASE_WAIT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(LEASE_POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            T cached = cacheReader.get();
+            if (cached != null) {
+                return cached;
+            }
+        }
+        log.debug("等待其他节点重建超时，自行回源: lockKey={}", lockKey);
+        return loader.get();
+    }
+
+    private void release(String lockKey, String token) {
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(lockKey), token);
+        } catch (Exception e) {
+            log.error("释放重建租约失败: lockKey={}, error={}", lockKey, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.xyz.util;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * 时间有序的 64 位ID（1 位符号 + 41 位毫秒时间戳 + 10 位工作节点号 + 12 位序列号，线程安全）
+ * 1. 同一工作节点生成的ID严格递增，不同节点按毫秒大致有序；写入数据库之前就能确定ID和先后顺序，支持批量插入和按ID翻页
+ * 2. 单个节点每毫秒最多 4096 个，用完时等待下一毫秒
+ * 3. 时钟回拨不超过 maxBackwardMillis 时等待时钟追上；回拨更多时不等待，沿用上次时间戳按逻辑时钟继续递增，
+ *    直到系统时钟重新追上，期间ID仍然唯一且递增
+ * 4. 生成的ID远大于 2^53（JS Number 能精确表示的最大整数），输出到 JSON 的字段要用 ToStringSerializer 按字符串输出
+ */
+public class SnowflakeIdGenerator {
+
+    /** 起始时间 2024-01-01T00:00:00Z，41 位时间戳可用到 2093 年 */
+    public static final long EPOCH = 1704067200000L;
+    public static final int WORKER_BITS = 10;
+    public static final long MAX_WORKER = (1L << WORKER_BITS) - 1;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long workerId;
+    private final long maxBackwardMillis;
+    private final LongSupplier clock;
+
+    private long lastTimestamp;
+    private long sequence;
+    private long clockWaits;
+    private long logicalAdvances;
+
+    /**
+     * @param workerId          工作节点号 0~1023
+     * @param lastTimestamp     该节点号此前分配过的最大时间戳（毫秒），新ID从它之后开始，没有时传 0
+     * @param maxBackwardMillis 可等待的最大时钟回拨（毫秒）
+     */
+    public SnowflakeIdGenerator(long workerId, long lastTimestamp, long maxBackwardMillis) {
+        this(workerId, lastTimestamp, maxBackwardMillis, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(long workerId, long lastTimestamp, long maxBackwardMillis, LongSupplier clock) {
+        if (workerId < 0 || workerId > MAX_WORKER) {
+            throw new IllegalArgumentException("workerId 超出范围: " + workerId);
+        }
+        this.workerId = workerId;
+        this.lastTimestamp = lastTimestamp;
+        this.maxBackwardMillis = maxBackwardMillis;
+        this.clock = clock;
+        // 沿用上一任持有者的时间戳时从下一毫秒开始
+        this.sequence = SEQUENCE_MASK;
+    }
+
+    public synchronized long nextId() {
+        long timestamp = clock.getAsLong();
+        if (timestamp < lastTimestamp) {
+            timestamp = catchUp(lastTimestamp);
+        }
+        if (timestamp == lastTimestamp) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                timestamp = catchUp(lastTimestamp + 1);
+                sequence = 0;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastTimestamp = timestamp;
+        return ((timestamp - EPOCH) << (WORKER_BITS + SEQUENCE_BITS)) | (workerId << SEQUENCE_BITS) | sequence;
+    }
+
+    public long workerId() {
+        return workerId;
+    }
+
+    /**
+     * 已分配的最大时间戳，更换节点号或交还节点号时记录下来，避免下一任持有者生成重复ID
+     */
+    public synchronized long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /** 因时钟回拨或序列号用完而等待时钟的次数 */
+    public synchronized long clockWaits() {
+        return clockWaits;
+    }
+
+    /** 时钟落后太多、按逻辑时钟前进的次数 */
+    public synchronized long logicalAdvances() {
+        return logicalAdvances;
+    }
+
+    /**
+     * 从ID中取出生成时的毫秒时间戳
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (WORKER_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    /**
+     * 时间戳不晚于 timestamp 的ID中最大的一个（用作"这一时刻之前的消息"的上界）
+     */
+    public static long maxIdAt(long timestamp) {
+        return ((timestamp - EPOCH + 1) << (WORKER_BITS + SEQUENCE_BITS)) - 1;
+    }
+
+    /**
+     * 取得不小于 target 的时间戳：时钟落后不多时等待，落后太多时直接使用 target
+     */
+    private long catchUp(long target) {
+        long now = clock.getAsLong();
+        if (target - now > maxBackwardMillis) {
+            logicalAdvances++;
+            return target;
+        }
+        if (now < target) {
+            clockWaits++;
+        }
+        while (now < target) {
+            LockSupport.parkNanos((target - now) * 1_000_000);
+            now = clock.getAsLong();
+        }
+        return now;
+    }
+}
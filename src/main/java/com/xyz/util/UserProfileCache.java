@@ -0,0 +1,207 @@
+package com.xyz.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.xyz.constant.RedisConstant;
+import com.xyz.mapper.UserMapper;
+import com.xyz.properties.LocalCacheProperties;
+import com.xyz.vo.GoodsCardVO;
+import com.xyz.vo.GoodsDetailVO;
+import com.xyz.vo.UserProfileVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 用户资料片段缓存（昵称、头像）
+ * 1. 商品卡片和详情的缓存中不再包含发布者信息，读取时按本页去重后的发布者ID批量填充，SQL 不再连表查询 user
+ * 2. 查找顺序：本地L1缓存 -> Redis（一次 MGET） -> MySQL（一次 IN 查询，管道回填 Redis）
+ * 3. 用户修改昵称或头像后，事务提交时清除 Redis 并广播清除各节点的L1，所有商品卡片立即显示新资料
+ * 4. Redis 不可用时直接查 MySQL，查不到的用户不填充
+ */
+@Slf4j
+@Component
+public class UserProfileCache implements MessageListener {
+
+    @Autowired
+    private LocalCacheProperties localCacheProperties;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private BulkCacheWriter bulkCacheWriter;
+
+    private Cache<Long, UserProfileVO> localCache;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(localCacheProperties.getProfileMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(localCacheProperties.getProfileTtlSeconds()))
+                .build();
+    }
+
+    /**
+     * 应用启动完成后订阅失效广播频道，订阅失败时其他节点依赖 L1 的短 TTL 兜底
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribeInvalidation() {
+        try {
+            redisMessageListenerContainer.addMessageListener(this,
+                    new ChannelTopic(RedisConstant.USER_PROFILE_INVALIDATE_CHANNEL));
+            log.info("已订阅用户资料本地缓存失效频道: {}", RedisConstant.USER_PROFILE_INVALIDATE_CHANNEL);
+        } catch (Exception e) {
+            log.error("订阅用户资料本地缓存失效频道失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 批量获取用户资料
+     * @param userIds 用户ID（可重复，可包含 null）
+     * @return Map<用户ID, 资料>，不存在的用户不在结果中
+     */
+    public Map<Long, UserProfileVO> getProfiles(Collection<Long> userIds) {
+        Map<Long, UserProfileVO> result = new HashMap<>();
+        Set<Long> ids = userIds.stream().filter(Objects::nonNull).collect(Collectors.toCollection(LinkedHashSet::new));
+        if (ids.isEmpty()) {
+            return result;
+        }
+
+        // 1. 本地L1
+        List<Long> redisIds = new ArrayList<>();
+        for (Long id : ids) {
+            UserProfileVO profile = localCacheProperties.isEnabled() ? localCache.getIfPresent(id) : null;
+            if (profile != null) {
+                result.put(id, profile);
+            } else {
+                redisIds.add(id);
+            }
+        }
+        if (redisIds.isEmpty()) {
+            return result;
+        }
+
+        // 2. Redis 一次 MGET
+        List<Long> missIds = redisIds;
+        try {
+            List<Object> cached = redisTemplate.opsForValue().multiGet(redisIds.stream()
+                    .map(id -> RedisConstant.USER_PROFILE_KEY + id)
+                    .collect(Collectors.toList()));
+            missIds = new ArrayList<>();
+            for (int i = 0; i < redisIds.size(); i++) {
+                Object value = (cached != null && i < cached.size()) ? cached.get(i) : null;
+                if (value instanceof UserProfileVO) {
+                    putLocal((UserProfileVO) value);
+                    result.put(redisIds.get(i), (UserProfileVO) value);
+                } else {
+                    missIds.add(redisIds.get(i));
+                }
+            }
+        } catch (Exception e) {
+            log.error("批量读取用户资料缓存失败: size={}, error={}", redisIds.size(), e.getMessage());
+        }
+
+        // 3. MySQL 回源，管道回填 Redis
+        if (!missIds.isEmpty()) {
+            Map<String, Object> toCache = new HashMap<>();
+            for (UserProfileVO profile : userMapper.getProfilesByIds(missIds)) {
+                result.put(profile.getId(), profile);
+                toCache.put(RedisConstant.USER_PROFILE_KEY + profile.getId(), profile);
+                putLocal(profile);
+            }
+            bulkCacheWriter.setAll(toCache, RedisConstant.USER_PROFILE_TTL,
+                    RedisConstant.USER_PROFILE_TTL_RANDOM, TimeUnit.MINUTES);
+        }
+        return result;
+    }
+
+    /**
+     * 为一页商品卡片填充发布者昵称和头像
+     */
+    public void fillCardOwners(List<GoodsCardVO> cards) {
+        if (cards == null || cards.isEmpty()) {
+            return;
+        }
+        Map<Long, UserProfileVO> profiles = getProfiles(cards.stream()
+                .map(GoodsCardVO::getOwnerId)
+                .collect(Collectors.toList()));
+        for (GoodsCardVO card : cards) {
+            UserProfileVO profile = profiles.get(card.getOwnerId());
+            card.setOwnerName(profile != null ? profile.getNickname() : null);
+            card.setOwnerAvatar(profile != null ? profile.getAvatar() : null);
+        }
+    }
+
+    /**
+     * 为商品详情填充发布者昵称和头像
+     */
+    public void fillDetailOwner(GoodsDetailVO detail) {
+        if (detail == null || detail.getOwnerId() == null) {
+            return;
+        }
+        UserProfileVO profile = getProfiles(Collections.singletonList(detail.getOwnerId())).get(detail.getOwnerId());
+        detail.setOwnerName(profile != null ? profile.getNickname() : null);
+        detail.setOwnerAvatar(profile != null ? profile.getAvatar() : null);
+    }
+
+    /**
+     * 用户资料变更后清除缓存（在事务中调用时等到提交后再清除，避免并发读取把旧资料重新写回缓存）
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> doInvalidate(userId));
+    }
+
+    /**
+     * 收到失效广播
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (body instanceof Number) {
+                localCache.invalidate(((Number) body).longValue());
+            }
+        } catch (Exception e) {
+            log.error("处理用户资料本地缓存失效广播失败: {}", e.getMessage());
+        }
+    }
+
+    private void doInvalidate(Long userId) {
+        localCache.invalidate(userId);
+        try {
+            redisTemplate.delete(RedisConstant.USER_PROFILE_KEY + userId);
+            redisTemplate.convertAndSend(RedisConstant.USER_PROFILE_INVALIDATE_CHANNEL, userId);
+        } catch (Exception e) {
+            log.error("清除用户资料缓存失败: userId={}, error={}", userId, e.getMessage());
+        }
+    }
+
+    private void putLocal(UserProfileVO profile) {
+        if (localCacheProperties.isEnabled()) {
+            localCache.put(profile.getId(), profile);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.xyz.util;
+
+import com.xyz.constant.RedisConstant;
+import com.xyz.properties.FeedProperties;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品/收藏等 ID 索引 ZSet 的原子维护工具
+ * 1. 原先 hasKey + ZADD / ZREM 的组合需要多次往返，且 hasKey 与 ZADD 之间 key 可能过期（过期后 ZADD 会建出一个只有1个成员的残缺索引）
+ * 2. 这里把"从若干索引移除 + 添加到已存在的索引"放到一个 Lua 脚本中原子执行，每次状态迁移只需一次往返
+ * 3. 脚本在启动时预加载，执行时走 EVALSHA（Spring 在 NOSCRIPT 时会自动回退到 EVAL）
+ * 4. 每个 ZSet 只保留最新的 windowSize 个成员，被裁剪过的 ZSet 带哨兵成员 -1，翻页越过窗口底部时由调用方回源 MySQL
+ * 5. 翻页使用 (score, 成员ID) 复合游标，同一毫秒内的多个成员不会被跳过，顺序与 MySQL 的 ORDER BY time DESC, id DESC 一致
+ */
+@Slf4j
+@Component
+public class ZSetIndexUtil {
+
+    /** 窗口哨兵成员（score 为 0），存在表示 ZSet 被裁剪过，窗口之外还有更早的数据 */
+    public static final long WINDOW_SENTINEL = -1L;
+
+    /** 空结果占位成员（score 为 0），数据源为空时写入，作为短期负缓存，避免每次请求都回源 MySQL */
+    public static final long EMPTY_PLACEHOLDER = 0L;
+
+    /** 重建时的初始游标（3000-01-01），不能用 Long.MAX_VALUE，超出 FROM_UNIXTIME 的范围会返回 NULL */
+    public static final long MAX_CURSOR = 32503680000000L;
+
+    /** 分页脚本的参数和返回值按纯字符串传输，成员ID在 Lua 中按字符串比较 */
+    private static final StringRedisSerializer STRING_SERIALIZER = StringRedisSerializer.UTF_8;
+
+    /**
+     * 分页脚本返回字符串列表，Spring 用结果序列化器逐个反序列化列表元素，
+     * 但 execute 的返回类型取自序列化器的泛型，因此把字符串序列化器声明为 List<String>
+     */
+    @SuppressWarnings("unchecked")
+    private static final RedisSerializer<List<String>> PAGE_RESULT_SERIALIZER =
+            (RedisSerializer<List<String>>) (RedisSerializer<?>) STRING_SERIALIZER;
+
+    private static final DefaultRedisScript<Long> TRANSIT_SCRIPT = new DefaultRedisScript<>();
+    private static final DefaultRedisScript<List<String>> PAGE_SCRIPT = new DefaultRedisScript<>();
+
+    static {
+        TRANSIT_SCRIPT.setLocation(new ClassPathResource("lua/zset_index_transit.lua"));
+        TRANSIT_SCRIPT.setResultType(Long.class);
+        PAGE_SCRIPT.setLocation(new ClassPathResource("lua/zset_window_page.lua"));
+        @SuppressWarnings("unchecked")
+        Class<List<String>> listType = (Class<List<String>>) (Class<?>) List.class;
+        PAGE_SCRIPT.setResultType(listType);
+    }
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private FeedProperties feedProperties;
+
+    /**
+     * 启动完成后预加载脚本到 Redis 脚本缓存
+     * 加载失败不影响使用，首次执行时会自动回退到 EVAL
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preloadScripts() {
+        try {
+            for (DefaultRedisScript<?> redisScript : List.of(TRANSIT_SCRIPT, PAGE_SCRIPT)) {
+                byte[] script = redisScript.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+                String sha = redisTemplate.execute((RedisCallback<String>) connection ->
+                        connection.scriptingCommands().scriptLoad(script));
+                log.info("ZSet索引脚本预加载完成: sha={}", sha);
+            }
+        } catch (Exception e) {
+            log.error("ZSet索引脚本预加载失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 原子地把成员从 removeKeys 中移除，并添加到 addKeys 中已存在的 ZSet
+     * @param member 成员（商品ID）
+     * @param score 添加时使用的 score（时间戳）
+     * @param removeKeys 需要移除成员的 ZSet，可为空
+     * @param addKeys 需要添加成员的 ZSet（不存在的跳过），可为空
+     * @return 实际添加到的 ZSet 个数
+     */
+    public long transit(Object member, long score, List<String> removeKeys, List<String> addKeys) {
+        List<String> keys = new ArrayList<>();
+        int removeCount = 0;
+        if (removeKeys != null) {
+            keys.addAll(removeKeys);
+            removeCount = removeKeys.size();
+        }
+        if (addKeys != null) {
+            keys.addAll(addKeys);
+        }
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        Long added = redisTemplate.execute(TRANSIT_SCRIPT, keys, member, score, removeCount,
+                feedProperties.getWindowSize());
+        return added != null ? added : 0;
+    }
+
+    /**
+     * 只在 ZSet 已存在时添加成员（原子操作）
+     */
+    public long addIfExists(List<String> keys, Object member, long score) {
+        return transit(member, score, null, keys);
+    }
+
+    public long addIfExists(String key, Object member, long score) {
+        return transit(member, score, null, Collections.singletonList(key));
+    }
+
+    /**
+     * 从多个 ZSet 中移除成员（一次往返）
+     */
+    public void remove(List<String> keys, Object member) {
+        transit(member, 0, keys, null);
+    }
+
+    // ==================== 窗口读取与重建 ====================
+
+    /**
+     * 按 (score, ID) 复合游标从窗口 ZSet 中读取一页ID（存在判断和读取在同一个脚本中，一次往返）
+     * @param key ZSet的key
+     * @param cursor 游标时间戳
+     * @param cursorId 游标ID，score 等于游标时间戳的成员只返回ID小于它的；0 表示不包含游标时间戳上的成员
+     * @param count 获取数量
+     * @return 窗口页，ZSet不存在返回null
+     */
+    public WindowPage readWindow(String key, long cursor, long cursorId, int count) {
+        List<String> rows = readPage(key, String.valueOf(cursor), cursorId, count);
+        if (rows == null) {
+            return null;
+        }
+
+        // 哨兵和占位成员的 score 为 0，总是排在最后
+        WindowPage page = new WindowPage();
+        for (int i = 0; i + 1 < rows.size(); i += 2) {
+            long id = Long.parseLong(rows.get(i));
+            if (id == WINDOW_SENTINEL) {
+                page.setTruncated(true);
+                continue;
+            }
+            if (id == EMPTY_PLACEHOLDER) {
+                continue;
+            }
+            long score = (long) Double.parseDouble(rows.get(i + 1));
+            page.getIds().add(id);
+            page.getScores().add(score);
+            page.setLastScore(score);
+            page.setLastId(id);
+        }
+        return page;
+    }
+
+    /**
+     * 按 (score, ID) 复合游标读取一页成员（score 可以是小数，如热度）
+     * @param key ZSet的key
+     * @param cursor 游标 score 的字符串形式，第一页传 "+inf"
+     * @param cursorId 游标ID，score 等于游标的成员只返回ID小于它的；0 表示不包含游标 score 上的成员
+     * @param count 获取数量
+     * @return {成员1, score1, 成员2, score2, ...}，按 (score DESC, ID DESC) 排序；ZSet不存在返回null
+     */
+    public List<String> readPage(String key, String cursor, long cursorId, int count) {
+        List<String> rows = redisTemplate.execute(PAGE_SCRIPT, STRING_SERIALIZER, PAGE_RESULT_SERIALIZER,
+                Collections.singletonList(key), cursor, String.valueOf(cursorId), String.valueOf(count));
+        // 首个元素是存在标记，空列表表示 ZSet 不存在
+        if (rows == null || rows.isEmpty()) {
+            return null;
+        }
+        return rows.subList(1, rows.size());
+    }
+
+    /**
+     * 分块重建窗口 ZSet：按时间倒序 keyset 分页读取，最多读取 windowSize + 1 行
+     * 先写入临时key，全部写完后再 RENAME，避免并发读到只写了一半、却没有哨兵的 ZSet
+     * 数据源为空时写入空结果占位成员，短时间内不再回源
+     * @param key ZSet的key
+     * @param loader 分块数据加载函数
+     * @param idField ID字段名
+     * @param timeField 时间字段名
+     * @param ttl 缓存过期时间（分钟）
+     */
+    public void rebuildWindow(String key, ChunkLoader loader, String idField, String timeField, long ttl) {
+        int windowSize = feedProperties.getWindowSize() > 0 ? feedProperties.getWindowSize() : Integer.MAX_VALUE - 1;
+        int chunkSize = Math.max(1, feedProperties.getRebuildChunkSize());
+        String tmpKey = key + ":rebuild:" + UUID.randomUUID();
+
+        long cursor = MAX_CURSOR;
+        long cursorId = Long.MAX_VALUE;
+        int loaded = 0;
+        boolean truncated = false;
+        while (!truncated) {
+            // 多读1行，用于判断窗口之外是否还有数据
+            int limit = Math.min(chunkSize, windowSize + 1 - loaded);
+            List<Map<String, Object>> rows = loader.load(cursor, cursorId, limit);
+            if (rows == null || rows.isEmpty()) {
+                break;
+            }
+
+            Set<ZSetOperations.TypedTuple<Object>> tuples = new HashSet<>();
+            for (Map<String, Object> row : rows) {
+                if (loaded >= windowSize) {
+                    truncated = true;
+                    break;
+                }
+                cursorId = ((Number) row.get(idField)).longValue();
+                cursor = ((Number) row.get(timeField)).longValue();
+                tuples.add(ZSetOperations.TypedTuple.of((Object) cursorId, (double) cursor));
+                loaded++;
+            }
+            if (!tuples.isEmpty()) {
+                redisTemplate.opsForZSet().add(tmpKey, tuples);
+            }
+            if (rows.size() < limit) {
+                break;
+            }
+        }
+
+        if (loaded == 0) {
+            redisTemplate.opsForZSet().add(key, EMPTY_PLACEHOLDER, 0);
+            redisTemplate.expire(key, RedisConstant.EMPTY_CACHE_TTL, TimeUnit.MINUTES);
+            log.debug("数据源为空，写入负缓存: key={}", key);
+            return;
+        }
+        if (truncated) {
+            redisTemplate.opsForZSet().add(tmpKey, WINDOW_SENTINEL, 0);
+        }
+        redisTemplate.expire(tmpKey, ttl, TimeUnit.MINUTES);
+        redisTemplate.rename(tmpKey, key);
+        log.debug("重建窗口ZSet: key={}, size={}, truncated={}", key, loaded, truncated);
+    }
+
+    /**
+     * 重建 ZSet 时的分块数据加载函数
+     * 返回 (time, id) 严格小于 (cursor, cursorId) 的最多 limit 行，按 time DESC, id DESC 排序
+     */
+    @FunctionalInterface
+    public interface ChunkLoader {
+        List<Map<String, Object>> load(long cursor, long cursorId, int limit);
+    }
+
+    /**
+     * 窗口 ZSet 的一页读取结果
+     */
+    @Data
+    public static class WindowPage {
+
+        /** 本页ID（不含哨兵） */
+        private List<Long> ids = new ArrayList<>();
+
+        /** 与 ids 一一对应的score */
+        private List<Long> scores = new ArrayList<>();
+
+        /** 本页最后一个ID的score，没有ID时为null */
+        private Long lastScore;
+
+        /** 本页最后一个ID，与 lastScore 组成回源 MySQL 时的复合游标 */
+        private Long lastId;
+
+        /** 是否读到了窗口底部（之后的数据需要回源 MySQL） */
+        private boolean truncated;
+    }
+}
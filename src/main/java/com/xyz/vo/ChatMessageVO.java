@@ -1,6 +1,8 @@
 package com.xyz.vo;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -17,7 +19,11 @@ import lombok.NoArgsConstructor;
 @Schema(description = "聊天消息信息")
 public class ChatMessageVO {
     
-    @Schema(description = "消息ID")
+    /**
+     * 分布式ID超过 2^53，按数字输出时 JS 客户端会丢失精度，因此按字符串输出（撤回和 beforeId 翻页时原样传回）
+     */
+    @Schema(description = "消息ID（字符串形式的64位整数）", type = "string")
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
     
     @Schema(description = "会话ID")
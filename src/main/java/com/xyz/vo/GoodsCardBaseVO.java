@@ -22,7 +22,7 @@ public class GoodsCardBaseVO {
     private BigDecimal sellPrice;
     private BigDecimal rentPrice;
 
-    // 卖家信息（连表查询）
+    // 卖家信息（读取时从用户资料缓存填充，不写入商品缓存）
     private String ownerName;
     private String ownerAvatar;
 
@@ -31,6 +31,7 @@ public class GoodsDetailVO {
     private LocalDateTime createTime;
     private LocalDateTime updateTime;
 
+    // 卖家信息（读取时从用户资料缓存填充，不写入商品缓存）
     private String ownerName;
     private String ownerAvatar;
 
@@ -22,6 +22,9 @@ public class PageResult<T> {
     /** 下一页游标（本页最后一条的时间戳），前端下次请求带上这个值（游标分页使用） */
     private Long nextCursor;
     
+    /** 下一页游标ID（本页最后一条的ID），与 nextCursor 组成 (时间戳, ID) 复合游标，时间戳相同的数据不会被跳过 */
+    private Long nextCursorId;
+    
     /** 是否还有更多数据（游标分页使用） */
     private Boolean hasMore;
     
@@ -44,6 +47,18 @@ public class PageResult<T> {
                 .build();
     }
     
+    /**
+     * 构建复合游标分页结果
+     */
+    public static <T> PageResult<T> of(List<T> list, Long nextCursor, Long nextCursorId, boolean hasMore) {
+        return PageResult.<T>builder()
+                .list(list)
+                .nextCursor(nextCursor)
+                .nextCursorId(nextCursorId)
+                .hasMore(hasMore)
+                .build();
+    }
+    
     /**
      * 空结果
      */
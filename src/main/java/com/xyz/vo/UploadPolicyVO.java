@@ -0,0 +1,22 @@
+package com.xyz.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 直传凭证VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadPolicyVO {
+    private String objectKey; // 对象名，上传完成后用于确认
+    private String uploadUrl; // 表单提交地址
+    private Map<String, String> fields; // 表单字段，原样提交，文件字段名为 file 且放在最后
+    private Long expireAt; // 凭证过期时间戳（毫秒）
+}
@@ -0,0 +1,19 @@
+package com.xyz.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 用户资料片段（昵称、头像），商品卡片和详情在读取时按发布者ID批量填充
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserProfileVO {
+    private Long id;
+    private String nickname;
+    private String avatar;
+}
@@ -0,0 +1,62 @@
+-- 可扩展布隆过滤器：添加ID
+-- KEYS[1] : 重建标记，存在时说明正在重建，ID 同时写入第二组 key（重建中的过滤器），保证重建期间新增的ID不丢失
+-- KEYS[2..] : 一组或两组过滤器 key，每组依次为 [当前层数, 第 0 层计数, 第 0 层位图, 第 1 层计数, 第 1 层位图, ...]
+-- ARGV[1] : 最大层数
+-- ARGV[2..] : 按层依次排列 [capacity, k, pos1..posk]
+-- 当前层插入数达到容量后开启新的一层（新层容量更大、误判率更低），保证整体误判率有上界
+-- 返回 1 新增，0 已存在（第一组中任意一层命中）
+local maxLayers = tonumber(ARGV[1])
+local groupSize = 1 + 2 * maxLayers
+
+local caps, ks, starts = {}, {}, {}
+local idx = 2
+for layer = 0, maxLayers - 1 do
+    caps[layer] = tonumber(ARGV[idx])
+    ks[layer] = tonumber(ARGV[idx + 1])
+    starts[layer] = idx + 2
+    idx = idx + 2 + ks[layer]
+end
+
+-- base 为该组层数 key 的下标，第 i 层的计数 / 位图为 KEYS[base + 1 + 2i] / KEYS[base + 2 + 2i]
+local function add(base)
+    local layers = tonumber(redis.call('GET', KEYS[base]) or '1')
+    if layers > maxLayers then
+        layers = maxLayers
+    end
+
+    for layer = 0, layers - 1 do
+        local bits = KEYS[base + 2 + 2 * layer]
+        local hit = true
+        for j = 0, ks[layer] - 1 do
+            if redis.call('GETBIT', bits, ARGV[starts[layer] + j]) == 0 then
+                hit = false
+                break
+            end
+        end
+        if hit then
+            return 0
+        end
+    end
+
+    local current = layers - 1
+    local count = tonumber(redis.call('GET', KEYS[base + 1 + 2 * current]) or '0')
+    if count >= caps[current] and layers < maxLayers then
+        current = layers
+        layers = layers + 1
+    end
+    -- 层数 key 总是写入，判断时据此确认过滤器完整
+    redis.call('SET', KEYS[base], layers)
+
+    local bits = KEYS[base + 2 + 2 * current]
+    for j = 0, ks[current] - 1 do
+        redis.call('SETBIT', bits, ARGV[starts[current] + j], 1)
+    end
+    redis.call('INCR', KEYS[base + 1 + 2 * current])
+    return 1
+end
+
+local added = add(2)
+if #KEYS >= 1 + 2 * groupSize and redis.call('EXISTS', KEYS[1]) == 1 then
+    add(2 + groupSize)
+end
+return added
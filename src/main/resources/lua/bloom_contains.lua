@@ -0,0 +1,43 @@
+-- 可扩展布隆过滤器：判断ID是否可能存在
+-- KEYS[1] : 构建完成标记，不存在时说明过滤器还没建好（或 Redis 数据丢失），直接放行
+-- KEYS[2] : 当前层数
+-- KEYS[3..] : 每一层的位图
+-- ARGV : 按层依次排列 [k, pos1..posk]，每层的位数和哈希函数个数不同，位置由调用方计算
+-- 返回 1 可能存在，0 一定不存在，-1 完成标记还在但层数或位图被淘汰（过滤器不完整，放行）
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return 1
+end
+
+local layersValue = redis.call('GET', KEYS[2])
+if not layersValue then
+    return -1
+end
+local layers = tonumber(layersValue)
+local maxLayers = #KEYS - 2
+if layers > maxLayers then
+    layers = maxLayers
+end
+
+-- 任意一层位图丢失都可能把存在的ID误判为不存在
+for layer = 0, layers - 1 do
+    if redis.call('EXISTS', KEYS[3 + layer]) == 0 then
+        return -1
+    end
+end
+
+local idx = 1
+for layer = 0, layers - 1 do
+    local k = tonumber(ARGV[idx])
+    local hit = true
+    for j = 1, k do
+        if redis.call('GETBIT', KEYS[3 + layer], ARGV[idx + j]) == 0 then
+            hit = false
+            break
+        end
+    end
+    if hit then
+        return 1
+    end
+    idx = idx + 1 + k
+end
+return 0
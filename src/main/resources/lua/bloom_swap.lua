@@ -0,0 +1,26 @@
+-- 可扩展布隆过滤器：重建完成，用新过滤器原子替换旧过滤器
+-- KEYS[1] : 构建完成标记
+-- KEYS[2] : 重建标记
+-- KEYS[3 .. 2+n] : 新过滤器的 key [层数, 第 0 层计数, 第 0 层位图, ...]
+-- KEYS[3+n .. 2+2n] : 旧过滤器中对应的 key
+-- 新过滤器中不存在的 key（未用到的层）把旧过滤器中的对应 key 删除
+local n = (#KEYS - 2) / 2
+for i = 1, n do
+    local staging = KEYS[2 + i]
+    local live = KEYS[2 + n + i]
+    if redis.call('EXISTS', staging) == 1 then
+        redis.call('RENAME', staging, live)
+    else
+        redis.call('DEL', live)
+    end
+end
+-- 没有任何ID时也写入层数和第 0 层位图，判断时据此确认过滤器完整
+if redis.call('EXISTS', KEYS[3 + n]) == 0 then
+    redis.call('SET', KEYS[3 + n], 1)
+end
+if redis.call('EXISTS', KEYS[5 + n]) == 0 then
+    redis.call('SETBIT', KEYS[5 + n], 0, 0)
+end
+redis.call('SET', KEYS[1], 1)
+redis.call('DEL', KEYS[2])
+return 1
@@ -0,0 +1,13 @@
+-- 加载用户收藏状态（只在 Hash 不存在时写入，并发加载时只有第一个生效）
+-- KEYS[1] : 用户收藏状态 Hash
+-- ARGV    : 商品ID1, 收藏时间1, 商品ID2, 收藏时间2, ...
+-- 返回 1 表示已加载，0 表示已存在
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    return 0
+end
+-- field 0 是加载标记，用户没有收藏时 Hash 也存在
+redis.call('HSET', KEYS[1], '0', '0')
+for i = 1, #ARGV, 2 do
+    redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+end
+return 1
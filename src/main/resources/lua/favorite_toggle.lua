@@ -0,0 +1,36 @@
+-- 切换收藏状态（原子执行，一次往返）
+-- KEYS[1] : 用户收藏状态 Hash（field 为商品ID，value 为收藏时间戳）
+-- KEYS[2] : 商品所在的收藏数桶 goods:collect:b:{goodsId / 桶大小}
+-- KEYS[3] : 待落库集合
+-- ARGV[1] : 商品ID
+-- ARGV[2] : 当前时间戳（毫秒）
+-- ARGV[3] : 用户ID
+-- ARGV[4] : 收藏数桶过期时间（秒）
+-- ARGV[5] : 商品在桶内的 field
+-- 返回 {变化量, 收藏时间, 收藏数缓存是否已更新}
+--   变化量 1 表示收藏，-1 表示取消收藏（此时收藏时间为原收藏时间），0 表示该用户的收藏状态未加载
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return {0, 0, 0}
+end
+
+local delta
+local favoriteTime = redis.call('HGET', KEYS[1], ARGV[1])
+if favoriteTime then
+    redis.call('HDEL', KEYS[1], ARGV[1])
+    delta = -1
+else
+    favoriteTime = ARGV[2]
+    redis.call('HSET', KEYS[1], ARGV[1], favoriteTime)
+    delta = 1
+end
+
+-- 收藏数缓存不存在时不创建，由调用方从 MySQL 加载后再加上变化量
+local counted = 0
+if redis.call('HEXISTS', KEYS[2], ARGV[5]) == 1 then
+    redis.call('HINCRBY', KEYS[2], ARGV[5], delta)
+    redis.call('EXPIRE', KEYS[2], ARGV[4])
+    counted = 1
+end
+
+redis.call('SADD', KEYS[3], ARGV[3] .. ':' .. ARGV[1])
+return {delta, tonumber(favoriteTime), counted}
@@ -0,0 +1,47 @@
+-- 热门商品热度增量更新（前向衰减，原子执行，一次往返）
+-- KEYS[1] : 热门商品 ZSet
+-- KEYS[2] : 热度基准时间戳 key（由初始化写入，不存在说明榜单尚未初始化）
+-- ARGV[1] : 成员（商品ID）
+-- ARGV[2] : 变化量（收藏 +1，取消收藏 -1）
+-- ARGV[3] : 事件时间戳（毫秒），取消收藏时传原收藏时间，恰好抵消当初加上的热度
+-- ARGV[4] : 当前时间戳（毫秒）
+-- ARGV[5] : 半衰期（毫秒）
+-- ARGV[6] : ZSet 最大成员数，超出的热度最低成员被裁掉
+-- ARGV[7] : 最低热度（折合成当前时刻的收藏数），低于它的成员被移除
+-- 返回 1 表示成员在榜单中，0 表示不在（被移除、取消收藏时已不在榜单，或榜单尚未初始化）
+--
+-- 热度 = Σ 2^((收藏时间 - 基准时间) / 半衰期)，新收藏的权重随时间指数增长，等价于旧收藏随时间指数衰减，
+-- 排序只需比较当前 score，无需定期重算所有成员；score 增长过大时由 trending_rescale.lua 整体缩小
+local key = KEYS[1]
+local epochKey = KEYS[2]
+local member = ARGV[1]
+local delta = tonumber(ARGV[2])
+local eventTime = tonumber(ARGV[3])
+local now = tonumber(ARGV[4])
+local halfLife = tonumber(ARGV[5])
+local maxSize = tonumber(ARGV[6])
+local minScore = tonumber(ARGV[7])
+
+-- 未初始化时不记录：初始化从 MySQL 汇总收藏记录，已包含这次收藏；
+-- 若在这里创建基准时间，初始化会误以为榜单已存在而跳过，榜单从此只有增量
+local epoch = tonumber(redis.call('GET', epochKey))
+if not epoch then
+    return 0
+end
+
+-- 取消收藏时成员已被裁掉（或从未进入榜单），不再扣减
+if delta < 0 and not redis.call('ZSCORE', key, member) then
+    return 0
+end
+
+local weight = math.pow(2, (eventTime - epoch) / halfLife)
+local score = tonumber(redis.call('ZINCRBY', key, delta * weight, member))
+
+if score < minScore * math.pow(2, (now - epoch) / halfLife) then
+    redis.call('ZREM', key, member)
+    return 0
+end
+if maxSize > 0 and redis.call('ZCARD', key) > maxSize then
+    redis.call('ZREMRANGEBYRANK', key, 0, -(maxSize + 1))
+end
+return 1
@@ -0,0 +1,35 @@
+-- 热门商品热度重新缩放 + 清理（原子执行）
+-- KEYS[1] : 热门商品 ZSet
+-- KEYS[2] : 热度基准时间戳 key
+-- ARGV[1] : 当前时间戳（毫秒）
+-- ARGV[2] : 半衰期（毫秒）
+-- ARGV[3] : 距基准时间超过多少个半衰期时缩放（score 最大约为 2^该值，需远小于 double 的精度和范围上限）
+-- ARGV[4] : 最低热度（折合成当前时刻的收藏数），低于它的成员被移除
+-- 返回 1 表示做了缩放，0 表示只做了清理
+--
+-- 缩放：所有 score 乘以 2^(-(当前时间 - 基准时间) / 半衰期)，基准时间改为当前时间，排序不变
+local key = KEYS[1]
+local epochKey = KEYS[2]
+local now = tonumber(ARGV[1])
+local halfLife = tonumber(ARGV[2])
+local maxHalfLives = tonumber(ARGV[3])
+local minScore = tonumber(ARGV[4])
+
+local epoch = tonumber(redis.call('GET', epochKey))
+if not epoch then
+    return 0
+end
+
+local lives = (now - epoch) / halfLife
+local rescaled = 0
+if lives >= maxHalfLives then
+    if redis.call('EXISTS', key) == 1 then
+        redis.call('ZUNIONSTORE', key, 1, key, 'WEIGHTS', math.pow(2, -lives))
+    end
+    redis.call('SET', epochKey, ARGV[1])
+    lives = 0
+    rescaled = 1
+end
+
+redis.call('ZREMRANGEBYSCORE', key, '-inf', '(' .. tostring(minScore * math.pow(2, lives)))
+return rescaled
@@ -0,0 +1,55 @@
+-- 商品索引 ZSet 状态迁移（原子执行，一次往返）
+-- KEYS[1..removeCount]      : 需要移除成员的 ZSet
+-- KEYS[removeCount+1..#KEYS] : 需要添加成员的 ZSet（只在 ZSet 已存在时添加，不存在说明未缓存，由查询时重建）
+-- ARGV[1] : 成员（商品ID）
+-- ARGV[2] : score（时间戳）
+-- ARGV[3] : removeCount
+-- ARGV[4] : 窗口大小，添加后超出的最旧成员会被裁掉（<=0 不裁剪）
+-- 返回实际添加到的 ZSet 个数
+--
+-- 窗口被裁剪过的 ZSet 带有哨兵成员 -1（score 为 0，总在最底部），表示窗口之外还有更早的数据在 MySQL 中
+-- 成员 0 是空结果占位（负缓存），有真实成员加入时移除
+local SENTINEL = '-1'
+local EMPTY_PLACEHOLDER = '0'
+local member = ARGV[1]
+local score = ARGV[2]
+local removeCount = tonumber(ARGV[3])
+local windowSize = tonumber(ARGV[4])
+local added = 0
+
+for i = 1, removeCount do
+    redis.call('ZREM', KEYS[i], member)
+end
+
+for i = removeCount + 1, #KEYS do
+    local key = KEYS[i]
+    if redis.call('EXISTS', key) == 1 then
+        local truncated = redis.call('ZSCORE', key, SENTINEL)
+        local accept = true
+        if truncated then
+            -- 已裁剪的窗口只保存"底部之上的全部成员"，比底部还旧的成员交给 MySQL 兜底，不能放进来
+            local bottom = redis.call('ZRANGE', key, 1, 1, 'WITHSCORES')
+            if bottom[2] and tonumber(score) < tonumber(bottom[2]) then
+                redis.call('ZREM', key, member)
+                accept = false
+            end
+        end
+        if accept then
+            redis.call('ZREM', key, EMPTY_PLACEHOLDER)
+            redis.call('ZADD', key, score, member)
+            added = added + 1
+            if windowSize > 0 then
+                local offset = truncated and 1 or 0
+                local real = redis.call('ZCARD', key) - offset
+                if real > windowSize then
+                    redis.call('ZREMRANGEBYRANK', key, offset, offset + real - windowSize - 1)
+                    if not truncated then
+                        redis.call('ZADD', key, 0, SENTINEL)
+                    end
+                end
+            end
+        end
+    end
+end
+
+return added
@@ -0,0 +1,80 @@
+-- 窗口 ZSet 按 (score, 成员ID) 复合游标分页读取（一次往返）
+-- KEYS[1] : ZSet
+-- ARGV[1] : 游标 score（时间戳）
+-- ARGV[2] : 游标成员ID，score 等于游标的成员只返回 ID 小于它的；'0' 表示游标 score 上的成员全部跳过（兼容只有时间戳的旧游标）
+-- ARGV[3] : 读取数量
+-- 返回 {'1', member1, score1, member2, score2, ...}，按 (score DESC, ID DESC) 排序；ZSet 不存在返回空列表
+-- （脚本返回的 nil 经客户端转换后与空结果无法区分，这里用首个元素标记 ZSet 存在）
+--
+-- 同 score 的成员在 Redis 中按字节序排列（'9' 在 '10' 之后），与 MySQL 的 ORDER BY time DESC, id DESC 不一致，
+-- 这里把同 score 的成员按ID数值重新排序，翻页时 Redis 窗口和 MySQL 回源的顺序才能完全衔接
+-- ID 按字符串比较（先比长度再比字典序），避免超过 2^53 的ID转成 Lua 数字后丢失精度
+-- score 为 0 的是哨兵/空结果占位成员，原样返回，由调用方识别
+local key = KEYS[1]
+if redis.call('EXISTS', key) == 0 then
+    return {}
+end
+local cursor = ARGV[1]
+local cursorId = ARGV[2]
+local count = tonumber(ARGV[3])
+
+local function idGreater(a, b)
+    if #a ~= #b then
+        return #a > #b
+    end
+    return a > b
+end
+
+local result = {'1'}
+local n = 0
+
+-- 1. 游标 score 上 ID 小于游标ID的成员
+if cursorId ~= '0' then
+    local ties = redis.call('ZRANGEBYSCORE', key, cursor, cursor)
+    local picked = {}
+    for _, member in ipairs(ties) do
+        if idGreater(cursorId, member) then
+            table.insert(picked, member)
+        end
+    end
+    table.sort(picked, idGreater)
+    for _, member in ipairs(picked) do
+        if n >= count then
+            break
+        end
+        table.insert(result, member)
+        table.insert(result, cursor)
+        n = n + 1
+    end
+end
+
+-- 2. 比游标 score 更早的成员
+if n < count then
+    local limit = count - n
+    local rows = redis.call('ZREVRANGEBYSCORE', key, '(' .. cursor, '-inf', 'WITHSCORES', 'LIMIT', 0, limit)
+    local i = 1
+    while i <= #rows do
+        local score = rows[i + 1]
+        local group = {}
+        local j = i
+        while j <= #rows and rows[j + 1] == score do
+            table.insert(group, rows[j])
+            j = j + 2
+        end
+        local take = #group
+        if tonumber(score) > 0 then
+            if j > #rows and #rows / 2 == limit then
+                -- 最后一组可能被 LIMIT 截断，截断位置按字节序而不是数值，需读取整组后取ID最大的几个
+                group = redis.call('ZRANGEBYSCORE', key, score, score)
+            end
+            table.sort(group, idGreater)
+        end
+        for t = 1, take do
+            table.insert(result, group[t])
+            table.insert(result, score)
+        end
+        i = j
+    end
+end
+
+return result
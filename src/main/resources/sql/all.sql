@@ -19,7 +19,7 @@ create table admin
 
 create table chat_message
 (
-    id           bigint auto_increment comment '主键ID'
+    id           bigint                             not null comment '主键ID(应用分配的时间有序ID)'
         primary key,
     session_id   varchar(64)                        not null comment '会话ID',
     sender_id    bigint                             not null comment '发送者ID',
@@ -42,14 +42,14 @@ create index idx_send_time
 create index idx_sender
     on chat_message (sender_id);
 
-create index idx_session
-    on chat_message (session_id);
+create index idx_session_id
+    on chat_message (session_id, id);
 
 
 
 create table chat_session
 (
-    id                bigint auto_increment comment '主键ID'
+    id                bigint                             not null comment '主键ID(应用分配的时间有序ID)'
         primary key,
     session_id        varchar(64)                        not null comment '会话ID(user1_user2格式,小ID在前)',
     user1_id          bigint                             not null comment '用户1ID',
@@ -63,6 +63,9 @@ create table chat_session
     update_time       datetime default CURRENT_TIMESTAMP null on update CURRENT_TIMESTAMP comment '更新时间',
     user1_hide        tinyint  default 0                 null comment 'user1是否隐藏会话:0显示,1隐藏',
     user2_hide        tinyint  default 0                 null comment 'user2是否隐藏会话:0显示,1隐藏',
+    -- 消息异步落库，标记已读时还在 Stream 中的消息落库较晚；ID 不大于已读水位的消息按已读写入，不计未读数
+    user1_read_id     bigint   default 0                 not null comment '用户1已读水位(消息ID)',
+    user2_read_id     bigint   default 0                 not null comment '用户2已读水位(消息ID)',
     constraint session_id
         unique (session_id)
 )
@@ -101,11 +104,12 @@ create table comments
 create index idx_create_time
     on comments (create_time);
 
-create index idx_goods_id
-    on comments (goods_id);
+-- 复合游标 (create_time, id) 分页索引
+create index idx_goods_parent_status_create
+    on comments (goods_id, parent_id, status, create_time, id);
 
-create index idx_parent_id
-    on comments (parent_id);
+create index idx_parent_status_create
+    on comments (parent_id, status, create_time, id);
 
 create index idx_user_id
     on comments (user_id);
@@ -130,14 +134,21 @@ create table goods
 )
     comment '商品表' collate = utf8mb4_unicode_ci;
 
-create index idx_category_status
-    on goods (category_id, status);
+-- 复合游标 (update_time, id) 分页索引：等值条件在前，排序列和游标列在后，翻页为索引范围扫描，无需 filesort
+create index idx_category_status_update
+    on goods (category_id, status, update_time, id);
 
 create fulltext index idx_description_fulltext
     on goods (description);
 
-create index idx_owner
-    on goods (owner_id);
+create index idx_owner_update
+    on goods (owner_id, update_time, id);
+
+create index idx_owner_status_update
+    on goods (owner_id, status, update_time, id);
+
+create index idx_status_update
+    on goods (status, update_time, id);
 
 create index idx_update_time
     on goods (update_time desc);
@@ -164,19 +175,79 @@ create table goods
 )
     comment '商品表' collate = utf8mb4_unicode_ci;
 
-create index idx_category_status
-    on goods (category_id, status);
+-- 复合游标 (update_time, id) 分页索引：等值条件在前，排序列和游标列在后，翻页为索引范围扫描，无需 filesort
+create index idx_category_status_update
+    on goods (category_id, status, update_time, id);
 
 create fulltext index idx_description_fulltext
     on goods (description);
 
-create index idx_owner
-    on goods (owner_id);
+create index idx_owner_update
+    on goods (owner_id, update_time, id);
+
+create index idx_owner_status_update
+    on goods (owner_id, status, update_time, id);
+
+create index idx_status_update
+    on goods (status, update_time, id);
 
 create index idx_update_time
     on goods (update_time desc);
 
 
+create table goods_outbox
+(
+    id              bigint auto_increment comment '事件ID'
+        primary key,
+    goods_id        bigint                                   not null comment '商品ID',
+    event_type      varchar(64)                              not null comment '事件类型',
+    payload         varchar(1024)                            not null comment '事件内容（JSON）',
+    attempts        int         default 0                    not null comment '补偿重试次数',
+    next_retry_time datetime(3)                              not null comment '下次补偿时间',
+    create_time     datetime(3) default CURRENT_TIMESTAMP(3) not null comment '创建时间'
+)
+    comment '商品事件发件箱：与商品变更同一事务写入，提交后异步维护缓存和索引，处理完成后删除' collate = utf8mb4_unicode_ci;
+
+-- 补偿任务按到期时间扫描
+create index idx_next_retry_time
+    on goods_outbox (next_retry_time);
+
+create table goods_favorite
+(
+    id          bigint auto_increment comment '收藏ID'
+        primary key,
+    user_id     bigint                                   not null comment '用户ID',
+    goods_id    bigint                                   not null comment '商品ID',
+    -- 与 Redis 中的收藏时间戳同为毫秒精度，重新加载后收藏列表的 score 和热门榜权重不变
+    create_time datetime(3) default CURRENT_TIMESTAMP(3) not null comment '收藏时间',
+    -- 收藏状态以 Redis 为准、批量落库，唯一索引保证重复落库幂等（INSERT ... ON DUPLICATE KEY UPDATE）
+    constraint uk_user_goods
+        unique (user_id, goods_id)
+)
+    comment '商品收藏表' collate = utf8mb4_unicode_ci;
+
+-- 收藏列表按 (收藏时间, 商品ID) 复合游标分页
+create index idx_user_create
+    on goods_favorite (user_id, create_time, goods_id);
+
+create index idx_goods
+    on goods_favorite (goods_id);
+
+create table image_object
+(
+    hash        char(64)                                 not null comment '文件内容 SHA-256（十六进制）'
+        primary key,
+    object_name varchar(255)                             not null comment '存储对象名',
+    url         varchar(512)                             not null comment '访问URL',
+    size        bigint                                   not null comment '文件大小（字节）',
+    ref_count   int         default 1                    not null comment '引用次数，降为 0 时删除记录和存储对象',
+    create_time datetime    default CURRENT_TIMESTAMP    not null comment '创建时间',
+    -- 删除文件时按对象名减少引用
+    constraint uk_object_name
+        unique (object_name)
+)
+    comment '图片内容索引：相同内容的图片只存一份，上传时按内容哈希复用已有URL' collate = utf8mb4_unicode_ci;
+
 create table user
 (
     id          bigint auto_increment comment '用户ID'
@@ -200,4 +271,8 @@ create table user
     comment 'user' collate = utf8mb4_unicode_ci;
 
 create index idx_email
-    on user (email);
\ No newline at end of file
+    on user (email);
+
+-- 用户列表复合游标 (create_time, id) 分页索引
+create index idx_create_time_id
+    on user (create_time, id);
\ No newline at end of file
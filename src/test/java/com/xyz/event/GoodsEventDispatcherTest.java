@@ -0,0 +1,265 @@
+package com.xyz.event;
+
+import com.xyz.entity.GoodsOutbox;
+import com.xyz.mapper.GoodsOutboxMapper;
+import com.xyz.properties.GoodsEventProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 商品事件发件箱：处理失败、通道已满的事件由补偿任务认领重放，多节点只有一个认领成功，处理成功后删除
+ */
+class GoodsEventDispatcherTest {
+
+    private GoodsCacheMaintainer goodsCacheMaintainer;
+    private GoodsOutboxMapper goodsOutboxMapper;
+    private GoodsEventProperties properties;
+    private GoodsEventDispatcher dispatcher;
+
+    /** 模拟 goods_outbox 表：id -> 行 */
+    private final TreeMap<Long, Row> table = new TreeMap<>();
+
+    /** 模拟数据库时间（秒） */
+    private long now = 1_000;
+
+    private long nextId = 1;
+
+    /** 删除是否失败 */
+    private boolean deleteFails;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        goodsCacheMaintainer = mock(GoodsCacheMaintainer.class);
+        goodsOutboxMapper = mock(GoodsOutboxMapper.class);
+        when(goodsOutboxMapper.findDue(anyInt())).thenAnswer(invocation -> table.values().stream()
+                .filter(row -> row.nextRetryTime <= now)
+                .limit((int) invocation.getArgument(0))
+                .map(Row::snapshot)
+                .toList());
+        when(goodsOutboxMapper.claim(anyLong(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            Row row = table.get((Long) invocation.getArgument(0));
+            // 乐观锁：attempts 与读到的值一致才认领成功
+            if (row == null || row.attempts != (int) invocation.getArgument(1)) {
+                return 0;
+            }
+            row.attempts++;
+            row.nextRetryTime = now + (int) invocation.getArgument(2);
+            return 1;
+        });
+        when(goodsOutboxMapper.deleteByIds(anyList())).thenAnswer(invocation -> {
+            if (deleteFails) {
+                throw new RuntimeException("db down");
+            }
+            int rows = 0;
+            for (Long id : (List<Long>) invocation.getArgument(0)) {
+                if (table.remove(id) != null) {
+                    rows++;
+                }
+            }
+            return rows;
+        });
+        when(goodsOutboxMapper.countPending()).thenAnswer(invocation -> (long) table.size());
+
+        properties = new GoodsEventProperties();
+        properties.setLanes(1);
+        properties.setGraceSeconds(30);
+        properties.setMaxRetryDelaySeconds(100);
+        dispatcher = newDispatcher();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void failedEventIsRetriedWithBackoffUntilHandled() {
+        doThrow(new RuntimeException("redis down"))
+                .doThrow(new RuntimeException("redis down"))
+                .doThrow(new RuntimeException("redis down"))
+                .doNothing()
+                .when(goodsCacheMaintainer).apply(any());
+
+        GoodsEvent event = publish(new GoodsReleasedEvent(10L, 1L));
+        dispatcher.onGoodsEvent(event);
+        awaitProcessed(dispatcher, 1);
+        assertEquals(1L, dispatcher.stats().get("failed"));
+        long outboxId = event.getOutboxId();
+        assertTrue(table.containsKey(outboxId));
+
+        // 宽限期内不补偿
+        dispatcher.retryDue();
+        assertEquals(0L, dispatcher.stats().get("retried"));
+
+        // 重试间隔 30s、60s、100s（封顶）
+        long[] delays = {30, 60, 100};
+        for (int i = 0; i < delays.length; i++) {
+            now = table.get(outboxId).nextRetryTime;
+            dispatcher.retryDue();
+            awaitProcessed(dispatcher, i + 2);
+            assertEquals(i + 1, table.get(outboxId).attempts);
+            assertEquals(now + delays[i], table.get(outboxId).nextRetryTime);
+        }
+        assertEquals(3L, dispatcher.stats().get("retried"));
+        assertEquals(1L, dispatcher.stats().get("handled"));
+
+        // 重放的事件内容与原事件相同
+        verify(goodsCacheMaintainer, times(4)).apply(argThat(e ->
+                e instanceof GoodsReleasedEvent && e.getGoodsId() == 10L && e.getOwnerId() == 1L && e.getOutboxId() == outboxId));
+
+        // 处理成功后批量删除，不再重放
+        dispatcher.deleteCompleted();
+        assertTrue(table.isEmpty());
+        now += 1_000;
+        dispatcher.retryDue();
+        assertEquals(3L, dispatcher.stats().get("retried"));
+    }
+
+    @Test
+    void onlyOneNodeClaimsDueEvent() {
+        GoodsEvent event = publish(new GoodsUpdatedEvent(20L, 2L, 5L));
+        now += properties.getGraceSeconds();
+
+        // 两个节点读到同一行，只有先 claim 的节点重新分发
+        List<GoodsOutbox> due = goodsOutboxMapper.findDue(10);
+        when(goodsOutboxMapper.findDue(anyInt())).thenReturn(due);
+        GoodsEventDispatcher other = newDispatcher();
+        try {
+            dispatcher.retryDue();
+            other.retryDue();
+            awaitProcessed(dispatcher, 1);
+
+            assertEquals(1L, dispatcher.stats().get("retried"));
+            assertEquals(0L, other.stats().get("retried"));
+            verify(goodsOutboxMapper, times(2)).claim(event.getOutboxId(), 0, properties.getGraceSeconds());
+            verify(goodsCacheMaintainer, times(1)).apply(any());
+        } finally {
+            other.shutdown();
+        }
+    }
+
+    @Test
+    void rejectedEventIsLeftForCompensation() throws InterruptedException {
+        properties.setLaneQueueCapacity(1);
+        dispatcher.shutdown();
+        dispatcher = newDispatcher();
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            if (((GoodsEvent) invocation.getArgument(0)).getGoodsId() == 1L) {
+                blocked.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return null;
+        }).when(goodsCacheMaintainer).apply(any());
+
+        // 第一个事件占住通道线程，第二个排队，第三个被拒绝
+        GoodsEvent first = publish(new GoodsStatusChangedEvent(1L, null, 2));
+        dispatcher.onGoodsEvent(first);
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        dispatcher.onGoodsEvent(publish(new GoodsStatusChangedEvent(2L, null, 2)));
+        GoodsEvent third = publish(new GoodsStatusChangedEvent(3L, null, 2));
+        dispatcher.onGoodsEvent(third);
+        assertEquals(1L, dispatcher.stats().get("rejected"));
+
+        release.countDown();
+        awaitProcessed(dispatcher, 2);
+        dispatcher.deleteCompleted();
+        assertEquals(Set.of(third.getOutboxId()), table.keySet());
+
+        now += properties.getGraceSeconds();
+        dispatcher.retryDue();
+        awaitProcessed(dispatcher, 3);
+        dispatcher.deleteCompleted();
+        assertTrue(table.isEmpty());
+        verify(goodsCacheMaintainer).apply(argThat(e -> e.getGoodsId() == 3L && e instanceof GoodsStatusChangedEvent));
+    }
+
+    @Test
+    void failedDeleteIsRetried() {
+        GoodsEvent event = publish(new GoodsReleasedEvent(30L, 3L));
+        dispatcher.onGoodsEvent(event);
+        awaitProcessed(dispatcher, 1);
+
+        // 删除失败：放回队列，事件仍在发件箱中
+        deleteFails = true;
+        dispatcher.deleteCompleted();
+        assertEquals(1, dispatcher.stats().get("pendingDelete"));
+        assertTrue(table.containsKey(event.getOutboxId()));
+
+        deleteFails = false;
+        dispatcher.deleteCompleted();
+        assertEquals(0, dispatcher.stats().get("pendingDelete"));
+        assertTrue(table.isEmpty());
+        verify(goodsOutboxMapper, times(2)).deleteByIds(List.of(event.getOutboxId()));
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private GoodsEventDispatcher newDispatcher() {
+        GoodsEventDispatcher instance = new GoodsEventDispatcher();
+        ReflectionTestUtils.setField(instance, "goodsCacheMaintainer", goodsCacheMaintainer);
+        ReflectionTestUtils.setField(instance, "goodsOutboxMapper", goodsOutboxMapper);
+        ReflectionTestUtils.setField(instance, "goodsEventProperties", properties);
+        instance.init();
+        return instance;
+    }
+
+    /**
+     * 与 GoodsEventPublisher.publish 相同：写入发件箱并回填事件ID
+     */
+    private GoodsEvent publish(GoodsEvent event) {
+        Row row = new Row();
+        row.id = nextId++;
+        row.goodsId = event.getGoodsId();
+        row.eventType = event.getEventType();
+        row.payload = GoodsEventPublisher.toJson(event);
+        row.nextRetryTime = now + properties.getGraceSeconds();
+        table.put(row.id, row);
+        event.setOutboxId(row.id);
+        return event;
+    }
+
+    private static void awaitProcessed(GoodsEventDispatcher instance, long count) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (true) {
+            Map<String, Object> stats = instance.stats();
+            if ((long) stats.get("handled") + (long) stats.get("failed") >= count) {
+                return;
+            }
+            assertTrue(System.currentTimeMillis() < deadline, "事件未在 5s 内处理完");
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+
+    private static class Row {
+        long id;
+        long goodsId;
+        String eventType;
+        String payload;
+        int attempts;
+        long nextRetryTime;
+
+        GoodsOutbox snapshot() {
+            return GoodsOutbox.builder().id(id).goodsId(goodsId).eventType(eventType)
+                    .payload(payload).attempts(attempts).build();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.xyz.serializer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 紧凑二进制编码 vs 带类型信息的 JSON：每条缓存的字节数和序列化/反序列化耗时（正确性校验见 CompactRedisSerializerTest）
+ * mvn test -Dtest=CompactRedisSerializerBenchmarkTest -Dserializer.benchmark=true
+ */
+@EnabledIfSystemProperty(named = "serializer.benchmark", matches = "true")
+class CompactRedisSerializerBenchmarkTest {
+
+    private static final int WARMUP = 20000;
+    private static final int ITERATIONS = 50000;
+
+    private final RedisSerializer<Object> json = CompactRedisSerializerTest.valueSerializer(false);
+    private final RedisSerializer<Object> compact = CompactRedisSerializerTest.valueSerializer(true);
+
+    @Test
+    void compareBytesAndSpeed() {
+        System.out.printf("%-14s %10s %10s %12s %12s %12s %12s%n",
+                "type", "jsonBytes", "binBytes", "jsonSerNs", "binSerNs", "jsonDeserNs", "binDeserNs");
+        for (Object sample : CompactRedisSerializerTest.samples()) {
+            byte[] jsonBytes = json.serialize(sample);
+            byte[] binBytes = compact.serialize(sample);
+            System.out.printf("%-14s %10d %10d %12.0f %12.0f %12.0f %12.0f%n",
+                    sample.getClass().getSimpleName(), jsonBytes.length, binBytes.length,
+                    serializeNanos(json, sample), serializeNanos(compact, sample),
+                    deserializeNanos(json, jsonBytes), deserializeNanos(compact, binBytes));
+        }
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private static double serializeNanos(RedisSerializer<Object> serializer, Object value) {
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += serializer.serialize(value).length;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += serializer.serialize(value).length;
+        }
+        long cost = System.nanoTime() - start;
+        assertTrue(sink > 0);
+        return (double) cost / ITERATIONS;
+    }
+
+    private static double deserializeNanos(RedisSerializer<Object> serializer, byte[] bytes) {
+        int sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += serializer.deserialize(bytes).hashCode() & 1;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += serializer.deserialize(bytes).hashCode() & 1;
+        }
+        long cost = System.nanoTime() - start;
+        assertTrue(sink >= 0);
+        return (double) cost / ITERATIONS;
+    }
+}
@@ -0,0 +1,130 @@
+package com.xyz.serializer;
+
+import com.xyz.configuration.RedisConfiguration;
+import com.xyz.entity.User;
+import com.xyz.properties.RedisCodecProperties;
+import com.xyz.vo.GoodsCardVO;
+import com.xyz.vo.GoodsDetailVO;
+import com.xyz.vo.UserListVO;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 紧凑二进制编码：往返一致且小于带类型信息的 JSON、旧 JSON 数据可读、非缓存对象的字节不变、损坏的数据按未命中处理
+ * （字节数和耗时对比见 CompactRedisSerializerBenchmarkTest）
+ */
+class CompactRedisSerializerTest {
+
+    private final RedisSerializer<Object> json = valueSerializer(false);
+    private final RedisSerializer<Object> compact = valueSerializer(true);
+
+    @Test
+    void roundTripsSmallerThanJson() {
+        for (Object sample : samples()) {
+            byte[] jsonBytes = json.serialize(sample);
+            byte[] binBytes = compact.serialize(sample);
+            assertEquals(CompactRedisSerializer.MAGIC, binBytes[0]);
+            assertTrue(binBytes.length < jsonBytes.length, "二进制编码应小于 JSON: " + sample.getClass());
+            assertEquals(sample, compact.deserialize(binBytes));
+        }
+    }
+
+    @Test
+    void readsLegacyJson() {
+        for (Object sample : Arrays.asList(goodsCard(), goodsDetail(), user())) {
+            assertEquals(sample, compact.deserialize(json.serialize(sample)));
+        }
+        // JSON 不写入 @JsonIgnore 字段
+        UserListVO vo = userListVO();
+        UserListVO fromJson = (UserListVO) compact.deserialize(json.serialize(vo));
+        vo.setCreateTimeTimestamp(null);
+        assertEquals(vo, fromJson);
+    }
+
+    @Test
+    void keepsScalarBytesUnchanged() {
+        for (Object value : Arrays.asList(123L, 42, "goods", "", 1.5)) {
+            byte[] bytes = json.serialize(value);
+            assertArrayEquals(bytes, compact.serialize(value));
+            assertEquals(json.deserialize(bytes), compact.deserialize(bytes));
+        }
+    }
+
+    @Test
+    void treatsBrokenBinaryAsMiss() {
+        byte[] bytes = compact.serialize(goodsDetail());
+        assertNull(compact.deserialize(Arrays.copyOf(bytes, bytes.length / 2)));
+        bytes[1] = 99;
+        assertNull(compact.deserialize(bytes));
+    }
+
+    // ==================== 辅助方法 ====================
+
+    static RedisSerializer<Object> valueSerializer(boolean binaryEnabled) {
+        RedisCodecProperties properties = new RedisCodecProperties();
+        properties.setBinaryEnabled(binaryEnabled);
+        // 关闭二进制编码时仍是 CompactRedisSerializer（只写 JSON），与应用中的配置相同
+        return (CompactRedisSerializer) new RedisConfiguration()
+                .redisTemplate(Mockito.mock(RedisConnectionFactory.class), properties)
+                .getValueSerializer();
+    }
+
+    /**
+     * 各类缓存对象的典型样本
+     */
+    static List<Object> samples() {
+        return Arrays.asList(goodsCard(), goodsDetail(), user(), userListVO());
+    }
+
+    private static GoodsCardVO goodsCard() {
+        return GoodsCardVO.builder()
+                .id(1024L).ownerId(37L).briefDescription("九成新 iPad Air 5 64G 蓝色，带原装充电器...")
+                .coverUrl("https://trade-bucket.oss-cn-hangzhou.aliyuncs.com/goods/2f6c1a9e.jpg")
+                .goodsType(3).collectNum(12).sellPrice(new BigDecimal("2999.00")).rentPrice(new BigDecimal("15.50"))
+                .ownerName("小林").ownerAvatar("https://trade-bucket.oss-cn-hangzhou.aliyuncs.com/avatar/37.png")
+                .updateTimestamp(1760000000123L)
+                .build();
+    }
+
+    private static GoodsDetailVO goodsDetail() {
+        List<String> images = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            images.add("https://trade-bucket.oss-cn-hangzhou.aliyuncs.com/goods/2f6c1a9e-" + i + ".jpg");
+        }
+        return GoodsDetailVO.builder()
+                .id(1024L).ownerId(37L).goodsType(3)
+                .description("九成新 iPad Air 5 64G 蓝色，带原装充电器和保护壳，电池健康 96%，无磕碰无维修，"
+                        + "支持当面验货，可短租，押金另议。毕业出闲置，图书馆或者东门交易都可以。")
+                .imageUrls(images).categoryId(5L).conditionLevel(2).collectNum(12)
+                .sellPrice(new BigDecimal("2999.00")).rentPrice(new BigDecimal("15.50")).status(1)
+                .createTime(LocalDateTime.of(2026, 9, 1, 10, 30, 15))
+                .updateTime(LocalDateTime.of(2026, 10, 9, 8, 53, 20, 123000000))
+                .ownerName("小林").ownerAvatar("https://trade-bucket.oss-cn-hangzhou.aliyuncs.com/avatar/37.png")
+                .build();
+    }
+
+    private static User user() {
+        return new User(37L, "20230037", "$2a$10$Q9WnZ3ZkT7d0m0h5Xo0rUeW1oZ1bq3m5r8o1y2xYqk8e9sQ7V5Z6a",
+                "lin@example.com", "13800000037", "小林", "女",
+                "https://trade-bucket.oss-cn-hangzhou.aliyuncs.com/avatar/37.png", "数码爱好者，出闲置",
+                1, LocalDateTime.of(2025, 9, 1, 9, 0), LocalDateTime.of(2026, 10, 1, 12, 0));
+    }
+
+    private static UserListVO userListVO() {
+        return UserListVO.builder()
+                .id(37L).accountNum("20230037").nickname("小林").email("lin@example.com").phone("13800000037")
+                .image("https://trade-bucket.oss-cn-hangzhou.aliyuncs.com/avatar/37.png").status(1)
+                .createTime(LocalDateTime.of(2025, 9, 1, 9, 0)).createTimeTimestamp(1756688400000L)
+                .build();
+    }
+}
@@ -0,0 +1,217 @@
+package com.xyz.service.impl;
+
+import com.xyz.constant.ChatConstant;
+import com.xyz.constant.RedisConstant;
+import com.xyz.entity.ChatMessage;
+import com.xyz.entity.ChatSession;
+import com.xyz.mapper.ChatMessageMapper;
+import com.xyz.support.RedisTestSupport;
+import com.xyz.util.BaseContext;
+import com.xyz.util.ChatRecentMessageBuffer;
+import com.xyz.util.ChatSessionCache;
+import com.xyz.util.UserProfileCache;
+import com.xyz.vo.ChatMessageVO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 聊天历史按消息ID翻页：最新一页来自 Redis 最新消息缓存，之后的页来自 MySQL，
+ * 新消息追加、回填竞争、失效前后翻页都不重复、不遗漏
+ */
+class ChatServiceImplTest extends RedisTestSupport {
+
+    private static final String SESSION_ID = "1_2";
+
+    private ChatMessageMapper chatMessageMapper;
+    private ChatRecentMessageBuffer chatRecentMessageBuffer;
+    private ChatServiceImpl chatService;
+
+    /** 模拟 chat_message 表：id -> 消息 */
+    private final TreeMap<Long, ChatMessage> table = new TreeMap<>();
+
+    @BeforeEach
+    void setUp() {
+        chatMessageMapper = mock(ChatMessageMapper.class);
+        when(chatMessageMapper.listBySessionId(eq(SESSION_ID), any(), anyInt())).thenAnswer(invocation ->
+                select(invocation.getArgument(1), invocation.getArgument(2)));
+
+        ChatSessionCache chatSessionCache = mock(ChatSessionCache.class);
+        when(chatSessionCache.get(SESSION_ID)).thenReturn(
+                ChatSession.builder().sessionId(SESSION_ID).user1Id(1L).user2Id(2L).build());
+        UserProfileCache userProfileCache = mock(UserProfileCache.class);
+        when(userProfileCache.getProfiles(anyCollection())).thenReturn(Collections.emptyMap());
+
+        chatRecentMessageBuffer = new ChatRecentMessageBuffer();
+        ReflectionTestUtils.setField(chatRecentMessageBuffer, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(chatRecentMessageBuffer, "stringRedisTemplate", stringRedisTemplate);
+
+        chatService = new ChatServiceImpl();
+        ReflectionTestUtils.setField(chatService, "chatMessageMapper", chatMessageMapper);
+        ReflectionTestUtils.setField(chatService, "chatSessionCache", chatSessionCache);
+        ReflectionTestUtils.setField(chatService, "userProfileCache", userProfileCache);
+        ReflectionTestUtils.setField(chatService, "chatRecentMessageBuffer", chatRecentMessageBuffer);
+        BaseContext.setCurrentId(1L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        BaseContext.removeCurrentId();
+    }
+
+    @Test
+    void pagesCrossFromRecentBufferToMysql() {
+        for (long id = 1; id <= 120; id++) {
+            insert(id);
+        }
+
+        // 第一次打开会话：未命中，从 MySQL 读最新 50 条回填
+        assertEquals(descending(120, 1), history(20));
+        verify(chatMessageMapper, times(1)).listBySessionId(SESSION_ID, null, ChatConstant.RECENT_MESSAGE_SIZE);
+        assertEquals(1L, chatRecentMessageBuffer.stats().get("recentFills"));
+
+        // 再次打开：最新一页只读缓存
+        assertEquals(descending(120, 111), ids(chatService.listMessages(SESSION_ID, null, 10)));
+        assertEquals(1L, chatRecentMessageBuffer.stats().get("recentHits"));
+        verify(chatMessageMapper, times(1)).listBySessionId(SESSION_ID, null, ChatConstant.RECENT_MESSAGE_SIZE);
+
+        // 超过缓存条数的页直接查 MySQL
+        assertEquals(descending(120, 61), ids(chatService.listMessages(SESSION_ID, null, 60)));
+    }
+
+    @Test
+    void appendedMessagesAreOnFirstPageWithoutGaps() {
+        for (long id = 1; id <= 60; id++) {
+            insert(id);
+        }
+        history(20);
+
+        // 新消息落库提交后追加到缓存头部，缓存仍只保留最新 RECENT_MESSAGE_SIZE 条
+        chatRecentMessageBuffer.append(SESSION_ID, List.of(insert(61), insert(62)));
+        assertEquals(descending(62, 1), history(20));
+        assertEquals(ChatConstant.RECENT_MESSAGE_SIZE,
+                redisTemplate.opsForList().size(RedisConstant.CHAT_RECENT_KEY + SESSION_ID).intValue());
+    }
+
+    @Test
+    void fillRacingWithAppendIsDiscarded() {
+        for (long id = 1; id <= 30; id++) {
+            insert(id);
+        }
+        // 回填读取 MySQL 之后、写入 Redis 之前，另一节点提交了新消息并追加（此时 List 不存在，只递增版本号）
+        AtomicBoolean raced = new AtomicBoolean();
+        doAnswer(invocation -> {
+            List<ChatMessage> snapshot = select(null, invocation.getArgument(2));
+            if (raced.compareAndSet(false, true)) {
+                chatRecentMessageBuffer.append(SESSION_ID, List.of(insert(31)));
+            }
+            return snapshot;
+        }).when(chatMessageMapper).listBySessionId(SESSION_ID, null, ChatConstant.RECENT_MESSAGE_SIZE);
+
+        assertEquals(descending(30, 11), ids(chatService.listMessages(SESSION_ID, null, 20)));
+        // 旧快照没有写入缓存，下一次读取重新回填，包含新消息
+        assertEquals(0L, chatRecentMessageBuffer.stats().get("recentFills"));
+        assertEquals(descending(31, 1), history(20));
+        assertEquals(1L, chatRecentMessageBuffer.stats().get("recentFills"));
+    }
+
+    @Test
+    void invalidatedBufferIsReloaded() {
+        for (long id = 1; id <= 10; id++) {
+            insert(id);
+        }
+        assertTrue(chatService.listMessages(SESSION_ID, null, 20).stream().allMatch(vo -> vo.getIsRead() == 0));
+
+        // 标记已读后失效，最新一页读到新的已读状态
+        table.values().forEach(message -> message.setIsRead(1));
+        chatRecentMessageBuffer.invalidate(SESSION_ID);
+        List<ChatMessageVO> page = chatService.listMessages(SESSION_ID, null, 20);
+        assertEquals(descending(10, 1), ids(page));
+        assertTrue(page.stream().allMatch(vo -> vo.getIsRead() == 1));
+        assertEquals(2L, chatRecentMessageBuffer.stats().get("recentFills"));
+    }
+
+    // ==================== 辅助方法 ====================
+
+    /**
+     * 从最新一页开始按 beforeId 翻到底
+     */
+    private List<Long> history(int pageSize) {
+        List<Long> seen = new ArrayList<>();
+        Long beforeId = null;
+        while (true) {
+            List<Long> page = ids(chatService.listMessages(SESSION_ID, beforeId, pageSize));
+            seen.addAll(page);
+            if (page.size() < pageSize) {
+                return seen;
+            }
+            beforeId = page.get(page.size() - 1);
+        }
+    }
+
+    private ChatMessage insert(long id) {
+        ChatMessage message = ChatMessage.builder()
+                .id(id)
+                .sessionId(SESSION_ID)
+                .senderId(1L)
+                .receiverId(2L)
+                .messageType(1)
+                .content("message " + id)
+                .isRead(0)
+                .isRecalled(0)
+                .sendTime(LocalDateTime.of(2024, 6, 1, 12, 0).plusSeconds(id))
+                .build();
+        table.put(id, message);
+        return message;
+    }
+
+    /**
+     * listBySessionId 的 SQL 语义：id &lt; beforeId ORDER BY id DESC LIMIT pageSize（返回副本，与缓存中的对象互不影响）
+     */
+    private List<ChatMessage> select(Long beforeId, int limit) {
+        SortedMap<Long, ChatMessage> rows = beforeId == null ? table : table.headMap(beforeId);
+        List<ChatMessage> page = new ArrayList<>();
+        for (Long id : new TreeSet<>(rows.keySet()).descendingSet()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(copy(rows.get(id)));
+        }
+        return page;
+    }
+
+    private static ChatMessage copy(ChatMessage message) {
+        return ChatMessage.builder()
+                .id(message.getId())
+                .sessionId(message.getSessionId())
+                .senderId(message.getSenderId())
+                .receiverId(message.getReceiverId())
+                .messageType(message.getMessageType())
+                .content(message.getContent())
+                .isRead(message.getIsRead())
+                .isRecalled(message.getIsRecalled())
+                .sendTime(message.getSendTime())
+                .build();
+    }
+
+    private static List<Long> ids(List<ChatMessageVO> page) {
+        return page.stream().map(ChatMessageVO::getId).toList();
+    }
+
+    private static List<Long> descending(long from, long to) {
+        List<Long> ids = new ArrayList<>();
+        for (long id = from; id >= to; id--) {
+            ids.add(id);
+        }
+        return ids;
+    }
+}
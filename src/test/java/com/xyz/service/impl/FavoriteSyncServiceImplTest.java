@@ -0,0 +1,150 @@
+package com.xyz.service.impl;
+
+import com.xyz.constant.RedisConstant;
+import com.xyz.entity.GoodsFavorite;
+import com.xyz.mapper.GoodsMapper;
+import com.xyz.support.RedisTestSupport;
+import com.xyz.util.CollectNumCacheUtil;
+import com.xyz.util.FavoriteStateUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * 收藏状态切换（favorite_toggle.lua）和 write-behind 落库
+ */
+class FavoriteSyncServiceImplTest extends RedisTestSupport {
+
+    private GoodsMapper goodsMapper;
+    private FavoriteStateUtil favoriteStateUtil;
+    private FavoriteSyncServiceImpl syncService;
+
+    @BeforeEach
+    void setUp() {
+        goodsMapper = mock(GoodsMapper.class);
+        when(goodsMapper.getFavoriteTimesByUserId(anyLong())).thenReturn(Collections.emptyList());
+
+        favoriteStateUtil = new FavoriteStateUtil();
+        ReflectionTestUtils.setField(favoriteStateUtil, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(favoriteStateUtil, "goodsMapper", goodsMapper);
+
+        syncService = new FavoriteSyncServiceImpl();
+        ReflectionTestUtils.setField(syncService, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(syncService, "goodsMapper", goodsMapper);
+        ReflectionTestUtils.setField(syncService, "favoriteStateUtil", favoriteStateUtil);
+    }
+
+    @Test
+    void toggleTwiceRestoresStateAndCount() {
+        stringRedisTemplate.opsForHash().put(CollectNumCacheUtil.bucketKey(10L), CollectNumCacheUtil.bucketField(10L), "5");
+
+        FavoriteStateUtil.ToggleResult first = favoriteStateUtil.toggle(1L, 10L);
+        assertTrue(first.isFavorited());
+        assertTrue(first.isCollectNumCached());
+        assertEquals("6", collectNum(10L));
+        assertTrue(favoriteStateUtil.isFavorite(1L, 10L));
+
+        FavoriteStateUtil.ToggleResult second = favoriteStateUtil.toggle(1L, 10L);
+        assertFalse(second.isFavorited());
+        // 取消收藏返回原收藏时间，热门榜据此扣除原来的权重
+        assertEquals(first.getFavoriteTime(), second.getFavoriteTime());
+        assertEquals("5", collectNum(10L));
+        assertFalse(favoriteStateUtil.isFavorite(1L, 10L));
+
+        // 同一对 (用户, 商品) 多次切换只有一个待落库成员
+        assertEquals(Set.of("1:10"), stringRedisTemplate.opsForSet().members(RedisConstant.FAVORITE_SYNC_PENDING_KEY));
+    }
+
+    @Test
+    void toggleLoadsStateFromMysqlFirst() {
+        when(goodsMapper.getFavoriteTimesByUserId(2L)).thenReturn(List.of(Map.of("goodsId", 20L, "createTime", 1_700_000_000_000L)));
+
+        // 收藏数缓存不存在：脚本不创建，由调用方从 MySQL 加载
+        FavoriteStateUtil.ToggleResult result = favoriteStateUtil.toggle(2L, 20L);
+        assertFalse(result.isFavorited());
+        assertEquals(1_700_000_000_000L, result.getFavoriteTime());
+        assertFalse(result.isCollectNumCached());
+        assertFalse(stringRedisTemplate.hasKey(CollectNumCacheUtil.bucketKey(20L)));
+        verify(goodsMapper, times(1)).getFavoriteTimesByUserId(2L);
+
+        // 已加载后不再访问 MySQL
+        favoriteStateUtil.toggle(2L, 21L);
+        verify(goodsMapper, times(1)).getFavoriteTimesByUserId(2L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void syncWritesCurrentStateAndRetriesFailedBatch() {
+        favoriteStateUtil.toggle(1L, 10L);
+        favoriteStateUtil.toggle(1L, 11L);
+        favoriteStateUtil.toggle(1L, 11L);
+        long favoriteTime = favoriteStateUtil.getFavoriteTimes(1L, List.of(10L)).get(10L);
+
+        // 第一次落库失败：成员放回待落库集合
+        when(goodsMapper.batchUpsertFavorites(anyList())).thenThrow(new RuntimeException("db down")).thenReturn(1);
+        syncService.batchSyncFavorites();
+        assertEquals(2L, stringRedisTemplate.opsForSet().size(RedisConstant.FAVORITE_SYNC_PENDING_KEY));
+
+        // 重试：按 Redis 中的当前状态写入
+        syncService.batchSyncFavorites();
+        assertEquals(0L, stringRedisTemplate.opsForSet().size(RedisConstant.FAVORITE_SYNC_PENDING_KEY));
+
+        ArgumentCaptor<List<GoodsFavorite>> upserts = ArgumentCaptor.forClass(List.class);
+        verify(goodsMapper, times(2)).batchUpsertFavorites(upserts.capture());
+        GoodsFavorite upserted = upserts.getValue().get(0);
+        assertEquals(1, upserts.getValue().size());
+        assertEquals(10L, upserted.getGoodsId());
+        assertEquals(favoriteTime, upserted.getCreateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+
+        ArgumentCaptor<List<GoodsFavorite>> deletes = ArgumentCaptor.forClass(List.class);
+        verify(goodsMapper, times(1)).batchDeleteFavorites(deletes.capture());
+        assertEquals(List.of(11L), deletes.getValue().stream().map(GoodsFavorite::getGoodsId).collect(Collectors.toList()));
+
+        // 没有新的变化时不再写库
+        syncService.batchSyncFavorites();
+        verify(goodsMapper, times(2)).batchUpsertFavorites(anyList());
+    }
+
+    @Test
+    void allFavoriteTimesIncludeChangesNotYetWrittenBack() {
+        when(goodsMapper.getFavoriteTimesByUserId(4L)).thenReturn(List.of(
+                Map.of("goodsId", 40L, "createTime", 1_700_000_000_000L),
+                Map.of("goodsId", 41L, "createTime", 1_700_000_001_000L)));
+
+        // 收藏列表以 Redis 为准：取消收藏和新收藏在落库之前就已生效，不包含加载标记
+        favoriteStateUtil.toggle(4L, 41L);
+        FavoriteStateUtil.ToggleResult added = favoriteStateUtil.toggle(4L, 42L);
+
+        Map<Long, Long> times = favoriteStateUtil.getAllFavoriteTimes(4L);
+        assertEquals(Map.of(40L, 1_700_000_000_000L, 42L, added.getFavoriteTime()), times);
+        verify(goodsMapper, never()).batchUpsertFavorites(anyList());
+    }
+
+    @Test
+    void evictedStateIsNotWrittenBack() {
+        favoriteStateUtil.toggle(3L, 30L);
+        redisTemplate.delete(RedisConstant.FAVORITE_USER_IDS_KEY + 3L + RedisConstant.FAVORITE_USER_STATE_SUFFIX);
+
+        syncService.batchSyncFavorites();
+
+        // 状态已不在 Redis 中时以 MySQL 为准，不能当作取消收藏删除
+        verify(goodsMapper, never()).batchUpsertFavorites(anyList());
+        verify(goodsMapper, never()).batchDeleteFavorites(anyList());
+        assertEquals(0L, stringRedisTemplate.opsForSet().size(RedisConstant.FAVORITE_SYNC_PENDING_KEY));
+    }
+
+    private String collectNum(Long goodsId) {
+        return (String) stringRedisTemplate.opsForHash().get(CollectNumCacheUtil.bucketKey(goodsId),
+                CollectNumCacheUtil.bucketField(goodsId));
+    }
+}
@@ -0,0 +1,129 @@
+package com.xyz.service.impl;
+
+import com.xyz.constant.RedisConstant;
+import com.xyz.dto.GoodsDTO;
+import com.xyz.entity.Goods;
+import com.xyz.event.GoodsEventPublisher;
+import com.xyz.mapper.GoodsMapper;
+import com.xyz.properties.LocalCacheProperties;
+import com.xyz.support.RedisTestSupport;
+import com.xyz.util.*;
+import com.xyz.vo.GoodsDetailVO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 商品详情的空结果占位（负缓存）：不存在的商品只回源一次，占位命中单独计数；
+ * 发布商品提交后加入布隆过滤器并清除该ID上的占位，发布后马上打开详情能读到商品
+ */
+class GoodsServiceImplTest extends RedisTestSupport {
+
+    private static final long GOODS_ID = 42L;
+    private static final String DETAIL_KEY = RedisConstant.GOODS_DETAIL_KEY + GOODS_ID;
+
+    private GoodsMapper goodsMapper;
+    private GoodsLocalCache goodsLocalCache;
+    private IdBloomFilterUtil idBloomFilterUtil;
+    private GoodsServiceImpl goodsService;
+
+    @BeforeEach
+    void setUp() {
+        goodsMapper = mock(GoodsMapper.class);
+
+        goodsLocalCache = new GoodsLocalCache();
+        ReflectionTestUtils.setField(goodsLocalCache, "localCacheProperties", new LocalCacheProperties());
+        ReflectionTestUtils.setField(goodsLocalCache, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(goodsLocalCache, "redisMessageListenerContainer", mock(RedisMessageListenerContainer.class));
+        goodsLocalCache.init();
+
+        SingleFlightUtil singleFlightUtil = new SingleFlightUtil();
+        ReflectionTestUtils.setField(singleFlightUtil, "redisTemplate", redisTemplate);
+
+        idBloomFilterUtil = mock(IdBloomFilterUtil.class);
+        when(idBloomFilterUtil.mightContainGoods(any())).thenReturn(true);
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        goodsService = new GoodsServiceImpl();
+        ReflectionTestUtils.setField(goodsService, "goodsMapper", goodsMapper);
+        ReflectionTestUtils.setField(goodsService, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(goodsService, "goodsLocalCache", goodsLocalCache);
+        ReflectionTestUtils.setField(goodsService, "singleFlightUtil", singleFlightUtil);
+        ReflectionTestUtils.setField(goodsService, "idBloomFilterUtil", idBloomFilterUtil);
+        ReflectionTestUtils.setField(goodsService, "collectNumCacheUtil", mock(CollectNumCacheUtil.class));
+        ReflectionTestUtils.setField(goodsService, "userProfileCache", mock(UserProfileCache.class));
+        ReflectionTestUtils.setField(goodsService, "aliOssUtil", mock(AliOssUtil.class));
+        ReflectionTestUtils.setField(goodsService, "goodsEventPublisher", mock(GoodsEventPublisher.class));
+        ReflectionTestUtils.setField(goodsService, "transactionTemplate", new TransactionTemplate(transactionManager));
+        BaseContext.setCurrentId(7L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        BaseContext.removeCurrentId();
+    }
+
+    @Test
+    void missingGoodsIsLoadedOnceAndServedFromPlaceholder() {
+        assertNull(goodsService.getGoodsDetailById(GOODS_ID));
+        assertEquals(RedisConstant.EMPTY_CACHE_VALUE, redisTemplate.opsForValue().get(DETAIL_KEY));
+        assertTrue(redisTemplate.getExpire(DETAIL_KEY) > 0);
+
+        // 占位期间不再回源，命中单独计数，不算作详情命中
+        assertNull(goodsService.getGoodsDetailById(GOODS_ID));
+        assertNull(goodsService.getGoodsDetailById(GOODS_ID));
+        verify(goodsMapper, times(1)).getGoodsDetailById(GOODS_ID);
+        Map<String, Object> redisDetail = redisDetailStats();
+        assertEquals(2L, redisDetail.get("placeholderHits"));
+        assertEquals(1L, redisDetail.get("misses"));
+        assertEquals(0L, redisDetail.get("hits"));
+    }
+
+    @Test
+    void releaseEvictsPlaceholder() {
+        // 发布前有人打开了这个ID（例如刚被删除后重新发布、或枚举ID），写入了空结果占位
+        assertNull(goodsService.getGoodsDetailById(GOODS_ID));
+        assertTrue(redisTemplate.hasKey(DETAIL_KEY));
+
+        doAnswer(invocation -> {
+            ((Goods) invocation.getArgument(0)).setId(GOODS_ID);
+            return null;
+        }).when(goodsMapper).insertGoods(any());
+        GoodsDTO dto = new GoodsDTO();
+        dto.setGoodsType(1);
+        dto.setDescription("相机");
+        dto.setImageUrls(List.of("https://oss/a.jpg"));
+        goodsService.releaseGoods(dto);
+        assertFalse(redisTemplate.hasKey(DETAIL_KEY));
+        // 布隆过滤器同样在提交时添加，不等异步事件
+        verify(idBloomFilterUtil).addGoods(GOODS_ID);
+
+        // 占位已清除，发布后立即打开详情会回源读到新商品
+        when(goodsMapper.getGoodsDetailById(GOODS_ID)).thenReturn(
+                GoodsDetailVO.builder().id(GOODS_ID).ownerId(7L).description("相机").build());
+        GoodsDetailVO detail = goodsService.getGoodsDetailById(GOODS_ID);
+        assertNotNull(detail);
+        assertEquals("相机", detail.getDescription());
+        verify(goodsMapper, times(2)).getGoodsDetailById(GOODS_ID);
+        assertInstanceOf(GoodsDetailVO.class, redisTemplate.opsForValue().get(DETAIL_KEY));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> redisDetailStats() {
+        return (Map<String, Object>) goodsLocalCache.stats().get("redisDetail");
+    }
+}
@@ -0,0 +1,76 @@
+package com.xyz.service.impl;
+
+import com.xyz.constant.RedisConstant;
+import com.xyz.dto.UploadPolicyDTO;
+import com.xyz.exception.UploadException;
+import com.xyz.properties.StorageProperties;
+import com.xyz.storage.StorageBackend;
+import com.xyz.storage.StoredObject;
+import com.xyz.storage.UploadPolicy;
+import com.xyz.support.RedisTestSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 直传确认校验和过期未确认对象的清理
+ */
+class UploadServiceImplTest extends RedisTestSupport {
+
+    private StorageBackend storageBackend;
+    private UploadServiceImpl uploadService;
+
+    @BeforeEach
+    void setUp() {
+        storageBackend = mock(StorageBackend.class);
+        when(storageBackend.presignUpload(anyString(), anyString(), anyLong(), anyLong()))
+                .thenReturn(UploadPolicy.builder().uploadUrl("http://upload").build());
+        when(storageBackend.urlOf(anyString())).thenAnswer(invocation -> "http://files/" + invocation.getArgument(0));
+
+        uploadService = new UploadServiceImpl();
+        ReflectionTestUtils.setField(uploadService, "storageBackend", storageBackend);
+        ReflectionTestUtils.setField(uploadService, "storageProperties", new StorageProperties());
+        ReflectionTestUtils.setField(uploadService, "redisTemplate", redisTemplate);
+    }
+
+    @Test
+    void missingContentTypeIsRejected() {
+        String objectKey = issue(1L);
+        when(storageBackend.stat(objectKey)).thenReturn(new StoredObject(1024, null));
+
+        assertThrows(UploadException.class, () -> uploadService.complete(1L, objectKey));
+        verify(storageBackend).delete(objectKey);
+    }
+
+    @Test
+    void expiredUnconfirmedObjectsAreSwept() {
+        String confirmed = issue(1L);
+        String abandoned = issue(1L);
+        String fresh = issue(1L);
+        when(storageBackend.stat(confirmed)).thenReturn(new StoredObject(1024, "image/png"));
+        assertEquals("http://files/" + confirmed, uploadService.complete(1L, confirmed));
+
+        // abandoned 的确认截止时间已过，fresh 仍在有效期内
+        redisTemplate.opsForZSet().add(RedisConstant.UPLOAD_EXPIRY_KEY, abandoned, System.currentTimeMillis() - 120_000);
+        uploadService.sweepExpired();
+
+        verify(storageBackend).delete(abandoned);
+        verify(storageBackend, never()).delete(confirmed);
+        verify(storageBackend, never()).delete(fresh);
+        assertNull(redisTemplate.opsForZSet().score(RedisConstant.UPLOAD_EXPIRY_KEY, abandoned));
+        assertNotNull(redisTemplate.opsForZSet().score(RedisConstant.UPLOAD_EXPIRY_KEY, fresh));
+
+        // 已清理的对象不会被重复删除
+        uploadService.sweepExpired();
+        verify(storageBackend, times(1)).delete(abandoned);
+    }
+
+    private String issue(Long userId) {
+        return uploadService.createPolicy(userId, UploadPolicyDTO.builder()
+                .scene("goods").contentType("image/png").size(1024L).build()).getObjectKey();
+    }
+}
@@ -0,0 +1,54 @@
+package com.xyz.support;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.xyz.configuration.RedisConfiguration;
+import com.xyz.properties.RedisCodecProperties;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+
+/**
+ * 使用进程内 Redis 模拟服务（jedis-mock，支持 Lua 脚本）的测试基类
+ * redisTemplate 与应用中的配置相同（紧凑二进制序列化），每个测试前清空数据
+ */
+public abstract class RedisTestSupport {
+
+    private static RedisServer server;
+    private static LettuceConnectionFactory connectionFactory;
+
+    protected static RedisTemplate<String, Object> redisTemplate;
+    protected static StringRedisTemplate stringRedisTemplate;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        server = RedisServer.newRedisServer(0);
+        server.start();
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new RedisConfiguration().redisTemplate(connectionFactory, new RedisCodecProperties());
+        stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        server.stop();
+    }
+
+    @BeforeEach
+    void flushRedis() {
+        stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+}
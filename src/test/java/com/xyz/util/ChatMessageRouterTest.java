@@ -0,0 +1,215 @@
+package com.xyz.util;
+
+import com.xyz.properties.ChatRouteProperties;
+import com.xyz.properties.ChatSessionProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 连接发送队列：队列满时丢弃最早的帧或关闭慢连接，同一用户连接数超过上限时关闭最早的连接，
+ * 每轮最多发送 sendBatchSize 帧，剩余的重新提交到发送线程池
+ * （发送线程池用手动执行的队列代替，WebSocketSession 用记录发送内容的 mock 代替）
+ */
+class ChatMessageRouterTest {
+
+    private static final long USER_ID = 1L;
+
+    private ChatSessionProperties sessionProperties;
+    private ChatMessageRouter router;
+
+    /** 已提交但尚未执行的发送任务 */
+    private final Deque<Runnable> tasks = new ArrayDeque<>();
+
+    /** 每个连接收到的帧 */
+    private final Map<WebSocketSession, List<String>> sent = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        sessionProperties = new ChatSessionProperties();
+        sessionProperties.setOutboundQueueCapacity(3);
+        sessionProperties.setSendBatchSize(2);
+        sessionProperties.setMaxDevices(2);
+
+        ChatPresenceRegistry chatPresenceRegistry = mock(ChatPresenceRegistry.class);
+        when(chatPresenceRegistry.nodeId()).thenReturn("node-1");
+        when(chatPresenceRegistry.nodesOf(any())).thenReturn(Collections.emptyList());
+
+        router = new ChatMessageRouter();
+        ReflectionTestUtils.setField(router, "chatRouteProperties", new ChatRouteProperties());
+        ReflectionTestUtils.setField(router, "chatSessionProperties", sessionProperties);
+        ReflectionTestUtils.setField(router, "chatPresenceRegistry", chatPresenceRegistry);
+        ReflectionTestUtils.setField(router, "stringRedisTemplate", mock(StringRedisTemplate.class));
+        ReflectionTestUtils.setField(router, "redisMessageListenerContainer", mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(router, "chatSendExecutor", (Executor) tasks::addLast);
+        router.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        router.shutdown();
+    }
+
+    @Test
+    void fullQueueDropsOldestFrames() throws Exception {
+        WebSocketSession session = session("a");
+        router.register(USER_ID, session);
+
+        // 发送线程还没有运行，第 4、5 帧挤掉最早的两帧
+        for (int i = 1; i <= 5; i++) {
+            router.push(USER_ID, "m" + i);
+        }
+        assertEquals(1, tasks.size(), "同一连接同一时刻只有一个发送任务");
+        assertEquals(3, stats().get("maxQueueDepth"));
+        assertEquals(2L, stats().get("framesDropped"));
+
+        runTasks();
+        assertEquals(List.of("m3", "m4", "m5"), sent.get(session));
+        assertEquals(3L, stats().get("framesSent"));
+        verify(session, never()).close(any());
+    }
+
+    @Test
+    void fullQueueClosesSlowConsumer() throws Exception {
+        sessionProperties.setOverflowPolicy(ChatSessionProperties.OverflowPolicy.CLOSE);
+        WebSocketSession session = session("a");
+        router.register(USER_ID, session);
+
+        for (int i = 1; i <= 4; i++) {
+            router.push(USER_ID, "m" + i);
+        }
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(1L, stats().get("slowConsumersClosed"));
+        assertEquals(4L, stats().get("framesDropped"));
+        assertEquals(0, stats().get("maxQueueDepth"));
+
+        // 已关闭的连接不再发送，也不再入队
+        router.push(USER_ID, "m5");
+        runTasks();
+        assertTrue(sent.get(session).isEmpty());
+    }
+
+    @Test
+    void extraDeviceEvictsOldestConnection() throws Exception {
+        WebSocketSession first = session("a");
+        WebSocketSession second = session("b");
+        WebSocketSession third = session("c");
+        router.register(USER_ID, first);
+        router.register(USER_ID, second);
+        router.register(USER_ID, third);
+
+        verify(first).close(CloseStatus.POLICY_VIOLATION.withReason("登录设备过多"));
+        verify(second, never()).close(any());
+        assertEquals(1L, stats().get("devicesEvicted"));
+        assertEquals(2, stats().get("localConnections"));
+
+        // 推送发给剩余的全部设备
+        router.push(USER_ID, "hello");
+        runTasks();
+        assertTrue(sent.get(first).isEmpty());
+        assertEquals(List.of("hello"), sent.get(second));
+        assertEquals(List.of("hello"), sent.get(third));
+
+        // 最后一个连接断开后用户在本节点已没有连接
+        assertFalse(router.unregister(USER_ID, second));
+        assertTrue(router.unregister(USER_ID, third));
+    }
+
+    @Test
+    void offlineSkippedWhenDeviceReconnected() throws Exception {
+        WebSocketSession closing = session("a");
+        router.register(USER_ID, closing);
+        assertTrue(router.unregister(USER_ID, closing));
+
+        // unregister 之后、删除在线记录之前设备在本节点重连：不再删除
+        router.register(USER_ID, session("b"));
+        Runnable offline = mock(Runnable.class);
+        router.runIfNoConnections(USER_ID, offline);
+        verify(offline, never()).run();
+
+        // 本节点确实没有连接时执行
+        router.runIfNoConnections(2L, offline);
+        verify(offline).run();
+    }
+
+    @Test
+    void drainYieldsAfterBatchAndReschedules() throws Exception {
+        WebSocketSession session = session("a");
+        router.register(USER_ID, session);
+        router.push(USER_ID, "m1");
+        router.push(USER_ID, "m2");
+        router.push(USER_ID, "m3");
+
+        // 一轮只发送 sendBatchSize 帧，剩余的重新提交
+        tasks.pollFirst().run();
+        assertEquals(List.of("m1", "m2"), sent.get(session));
+        assertEquals(1, tasks.size());
+
+        // 发送任务排队期间入队的帧由同一个任务发送，不重复提交
+        router.push(USER_ID, "m4");
+        assertEquals(1, tasks.size());
+        runTasks();
+        assertEquals(List.of("m1", "m2", "m3", "m4"), sent.get(session));
+
+        // 队列清空后下一帧重新提交发送任务
+        router.push(USER_ID, "m5");
+        assertEquals(1, tasks.size());
+        runTasks();
+        assertEquals(List.of("m1", "m2", "m3", "m4", "m5"), sent.get(session));
+    }
+
+    @Test
+    void sendFailureClosesConnection() throws Exception {
+        WebSocketSession session = session("a");
+        doThrow(new IOException("broken pipe")).when(session).sendMessage(any());
+        router.register(USER_ID, session);
+        router.push(USER_ID, "m1");
+        router.push(USER_ID, "m2");
+
+        runTasks();
+        verify(session, times(1)).sendMessage(any());
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(1L, stats().get("sendErrors"));
+        assertEquals(0, stats().get("maxQueueDepth"));
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private WebSocketSession session(String id) throws Exception {
+        WebSocketSession session = mock(WebSocketSession.class);
+        List<String> frames = new ArrayList<>();
+        sent.put(session, frames);
+        when(session.getId()).thenReturn(id);
+        when(session.getAttributes()).thenReturn(new HashMap<>());
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            frames.add(((TextMessage) invocation.getArgument(0)).getPayload());
+            return null;
+        }).when(session).sendMessage(any());
+        return session;
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.pollFirst().run();
+        }
+    }
+
+    private Map<String, Object> stats() {
+        return router.stats();
+    }
+}
@@ -0,0 +1,360 @@
+package com.xyz.util;
+
+import com.xyz.constant.RedisConstant;
+import com.xyz.entity.ChatMessage;
+import com.xyz.entity.ChatSession;
+import com.xyz.mapper.ChatMessageMapper;
+import com.xyz.mapper.ChatSessionMapper;
+import com.xyz.properties.ChatWriteProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.*;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 聊天消息落库：同一条消息被多次处理（XADD 超时后同步落库、补偿重放）时会话未读数只累加一次，
+ * 落库失败的消息留在待确认列表中，由补偿任务认领（XCLAIM）后重新写入；一条写不进去的消息不拖住同批的其他消息，
+ * 投递次数达到上限后转入死信；已读水位之前的消息按已读写入，撤回前可以立即写入还在 Stream 中的消息
+ * （jedis-mock 不支持消费组命令，Stream 操作用 mock 代替）
+ */
+class ChatMessageWriterTest {
+
+    private static final String SESSION_ID = "1_2";
+    private static final String NODE_ID = "node-1";
+
+    private ChatMessageMapper chatMessageMapper;
+    private ChatSessionMapper chatSessionMapper;
+    private StreamOperations<String, Object, Object> streamOps;
+    private ChatMessageWriter writer;
+
+    /** 模拟 chat_message 表中已存在的消息ID */
+    private final Set<Long> stored = new HashSet<>();
+
+    /** 插入是否失败 */
+    private boolean insertFails;
+
+    /** 插入时总是失败的消息ID（例如内容超长） */
+    private final Set<Long> poison = new HashSet<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        chatMessageMapper = mock(ChatMessageMapper.class);
+        chatSessionMapper = mock(ChatSessionMapper.class);
+        streamOps = mock(StreamOperations.class);
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        doReturn(streamOps).when(stringRedisTemplate).opsForStream();
+
+        when(chatMessageMapper.listExistingIds(anyCollection())).thenAnswer(invocation ->
+                ((Collection<Long>) invocation.getArgument(0)).stream().filter(stored::contains).toList());
+        when(chatMessageMapper.insertBatch(anyList())).thenAnswer(invocation -> {
+            if (insertFails) {
+                throw new QueryTimeoutException("db timeout");
+            }
+            if (((List<ChatMessage>) invocation.getArgument(0)).stream().anyMatch(m -> poison.contains(m.getId()))) {
+                throw new DataIntegrityViolationException("Data too long for column 'content'");
+            }
+            int rows = 0;
+            for (ChatMessage message : (List<ChatMessage>) invocation.getArgument(0)) {
+                if (stored.add(message.getId())) {
+                    rows++;
+                }
+            }
+            return rows;
+        });
+
+        ChatSessionCache chatSessionCache = mock(ChatSessionCache.class);
+        when(chatSessionCache.get(SESSION_ID)).thenReturn(
+                ChatSession.builder().sessionId(SESSION_ID).user1Id(1L).user2Id(2L).build());
+
+        when(streamOps.consumers(RedisConstant.CHAT_MESSAGE_STREAM_KEY, RedisConstant.CHAT_MESSAGE_STREAM_GROUP))
+                .thenReturn(new StreamInfo.XInfoConsumers(RedisConstant.CHAT_MESSAGE_STREAM_GROUP, Collections.emptyList()));
+        ChatPresenceRegistry chatPresenceRegistry = mock(ChatPresenceRegistry.class);
+        when(chatPresenceRegistry.nodeId()).thenReturn(NODE_ID);
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+
+        writer = new ChatMessageWriter();
+        ReflectionTestUtils.setField(writer, "chatWriteProperties", new ChatWriteProperties());
+        ReflectionTestUtils.setField(writer, "chatPresenceRegistry", chatPresenceRegistry);
+        ReflectionTestUtils.setField(writer, "chatSessionCache", chatSessionCache);
+        ReflectionTestUtils.setField(writer, "chatRecentMessageBuffer", mock(ChatRecentMessageBuffer.class));
+        ReflectionTestUtils.setField(writer, "chatMessageMapper", chatMessageMapper);
+        ReflectionTestUtils.setField(writer, "chatSessionMapper", chatSessionMapper);
+        ReflectionTestUtils.setField(writer, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(writer, "redisTemplate", mock(RedisTemplate.class));
+        ReflectionTestUtils.setField(writer, "transactionTemplate", new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(writer, "groupReady", true);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void timedOutAppendIsCountedOnce() {
+        // XADD 超时，但消息实际已进入 Stream：发送线程同步落库
+        ArgumentCaptor<MapRecord<String, Object, Object>> appendedRecord = ArgumentCaptor.forClass(MapRecord.class);
+        doThrow(new QueryTimeoutException("timeout")).when(streamOps).add(appendedRecord.capture());
+        writer.write(message(100L));
+        verifyUnreadApplied(1);
+
+        // 写入线程随后读到同一条消息
+        flush(appendedRecord.getValue().withId(RecordId.of("1-0")));
+
+        verifyUnreadApplied(1);
+        assertEquals(1L, writer.stats().get("duplicates"));
+        verify(streamOps).acknowledge(eq(RedisConstant.CHAT_MESSAGE_STREAM_KEY),
+                eq(RedisConstant.CHAT_MESSAGE_STREAM_GROUP), any(RecordId[].class));
+    }
+
+    @Test
+    void concurrentInsertRollsBackAndSkips() {
+        // 过滤之后、插入之前另一写入方提交了同一条消息：INSERT IGNORE 影响 0 行，回滚后重新过滤
+        AtomicBoolean raced = new AtomicBoolean();
+        when(chatMessageMapper.listExistingIds(anyCollection())).thenAnswer(invocation -> {
+            if (raced.compareAndSet(false, true)) {
+                stored.add(200L);
+                return Collections.emptyList();
+            }
+            return List.of(200L);
+        });
+        doThrow(new QueryTimeoutException("timeout")).when(streamOps)
+                .add(ArgumentMatchers.<MapRecord<String, Object, Object>>any());
+
+        writer.write(message(200L));
+
+        verify(chatMessageMapper, times(2)).listExistingIds(anyCollection());
+        verify(chatSessionMapper, never()).applyMessages(any(), any(), any(), anyInt(), anyInt());
+        assertEquals(1L, writer.stats().get("syncWritten"));
+    }
+
+    @Test
+    void failedFlushIsClaimedAndReplayed() {
+        MapRecord<String, Object, Object> record = record(message(300L), "1-0");
+        insertFails = true;
+        flush(record);
+
+        // 落库失败：不确认，消息留在待确认列表中
+        assertEquals(1L, writer.stats().get("writeErrors"));
+        verify(streamOps, never()).acknowledge(anyString(), anyString(), any(RecordId[].class));
+        verifyUnreadApplied(0);
+
+        // 只认领空闲超过 claimIdleSeconds 的消息
+        insertFails = false;
+        pending(new PendingMessage(RecordId.of("1-0"), Consumer.from(RedisConstant.CHAT_MESSAGE_STREAM_GROUP, "node-2"),
+                        Duration.ofSeconds(60), 1),
+                new PendingMessage(RecordId.of("2-0"), Consumer.from(RedisConstant.CHAT_MESSAGE_STREAM_GROUP, "node-2"),
+                        Duration.ofSeconds(1), 1));
+        when(streamOps.claim(eq(RedisConstant.CHAT_MESSAGE_STREAM_KEY), eq(RedisConstant.CHAT_MESSAGE_STREAM_GROUP),
+                eq(NODE_ID), any(Duration.class), any(RecordId[].class))).thenReturn(List.of(record));
+        writer.claimStale();
+
+        verify(streamOps).claim(RedisConstant.CHAT_MESSAGE_STREAM_KEY, RedisConstant.CHAT_MESSAGE_STREAM_GROUP,
+                NODE_ID, Duration.ofSeconds(30), RecordId.of("1-0"));
+        verifyUnreadApplied(1);
+        verify(streamOps).acknowledge(RedisConstant.CHAT_MESSAGE_STREAM_KEY, RedisConstant.CHAT_MESSAGE_STREAM_GROUP,
+                RecordId.of("1-0"));
+        verify(streamOps).delete(RedisConstant.CHAT_MESSAGE_STREAM_KEY, RecordId.of("1-0"));
+        assertEquals(1L, writer.stats().get("claimed"));
+        assertEquals(1L, writer.stats().get("written"));
+    }
+
+    @Test
+    void replayOfCommittedBatchOnlyAcknowledges() {
+        // 上次已提交但确认前节点退出：重放时消息已存在，只确认，不再累加未读数
+        ChatRecentMessageBuffer buffer = mock(ChatRecentMessageBuffer.class);
+        ReflectionTestUtils.setField(writer, "chatRecentMessageBuffer", buffer);
+        stored.add(400L);
+        MapRecord<String, Object, Object> replayed = record(message(400L), "3-0");
+        MapRecord<String, Object, Object> fresh = record(message(401L), "3-1");
+        pending(new PendingMessage(RecordId.of("3-0"), Consumer.from(RedisConstant.CHAT_MESSAGE_STREAM_GROUP, "node-2"),
+                        Duration.ofMinutes(5), 2),
+                new PendingMessage(RecordId.of("3-1"), Consumer.from(RedisConstant.CHAT_MESSAGE_STREAM_GROUP, "node-2"),
+                        Duration.ofMinutes(5), 1));
+        when(streamOps.claim(anyString(), anyString(), anyString(), any(Duration.class), any(RecordId[].class)))
+                .thenReturn(List.of(replayed, fresh));
+
+        writer.claimStale();
+
+        // 只为新插入的 401 更新会话和最新消息缓存
+        verifyUnreadApplied(1);
+        ArgumentCaptor<List<ChatMessage>> appended = ArgumentCaptor.captor();
+        verify(buffer).append(eq(SESSION_ID), appended.capture());
+        assertEquals(List.of(401L), appended.getValue().stream().map(ChatMessage::getId).toList());
+        assertEquals(1L, writer.stats().get("duplicates"));
+        verify(streamOps).acknowledge(RedisConstant.CHAT_MESSAGE_STREAM_KEY, RedisConstant.CHAT_MESSAGE_STREAM_GROUP,
+                RecordId.of("3-0"), RecordId.of("3-1"));
+    }
+
+    @Test
+    void poisonMessageDoesNotBlockBatch() {
+        poison.add(501L);
+        ReflectionTestUtils.invokeMethod(writer, "flush", List.of(
+                record(message(500L), "5-0"), record(message(501L), "5-1"), record(message(502L), "5-2")));
+
+        // 整批失败后逐条写入：500、502 落库并确认，只有 501 留在待确认列表中
+        assertEquals(Set.of(500L, 502L), stored);
+        verify(streamOps).acknowledge(RedisConstant.CHAT_MESSAGE_STREAM_KEY, RedisConstant.CHAT_MESSAGE_STREAM_GROUP,
+                RecordId.of("5-0"));
+        verify(streamOps).acknowledge(RedisConstant.CHAT_MESSAGE_STREAM_KEY, RedisConstant.CHAT_MESSAGE_STREAM_GROUP,
+                RecordId.of("5-2"));
+        verify(streamOps, times(2)).acknowledge(anyString(), anyString(), any(RecordId[].class));
+        assertEquals(2L, writer.stats().get("written"));
+        assertEquals(2L, writer.stats().get("writeErrors"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void exhaustedMessageIsDeadLettered() {
+        poison.add(600L);
+        MapRecord<String, Object, Object> exhausted = record(message(600L), "6-0");
+        MapRecord<String, Object, Object> retried = record(message(601L), "6-1");
+        pending(new PendingMessage(RecordId.of("6-0"), Consumer.from(RedisConstant.CHAT_MESSAGE_STREAM_GROUP, NODE_ID),
+                        Duration.ofSeconds(60), 5),
+                new PendingMessage(RecordId.of("6-1"), Consumer.from(RedisConstant.CHAT_MESSAGE_STREAM_GROUP, "node-2"),
+                        Duration.ofSeconds(60), 1));
+        when(streamOps.claim(anyString(), anyString(), anyString(), any(Duration.class), any(RecordId[].class)))
+                .thenReturn(List.of(exhausted, retried));
+
+        writer.claimStale();
+
+        // 达到投递上限的消息连同原因转入死信后确认删除，不再尝试写入
+        ArgumentCaptor<MapRecord<String, Object, Object>> deadLetter = ArgumentCaptor.forClass(MapRecord.class);
+        verify(streamOps).add(deadLetter.capture());
+        assertEquals(RedisConstant.CHAT_MESSAGE_DEAD_LETTER_KEY, deadLetter.getValue().getStream());
+        assertEquals("600", deadLetter.getValue().getValue().get("id"));
+        assertEquals("6-0", deadLetter.getValue().getValue().get("recordId"));
+        verify(streamOps).acknowledge(RedisConstant.CHAT_MESSAGE_STREAM_KEY, RedisConstant.CHAT_MESSAGE_STREAM_GROUP,
+                RecordId.of("6-0"));
+        verify(streamOps).delete(RedisConstant.CHAT_MESSAGE_STREAM_KEY, RecordId.of("6-0"));
+        assertEquals(1L, writer.stats().get("deadLettered"));
+
+        // 其余消息照常写入
+        assertEquals(Set.of(601L), stored);
+        verify(streamOps).acknowledge(RedisConstant.CHAT_MESSAGE_STREAM_KEY, RedisConstant.CHAT_MESSAGE_STREAM_GROUP,
+                RecordId.of("6-1"));
+        assertEquals(0L, writer.stats().get("writeErrors"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void messagesUpToReadWatermarkAreStoredRead() {
+        // 接收者在 700 落库之前标记了已读（水位 700），701 是之后发送的
+        when(chatSessionMapper.lockReadWatermarks(anyCollection())).thenReturn(List.of(
+                ChatSession.builder().sessionId(SESSION_ID).user1Id(1L).user2Id(2L).user1ReadId(0L).user2ReadId(700L).build()));
+        ReflectionTestUtils.invokeMethod(writer, "flush", List.of(record(message(700L), "7-0"), record(message(701L), "7-1")));
+
+        ArgumentCaptor<List<ChatMessage>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(chatMessageMapper).insertBatch(inserted.capture());
+        assertEquals(List.of(1, 0), inserted.getValue().stream().map(ChatMessage::getIsRead).toList());
+        // 只有 701 计入未读数
+        verifyUnreadApplied(1);
+        verify(chatSessionMapper).lockReadWatermarks(Set.of(SESSION_ID));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushPendingWritesMessageStillInStream() {
+        when(streamOps.range(eq(RedisConstant.CHAT_MESSAGE_STREAM_KEY), any(Range.class), any(Limit.class)))
+                .thenReturn(List.of(record(message(800L), "8-0"), record(message(801L), "8-1")));
+
+        // 撤回刚发送的消息：在 Stream 中找到后立即写入，Stream 记录留给写入线程确认
+        assertTrue(writer.flushPending(801L));
+        assertEquals(Set.of(801L), stored);
+        verifyUnreadApplied(1);
+        verify(streamOps, never()).acknowledge(anyString(), anyString(), any(RecordId[].class));
+
+        // 写入线程随后读到同一条消息时只确认
+        flush(record(message(801L), "8-1"));
+        verifyUnreadApplied(1);
+        assertEquals(1L, writer.stats().get("duplicates"));
+
+        // Stream 中没有的消息（已落库）不做任何事
+        assertFalse(writer.flushPending(802L));
+    }
+
+    @Test
+    void idleConsumersWithoutPendingAreRemoved() {
+        pending();
+        long day = Duration.ofDays(1).toMillis();
+        when(streamOps.consumers(RedisConstant.CHAT_MESSAGE_STREAM_KEY, RedisConstant.CHAT_MESSAGE_STREAM_GROUP))
+                .thenReturn(new StreamInfo.XInfoConsumers(RedisConstant.CHAT_MESSAGE_STREAM_GROUP, List.of(
+                        consumerInfo("gone", 0, day + 1),
+                        consumerInfo("stuck", 3, day + 1),
+                        consumerInfo("active", 0, 1000))));
+
+        writer.claimStale();
+
+        verify(streamOps, never()).claim(anyString(), anyString(), anyString(), any(Duration.class), any(RecordId[].class));
+        verify(streamOps).deleteConsumer(RedisConstant.CHAT_MESSAGE_STREAM_KEY,
+                Consumer.from(RedisConstant.CHAT_MESSAGE_STREAM_GROUP, "gone"));
+        verify(streamOps, times(1)).deleteConsumer(anyString(), any(Consumer.class));
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private void verifyUnreadApplied(int times) {
+        verify(chatSessionMapper, times(times)).applyMessages(eq(SESSION_ID), any(), any(), eq(0), eq(1));
+    }
+
+    private void flush(MapRecord<String, Object, Object> record) {
+        ReflectionTestUtils.invokeMethod(writer, "flush", List.of(record));
+    }
+
+    private void pending(PendingMessage... messages) {
+        when(streamOps.pending(eq(RedisConstant.CHAT_MESSAGE_STREAM_KEY), eq(RedisConstant.CHAT_MESSAGE_STREAM_GROUP),
+                any(), anyLong())).thenReturn(new PendingMessages(RedisConstant.CHAT_MESSAGE_STREAM_GROUP, List.of(messages)));
+    }
+
+    /**
+     * 与 write 写入 Stream 的字段相同
+     */
+    private MapRecord<String, Object, Object> record(ChatMessage message, String recordId) {
+        Map<String, String> fields = ReflectionTestUtils.invokeMethod(writer, "toFields", message);
+        return StreamRecords.newRecord()
+                .in(RedisConstant.CHAT_MESSAGE_STREAM_KEY)
+                .withId(RecordId.of(recordId))
+                .ofMap(new HashMap<Object, Object>(fields));
+    }
+
+    /**
+     * XINFO CONSUMERS 的一项
+     */
+    private static Object consumerInfo(String name, long pending, long idleMillis) {
+        return List.of("name", name, "pending", pending, "idle", idleMillis);
+    }
+
+    private static ChatMessage message(long id) {
+        return ChatMessage.builder()
+                .id(id)
+                .sessionId(SESSION_ID)
+                .senderId(1L)
+                .receiverId(2L)
+                .messageType(1)
+                .content("hello " + id)
+                .isRead(0)
+                .isRecalled(0)
+                .sendTime(LocalDateTime.now().withNano(0))
+                .build();
+    }
+}
@@ -0,0 +1,121 @@
+package com.xyz.util;
+
+import com.xyz.constant.RedisConstant;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 收藏数存储内存对比：每个商品一个带 TTL 的 String key vs 按桶存放的 Hash
+ * 需要一个可写的 Redis，且指定的库为空（会写入后删除测试数据）：
+ * mvn test -Dtest=CollectNumBucketMemoryBenchmarkTest -Dredis.benchmark.uri=redis://127.0.0.1:6379/15
+ */
+@EnabledIfSystemProperty(named = "redis.benchmark.uri", matches = ".+")
+class CollectNumBucketMemoryBenchmarkTest {
+
+    private static final int GOODS = 1_000_000;
+    private static final int PIPELINE = 10_000;
+    private static final long TTL_SECONDS = 3600;
+
+    @Test
+    void compareMemoryAt1MGoods() {
+        RedisClient client = RedisClient.create(RedisURI.create(System.getProperty("redis.benchmark.uri")));
+        try (StatefulRedisConnection<String, String> connection = client.connect()) {
+            RedisCommands<String, String> sync = connection.sync();
+            Assumptions.assumeTrue(sync.dbsize() == 0, "基准测试需要一个空库");
+
+            long base = usedMemory(sync);
+            writeStringKeys(connection);
+            long stringBytes = usedMemory(sync) - base;
+            sync.flushdb();
+
+            base = usedMemory(sync);
+            writeBuckets(connection);
+            long bucketBytes = usedMemory(sync) - base;
+            String encoding = sync.objectEncoding(CollectNumCacheUtil.bucketKey(1L));
+            sync.flushdb();
+
+            System.out.printf("goods=%d%n", GOODS);
+            System.out.printf("string keys : %,d bytes (%.1f bytes/goods)%n", stringBytes, (double) stringBytes / GOODS);
+            System.out.printf("hash buckets: %,d bytes (%.1f bytes/goods), encoding=%s%n",
+                    bucketBytes, (double) bucketBytes / GOODS, encoding);
+            System.out.printf("ratio       : %.1fx%n", (double) stringBytes / bucketBytes);
+
+            assertEquals("listpack", encoding);
+            assertTrue(bucketBytes < stringBytes);
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    /**
+     * 旧方式：goods:collect:{id}，SET EX
+     */
+    private static void writeStringKeys(StatefulRedisConnection<String, String> connection) {
+        Random random = new Random(42);
+        pipelined(connection, GOODS, (async, id) -> async.setex(
+                "goods:collect:" + id, TTL_SECONDS, String.valueOf(random.nextInt(500))));
+    }
+
+    /**
+     * 新方式：goods:collect:b:{id / 100} 的 field {id % 100}，每个桶一次 EXPIRE
+     */
+    private static void writeBuckets(StatefulRedisConnection<String, String> connection) {
+        Random random = new Random(42);
+        pipelined(connection, GOODS, (async, id) -> {
+            String key = CollectNumCacheUtil.bucketKey(id);
+            RedisFuture<?> future = async.hset(key, CollectNumCacheUtil.bucketField(id), String.valueOf(random.nextInt(500)));
+            if ((id + 1) % RedisConstant.GOODS_COLLECT_BUCKET_SIZE == 0) {
+                future = async.expire(key, TTL_SECONDS);
+            }
+            return future;
+        });
+    }
+
+    private static void pipelined(StatefulRedisConnection<String, String> connection, int count, Command command) {
+        RedisAsyncCommands<String, String> async = connection.async();
+        connection.setAutoFlushCommands(false);
+        try {
+            List<RedisFuture<?>> futures = new ArrayList<>(PIPELINE);
+            for (long id = 0; id < count; id++) {
+                futures.add(command.send(async, id));
+                if (futures.size() == PIPELINE) {
+                    connection.flushCommands();
+                    LettuceFutures.awaitAll(Duration.ofSeconds(30), futures.toArray(new RedisFuture<?>[0]));
+                    futures.clear();
+                }
+            }
+            connection.flushCommands();
+            LettuceFutures.awaitAll(Duration.ofSeconds(30), futures.toArray(new RedisFuture<?>[0]));
+        } finally {
+            connection.setAutoFlushCommands(true);
+        }
+    }
+
+    private static long usedMemory(RedisCommands<String, String> sync) {
+        for (String line : sync.info("memory").split("\r?\n")) {
+            if (line.startsWith("used_memory:")) {
+                return Long.parseLong(line.substring("used_memory:".length()).trim());
+            }
+        }
+        throw new IllegalStateException("INFO memory 中没有 used_memory");
+    }
+
+    private interface Command {
+        RedisFuture<?> send(RedisAsyncCommands<String, String> async, long id);
+    }
+}
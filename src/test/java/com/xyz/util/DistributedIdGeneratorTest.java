@@ -0,0 +1,91 @@
+package com.xyz.util;
+
+import com.xyz.exception.IdLeaseExpiredException;
+import com.xyz.properties.IdGeneratorProperties;
+import com.xyz.support.RedisTestSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 工作节点号租约：租到节点号之前、以及续期失败超过租约时长后拒绝分配ID，恢复租用后继续分配
+ */
+class DistributedIdGeneratorTest extends RedisTestSupport {
+
+    private IdGeneratorProperties properties;
+    private DistributedIdGenerator idGenerator;
+    private StringRedisTemplate unavailableRedis;
+
+    @BeforeEach
+    void setUp() {
+        properties = new IdGeneratorProperties();
+        properties.setLeaseSeconds(1);
+
+        idGenerator = new DistributedIdGenerator();
+        ReflectionTestUtils.setField(idGenerator, "idGeneratorProperties", properties);
+        ReflectionTestUtils.setField(idGenerator, "stringRedisTemplate", stringRedisTemplate);
+
+        unavailableRedis = mock(StringRedisTemplate.class);
+        when(unavailableRedis.execute(any(), anyList(), any(Object[].class)))
+                .thenThrow(new RedisConnectionFailureException("redis down"));
+    }
+
+    @Test
+    void noIdsBeforeLeased() {
+        // 启动时 Redis 不可用：不使用随机节点号，租到之前拒绝分配
+        ReflectionTestUtils.setField(idGenerator, "stringRedisTemplate", unavailableRedis);
+        idGenerator.init();
+        assertThrows(IdLeaseExpiredException.class, () -> idGenerator.nextId());
+        assertEquals(false, idGenerator.stats().get("leased"));
+
+        // 续期任务重试租用成功后开始分配
+        ReflectionTestUtils.setField(idGenerator, "stringRedisTemplate", stringRedisTemplate);
+        idGenerator.renew();
+        assertEquals(true, idGenerator.stats().get("leased"));
+        assertTrue(idGenerator.nextId() > 0);
+    }
+
+    @Test
+    void configuredWorkerIdDoesNotNeedRedis() {
+        ReflectionTestUtils.setField(idGenerator, "stringRedisTemplate", unavailableRedis);
+        properties.setWorkerId(7);
+        idGenerator.init();
+        assertEquals(7L, idGenerator.stats().get("workerId"));
+        assertTrue(idGenerator.nextId() > 0);
+    }
+
+    @Test
+    void outOfRangeWorkerIdFailsStartup() {
+        // 1024 截断后会变成 0，与其他节点的节点号重复
+        properties.setWorkerId(1024);
+        assertThrows(IllegalStateException.class, () -> idGenerator.init());
+    }
+
+    @Test
+    void stopsIssuingAfterLeaseAgeExceeded() throws InterruptedException {
+        idGenerator.init();
+        long first = idGenerator.nextId();
+
+        // Redis 不可用，续期失败：租约有效期内照常分配
+        ReflectionTestUtils.setField(idGenerator, "stringRedisTemplate", unavailableRedis);
+        idGenerator.renew();
+        assertTrue(idGenerator.nextId() > first);
+
+        // 超过租约时长仍未续期成功，节点号可能已被其他节点租用
+        Thread.sleep(1100);
+        assertThrows(IdLeaseExpiredException.class, () -> idGenerator.nextId());
+        assertEquals(1L, idGenerator.stats().get("rejected"));
+
+        // Redis 恢复：原租约已过期，续期发现租约丢失后重新租用，时间戳不回退
+        ReflectionTestUtils.setField(idGenerator, "stringRedisTemplate", stringRedisTemplate);
+        idGenerator.renew();
+        assertEquals(true, idGenerator.stats().get("leased"));
+        assertTrue(idGenerator.nextId() > first);
+    }
+}
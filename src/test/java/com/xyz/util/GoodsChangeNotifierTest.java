@@ -0,0 +1,123 @@
+package com.xyz.util;
+
+import com.xyz.mapper.GoodsMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * 商品变更补偿扫描：按 (update_time, id) 从水位之后分批扫描，补上丢失的广播；
+ * 回看窗口覆盖晚提交的事务，同一版本不重复通知，扫描失败时水位不前进
+ */
+class GoodsChangeNotifierTest {
+
+    private GoodsMapper goodsMapper;
+    private GoodsChangeNotifier notifier;
+    private final List<Long> notified = new ArrayList<>();
+
+    /** 模拟 goods 表：goodsId -> 更新时间（毫秒） */
+    private final Map<Long, Long> updateTimes = new HashMap<>();
+
+    private boolean scanFails;
+
+    @BeforeEach
+    void setUp() {
+        goodsMapper = mock(GoodsMapper.class);
+        when(goodsMapper.getChangedGoodsAfter(anyLong(), anyLong(), anyInt())).thenAnswer(invocation -> {
+            if (scanFails) {
+                throw new RuntimeException("db down");
+            }
+            long since = invocation.getArgument(0);
+            long sinceId = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            return updateTimes.entrySet().stream()
+                    .filter(e -> e.getValue() > since || (e.getValue() == since && e.getKey() > sinceId))
+                    .sorted(Map.Entry.<Long, Long>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                    .limit(limit)
+                    .map(e -> Map.<String, Object>of("id", e.getKey(), "updateTime", e.getValue()))
+                    .toList();
+        });
+
+        notifier = new GoodsChangeNotifier();
+        ReflectionTestUtils.setField(notifier, "goodsMapper", goodsMapper);
+        ReflectionTestUtils.setField(notifier, "redisMessageListenerContainer", mock(RedisMessageListenerContainer.class));
+        notifier.addListener(notified::add);
+    }
+
+    @Test
+    void missedChangesAreNotifiedOnce() {
+        long now = System.currentTimeMillis();
+        updateTimes.put(1L, now - 600_000);
+        updateTimes.put(2L, now - 10_000);
+        notifier.subscribeChanges();
+
+        // 订阅之后的变更广播丢失，补偿扫描重新通知；回看窗口内订阅前更新的商品也会重新加载一次（重复加载无害）
+        updateTimes.put(3L, now + 10_000);
+        updateTimes.put(4L, now + 10_000);
+        notifier.catchUp();
+        assertEquals(List.of(2L, 3L, 4L), notified);
+
+        // 回看窗口内已通知过的版本不再通知，再次修改后通知
+        notifier.catchUp();
+        assertEquals(List.of(2L, 3L, 4L), notified);
+        updateTimes.put(3L, now + 20_000);
+        notifier.catchUp();
+        assertEquals(List.of(2L, 3L, 4L, 3L), notified);
+    }
+
+    @Test
+    void lateCommitInsideOverlapIsNotified() {
+        long now = System.currentTimeMillis();
+        notifier.subscribeChanges();
+        updateTimes.put(1L, now + 30_000);
+        notifier.catchUp();
+        assertEquals(List.of(1L), notified);
+
+        // 长事务在更早的时间执行了更新，扫描过 now + 30s 之后才提交
+        updateTimes.put(2L, now + 5_000);
+        notifier.catchUp();
+        assertEquals(List.of(1L, 2L), notified);
+    }
+
+    @Test
+    void scanPagesThroughSameTimestamp() {
+        long now = System.currentTimeMillis();
+        notifier.subscribeChanges();
+        // 超过一批的商品在同一毫秒更新
+        for (long id = 1; id <= 1200; id++) {
+            updateTimes.put(id, now + 1_000);
+        }
+        notifier.catchUp();
+        assertEquals(1200, notified.size());
+        assertEquals(1200, new HashSet<>(notified).size());
+    }
+
+    @Test
+    void failedScanIsRetried() {
+        long now = System.currentTimeMillis();
+        notifier.subscribeChanges();
+        updateTimes.put(1L, now + 1_000);
+
+        scanFails = true;
+        notifier.catchUp();
+        assertTrue(notified.isEmpty());
+
+        scanFails = false;
+        notifier.catchUp();
+        assertEquals(List.of(1L), notified);
+    }
+
+    @Test
+    void noScanBeforeSubscribed() {
+        notifier.catchUp();
+        verifyNoInteractions(goodsMapper);
+    }
+}
@@ -0,0 +1,248 @@
+package com.xyz.util;
+
+import com.xyz.dto.GoodsQueryDTO;
+import com.xyz.mapper.GoodsMapper;
+import com.xyz.properties.FacetProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * 商品筛选索引：随机数据上的各种条件组合与 queryGoodsByConditions 的 SQL 语义
+ * （WHERE 条件、价格按商品类型判断、NULL 价格不匹配、ORDER BY update_time DESC, id DESC、复合游标）逐页对比
+ */
+class GoodsFacetIndexTest {
+
+    private final Random random = new Random(20240601);
+
+    /** 模拟 goods 表 */
+    private final TreeMap<Long, Goods> table = new TreeMap<>();
+
+    private GoodsFacetIndex index;
+    private LongConsumer changeListener;
+
+    @BeforeEach
+    void setUp() {
+        GoodsMapper goodsMapper = mock(GoodsMapper.class);
+        when(goodsMapper.getFacetRowsAfter(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long lastId = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            return table.tailMap(lastId, false).values().stream().limit(limit).map(Goods::toRow).toList();
+        });
+        when(goodsMapper.getFacetRowById(anyLong())).thenAnswer(invocation -> {
+            Goods goods = table.get((Long) invocation.getArgument(0));
+            return goods == null ? null : goods.toRow();
+        });
+
+        FacetProperties properties = new FacetProperties();
+        // 阈值很小，增量更新时频繁归并、压缩
+        properties.setBuildChunkSize(37);
+        properties.setMergeThreshold(8);
+        properties.setCompactThreshold(10);
+
+        GoodsChangeNotifier notifier = mock(GoodsChangeNotifier.class);
+        index = new GoodsFacetIndex();
+        ReflectionTestUtils.setField(index, "facetProperties", properties);
+        ReflectionTestUtils.setField(index, "goodsMapper", goodsMapper);
+        ReflectionTestUtils.setField(index, "goodsChangeNotifier", notifier);
+        index.init();
+
+        ArgumentCaptor<LongConsumer> listener = ArgumentCaptor.forClass(LongConsumer.class);
+        verify(notifier).addListener(listener.capture());
+        changeListener = listener.getValue();
+    }
+
+    @Test
+    void matchesSqlAfterBuild() {
+        for (long id = 1; id <= 400; id++) {
+            table.put(id, randomGoods(id));
+        }
+        index.buildOnStartup();
+        assertTrue(index.isReady());
+
+        for (int i = 0; i < 300; i++) {
+            assertSamePages(randomQuery());
+        }
+    }
+
+    @Test
+    void matchesSqlAfterIncrementalUpdates() {
+        for (long id = 1; id <= 200; id++) {
+            table.put(id, randomGoods(id));
+        }
+        index.buildOnStartup();
+
+        for (int round = 0; round < 300; round++) {
+            long id = 1 + random.nextInt(260);
+            if (random.nextInt(5) == 0) {
+                table.remove(id);
+            } else {
+                table.put(id, randomGoods(id));
+            }
+            changeListener.accept(id);
+            if (round % 10 == 0) {
+                assertSamePages(randomQuery());
+            }
+        }
+        for (int i = 0; i < 200; i++) {
+            assertSamePages(randomQuery());
+        }
+        assertEquals(table.size(), index.stats().get("rows"));
+        assertTrue((long) index.stats().get("merges") > 0);
+        assertTrue((long) index.stats().get("compactions") > 0);
+    }
+
+    // ==================== 对比 ====================
+
+    /**
+     * 按游标逐页取完，每一页都与 SQL 语义的结果相同
+     */
+    private void assertSamePages(GoodsQueryDTO query) {
+        long cursor = Long.MAX_VALUE;
+        long cursorId = 0;
+        for (int pageNo = 0; pageNo <= table.size(); pageNo++) {
+            query.setCursor(cursor);
+            query.setCursorId(cursorId);
+            List<Goods> expected = sqlQuery(query, query.getSize() + 1);
+            GoodsFacetIndex.FacetPage page = index.query(query);
+
+            List<Long> expectedIds = expected.stream().limit(query.getSize()).map(g -> g.id).toList();
+            assertEquals(expectedIds, page.getIds(), () -> "条件不一致: " + query);
+            assertEquals(expected.size() > query.getSize(), page.isHasMore(), () -> "hasMore 不一致: " + query);
+            if (!page.isHasMore()) {
+                return;
+            }
+            cursor = page.getNextCursor();
+            cursorId = page.getNextCursorId();
+            Goods last = table.get(cursorId);
+            assertEquals(last.updateTime, cursor);
+        }
+        fail("翻页没有结束: " + query);
+    }
+
+    /**
+     * queryGoodsByConditions 的 SQL 语义（不含 keyword）
+     */
+    private List<Goods> sqlQuery(GoodsQueryDTO q, int limit) {
+        return table.values().stream()
+                .filter(g -> g.updateTime < q.getCursor() || (g.updateTime == q.getCursor() && g.id < q.getCursorId()))
+                .filter(g -> q.getStatus() == null || g.status == q.getStatus())
+                .filter(g -> q.getCategoryId() == null || g.categoryId == q.getCategoryId())
+                .filter(g -> q.getOwnerId() == null || g.ownerId == q.getOwnerId())
+                .filter(g -> q.getGoodsType() == null || g.goodsType == q.getGoodsType())
+                .filter(g -> q.getMinPrice() == null || priceMatches(g, BigDecimal.valueOf(q.getMinPrice()), true))
+                .filter(g -> q.getMaxPrice() == null || priceMatches(g, BigDecimal.valueOf(q.getMaxPrice()), false))
+                .filter(g -> q.getStartTime() == null || g.createTime >= q.getStartTime())
+                .filter(g -> q.getEndTime() == null || g.createTime <= q.getEndTime())
+                .sorted(Comparator.comparingLong((Goods g) -> g.updateTime).thenComparingLong(g -> g.id).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    private static boolean priceMatches(Goods g, BigDecimal bound, boolean min) {
+        boolean sell = compare(g.sellPrice, bound, min);
+        boolean rent = compare(g.rentPrice, bound, min);
+        return switch (g.goodsType) {
+            case 1 -> sell;
+            case 2 -> rent;
+            case 3 -> sell || rent;
+            default -> false;
+        };
+    }
+
+    /** NULL 与任何值比较都不成立 */
+    private static boolean compare(BigDecimal price, BigDecimal bound, boolean min) {
+        if (price == null) {
+            return false;
+        }
+        return min ? price.compareTo(bound) >= 0 : price.compareTo(bound) <= 0;
+    }
+
+    // ==================== 随机数据 ====================
+
+    private Goods randomGoods(long id) {
+        Goods g = new Goods();
+        g.id = id;
+        g.status = random.nextInt(6);
+        g.categoryId = 1 + random.nextInt(6);
+        g.ownerId = 1 + random.nextInt(25);
+        g.goodsType = 1 + random.nextInt(3);
+        g.sellPrice = randomPrice();
+        g.rentPrice = randomPrice();
+        // 秒级时间，很多商品的更新时间相同，检验 (更新时间, ID) 的复合排序
+        g.createTime = 1_700_000_000_000L + random.nextInt(50) * 1000L;
+        g.updateTime = 1_700_000_000_000L + random.nextInt(30) * 1000L;
+        return g;
+    }
+
+    private BigDecimal randomPrice() {
+        return random.nextInt(6) == 0 ? null : BigDecimal.valueOf(random.nextInt(20000), 2);
+    }
+
+    private GoodsQueryDTO randomQuery() {
+        GoodsQueryDTO q = new GoodsQueryDTO();
+        if (random.nextBoolean()) {
+            q.setStatus(random.nextInt(6));
+        }
+        if (random.nextInt(3) == 0) {
+            q.setCategoryId(1L + random.nextInt(7));
+        }
+        if (random.nextInt(4) == 0) {
+            q.setOwnerId(1L + random.nextInt(26));
+        }
+        if (random.nextInt(3) == 0) {
+            q.setGoodsType(1 + random.nextInt(3));
+        }
+        if (random.nextInt(3) == 0) {
+            // 三位小数，检验与 SQL 相同的取整方向
+            q.setMinPrice(random.nextInt(150000) / 1000.0);
+        }
+        if (random.nextInt(3) == 0) {
+            q.setMaxPrice(random.nextInt(200000) / 1000.0);
+        }
+        if (random.nextInt(4) == 0) {
+            q.setStartTime(1_700_000_000_000L + random.nextInt(50) * 1000L);
+        }
+        if (random.nextInt(4) == 0) {
+            q.setEndTime(1_700_000_000_000L + random.nextInt(50) * 1000L);
+        }
+        q.setSize(1 + random.nextInt(15));
+        return q;
+    }
+
+    private static class Goods {
+        long id;
+        int status;
+        long categoryId;
+        long ownerId;
+        int goodsType;
+        BigDecimal sellPrice;
+        BigDecimal rentPrice;
+        long createTime;
+        long updateTime;
+
+        Map<String, Object> toRow() {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", id);
+            row.put("status", status);
+            row.put("categoryId", categoryId);
+            row.put("ownerId", ownerId);
+            row.put("goodsType", goodsType);
+            row.put("sellPrice", sellPrice);
+            row.put("rentPrice", rentPrice);
+            row.put("createTime", createTime);
+            row.put("updateTime", updateTime);
+            return row;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.xyz.util;
+
+import com.xyz.constant.GoodsStatusConstant;
+import com.xyz.mapper.GoodsMapper;
+import com.xyz.properties.SearchProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * 商品搜索倒排索引：BM25 排序、前缀匹配、游标翻页（打分快照内翻页稳定，快照变化时从游标继续）和增量更新
+ */
+class GoodsSearchIndexTest {
+
+    private GoodsMapper goodsMapper;
+    private SearchProperties searchProperties;
+    private GoodsSearchIndex index;
+    private LongConsumer changeListener;
+
+    /** 模拟 goods 表：goodsId -> [描述, 状态] */
+    private final TreeMap<Long, Object[]> rows = new TreeMap<>();
+
+    @BeforeEach
+    void setUp() {
+        goodsMapper = mock(GoodsMapper.class);
+        when(goodsMapper.getOnSaleDescriptionsAfter(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long lastId = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            List<Map<String, Object>> chunk = new ArrayList<>();
+            for (Map.Entry<Long, Object[]> entry : rows.tailMap(lastId, false).entrySet()) {
+                if (chunk.size() >= limit) {
+                    break;
+                }
+                if ((int) entry.getValue()[1] == GoodsStatusConstant.ON_SALE) {
+                    chunk.add(Map.of("id", entry.getKey(), "description", entry.getValue()[0]));
+                }
+            }
+            return chunk;
+        });
+        when(goodsMapper.getDescriptionAndStatusById(anyLong())).thenAnswer(invocation -> {
+            Object[] row = rows.get((Long) invocation.getArgument(0));
+            return row == null ? null : Map.of("description", row[0], "status", row[1]);
+        });
+
+        GoodsChangeNotifier notifier = mock(GoodsChangeNotifier.class);
+        searchProperties = new SearchProperties();
+        searchProperties.setBuildChunkSize(2);
+
+        index = new GoodsSearchIndex();
+        ReflectionTestUtils.setField(index, "searchProperties", searchProperties);
+        ReflectionTestUtils.setField(index, "goodsMapper", goodsMapper);
+        ReflectionTestUtils.setField(index, "goodsChangeNotifier", notifier);
+        index.init();
+
+        ArgumentCaptor<LongConsumer> listener = ArgumentCaptor.forClass(LongConsumer.class);
+        verify(notifier).addListener(listener.capture());
+        changeListener = listener.getValue();
+    }
+
+    @Test
+    void ranksByTermFrequencyAndDocumentLength() {
+        onSale(1L, "iPhone 13 手机 九成新");
+        onSale(2L, "iPhone 手机 iPhone 手机 自用");
+        onSale(3L, "华为手机 附赠 iPhone 数据线 充电头 耳机 保护壳 钢化膜 原装包装盒 发票 说明书");
+        onSale(4L, "二手自行车");
+        index.buildOnStartup();
+        assertTrue(index.isReady());
+
+        // 词频高的排前面，同样只出现一次时短文档排前面
+        assertEquals(List.of(2L, 1L, 3L), search("iphone"));
+        // 英文按前缀匹配，大小写不敏感
+        assertEquals(List.of(2L, 1L, 3L), search("IPH"));
+        // 多个查询词要求同时出现
+        assertEquals(List.of(2L), search("iphone 自用 手机"));
+        assertEquals(List.of(1L), search("iphone 九成新"));
+        assertEquals(List.of(2L, 1L, 3L), search("iphone 手机"));
+        // 中文查询按二元词匹配：“手机”在 1/2/3 中，“自行车”只在 4 中
+        assertEquals(Set.of(1L, 2L, 3L), new HashSet<>(search("手机")));
+        assertEquals(List.of(4L), search("自行车"));
+        assertTrue(search("冰箱").isEmpty());
+    }
+
+    @Test
+    void cursorPagingVisitsEveryMatchOnce() {
+        for (long id = 1; id <= 7; id++) {
+            onSale(id, "闲置 键盘 " + "键盘 ".repeat((int) (id % 3)));
+        }
+        index.buildOnStartup();
+
+        List<Long> seen = new ArrayList<>();
+        Long cursor = null;
+        Long cursorId = null;
+        while (true) {
+            GoodsSearchIndex.SearchPage page = index.search("键盘", cursor, cursorId, 3);
+            seen.addAll(page.getIds());
+            if (!page.isHasMore()) {
+                break;
+            }
+            cursor = page.getNextCursor();
+            cursorId = page.getNextCursorId();
+        }
+        assertEquals(7, seen.size());
+        assertEquals(7, new HashSet<>(seen).size());
+        // 与一次取完的顺序相同
+        assertEquals(index.search("键盘", null, null, 10).getIds(), seen);
+    }
+
+    @Test
+    void updatesBetweenPagesDoNotShiftCursor() {
+        for (long id = 1; id <= 7; id++) {
+            onSale(id, "闲置 键盘 " + "键盘 ".repeat((int) (id % 3)));
+        }
+        index.buildOnStartup();
+        GoodsSearchIndex.SearchPage first = index.search("键盘", null, null, 3);
+
+        // 翻页之间文档数、平均长度和“键盘”的文档频率都发生变化，同一快照内已有文档的分数不变
+        onSale(8L, "机械键盘 全新");
+        changeListener.accept(8L);
+        onSale(9L, "显示器 支架 音箱 台灯 桌垫 收纳盒 数据线 路由器 插线板 耳机架");
+        changeListener.accept(9L);
+
+        List<Long> seen = new ArrayList<>(first.getIds());
+        Long cursor = first.getNextCursor();
+        Long cursorId = first.getNextCursorId();
+        while (cursor != null) {
+            GoodsSearchIndex.SearchPage page = index.search("键盘", cursor, cursorId, 3);
+            seen.addAll(page.getIds());
+            cursor = page.isHasMore() ? page.getNextCursor() : null;
+            cursorId = page.getNextCursorId();
+        }
+        seen.remove(8L);
+        assertEquals(7, seen.size());
+        assertEquals(Set.of(1L, 2L, 3L, 4L, 5L, 6L, 7L), new HashSet<>(seen));
+    }
+
+    @Test
+    void cursorFromAnotherSnapshotContinuesFromItsScore() {
+        for (long id = 1; id <= 5; id++) {
+            onSale(id, "二手 键盘");
+        }
+        index.buildOnStartup();
+        GoodsSearchIndex.SearchPage first = index.search("键盘", null, null, 2);
+        assertEquals(List.of(5L, 4L), first.getIds());
+        assertTrue(GoodsSearchIndex.isIndexCursor(first.getNextCursor()));
+        // MySQL 回退查询的时间戳游标不会被当作索引游标
+        assertFalse(GoodsSearchIndex.isIndexCursor(System.currentTimeMillis()));
+        assertFalse(GoodsSearchIndex.isIndexCursor(null));
+
+        // 快照版本是时间段编号：同一时间段内另一个节点的索引版本相同，游标直接可用
+        GoodsSearchIndex other = new GoodsSearchIndex();
+        ReflectionTestUtils.setField(other, "searchProperties", searchProperties);
+        ReflectionTestUtils.setField(other, "goodsMapper", goodsMapper);
+        ReflectionTestUtils.setField(other, "goodsChangeNotifier", mock(GoodsChangeNotifier.class));
+        other.init();
+        other.buildOnStartup();
+        assertEquals(List.of(3L, 2L), other.search("键盘", first.getNextCursor(), first.getNextCursorId(), 2).getIds());
+        assertEquals(0L, other.stats().get("staleCursors"));
+
+        // 快照版本不同（跨越了刷新时间点）时不报错，从游标中的 (分数, 商品ID) 继续
+        long staleCursor = first.getNextCursor() ^ (1L << 32);
+        assertTrue(GoodsSearchIndex.isIndexCursor(staleCursor));
+        assertEquals(List.of(3L, 2L), index.search("键盘", staleCursor, first.getNextCursorId(), 2).getIds());
+        assertEquals(1L, index.stats().get("staleCursors"));
+    }
+
+    @Test
+    void prefixOverExpansionLimitKeepsMostFrequentTerms() {
+        searchProperties.setMaxPrefixExpansions(2);
+        onSale(1L, "aab");
+        onSale(2L, "abc");
+        onSale(3L, "axe");
+        onSale(4L, "axe");
+        onSale(5L, "azure");
+        onSale(6L, "azure");
+        onSale(7L, "azure");
+        index.buildOnStartup();
+
+        // 字典序靠前的 aab、abc 只各有一个商品，保留文档数最多的 azure 和 axe
+        assertEquals(Set.of(3L, 4L, 5L, 6L, 7L), new HashSet<>(search("a")));
+        assertEquals(1L, index.stats().get("truncatedPrefixes"));
+
+        // 未超过上限时全部展开
+        assertEquals(List.of(2L), search("ab"));
+        assertEquals(1L, index.stats().get("truncatedPrefixes"));
+    }
+
+    @Test
+    void incrementalUpdatesReplaceAndRemoveDocuments() {
+        searchProperties.setCompactThreshold(1);
+        onSale(1L, "索尼 耳机");
+        onSale(2L, "索尼 相机");
+        index.buildOnStartup();
+        assertEquals(Set.of(1L, 2L), new HashSet<>(search("索尼")));
+
+        // 修改描述：旧词不再命中，新词命中
+        onSale(1L, "森海塞尔 耳机");
+        changeListener.accept(1L);
+        assertEquals(List.of(2L), search("索尼"));
+        assertEquals(List.of(1L), search("森海塞尔"));
+
+        // 新发布
+        onSale(3L, "索尼 电视");
+        changeListener.accept(3L);
+        assertEquals(Set.of(2L, 3L), new HashSet<>(search("索尼")));
+
+        // 下架、删除后移除，已删除文档过多时压缩
+        rows.put(2L, new Object[]{"索尼 相机", GoodsStatusConstant.OFF_SHELF});
+        changeListener.accept(2L);
+        rows.remove(3L);
+        changeListener.accept(3L);
+        assertTrue(search("索尼").isEmpty());
+        assertEquals(List.of(1L), search("耳机"));
+        assertEquals(1, index.stats().get("docs"));
+        assertTrue((long) index.stats().get("compactions") > 0);
+        assertEquals(0, index.stats().get("deletedDocs"));
+    }
+
+    private void onSale(long goodsId, String description) {
+        rows.put(goodsId, new Object[]{description, GoodsStatusConstant.ON_SALE});
+    }
+
+    private List<Long> search(String keyword) {
+        return index.search(keyword, null, null, 10).getIds();
+    }
+}
@@ -0,0 +1,94 @@
+package com.xyz.util;
+
+import com.xyz.constant.RedisConstant;
+import com.xyz.mapper.GoodsMapper;
+import com.xyz.properties.TrendingProperties;
+import com.xyz.support.RedisTestSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * 热门商品榜初始化与增量更新（trending_incr.lua）
+ */
+class GoodsTrendingUtilTest extends RedisTestSupport {
+
+    private GoodsMapper goodsMapper;
+    private GoodsTrendingUtil trendingUtil;
+
+    @BeforeEach
+    void setUp() {
+        goodsMapper = mock(GoodsMapper.class);
+        ZSetIndexUtil zSetIndexUtil = new ZSetIndexUtil();
+        ReflectionTestUtils.setField(zSetIndexUtil, "redisTemplate", redisTemplate);
+        trendingUtil = new GoodsTrendingUtil();
+        ReflectionTestUtils.setField(trendingUtil, "trendingProperties", new TrendingProperties());
+        ReflectionTestUtils.setField(trendingUtil, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(trendingUtil, "goodsMapper", goodsMapper);
+        ReflectionTestUtils.setField(trendingUtil, "zSetIndexUtil", zSetIndexUtil);
+    }
+
+    @Test
+    void incrementBeforeSeedDoesNotSuppressSeed() {
+        // 初始化之前发生的收藏不写入榜单，也不创建基准时间
+        trendingUtil.record(7L, 1, System.currentTimeMillis());
+        assertFalse(stringRedisTemplate.hasKey(RedisConstant.GOODS_TRENDING_EPOCH_KEY));
+        assertFalse(stringRedisTemplate.hasKey(RedisConstant.GOODS_TRENDING_KEY));
+
+        when(goodsMapper.getDecayedFavoriteScores(anyLong(), anyLong(), anyLong(), anyInt())).thenReturn(List.of(
+                Map.of("goodsId", 7L, "score", 3.0),
+                Map.of("goodsId", 8L, "score", 1.0)));
+        trendingUtil.initOnStartup();
+
+        assertTrue(stringRedisTemplate.hasKey(RedisConstant.GOODS_TRENDING_EPOCH_KEY));
+        assertEquals(List.of(7L, 8L), trendingUtil.readPage(null, null, 10).getIds());
+
+        // 初始化之后的收藏正常累加
+        trendingUtil.record(8L, 1, System.currentTimeMillis());
+        trendingUtil.record(8L, 1, System.currentTimeMillis());
+        trendingUtil.record(8L, 1, System.currentTimeMillis());
+        assertEquals(List.of(8L, 7L), trendingUtil.readPage(null, null, 10).getIds());
+    }
+
+    @Test
+    void evictedZSetIsReseededEvenIfEpochExists() {
+        when(goodsMapper.getDecayedFavoriteScores(anyLong(), anyLong(), anyLong(), anyInt())).thenReturn(List.of(
+                Map.of("goodsId", 7L, "score", 2.0)));
+        trendingUtil.initOnStartup();
+        verify(goodsMapper, times(1)).getDecayedFavoriteScores(anyLong(), anyLong(), anyLong(), anyInt());
+
+        // 已初始化：不再访问 MySQL
+        trendingUtil.initOnStartup();
+        verify(goodsMapper, times(1)).getDecayedFavoriteScores(anyLong(), anyLong(), anyLong(), anyInt());
+
+        // ZSet 被淘汰、基准时间仍在：重新初始化
+        stringRedisTemplate.delete(RedisConstant.GOODS_TRENDING_KEY);
+        trendingUtil.initOnStartup();
+        verify(goodsMapper, times(2)).getDecayedFavoriteScores(anyLong(), anyLong(), anyLong(), anyInt());
+        assertEquals(List.of(7L), trendingUtil.readPage(null, null, 10).getIds());
+    }
+
+    @Test
+    void unfavoriteCancelsOriginalWeight() {
+        when(goodsMapper.getDecayedFavoriteScores(anyLong(), anyLong(), anyLong(), anyInt())).thenReturn(List.of());
+        trendingUtil.initOnStartup();
+
+        long favoriteTime = System.currentTimeMillis();
+        trendingUtil.record(9L, 1, favoriteTime);
+        assertEquals(List.of(9L), trendingUtil.readPage(null, null, 10).getIds());
+
+        trendingUtil.record(9L, -1, favoriteTime);
+        assertTrue(trendingUtil.readPage(null, null, 10).getIds().isEmpty());
+        // 已不在榜单时再次取消收藏不会产生负分成员
+        trendingUtil.record(9L, -1, favoriteTime);
+        assertNull(redisTemplate.opsForZSet().score(RedisConstant.GOODS_TRENDING_KEY, 9L));
+    }
+}
@@ -0,0 +1,211 @@
+package com.xyz.util;
+
+import com.xyz.mapper.GoodsMapper;
+import com.xyz.mapper.UserMapper;
+import com.xyz.properties.BloomFilterProperties;
+import com.xyz.support.RedisTestSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * 布隆过滤器构建、重建期间的并发添加（bloom_add.lua / bloom_swap.lua）和位图丢失时放行（bloom_contains.lua）
+ */
+class IdBloomFilterUtilTest extends RedisTestSupport {
+
+    private GoodsMapper goodsMapper;
+    private IdBloomFilterUtil bloomUtil;
+
+    @BeforeEach
+    void setUp() {
+        goodsMapper = mock(GoodsMapper.class);
+        UserMapper userMapper = mock(UserMapper.class);
+        when(userMapper.getUserIdsAfter(anyLong(), anyInt())).thenReturn(Collections.emptyList());
+
+        BloomFilterProperties properties = new BloomFilterProperties();
+        // 容量很小，构建时会扩容出多层
+        properties.setGoodsCapacity(50);
+        properties.setBuildChunkSize(100);
+
+        bloomUtil = new IdBloomFilterUtil();
+        ReflectionTestUtils.setField(bloomUtil, "bloomFilterProperties", properties);
+        ReflectionTestUtils.setField(bloomUtil, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(bloomUtil, "goodsMapper", goodsMapper);
+        ReflectionTestUtils.setField(bloomUtil, "userMapper", userMapper);
+        bloomUtil.init();
+    }
+
+    @Test
+    void addDuringRebuildIsKeptAfterSwap() {
+        // 第一次构建只有 1..10
+        stubGoodsIds(range(1, 10), null);
+        bloomUtil.buildOnStartup();
+        assertTrue(bloomUtil.mightContainGoods(5L));
+        assertTrue(countPassed(1000, 2000) < 50, "旧过滤器应拦截几乎所有不存在的ID");
+
+        // 位图被淘汰后重建：扫描到一半时发布了新商品 5000
+        redisTemplate.delete("bloom:goods:bits:0");
+        stubGoodsIds(range(1, 300), () -> bloomUtil.addGoods(5000L));
+        bloomUtil.buildOnStartup();
+
+        assertTrue(bloomUtil.mightContainGoods(5000L), "重建期间添加的ID不能丢失");
+        for (long id = 1; id <= 300; id++) {
+            assertTrue(bloomUtil.mightContainGoods(id));
+        }
+        assertFalse(stringRedisTemplate.hasKey("bloom:goods:building"));
+        assertFalse(stringRedisTemplate.hasKey("bloom:goods:build:layers"));
+        assertTrue(Integer.parseInt(stringRedisTemplate.opsForValue().get("bloom:goods:layers")) > 1);
+    }
+
+    @Test
+    void evictedBitsFailOpen() {
+        stubGoodsIds(range(1, 10), null);
+        bloomUtil.buildOnStartup();
+        assertTrue(countPassed(1000, 2000) < 50);
+
+        // 完成标记还在但位图丢失：放行，不能把存在的ID误判为不存在
+        redisTemplate.delete("bloom:goods:bits:0");
+        for (long id = 1; id <= 10; id++) {
+            assertTrue(bloomUtil.mightContainGoods(id));
+        }
+        assertTrue(bloomUtil.mightContainGoods(123456L));
+        assertEquals(11L, goodsStats().get("degraded"));
+
+        // 层数丢失同样放行
+        stubGoodsIds(range(1, 10), null);
+        bloomUtil.buildOnStartup();
+        redisTemplate.delete("bloom:goods:layers");
+        assertTrue(bloomUtil.mightContainGoods(123456L));
+    }
+
+    @Test
+    void emptyTableBuildsCompleteFilter() {
+        stubGoodsIds(Collections.emptyList(), null);
+        bloomUtil.buildOnStartup();
+
+        assertTrue(stringRedisTemplate.hasKey("bloom:goods:ready"));
+        assertFalse(bloomUtil.mightContainGoods(1L));
+        assertEquals(0L, goodsStats().get("degraded"));
+
+        // 已完整，不再扫描
+        bloomUtil.buildOnStartup();
+        verify(goodsMapper, times(1)).getGoodsIdsAfter(anyLong(), anyInt());
+    }
+
+    @Test
+    void addInTransactionWaitsForCommit() {
+        stubGoodsIds(Collections.emptyList(), null);
+        bloomUtil.buildOnStartup();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            bloomUtil.addGoods(42L);
+            assertFalse(bloomUtil.mightContainGoods(42L), "提交前不应写入");
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertTrue(bloomUtil.mightContainGoods(42L));
+    }
+
+    @Test
+    void failedAddFailsOpenUntilRebuild() {
+        stubGoodsIds(range(1, 10), null);
+        bloomUtil.buildOnStartup();
+        assertTrue(countPassed(1000, 2000) < 50);
+
+        // 层数 key 类型错误，添加脚本执行失败
+        redisTemplate.delete("bloom:goods:layers");
+        stringRedisTemplate.opsForList().leftPush("bloom:goods:layers", "broken");
+
+        // 事件处理抛出异常由发件箱重试；提交后添加只记录日志，不影响已提交的请求
+        assertThrows(RuntimeException.class, () -> bloomUtil.ensureGoods(42L));
+        assertDoesNotThrow(() -> bloomUtil.addGoods(43L));
+
+        // 完成标记已删除：漏加的ID不会被误判为不存在
+        assertFalse(stringRedisTemplate.hasKey("bloom:goods:ready"));
+        stringRedisTemplate.delete("bloom:goods:layers");
+        assertEquals(1000, countPassed(1000, 2000));
+
+        // 下次启动时重新构建
+        List<Long> ids = new ArrayList<>(range(1, 10));
+        ids.addAll(List.of(42L, 43L));
+        stubGoodsIds(ids, null);
+        bloomUtil.buildOnStartup();
+        assertTrue(stringRedisTemplate.hasKey("bloom:goods:ready"));
+        assertTrue(bloomUtil.mightContainGoods(42L));
+        assertTrue(bloomUtil.mightContainGoods(43L));
+        assertTrue(countPassed(1000, 2000) < 50);
+    }
+
+    @Test
+    void buildKeepsLockTakenOverByAnotherNode() {
+        // 扫描超过租约时长，锁过期后被其他节点接管
+        String lockKey = "lock:rebuild:bloom:goods";
+        stubGoodsIds(range(1, 10), () -> redisTemplate.opsForValue().set(lockKey, "other-node"));
+        bloomUtil.buildOnStartup();
+
+        assertEquals("other-node", redisTemplate.opsForValue().get(lockKey));
+
+        // 自己持有的锁构建完成后释放
+        redisTemplate.delete(List.of(lockKey, "bloom:goods:ready"));
+        stubGoodsIds(range(1, 10), null);
+        bloomUtil.buildOnStartup();
+        assertFalse(redisTemplate.hasKey(lockKey));
+    }
+
+    // ==================== 辅助方法 ====================
+
+    /**
+     * 按 (lastId, limit) 分块返回 ids，第一块返回后执行 duringScan（模拟扫描期间的并发发布）
+     */
+    private void stubGoodsIds(List<Long> ids, Runnable duringScan) {
+        reset(goodsMapper);
+        when(goodsMapper.getGoodsIdsAfter(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long lastId = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            List<Long> chunk = ids.stream().filter(id -> id > lastId).limit(limit).toList();
+            if (lastId == 0 && duringScan != null) {
+                duringScan.run();
+            }
+            return chunk;
+        });
+    }
+
+    private int countPassed(long from, long to) {
+        int passed = 0;
+        for (long id = from; id < to; id++) {
+            if (bloomUtil.mightContainGoods(id)) {
+                passed++;
+            }
+        }
+        return passed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> goodsStats() {
+        return (Map<String, Object>) bloomUtil.stats().get("goods");
+    }
+
+    private static List<Long> range(long from, long to) {
+        List<Long> ids = new ArrayList<>();
+        for (long id = from; id <= to; id++) {
+            ids.add(id);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,55 @@
+package com.xyz.util;
+
+import com.xyz.mapper.ImageObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 写入存储前的去重查找：按主键在 image_object 中增加引用，命中时复用已有URL，不再重复写入
+ */
+class ImageContentIndexTest {
+
+    private static final String HASH = "ab12";
+    private static final String URL = "http://files/avatar/a.png";
+
+    private ImageObjectMapper imageObjectMapper;
+    private ImageContentIndex index;
+
+    @BeforeEach
+    void setUp() {
+        imageObjectMapper = mock(ImageObjectMapper.class);
+        index = new ImageContentIndex();
+        ReflectionTestUtils.setField(index, "imageObjectMapper", imageObjectMapper);
+    }
+
+    @Test
+    void existingContentIsReused() {
+        when(imageObjectMapper.acquire(HASH)).thenReturn(1);
+        when(imageObjectMapper.getUrlByHash(HASH)).thenReturn(URL);
+
+        assertEquals(URL, index.acquire(HASH, 100));
+        assertEquals(URL, index.acquire(HASH, 100));
+        verify(imageObjectMapper, times(2)).acquire(HASH);
+        assertEquals(2L, index.stats().get("dedupHits"));
+        assertEquals(200L, index.stats().get("dedupSavedBytes"));
+    }
+
+    @Test
+    void newOrDeletedContentIsNotFound() {
+        // 新内容，或记录的引用已降为 0（正在删除）
+        assertNull(index.acquire(HASH, 100));
+        verify(imageObjectMapper, never()).getUrlByHash(anyString());
+        assertEquals(0L, index.stats().get("dedupHits"));
+    }
+
+    @Test
+    void databaseFailureSkipsDedup() {
+        when(imageObjectMapper.acquire(HASH)).thenThrow(new RuntimeException("db down"));
+        assertNull(index.acquire(HASH, 100));
+    }
+}
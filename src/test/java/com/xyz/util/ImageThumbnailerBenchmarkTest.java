@@ -0,0 +1,50 @@
+package com.xyz.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static com.xyz.util.ImageThumbnailerTest.*;
+
+/**
+ * 缩略图生成吞吐：单线程处理一张 3000x4000 的手机照片大小的 JPEG，输出每核每秒处理张数（正确性校验见 ImageThumbnailerTest）
+ * mvn test -Dtest=ImageThumbnailerBenchmarkTest -Dthumbnail.benchmark.rounds=100
+ */
+@EnabledIfSystemProperty(named = "thumbnail.benchmark.rounds", matches = "\\d+")
+class ImageThumbnailerBenchmarkTest {
+
+    @Test
+    void thumbnailThroughputPerCore() throws IOException {
+        int rounds = Integer.getInteger("thumbnail.benchmark.rounds");
+        byte[] original = syntheticPhoto();
+        ImageThumbnailer thumbnailer = new ImageThumbnailer(CARD_SIZE, DETAIL_SIZE, 0.8f, 40_000_000L);
+
+        // 预热
+        Map<String, byte[]> result = thumbnailer.generate(original);
+        for (int i = 0; i < 2; i++) {
+            thumbnailer.generate(original);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            result = thumbnailer.generate(original);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        BufferedImage detail = ImageIO.read(new ByteArrayInputStream(result.get(ImageThumbnailer.DETAIL)));
+        BufferedImage card = ImageIO.read(new ByteArrayInputStream(result.get(ImageThumbnailer.CARD)));
+
+        System.out.printf("original    : %dx%d, %,d bytes%n", WIDTH, HEIGHT, original.length);
+        System.out.printf("detail      : %dx%d, %,d bytes%n", detail.getWidth(), detail.getHeight(),
+                result.get(ImageThumbnailer.DETAIL).length);
+        System.out.printf("card        : %dx%d, %,d bytes%n", card.getWidth(), card.getHeight(),
+                result.get(ImageThumbnailer.CARD).length);
+        System.out.printf("rounds      : %d, %.1f ms/image%n", rounds, seconds * 1000 / rounds);
+        System.out.printf("throughput  : %.1f images/sec/core%n", rounds / seconds);
+    }
+}
@@ -0,0 +1,89 @@
+package com.xyz.util;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 缩略图尺寸和压缩、小图不放大、超大或无效图片拒绝处理、缩略图对象名
+ * （吞吐见 ImageThumbnailerBenchmarkTest）
+ */
+class ImageThumbnailerTest {
+
+    static final int WIDTH = 3000;
+    static final int HEIGHT = 4000;
+    static final int CARD_SIZE = 400;
+    static final int DETAIL_SIZE = 1280;
+
+    @Test
+    void photoIsScaledAndCompressed() throws IOException {
+        byte[] original = syntheticPhoto();
+        Map<String, byte[]> result = new ImageThumbnailer(CARD_SIZE, DETAIL_SIZE, 0.8f, 40_000_000L).generate(original);
+
+        BufferedImage detail = ImageIO.read(new ByteArrayInputStream(result.get(ImageThumbnailer.DETAIL)));
+        BufferedImage card = ImageIO.read(new ByteArrayInputStream(result.get(ImageThumbnailer.CARD)));
+        assertEquals(DETAIL_SIZE, Math.max(detail.getWidth(), detail.getHeight()));
+        assertEquals(CARD_SIZE, Math.max(card.getWidth(), card.getHeight()));
+        assertEquals(WIDTH * DETAIL_SIZE / HEIGHT, detail.getWidth(), 1);
+        assertTrue(result.get(ImageThumbnailer.CARD).length < result.get(ImageThumbnailer.DETAIL).length);
+        assertTrue(result.get(ImageThumbnailer.DETAIL).length < original.length);
+    }
+
+    @Test
+    void smallImageIsNotEnlarged() throws IOException {
+        BufferedImage image = new BufferedImage(200, 100, BufferedImage.TYPE_INT_ARGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+
+        Map<String, byte[]> result = new ImageThumbnailer(CARD_SIZE, DETAIL_SIZE, 0.8f, 40_000_000L).generate(out.toByteArray());
+        BufferedImage card = ImageIO.read(new ByteArrayInputStream(result.get(ImageThumbnailer.CARD)));
+        assertEquals(200, card.getWidth());
+        assertEquals(100, card.getHeight());
+    }
+
+    @Test
+    void rejectsOversizedOrInvalidImages() throws IOException {
+        ImageThumbnailer thumbnailer = new ImageThumbnailer(CARD_SIZE, DETAIL_SIZE, 0.8f, 1_000_000L);
+        assertThrows(IOException.class, () -> thumbnailer.generate(syntheticPhoto()));
+        assertThrows(IOException.class, () -> thumbnailer.generate("not an image".getBytes()));
+    }
+
+    @Test
+    void derivativeName() {
+        assertEquals("goods/abc_card.jpg", ImageThumbnailer.derivativeName("goods/abc.png", ImageThumbnailer.CARD));
+        assertEquals("goods/abc_detail.jpg", ImageThumbnailer.derivativeName("goods/abc", ImageThumbnailer.DETAIL));
+        assertEquals("a.b/abc_card.jpg", ImageThumbnailer.derivativeName("a.b/abc", ImageThumbnailer.CARD));
+    }
+
+    /**
+     * 渐变加噪点，接近照片的压缩比
+     */
+    static byte[] syntheticPhoto() throws IOException {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int r = x * 255 / WIDTH;
+                int g = y * 255 / HEIGHT;
+                int b = (x + y) % 256;
+                int noise = random.nextInt(32) - 16;
+                image.setRGB(x, y, (clamp(r + noise) << 16) | (clamp(g + noise) << 8) | clamp(b + noise));
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
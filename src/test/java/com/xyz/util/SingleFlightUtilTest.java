@@ -0,0 +1,161 @@
+package com.xyz.util;
+
+import com.xyz.support.RedisTestSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 缓存重建合并：进程内并发调用只加载一次并共享结果；跨节点租约被占用时轮询缓存，
+ * 等到结果直接使用，等不到再自行回源，且不会释放别人持有的租约
+ */
+class SingleFlightUtilTest extends RedisTestSupport {
+
+    private static final String CACHE_KEY = "test:detail:1";
+    private static final String LOCK_KEY = "test:lock:detail:1";
+
+    private SingleFlightUtil singleFlightUtil;
+
+    @BeforeEach
+    void setUp() {
+        singleFlightUtil = new SingleFlightUtil();
+        ReflectionTestUtils.setField(singleFlightUtil, "redisTemplate", redisTemplate);
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Object value = new Object();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            Callable<Object> call = () -> singleFlightUtil.execute(CACHE_KEY, () -> {
+                loads.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return value;
+            });
+            results.add(pool.submit(call));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // 第一个调用仍在加载中，其余调用等待它的结果
+            for (int i = 0; i < 7; i++) {
+                results.add(pool.submit(call));
+            }
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<Object> result : results) {
+                assertSame(value, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // 加载完成后不保留结果，下一次调用重新加载
+        assertEquals("again", singleFlightUtil.execute(CACHE_KEY, () -> "again"));
+    }
+
+    @Test
+    void loadFailureIsSharedWithWaiters() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> first = pool.submit(() -> singleFlightUtil.execute(CACHE_KEY, () -> {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("db down");
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Object> second = pool.submit(() -> singleFlightUtil.execute(CACHE_KEY, () -> "unused"));
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<Object> result : List.of(first, second)) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertEquals("db down", e.getCause().getMessage());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void leaseHolderLoadsAndReleases() {
+        AtomicInteger loads = new AtomicInteger();
+        Object result = singleFlightUtil.loadWithLease(LOCK_KEY, () -> fail("持有租约时不轮询缓存"), () -> {
+            loads.incrementAndGet();
+            // 回源期间租约存在
+            assertTrue(redisTemplate.hasKey(LOCK_KEY));
+            return "loaded";
+        });
+
+        assertEquals("loaded", result);
+        assertEquals(1, loads.get());
+        assertFalse(redisTemplate.hasKey(LOCK_KEY));
+    }
+
+    @Test
+    void contendedLeaseWaitsForCachedResult() throws Exception {
+        // 其他节点持有租约，回源后写入缓存
+        redisTemplate.opsForValue().set(LOCK_KEY, "other-node");
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            scheduler.schedule(() -> redisTemplate.opsForValue().set(CACHE_KEY, "from-other-node"), 150, TimeUnit.MILLISECONDS);
+
+            AtomicInteger loads = new AtomicInteger();
+            Object result = singleFlightUtil.loadWithLease(LOCK_KEY,
+                    () -> redisTemplate.opsForValue().get(CACHE_KEY),
+                    () -> {
+                        loads.incrementAndGet();
+                        return "loaded";
+                    });
+
+            assertEquals("from-other-node", result);
+            assertEquals(0, loads.get());
+            assertEquals("other-node", redisTemplate.opsForValue().get(LOCK_KEY));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    void contendedLeaseTimesOutAndLoads() {
+        redisTemplate.opsForValue().set(LOCK_KEY, "other-node");
+
+        // 持有者迟迟没有写入缓存：等待超时后自行回源
+        AtomicInteger loads = new AtomicInteger();
+        long start = System.currentTimeMillis();
+        Object result = singleFlightUtil.loadWithLease(LOCK_KEY,
+                () -> redisTemplate.opsForValue().get(CACHE_KEY),
+                () -> {
+                    loads.incrementAndGet();
+                    return "loaded";
+                });
+
+        assertEquals("loaded", result);
+        assertEquals(1, loads.get());
+        assertTrue(System.currentTimeMillis() - start >= 500);
+        // 没有拿到租约，不能释放持有者的租约
+        assertEquals("other-node", redisTemplate.opsForValue().get(LOCK_KEY));
+    }
+}
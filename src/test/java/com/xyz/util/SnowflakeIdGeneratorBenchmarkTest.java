@@ -0,0 +1,82 @@
+package com.xyz.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ID生成吞吐：单线程和多线程争用同一个生成器时每秒生成的ID数（单个节点号理论上限 4096/毫秒）
+ * （唯一递增的校验见 SnowflakeIdGeneratorTest）
+ * mvn test -Dtest=SnowflakeIdGeneratorBenchmarkTest -Did.benchmark.count=20000000
+ */
+@EnabledIfSystemProperty(named = "id.benchmark.count", matches = "\\d+")
+class SnowflakeIdGeneratorBenchmarkTest {
+
+    @Test
+    void singleThreadThroughput() {
+        int count = Integer.getInteger("id.benchmark.count");
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 0, 10);
+
+        // 预热
+        for (int i = 0; i < 100_000; i++) {
+            generator.nextId();
+        }
+
+        long previous = generator.nextId();
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            long id = generator.nextId();
+            if (id <= previous) {
+                fail("ID未递增: " + previous + " -> " + id);
+            }
+            previous = id;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("single thread : %,d ids in %.0f ms, %,.0f ids/sec, clock waits %d%n",
+                count, seconds * 1000, count / seconds, generator.clockWaits());
+        assertEquals(System.currentTimeMillis(), SnowflakeIdGenerator.timestampOf(previous), 1000);
+    }
+
+    @Test
+    void contendedThroughput() throws InterruptedException {
+        int threads = 8;
+        int perThread = Integer.getInteger("id.benchmark.count") / threads;
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(2, 0, 10);
+        long[][] ids = new long[threads][perThread];
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long[] out = ids[t];
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < out.length; i++) {
+                    out[i] = generator.nextId();
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Set<Long> unique = new HashSet<>(threads * perThread * 2);
+        for (long[] out : ids) {
+            for (int i = 0; i < out.length; i++) {
+                assertTrue(unique.add(out[i]), "重复ID: " + out[i]);
+                if (i > 0) {
+                    assertTrue(out[i] > out[i - 1]);
+                }
+            }
+        }
+        System.out.printf("%d threads     : %,d ids in %.0f ms, %,.0f ids/sec, clock waits %d%n",
+                threads, unique.size(), seconds * 1000, unique.size() / seconds, generator.clockWaits());
+    }
+}
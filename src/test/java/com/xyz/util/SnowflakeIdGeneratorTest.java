@@ -0,0 +1,88 @@
+package com.xyz.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ID唯一递增：单线程、多线程争用同一个生成器、时钟回拨和节点号换任持有者时
+ * （吞吐见 SnowflakeIdGeneratorBenchmarkTest）
+ */
+class SnowflakeIdGeneratorTest {
+
+    @Test
+    void singleThreadIdsIncrease() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, 0, 10);
+        long previous = generator.nextId();
+        for (int i = 0; i < 100_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous, "ID未递增: " + previous + " -> " + id);
+            previous = id;
+        }
+        assertEquals(1, (previous >> 12) & SnowflakeIdGenerator.MAX_WORKER);
+        assertEquals(System.currentTimeMillis(), SnowflakeIdGenerator.timestampOf(previous), 1000);
+    }
+
+    @Test
+    void contendedIdsAreUnique() throws InterruptedException {
+        int threads = 8;
+        int perThread = 50_000;
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(2, 0, 10);
+        long[][] ids = new long[threads][perThread];
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long[] out = ids[t];
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < out.length; i++) {
+                    out[i] = generator.nextId();
+                }
+            });
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Set<Long> unique = new HashSet<>(threads * perThread * 2);
+        for (long[] out : ids) {
+            for (int i = 0; i < out.length; i++) {
+                assertTrue(unique.add(out[i]), "重复ID: " + out[i]);
+                if (i > 0) {
+                    assertTrue(out[i] > out[i - 1]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void clockMovesBackwards() {
+        AtomicLong clock = new AtomicLong(SnowflakeIdGenerator.EPOCH + 1_000_000);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3, 0, 10, clock::get);
+
+        long first = generator.nextId();
+        // 大幅回拨：不等待，沿用上次时间戳继续递增
+        clock.addAndGet(-60_000);
+        long previous = first;
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+        assertTrue(generator.logicalAdvances() > 0);
+        assertEquals(0, generator.clockWaits());
+        // 逻辑时钟按序列号用完的次数前进
+        assertEquals(SnowflakeIdGenerator.timestampOf(first) + 10_000 / 4096,
+                SnowflakeIdGenerator.timestampOf(previous));
+
+        // 下一任持有者从记录的最大时间戳之后开始，即使它的时钟更早
+        SnowflakeIdGenerator next = new SnowflakeIdGenerator(3, generator.lastTimestamp(), 10, clock::get);
+        assertTrue(next.nextId() > previous);
+    }
+}
@@ -0,0 +1,179 @@
+package com.xyz.util;
+
+import com.xyz.properties.FeedProperties;
+import com.xyz.support.RedisTestSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ID 索引 ZSet 的状态迁移（zset_index_transit.lua）：只添加到已存在的 ZSet，
+ * 空结果占位成员 0 被真实成员替换，超出窗口时裁剪并写入哨兵 -1，已裁剪窗口拒绝比底部更旧的成员；
+ * 窗口分页（zset_window_page.lua）：(score, ID) 复合游标的顺序与 MySQL 一致，识别哨兵和占位成员
+ */
+class ZSetIndexUtilTest extends RedisTestSupport {
+
+    private static final String ON_SALE = "test:goods:onSale";
+    private static final String OFF_SHELF = "test:goods:offShelf";
+
+    private FeedProperties feedProperties;
+    private ZSetIndexUtil zSetIndexUtil;
+
+    @BeforeEach
+    void setUp() {
+        feedProperties = new FeedProperties();
+        feedProperties.setWindowSize(3);
+        zSetIndexUtil = new ZSetIndexUtil();
+        ReflectionTestUtils.setField(zSetIndexUtil, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(zSetIndexUtil, "feedProperties", feedProperties);
+    }
+
+    @Test
+    void missingZSetIsNotCreated() {
+        // 未缓存的索引由查询时重建，不能建出只有1个成员的残缺索引
+        assertEquals(0, zSetIndexUtil.addIfExists(ON_SALE, 1L, 1000));
+        assertFalse(redisTemplate.hasKey(ON_SALE));
+    }
+
+    @Test
+    void placeholderIsReplacedByRealMember() {
+        zSetIndexUtil.rebuildWindow(ON_SALE, (cursor, cursorId, limit) -> Collections.emptyList(), "id", "time", 60);
+        assertEquals(Set.of(ZSetIndexUtil.EMPTY_PLACEHOLDER), members(ON_SALE));
+
+        assertEquals(1, zSetIndexUtil.addIfExists(ON_SALE, 10L, 1000));
+        assertEquals(Set.of(10L), members(ON_SALE));
+    }
+
+    @Test
+    void overflowTrimsOldestAndAddsSentinel() {
+        for (long id = 1; id <= 3; id++) {
+            redisTemplate.opsForZSet().add(ON_SALE, id, id * 1000);
+        }
+
+        // 窗口已满：裁掉最旧的成员，写入哨兵
+        assertEquals(1, zSetIndexUtil.addIfExists(ON_SALE, 4L, 4000));
+        assertEquals(Set.of(2L, 3L, 4L, ZSetIndexUtil.WINDOW_SENTINEL), members(ON_SALE));
+        assertEquals(0.0, redisTemplate.opsForZSet().score(ON_SALE, ZSetIndexUtil.WINDOW_SENTINEL));
+
+        // 再次溢出：哨兵保留且只有一个
+        assertEquals(1, zSetIndexUtil.addIfExists(ON_SALE, 5L, 5000));
+        assertEquals(Set.of(3L, 4L, 5L, ZSetIndexUtil.WINDOW_SENTINEL), members(ON_SALE));
+
+        // 比窗口底部更旧的成员不能放进已裁剪的窗口，否则窗口和 MySQL 之间会出现空洞
+        assertEquals(0, zSetIndexUtil.addIfExists(ON_SALE, 1L, 1000));
+        assertEquals(Set.of(3L, 4L, 5L, ZSetIndexUtil.WINDOW_SENTINEL), members(ON_SALE));
+    }
+
+    @Test
+    void transitMovesMemberAcrossWindows() {
+        redisTemplate.opsForZSet().add(ON_SALE, 1L, 1000);
+        redisTemplate.opsForZSet().add(ON_SALE, 2L, 2000);
+        for (long id = 3; id <= 5; id++) {
+            redisTemplate.opsForZSet().add(OFF_SHELF, id, id * 1000);
+        }
+        redisTemplate.opsForZSet().add(OFF_SHELF, ZSetIndexUtil.WINDOW_SENTINEL, 0);
+
+        // 下架：从在售窗口移除，加入下架窗口（新的时间戳在底部之上）
+        assertEquals(1, zSetIndexUtil.transit(2L, 6000, List.of(ON_SALE), List.of(OFF_SHELF)));
+        assertEquals(Set.of(1L), members(ON_SALE));
+        assertEquals(Set.of(4L, 5L, 2L, ZSetIndexUtil.WINDOW_SENTINEL), members(OFF_SHELF));
+
+        // 保持原时间戳迁移：比下架窗口的底部更旧，只从在售窗口移除，由 MySQL 兜底
+        assertEquals(0, zSetIndexUtil.transit(1L, 1000, List.of(ON_SALE), List.of(OFF_SHELF)));
+        assertTrue(members(ON_SALE).isEmpty());
+        assertEquals(Set.of(4L, 5L, 2L, ZSetIndexUtil.WINDOW_SENTINEL), members(OFF_SHELF));
+
+        // 从多个索引中移除
+        zSetIndexUtil.remove(List.of(ON_SALE, OFF_SHELF), 5L);
+        assertEquals(Set.of(4L, 2L, ZSetIndexUtil.WINDOW_SENTINEL), members(OFF_SHELF));
+    }
+
+    @Test
+    void missingAndEmptyWindows() {
+        assertNull(zSetIndexUtil.readWindow(ON_SALE, ZSetIndexUtil.MAX_CURSOR, 0, 10));
+
+        // 只有占位成员：空页，不需要回源
+        zSetIndexUtil.rebuildWindow(ON_SALE, (cursor, cursorId, limit) -> Collections.emptyList(), "id", "time", 60);
+        ZSetIndexUtil.WindowPage page = zSetIndexUtil.readWindow(ON_SALE, ZSetIndexUtil.MAX_CURSOR, 0, 10);
+        assertTrue(page.getIds().isEmpty());
+        assertFalse(page.isTruncated());
+        assertNull(page.getLastScore());
+    }
+
+    @Test
+    void partiallyFilledWindowIsComplete() {
+        List<long[]> rows = List.of(new long[]{2, 2000}, new long[]{1, 1000});
+        zSetIndexUtil.rebuildWindow(ON_SALE, loader(rows), "id", "time", 60);
+        assertFalse(members(ON_SALE).contains(ZSetIndexUtil.WINDOW_SENTINEL));
+
+        // 窗口未满：读到底也不需要回源
+        ZSetIndexUtil.WindowPage page = zSetIndexUtil.readWindow(ON_SALE, ZSetIndexUtil.MAX_CURSOR, 0, 10);
+        assertEquals(List.of(2L, 1L), page.getIds());
+        assertEquals(List.of(2000L, 1000L), page.getScores());
+        assertFalse(page.isTruncated());
+    }
+
+    @Test
+    void truncatedWindowPagesInMysqlOrder() {
+        feedProperties.setWindowSize(5);
+        feedProperties.setRebuildChunkSize(2);
+        // 同一毫秒内的多个ID：9 和 10 按字节序与数值序相反
+        List<long[]> rows = List.of(new long[]{12, 3000}, new long[]{11, 2000}, new long[]{10, 2000},
+                new long[]{9, 2000}, new long[]{8, 1000}, new long[]{7, 1000}, new long[]{6, 500});
+        zSetIndexUtil.rebuildWindow(ON_SALE, loader(rows), "id", "time", 60);
+        assertEquals(Set.of(12L, 11L, 10L, 9L, 8L, ZSetIndexUtil.WINDOW_SENTINEL), members(ON_SALE));
+
+        // 每页2个，翻页衔接处落在同一毫秒内
+        ZSetIndexUtil.WindowPage first = zSetIndexUtil.readWindow(ON_SALE, ZSetIndexUtil.MAX_CURSOR, 0, 2);
+        assertEquals(List.of(12L, 11L), first.getIds());
+        assertFalse(first.isTruncated());
+        ZSetIndexUtil.WindowPage second = zSetIndexUtil.readWindow(ON_SALE, first.getLastScore(), first.getLastId(), 2);
+        assertEquals(List.of(10L, 9L), second.getIds());
+        assertEquals(List.of(2000L, 2000L), second.getScores());
+
+        // 读到窗口底部：返回哨兵标记和回源 MySQL 的复合游标
+        ZSetIndexUtil.WindowPage third = zSetIndexUtil.readWindow(ON_SALE, second.getLastScore(), second.getLastId(), 2);
+        assertEquals(List.of(8L), third.getIds());
+        assertTrue(third.isTruncated());
+        assertEquals(1000L, third.getLastScore());
+        assertEquals(8L, third.getLastId());
+    }
+
+    @Test
+    void limitCutInsideTiedScoresKeepsNumericOrder() {
+        // 同一 score 上 ID 9..12，Redis 按字节序排列为 10, 11, 12, 9
+        for (long id = 9; id <= 12; id++) {
+            redisTemplate.opsForZSet().add(ON_SALE, id, 2000);
+        }
+        redisTemplate.opsForZSet().add(ON_SALE, 20L, 3000);
+
+        assertEquals(List.of(20L, 12L), zSetIndexUtil.readWindow(ON_SALE, ZSetIndexUtil.MAX_CURSOR, 0, 2).getIds());
+        assertEquals(List.of(11L, 10L, 9L), zSetIndexUtil.readWindow(ON_SALE, 2000, 12, 5).getIds());
+        // 旧游标（cursorId 为 0）跳过游标时间戳上的全部成员
+        assertTrue(zSetIndexUtil.readWindow(ON_SALE, 2000, 0, 5).getIds().isEmpty());
+    }
+
+    // ==================== 辅助方法 ====================
+
+    /**
+     * 按 (time DESC, id DESC) 排好序的行上的 keyset 分页
+     */
+    private static ZSetIndexUtil.ChunkLoader loader(List<long[]> rows) {
+        return (cursor, cursorId, limit) -> rows.stream()
+                .filter(r -> r[1] < cursor || (r[1] == cursor && r[0] < cursorId))
+                .limit(limit)
+                .map(r -> Map.<String, Object>of("id", r[0], "time", r[1]))
+                .collect(Collectors.toList());
+    }
+
+    private Set<Long> members(String key) {
+        Set<Object> members = redisTemplate.opsForZSet().range(key, 0, -1);
+        return members == null ? Collections.emptySet()
+                : members.stream().map(m -> ((Number) m).longValue()).collect(Collectors.toSet());
+    }
+}